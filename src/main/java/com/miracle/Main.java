@@ -23,6 +23,7 @@ import com.miracle.src.services.AccountManager;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.PrintStream;
+import java.nio.file.Paths;
 
 
 public class Main {
@@ -36,11 +37,46 @@ public class Main {
 
     public static void main(String[] args) throws InterruptedException, InvalidAmountException, OverdraftExceededException, IOException {
 
+        // Headless backup: java com.miracle.Main backup <directory>
+        if (args.length >= 2 && args[0].equalsIgnoreCase("backup")) {
+            BackupService.BackupResult result = BackupService.getInstance().backup(Paths.get(args[1]));
+            System.out.println("Backup to " + args[1] + " complete: " + result);
+            return;
+        }
+
         System.out.println("\n Loading account data from files...\n");
 //        AccountManager.loadAccountsOnStart();
 //        TransactionManager.loadTransactionsOnStart();
 
         FilePersistenceService.getInstance().loadAllDataOnStartup();
+        HoldService.getInstance().start();
+
+        // Opt-in periodic snapshots, e.g. -Dbank.snapshot.interval.seconds=300
+        long snapshotInterval = Long.getLong("bank.snapshot.interval.seconds", 0L);
+        if (snapshotInterval > 0) {
+            FilePersistenceService.getInstance().startPeriodicCheckpoints(snapshotInterval);
+        }
+        // Opt-in single-writer posting lanes, e.g. -Dbank.posting.lanes=4 (one per core)
+        int postingLanes = Integer.getInteger("bank.posting.lanes", 0);
+        if (postingLanes > 0) {
+            accountManager.enablePostingLanes(postingLanes);
+        }
+        // Or the ring-buffer posting pipeline, e.g. -Dbank.posting.pipeline=1024 (ring slots)
+        int pipelineRing = Integer.getInteger("bank.posting.pipeline", 0);
+        if (pipelineRing > 0 && postingLanes <= 0) {
+            accountManager.enablePostingPipeline(pipelineRing);
+        }
+        // Opt-in admission control, e.g. -Dbank.admission.limit=16 (starting concurrency limit)
+        int admissionLimit = Integer.getInteger("bank.admission.limit", 0);
+        if (admissionLimit > 0) {
+            accountManager.enableAdmissionControl(AdmissionController.fromSystemProperties(admissionLimit));
+        }
+        // After the posting path is configured: the first tick catches up on missed runs
+        StandingOrderService.getInstance().start();
+        // Opt-in: finish an end-of-day run a crash interrupted, e.g. -Dbank.eod.resume=true
+        if (Boolean.getBoolean("bank.eod.resume")) {
+            EndOfDayService.getInstance().resumeUnfinished();
+        }
         runMainMenu();
 
 
@@ -88,8 +124,7 @@ public class Main {
                         }
                     }));
 
-                    accountManager.saveAccountsOnExit();
-                    transactionManager.saveTransactionsOnExit();
+                    FilePersistenceService.getInstance().checkpoint();
 
                     System.setOut(originalOut);
                     System.out.println("\n╔═════════════════════════════════════════════════════════════╗");
@@ -220,6 +255,7 @@ public class Main {
         System.out.println("1. Save Data");
         System.out.println("2. Load Data");
         System.out.println("3. Seed Initial Data (Demo)");
+        System.out.println("4. Online Backup");
         System.out.println("0. Back to Main Menu");
         System.out.println("\n");
 
@@ -241,11 +277,22 @@ public class Main {
             case 3:
                 DataSeeder.seedInitialData();
                 break;
+            case 4:
+                String backupDir = InputUtils.readLine("Enter backup directory:> ").trim();
+                if (backupDir.isEmpty()) {
+                    System.out.println("Backup directory cannot be empty.");
+                    break;
+                }
+                System.out.println("\nBACKING UP DATA");
+                System.out.println("=".repeat(30));
+                BackupService.BackupResult result = BackupService.getInstance().backup(Paths.get(backupDir));
+                System.out.println("Backup complete: " + result);
+                break;
             case 0:
                 System.out.println("Returning to main menu...");
                 break;
             default:
-                System.out.println("Invalid choice. Please select 0-3.");
+                System.out.println("Invalid choice. Please select 0-4.");
         }
 
     }
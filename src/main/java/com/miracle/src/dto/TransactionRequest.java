@@ -1,10 +1,22 @@
 package com.miracle.src.dto;
 
 public class TransactionRequest {
+
+    /**
+     * Where a request comes from; under load, batch requests wait behind interactive ones.
+     */
+    public enum Origin {
+        INTERACTIVE,
+        BATCH
+    }
+
     private String userAccountNumber;
     private String receiverAccountNumber;
     private String transactionType;
     private double amount;
+    // Optional; requests sharing a key are posted once (see AccountManager.processTransaction)
+    private String idempotencyKey;
+    private Origin origin = Origin.INTERACTIVE;
 
     public TransactionRequest(String userAccountNumber, String receiverAccountNumber, String transactionType, double amount) {
         this.userAccountNumber = userAccountNumber;
@@ -13,6 +25,12 @@ public class TransactionRequest {
         this.amount = amount;
     }
 
+    public TransactionRequest(String userAccountNumber, String receiverAccountNumber, String transactionType,
+                              double amount, String idempotencyKey) {
+        this(userAccountNumber, receiverAccountNumber, transactionType, amount);
+        this.idempotencyKey = idempotencyKey;
+    }
+
     public String getUserAccountNumber() {
         return userAccountNumber;
     }
@@ -44,4 +62,20 @@ public class TransactionRequest {
     public void setAmount(double amount) {
         this.amount = amount;
     }
+
+    public String getIdempotencyKey() {
+        return idempotencyKey;
+    }
+
+    public void setIdempotencyKey(String idempotencyKey) {
+        this.idempotencyKey = idempotencyKey;
+    }
+
+    public Origin getOrigin() {
+        return origin;
+    }
+
+    public void setOrigin(Origin origin) {
+        this.origin = origin == null ? Origin.INTERACTIVE : origin;
+    }
 }
@@ -6,9 +6,12 @@ import com.miracle.src.services.AccountManager;
 import com.miracle.src.dto.TransactionRequest;
 import com.miracle.src.models.exceptions.InvalidAmountException;
 import com.miracle.src.models.exceptions.OverdraftExceededException;
+import com.miracle.src.models.exceptions.OverloadedException;
+import com.miracle.src.models.exceptions.VelocityLimitExceededException;
 import com.miracle.src.utils.TransactionProcessingInput;
 
 import java.util.Optional;
+import java.util.concurrent.CompletionException;
 
 /**
  * Handles processing of transactions such as deposits, withdrawals, and transfers.
@@ -38,7 +41,12 @@ public class TransactionHandler {
                 return;
             }
 
-            manager.processTransaction(request);
+            try {
+                manager.processTransaction(request).join();
+            } catch (CompletionException e) {
+                // Posting lanes fail the future instead of throwing; report it the same way
+                rethrowPostingFailure(e.getCause());
+            }
             System.out.println("✔ Transaction processed successfully!");
 
         } catch (InvalidAmountException e) {
@@ -50,6 +58,12 @@ public class TransactionHandler {
         } catch (AccountNotFoundException e) {
             System.out.println("\n Transaction failed: Account not found.");
             System.out.println("   Please check the account number and try again.");
+        } catch (OverloadedException e) {
+            System.out.println("\n Transaction not processed: the system is busy.");
+            System.out.println("   Nothing was posted; please try again shortly.");
+        } catch (VelocityLimitExceededException e) {
+            System.out.println("\n Transaction failed: " + e.getMessage());
+            System.out.println("   The limit frees up as postings older than 24 hours drop out.");
         } catch (RuntimeException e) {
             if (e.getCause() instanceof OverdraftExceededException) {
                 System.out.println("\n Transaction failed: " + e.getCause().getMessage());
@@ -63,4 +77,24 @@ public class TransactionHandler {
             e.printStackTrace();
         }
     }
+
+    private static void rethrowPostingFailure(Throwable failure)
+            throws InvalidAmountException, OverdraftExceededException, AccountNotFoundException, InsufficientFundsException {
+        if (failure instanceof InvalidAmountException e) {
+            throw e;
+        }
+        if (failure instanceof OverdraftExceededException e) {
+            throw e;
+        }
+        if (failure instanceof AccountNotFoundException e) {
+            throw e;
+        }
+        if (failure instanceof InsufficientFundsException e) {
+            throw e;
+        }
+        if (failure instanceof RuntimeException e) {
+            throw e;
+        }
+        throw new RuntimeException(failure);
+    }
 }
@@ -3,16 +3,87 @@ package com.miracle.src.models;
 import com.miracle.src.models.exceptions.InsufficientFundsException;
 import com.miracle.src.models.exceptions.InvalidAmountException;
 import com.miracle.src.models.exceptions.OverdraftExceededException;
+import com.miracle.src.models.exceptions.VelocityLimitExceededException;
+import com.miracle.src.services.TransactionManager;
+import com.miracle.src.utils.CoarseClock;
+import com.miracle.src.utils.SlidingWindowCounter;
 
 import java.io.Serializable;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.time.ZoneOffset;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.StampedLock;
 
 public abstract class Account implements Serializable {
     private static final long serialVersionUID = 1L;
     public static int accountCounter = 0;
 
+    /**
+     * With -Dbank.balance.lockfree=true the balance is held in whole cents and postings
+     * change it with a compare-and-set loop instead of taking the account monitor; limit
+     * checks are part of the CAS so a rejected posting never changes the balance. Each
+     * CAS also takes the account's next posting sequence, and postings record their
+     * transactions in sequence order, so the log's last balanceAfter for an account is
+     * always its balance. Balances are limited to ±2^47 cents in this mode.
+     */
+    public static final boolean LOCK_FREE_BALANCE = Boolean.getBoolean("bank.balance.lockfree");
+
+    /** Returned by {@link #tryAdjustAvailable} when the limit check fails. */
+    protected static final long REJECTED = Long.MIN_VALUE;
+
+    // Lock-free mode: the low bits of the balance word count its changes, the rest are cents
+    private static final int SEQUENCE_BITS = 16;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+
+    /** Returned by {@link #depositCents} and {@link #withdrawCents} when the limit check fails. */
+    public static final long NOT_POSTED = -1L;
+
+    // countVelocity results besides the time counted at
+    private static final long NOT_LIMITED = 0L;
+    private static final long OVER_LIMIT = -1L;
+
+    // Lock-free mode: waiting for the recording turn spins only where another CPU can end it
+    private static final int TURN_SPINS = Runtime.getRuntime().availableProcessors() > 1 ? 128 : 0;
+    private static final int TURN_WAITER_SLOTS = 64;
+    private static final long MIN_TURN_PARK_NANOS = 1_000L;
+    private static final long MAX_TURN_PARK_NANOS = 100_000L;
+
+    private static final VarHandle BALANCE_WORD;
+    private static final VarHandle HELD_CENTS;
+    private static final VarHandle TURN_WAITERS;
+    private static final VarHandle TURN_WAITER = MethodHandles.arrayElementVarHandle(Thread[].class);
+
+    static {
+        try {
+            BALANCE_WORD = MethodHandles.lookup().findVarHandle(Account.class, "balanceWord", long.class);
+            HELD_CENTS = MethodHandles.lookup().findVarHandle(Account.class, "heldCents", long.class);
+            TURN_WAITERS = MethodHandles.lookup().findVarHandle(Account.class, "turnWaiters", Thread[].class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
     //    private field
     private String accountNumber;
     private volatile double balance;
+    // Lock-free mode only; cents and posting sequence, accessed through BALANCE_WORD
+    private volatile long balanceWord;
+    // Lock-free mode only; sequence of the last balance change whose posting is recorded
+    private transient volatile long recordedSequence;
+    // Lock-free mode only; postings parked for their recording turn, by the sequence they wait for
+    private transient volatile Thread[] turnWaiters;
+    // Reserved by authorization holds, in every mode; changed only through HELD_CENTS.
+    // Persisted with the holds themselves (HoldService), not with the account.
+    private transient volatile long heldCents;
+    // Guards the balance/status pair for readers; postings hold the write lock only while
+    // the balance changes and its transaction is queued. Accounts are never Java-serialized.
+    private final transient StampedLock stateLock = new StampedLock();
+    private static final int OPTIMISTIC_READ_ATTEMPTS = 8;
+    // Set while a posting lane owns the account; its thread is then the only writer
+    private transient volatile PostingLane lane;
+    // Debits of the last 24 hours by VelocityLimits.Kind; created on first use while limits are on
+    private transient volatile SlidingWindowCounter velocity;
     private String status = "Active";
     private final Customer customer;
 
@@ -36,6 +107,16 @@ public abstract class Account implements Serializable {
         this.accountNumber = accountNumber;
         // Update the counter to be at least as high as this account number
         // to prevent duplicate account numbers when creating new accounts
+        ensureCounterAtLeast(accountNumber);
+    }
+
+    /**
+     * Raises the account counter to at least the number in an ACC account number, so new
+     * accounts never take a number already in use, e.g. by postings in the log.
+     *
+     * @param accountNumber the account number; other forms are ignored
+     */
+    public static void ensureCounterAtLeast(String accountNumber) {
         try {
             if (accountNumber != null && accountNumber.startsWith("ACC")) {
                 int num = Integer.parseInt(accountNumber.substring(3));
@@ -68,6 +149,9 @@ public abstract class Account implements Serializable {
     }
 
     public double getBalance() {
+        if (LOCK_FREE_BALANCE) {
+            return centsOf((long) BALANCE_WORD.getVolatile(this)) / 100.0;
+        }
         return balance;
     }
 
@@ -75,10 +159,59 @@ public abstract class Account implements Serializable {
         return status;
     }
 
+    /**
+     * @return the funds reserved by active authorization holds
+     */
+    public final double getHeldAmount() {
+        return heldCents / 100.0;
+    }
+
+    /**
+     * @return the balance less held funds: what withdrawals can draw on, down to the
+     * minimum balance or overdraft limit
+     */
+    public final double getAvailableBalance() {
+        return (toCents(getBalance()) - heldCents) / 100.0;
+    }
+
     // SETTERS
 
+    /**
+     * Reads the balance and status as one consistent pair without blocking postings.
+     * Optimistic reads are retried when a writer intervenes; only a reader that keeps
+     * losing falls back to the read lock.
+     */
+    public State readState() {
+        for (int attempt = 0; attempt < OPTIMISTIC_READ_ATTEMPTS; attempt++) {
+            long stamp = stateLock.tryOptimisticRead();
+            if (stamp != 0) {
+                double currentBalance = getBalance();
+                String currentStatus = status;
+                if (stateLock.validate(stamp)) {
+                    return new State(currentBalance, currentStatus);
+                }
+            }
+            Thread.onSpinWait();
+        }
+        long stamp = stateLock.readLock();
+        try {
+            return new State(getBalance(), status);
+        } finally {
+            stateLock.unlockRead(stamp);
+        }
+    }
+
     public void setBalance(double balance) {
-        this.balance = balance;
+        if (LOCK_FREE_BALANCE) {
+            replaceCents(toCents(balance));
+            return;
+        }
+        long stamp = stateLock.writeLock();
+        try {
+            this.balance = balance;
+        } finally {
+            stateLock.unlockWrite(stamp);
+        }
     }
 
     /**
@@ -86,15 +219,545 @@ public abstract class Account implements Serializable {
      * and returns the updated value. Subclasses should prefer this over direct setBalance
      * when changing the balance.
      */
-    public synchronized double updateBalance(double newBalance) {
+    public double updateBalance(double newBalance) {
+        if (LOCK_FREE_BALANCE) {
+            replaceCents(toCents(newBalance));
+            return getBalance();
+        }
+        synchronized (this) {
+            long stamp = stateLock.writeLock();
+            try {
+                this.balance = newBalance;
+            } finally {
+                stateLock.unlockWrite(stamp);
+            }
+            return this.balance;
+        }
+    }
+
+    /**
+     * Hands the account to a posting lane, or takes it back with null. Postings already
+     * running elsewhere must have finished; {@code PostingLanes} assigns accounts before
+     * routing any posting to them.
+     */
+    public final void assignLane(PostingLane lane) {
+        this.lane = lane;
+    }
+
+    public final PostingLane getLane() {
+        return lane;
+    }
+
+    protected final boolean isLaneOwned() {
+        return lane != null;
+    }
+
+    /**
+     * Runs a posting body on the owning lane: directly when already on it, otherwise by
+     * handing it over and waiting.
+     */
+    protected final <T, X extends Exception, Y extends Exception> T onOwningLane(
+            PostingLane.Posting<T, X, Y> posting) throws X, Y {
+        PostingLane owner = lane;
+        if (owner == null || owner.isCurrentThread()) {
+            return posting.run();
+        }
+        return owner.call(posting);
+    }
+
+    /**
+     * Monitor mode: sets the balance and queues the posting's transaction inside one state
+     * write, so a reader that validates its stamp never sees a balance whose transaction is
+     * not yet queued. Callers hold the account monitor and have checked the balance; a debit
+     * past its daily velocity limit is refused here with {@link VelocityLimitExceededException}.
+     * <p>
+     * On the owning lane's thread there is no other writer, so neither is taken: the lane
+     * journals the transaction with its batch and keeps the snapshot barrier
+     * ({@link InFlightPostings}) held until the batch reaches the history.
+     * </p>
+     *
+     * @return the recorded transaction
+     */
+    protected final Transaction applyPosting(double newBalance, String type, double amount) {
+        if (countVelocity(type, toCents(amount)) == OVER_LIMIT) {
+            throw velocityRejection(type, toCents(amount));
+        }
+        return writePosting(newBalance, type, amount);
+    }
 
+    // applyPosting once the limits have been checked
+    private Transaction writePosting(double newBalance, String type, double amount) {
+        PostingLane owner = lane;
+        if (owner != null && owner.isCurrentThread()) {
             this.balance = newBalance;
-            return this.balance;
+            Transaction transaction = new Transaction(getAccountNumber(), type, amount, newBalance);
+            owner.journal(transaction);
+            return transaction;
+        }
+        long stamp = stateLock.writeLock();
+        try {
+            this.balance = newBalance;
+            Transaction transaction = new Transaction(getAccountNumber(), type, amount, newBalance);
+            TransactionManager.getInstance().addTransaction(transaction);
+            return transaction;
+        } finally {
+            stateLock.unlockWrite(stamp);
+        }
+    }
+
+    private static long centsOf(long word) {
+        return word >> SEQUENCE_BITS;
+    }
+
+    // The word after one more change, to the given cents
+    private static long nextWord(long word, long cents) {
+        return cents << SEQUENCE_BITS | (word + 1) & SEQUENCE_MASK;
+    }
+
+    /**
+     * Lock-free mode: adds {@code deltaCents} to the balance unless the result, less held
+     * funds for a floored debit, would fall below {@code floorCents}, retrying until the
+     * compare-and-set succeeds. A rejected posting never changes the balance, so no other
+     * posting can record a balance that is later taken back.
+     * <p>
+     * Holds are reserved without changing the balance, so the held total is read after
+     * the balance word, and {@link #reserveCents} adds its hold before changing the word
+     * itself. Whichever CAS comes second sees the other's write, so a debit and a hold
+     * never both succeed on the same funds.
+     * </p>
+     * <p>
+     * A successful change must be followed by {@link #awaitRecordingTurn} and
+     * {@link #finishRecording} with the returned word, also when nothing is recorded.
+     * </p>
+     *
+     * @return the balance word after this change, or {@link #REJECTED}
+     */
+    private long tryAdjustAvailable(long deltaCents, long floorCents) {
+        boolean checkHeld = deltaCents < 0 && floorCents != Long.MIN_VALUE;
+        long current = (long) BALANCE_WORD.getVolatile(this);
+        while (true) {
+            long next = centsOf(current) + deltaCents;
+            if (next < floorCents || checkHeld && next - (long) HELD_CENTS.getVolatile(this) < floorCents) {
+                return REJECTED;
+            }
+            long word = nextWord(current, next);
+            long witness = (long) BALANCE_WORD.compareAndExchange(this, current, word);
+            if (witness == current) {
+                return word;
+            }
+            current = witness;
+        }
+    }
+
+    /**
+     * Lock-free mode: waits until the postings whose CAS came before the one that produced
+     * {@code word} have recorded their transactions, so transactions reach the log in the
+     * order their balances were applied. Spins briefly, then parks in the waiter slot of
+     * the sequence it waits for until {@link #finishRecording} of that sequence unparks it;
+     * if another waiter holds the slot (more than {@link #TURN_WAITER_SLOTS} postings in
+     * flight on the account) it parks for short, growing intervals instead.
+     */
+    private void awaitRecordingTurn(long word) {
+        long previous = (word - 1) & SEQUENCE_MASK;
+        for (int i = 0; i < TURN_SPINS; i++) {
+            if (recordedSequence == previous) {
+                return;
+            }
+            Thread.onSpinWait();
+        }
+        Thread[] waiters = turnWaiters();
+        int slot = (int) (previous & (TURN_WAITER_SLOTS - 1));
+        Thread current = Thread.currentThread();
+        boolean registered = TURN_WAITER.compareAndSet(waiters, slot, null, current);
+        // Re-checked after registering; finishRecording sets the sequence before reading the slot
+        long parkNanos = MIN_TURN_PARK_NANOS;
+        while (recordedSequence != previous) {
+            if (registered) {
+                LockSupport.park(this);
+            } else {
+                LockSupport.parkNanos(this, parkNanos);
+                parkNanos = Math.min(parkNanos * 2, MAX_TURN_PARK_NANOS);
+            }
+        }
+        if (registered) {
+            TURN_WAITER.compareAndSet(waiters, slot, current, null);
+        }
+    }
+
+    private void finishRecording(long word) {
+        long sequence = word & SEQUENCE_MASK;
+        recordedSequence = sequence;
+        Thread[] waiters = turnWaiters;
+        if (waiters != null) {
+            // May wake a waiter for a later sequence sharing the slot; it re-checks and parks again
+            Thread waiter = (Thread) TURN_WAITER.getVolatile(waiters, (int) (sequence & (TURN_WAITER_SLOTS - 1)));
+            if (waiter != null) {
+                LockSupport.unpark(waiter);
+            }
+        }
+    }
+
+    // Created by the first posting that has to park for its recording turn
+    private Thread[] turnWaiters() {
+        Thread[] waiters = turnWaiters;
+        if (waiters == null) {
+            TURN_WAITERS.compareAndSet(this, null, new Thread[TURN_WAITER_SLOTS]);
+            waiters = turnWaiters;
+        }
+        return waiters;
+    }
+
+    // Lock-free mode: sets the balance outside any posting, e.g. on restore, keeping the sequence
+    private void replaceCents(long cents) {
+        long current = (long) BALANCE_WORD.getVolatile(this);
+        while (true) {
+            long witness = (long) BALANCE_WORD.compareAndExchange(this, current,
+                    cents << SEQUENCE_BITS | current & SEQUENCE_MASK);
+            if (witness == current) {
+                return;
+            }
+            current = witness;
         }
+    }
+
+    /**
+     * Lock-free mode: applies a posting with {@link #tryAdjustAvailable} and, once the
+     * CAS has succeeded, records its transaction with the balance that CAS produced, after
+     * the postings whose CAS came first.
+     *
+     * A debit is first counted against its daily velocity limit and taken back off if the
+     * CAS then rejects it.
+     *
+     * @return the recorded transaction, or null if the limit check rejected the posting
+     * @throws VelocityLimitExceededException if the debit would pass its daily limit
+     */
+    protected final Transaction postLockFree(String type, long deltaCents, long floorCents) {
+        long amountCents = Math.abs(deltaCents);
+        long counted = countVelocity(type, amountCents);
+        if (counted == OVER_LIMIT) {
+            throw velocityRejection(type, amountCents);
+        }
+        Transaction posted = adjustAndRecord(type, deltaCents, floorCents);
+        if (posted == null && counted != NOT_LIMITED) {
+            refundVelocity(type, amountCents, counted);
+        }
+        return posted;
+    }
+
+    private Transaction adjustAndRecord(String type, long deltaCents, long floorCents) {
+        int token = InFlightPostings.enter();
+        try {
+            long word = tryAdjustAvailable(deltaCents, floorCents);
+            if (word == REJECTED) {
+                return null;
+            }
+            awaitRecordingTurn(word);
+            try {
+                Transaction transaction = new Transaction(getAccountNumber(), type,
+                        Math.abs(deltaCents) / 100.0, centsOf(word) / 100.0);
+                TransactionManager.getInstance().addTransaction(transaction);
+                return transaction;
+            } finally {
+                finishRecording(word);
+            }
+        } finally {
+            InFlightPostings.exit(token);
+        }
+    }
+
+    /**
+     * Lowest balance in cents a withdrawal may leave: the minimum balance for savings, the
+     * overdraft limit below zero for checking.
+     */
+    protected abstract long withdrawalFloorCents();
+
+    /**
+     * Hot-path deposit. Works in cents and records the transaction as a primitive row
+     * through {@link TransactionManager#recordPosting}, so on the posting thread it
+     * allocates nothing: no Transaction, no ID string, no {@code LocalDateTime}. Pass the
+     * result to {@link Transaction#formatId} for display.
+     * <p>
+     * Postings to a lane-owned account are handed to the lane as usual, which allocates
+     * the hand-off, and journaled with the lane's batch behind its other postings.
+     * </p>
+     *
+     * @return the transaction number
+     */
+    public final long depositCents(long amountCents) throws InvalidAmountException {
+        if (amountCents <= 0) {
+            throw new InvalidAmountException(amountCents / 100.0);
+        }
+        return postCents("Deposit", amountCents, amountCents, Long.MIN_VALUE);
+    }
+
+    /**
+     * Hot-path withdrawal, the counterpart of {@link #depositCents}. A withdrawal that would
+     * take the balance below {@link #withdrawalFloorCents()}, or past the daily velocity
+     * limit, is not posted; no exception is built for it.
+     *
+     * @return the transaction number, or {@link #NOT_POSTED}
+     */
+    public final long withdrawCents(long amountCents) throws InvalidAmountException {
+        if (amountCents <= 0) {
+            throw new InvalidAmountException(amountCents / 100.0);
+        }
+        return postCents("Withdrawal", amountCents, -amountCents, withdrawalFloorCents());
+    }
+
+    private long postCents(String type, long amountCents, long deltaCents, long floorCents) {
+        if (LOCK_FREE_BALANCE) {
+            long counted = countVelocity(type, amountCents);
+            if (counted == OVER_LIMIT) {
+                return NOT_POSTED;
+            }
+            int token = InFlightPostings.enter();
+            try {
+                long word = tryAdjustAvailable(deltaCents, floorCents);
+                if (word == REJECTED) {
+                    if (counted != NOT_LIMITED) {
+                        refundVelocity(type, amountCents, counted);
+                    }
+                    return NOT_POSTED;
+                }
+                awaitRecordingTurn(word);
+                try {
+                    return record(type, amountCents, centsOf(word));
+                } finally {
+                    finishRecording(word);
+                }
+            } finally {
+                InFlightPostings.exit(token);
+            }
+        }
+        PostingLane owner = lane;
+        if (owner != null) {
+            if (owner.isCurrentThread()) {
+                // The lane holds the snapshot barrier for its whole batch
+                return applyCents(type, amountCents, deltaCents, floorCents);
+            }
+            return this.<Long, RuntimeException, RuntimeException>onOwningLane(
+                    () -> applyCents(type, amountCents, deltaCents, floorCents));
+        }
+        synchronized (this) {
+            long stamp = stateLock.writeLock();
+            try {
+                return applyCents(type, amountCents, deltaCents, floorCents);
+            } finally {
+                stateLock.unlockWrite(stamp);
+            }
+        }
+    }
+
+    // Callers are the only writer of the balance
+    private long applyCents(String type, long amountCents, long deltaCents, long floorCents) {
+        long balanceAfter = toCents(balance) + deltaCents;
+        long availableAfter = deltaCents < 0 ? balanceAfter - heldCents : balanceAfter;
+        if (availableAfter < floorCents || countVelocity(type, amountCents) == OVER_LIMIT) {
+            return NOT_POSTED;
+        }
+        this.balance = balanceAfter / 100.0;
+        return record(type, amountCents, balanceAfter);
+    }
+
+    /**
+     * Reserves funds for an authorization hold if the available balance covers them down to
+     * {@link #withdrawalFloorCents()}. The balance is unchanged; withdrawals just can no
+     * longer draw on the reserved amount. Holds themselves are tracked by {@code HoldService}.
+     *
+     * @return false if the available balance is too low; nothing is reserved then
+     */
+    public final boolean reserveCents(long amountCents) {
+        if (LOCK_FREE_BALANCE) {
+            return reserveLockFree(amountCents);
+        }
+        if (isLaneOwned()) {
+            return this.<Boolean, RuntimeException, RuntimeException>onOwningLane(() -> reserveAboveFloor(amountCents));
+        }
+        synchronized (this) {
+            return reserveAboveFloor(amountCents);
+        }
+    }
+
+    // The hold goes in first, then a CAS that changes only the sequence confirms the balance
+    // still covers it; see tryAdjustAvailable for why debits then cannot use the same funds
+    private boolean reserveLockFree(long amountCents) {
+        HELD_CENTS.getAndAdd(this, amountCents);
+        long current = (long) BALANCE_WORD.getVolatile(this);
+        while (true) {
+            if (centsOf(current) - (long) HELD_CENTS.getVolatile(this) < withdrawalFloorCents()) {
+                HELD_CENTS.getAndAdd(this, -amountCents);
+                return false;
+            }
+            long word = nextWord(current, centsOf(current));
+            long witness = (long) BALANCE_WORD.compareAndExchange(this, current, word);
+            if (witness == current) {
+                // Nothing to record, but later postings wait for this sequence number
+                awaitRecordingTurn(word);
+                finishRecording(word);
+                return true;
+            }
+            current = witness;
+        }
+    }
+
+    // Callers hold the account monitor or run on the owning lane, like the withdrawal checks
+    private boolean reserveAboveFloor(long amountCents) {
+        if (toCents(balance) - heldCents - amountCents < withdrawalFloorCents()) {
+            return false;
+        }
+        HELD_CENTS.getAndAdd(this, amountCents);
+        return true;
+    }
+
+    /**
+     * Reserves funds without checking the balance, for holds recovered at startup that were
+     * granted before the restart.
+     */
+    public final void restoreReservedCents(long amountCents) {
+        HELD_CENTS.getAndAdd(this, amountCents);
+    }
+
+    /**
+     * Gives back reserved funds. Only ever makes more available, so it needs no lock.
+     */
+    public final void releaseReservedCents(long amountCents) {
+        HELD_CENTS.getAndAdd(this, -amountCents);
+    }
+
+    /**
+     * Captures a hold: posts {@code captureCents} as a withdrawal and gives back the whole
+     * {@code reservedCents} reservation, any remainder included. The funds were checked
+     * when they were reserved, so the withdrawal is not checked again; it does count toward
+     * the daily velocity limit.
+     *
+     * @return the posted withdrawal
+     */
+    public final Transaction captureReservedCents(long captureCents, long reservedCents) {
+        Transaction posted;
+        if (LOCK_FREE_BALANCE) {
+            // Debit before releasing, so the funds are never available twice in between
+            posted = adjustAndRecord("Withdrawal", -captureCents, Long.MIN_VALUE);
+            HELD_CENTS.getAndAdd(this, -reservedCents);
+        } else if (isLaneOwned()) {
+            posted = this.<Transaction, RuntimeException, RuntimeException>onOwningLane(
+                    () -> captureOnce(captureCents, reservedCents));
+        } else {
+            synchronized (this) {
+                posted = captureOnce(captureCents, reservedCents);
+            }
+        }
+        noteVelocity("Withdrawal", captureCents);
+        return posted;
+    }
+
+    private Transaction captureOnce(long captureCents, long reservedCents) {
+        Transaction posted = writePosting((toCents(balance) - captureCents) / 100.0, "Withdrawal", captureCents / 100.0);
+        HELD_CENTS.getAndAdd(this, -reservedCents);
+        return posted;
+    }
+
+    /**
+     * Counts a debit toward its daily limit when limits are on and the type is limited.
+     * Callers have already checked the balance and hold what keeps that check valid (the
+     * monitor, the lane), so a counted debit is applied; lock-free callers refund it with
+     * {@link #refundVelocity} when their CAS rejects.
+     *
+     * @return the window time it was counted at, {@link #NOT_LIMITED}, or
+     * {@link #OVER_LIMIT} (nothing counted)
+     */
+    private long countVelocity(String type, long amountCents) {
+        if (!VelocityLimits.isEnabled()) {
+            return NOT_LIMITED;
+        }
+        VelocityLimits.Kind kind = VelocityLimits.kindOf(type);
+        if (kind == null) {
+            return NOT_LIMITED;
+        }
+        long now = VelocityLimits.nowMillis();
+        boolean within = velocityWindow().tryAdd(kind.ordinal(), amountCents,
+                VelocityLimits.dailyLimitCents(customer, kind), now);
+        return within ? now : OVER_LIMIT;
+    }
+
+    // Counts a debit that was authorized earlier, without checking the limit
+    private void noteVelocity(String type, long amountCents) {
+        VelocityLimits.Kind kind = VelocityLimits.kindOf(type);
+        if (VelocityLimits.isEnabled() && kind != null) {
+            velocityWindow().add(kind.ordinal(), amountCents, VelocityLimits.nowMillis());
+        }
+    }
+
+    private void refundVelocity(String type, long amountCents, long countedAt) {
+        velocityWindow().subtract(VelocityLimits.kindOf(type).ordinal(), amountCents, countedAt);
+    }
+
+    private VelocityLimitExceededException velocityRejection(String type, long amountCents) {
+        VelocityLimits.Kind kind = VelocityLimits.kindOf(type);
+        return new VelocityLimitExceededException(kind.getLabel(),
+                VelocityLimits.dailyLimitCents(customer, kind) / 100.0,
+                getVelocityUsedCents(kind) / 100.0, amountCents / 100.0);
+    }
+
+    private SlidingWindowCounter velocityWindow() {
+        SlidingWindowCounter window = velocity;
+        if (window == null) {
+            synchronized (this) {
+                window = velocity;
+                if (window == null) {
+                    velocity = window = VelocityLimits.newWindow();
+                }
+            }
+        }
+        return window;
+    }
+
+    /**
+     * @return the amount of this kind debited over the last 24 hours, in cents
+     */
+    public final long getVelocityUsedCents(VelocityLimits.Kind kind) {
+        SlidingWindowCounter window = velocity;
+        return window == null ? 0 : window.total(kind.ordinal(), VelocityLimits.nowMillis());
+    }
+
+    /**
+     * Counts a debit from history toward the daily limits without checking them, for
+     * rebuilding the counters at startup. Credits and debits older than a day are ignored.
+     */
+    public final void replayVelocity(Transaction transaction) {
+        VelocityLimits.Kind kind = VelocityLimits.kindOf(transaction.getType());
+        if (kind == null || transaction.getTimestamp() == null) {
+            return;
+        }
+        long at = transaction.getTimestamp().toInstant(ZoneOffset.UTC).toEpochMilli();
+        velocityWindow().add(kind.ordinal(), toCents(transaction.getAmount()), at);
+    }
+
+    private long record(String type, long amountCents, long balanceAfterCents) {
+        long id = Transaction.nextId();
+        PostingLane owner = lane;
+        if (owner != null && owner.isCurrentThread()) {
+            // Behind the lane's earlier postings, which reach the log with its batch
+            owner.journal(new Transaction(Transaction.formatId(id), accountNumber, type, amountCents / 100.0,
+                    balanceAfterCents / 100.0, CoarseClock.toDateTime(CoarseClock.localEpochNanos())));
+            return id;
+        }
+        TransactionManager.getInstance().recordPosting(id, accountNumber, type,
+                amountCents, balanceAfterCents, CoarseClock.localEpochNanos());
+        return id;
+    }
+
+    protected static long toCents(double amount) {
+        return Math.round(amount * 100);
+    }
 
 
     public void setStatus(String status) {
-        this.status = status;
+        long stamp = stateLock.writeLock();
+        try {
+            this.status = status;
+        } finally {
+            stateLock.unlockWrite(stamp);
+        }
     }
 
     // ABSTRACT METHODS
@@ -119,7 +782,7 @@ public abstract class Account implements Serializable {
     protected abstract void displaySpecificDetails();
 
 
-    public void processTransaction(double amount, String type) throws InvalidAmountException, OverdraftExceededException, InsufficientFundsException {
+    public Transaction processTransaction(double amount, String type) throws InvalidAmountException, OverdraftExceededException, InsufficientFundsException {
         if (amount <= 0) {
             throw new InvalidAmountException(amount);
         }
@@ -141,8 +804,98 @@ public abstract class Account implements Serializable {
         } else {
             throw new IllegalArgumentException("Invalid transaction type: " + type);
         }
+        return result;
+    }
 
+    /**
+     * Result-code counterpart of {@link #processTransaction}: the same types and limits, but
+     * a rejection comes back as a shared {@link PostingResult} constant instead of an
+     * exception, and nothing is printed. A savings withdrawal below the minimum balance is
+     * rejected rather than prompting for a new amount.
+     */
+    public final PostingResult tryProcessTransaction(double amount, String type) {
+        if (!(amount > 0)) {
+            return PostingResult.INVALID_AMOUNT;
+        }
+        if (type == null) {
+            return PostingResult.INVALID_REQUEST;
+        }
+        if (type.equalsIgnoreCase("Deposit")) {
+            return tryPost("Deposit", amount, true);
+        } else if (type.equalsIgnoreCase("Withdrawal")) {
+            return tryPost("Withdrawal", amount, false);
+        } else if (type.equalsIgnoreCase("Transfer")) {
+            return tryPost("Transfer Out", amount, false);
+        } else if (type.equalsIgnoreCase("Receive")) {
+            return tryPost("Transfer In", amount, true);
+        }
+        return PostingResult.INVALID_REQUEST;
+    }
+
+    /**
+     * The result reported when a withdrawal would pass {@link #withdrawalFloorCents()}.
+     */
+    protected PostingResult floorRejection() {
+        return PostingResult.INSUFFICIENT_FUNDS;
+    }
+
+    private PostingResult tryPost(String type, double amount, boolean credit) {
+        long floorCents = credit ? Long.MIN_VALUE : withdrawalFloorCents();
+        if (LOCK_FREE_BALANCE) {
+            long amountCents = toCents(amount);
+            long counted = countVelocity(type, amountCents);
+            if (counted == OVER_LIMIT) {
+                return PostingResult.LIMIT_EXCEEDED;
+            }
+            Transaction posted = adjustAndRecord(type, credit ? amountCents : -amountCents, floorCents);
+            if (posted == null) {
+                if (counted != NOT_LIMITED) {
+                    refundVelocity(type, amountCents, counted);
+                }
+                return floorRejection();
+            }
+            return PostingResult.posted(posted);
+        }
+        if (isLaneOwned()) {
+            return this.<PostingResult, RuntimeException, RuntimeException>onOwningLane(
+                    () -> postAboveFloor(type, amount, credit, floorCents));
+        }
+        synchronized (this) {
+            return postAboveFloor(type, amount, credit, floorCents);
+        }
+    }
+
+    // Callers hold the account monitor or run on the owning lane, as for applyPosting
+    private PostingResult postAboveFloor(String type, double amount, boolean credit, long floorCents) {
+        double resultingBalance = credit ? getBalance() + amount : getBalance() - amount;
+        if (!credit && toCents(resultingBalance) - heldCents < floorCents) {
+            return floorRejection();
+        }
+        if (countVelocity(type, toCents(amount)) == OVER_LIMIT) {
+            return PostingResult.LIMIT_EXCEEDED;
+        }
+        return PostingResult.posted(writePosting(resultingBalance, type, amount));
     }
 
 
-}
\ No newline at end of file
+    /**
+     * A balance and status read together by {@link #readState()}.
+     */
+    public static final class State {
+        private final double balance;
+        private final String status;
+
+        State(double balance, String status) {
+            this.balance = balance;
+            this.status = status;
+        }
+
+        public double getBalance() {
+            return balance;
+        }
+
+        public String getStatus() {
+            return status;
+        }
+    }
+}
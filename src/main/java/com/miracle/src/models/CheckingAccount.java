@@ -59,19 +59,21 @@ public class CheckingAccount extends Account {
     }
 
     @Override
-    public synchronized Transaction deposit(double amount) throws InvalidAmountException {
+    public Transaction deposit(double amount) throws InvalidAmountException {
         if (amount <= 0) {
             throw new InvalidAmountException(amount);
         }
+        if (LOCK_FREE_BALANCE) {
+            return postLockFree("Deposit", toCents(amount), Long.MIN_VALUE);
+        }
+        if (isLaneOwned()) {
+            return onOwningLane(() -> applyPosting(this.getBalance() + amount, "Deposit", amount));
+        }
         Transaction newTransaction;
-            super.updateBalance(this.getBalance() + amount);
-            newTransaction = new Transaction(
-                    this.getAccountNumber(),
-                    "Deposit",
-                    amount,
-                    this.getBalance()
-            );
-        manager.addTransaction(newTransaction);
+        synchronized (this) {
+            // Balance and transaction change together under the state write lock
+            newTransaction = applyPosting(this.getBalance() + amount, "Deposit", amount);
+        }
         return newTransaction;
     }
 
@@ -83,12 +85,32 @@ public class CheckingAccount extends Account {
 
 
     @Override
-    public synchronized Transaction withdraw(double amount) throws InvalidAmountException, OverdraftExceededException, InsufficientFundsException {
+    public Transaction withdraw(double amount) throws InvalidAmountException, OverdraftExceededException, InsufficientFundsException {
         if (amount <= 0) {
             throw new InvalidAmountException(amount);
         }
+        if (LOCK_FREE_BALANCE) {
+            Transaction posted = postLockFree("Withdrawal", -toCents(amount), -toCents(overDraftLimit));
+            if (posted == null) {
+                double available = super.getBalance() + overDraftLimit;
+                throw new InsufficientFundsException(
+                        String.format("Insufficient funds including overdraft. Available: $%,.2f, Attempted: $%,.2f",
+                                available, amount));
+            }
+            return posted;
+        }
+        if (isLaneOwned()) {
+            return this.<Transaction, OverdraftExceededException, InsufficientFundsException>onOwningLane(
+                    () -> withdrawLocked(amount));
+        }
+        synchronized (this) {
+            return withdrawLocked(amount);
+        }
+    }
 
-        double available = super.getBalance() + overDraftLimit;
+    private Transaction withdrawLocked(double amount) throws OverdraftExceededException, InsufficientFundsException {
+        // Held funds are not available to withdraw
+        double available = getAvailableBalance() + overDraftLimit;
         if (amount > available) {
             throw new InsufficientFundsException(
                     String.format("Insufficient funds including overdraft. Available: $%,.2f, Attempted: $%,.2f",
@@ -103,18 +125,12 @@ public class CheckingAccount extends Account {
                 throw new OverdraftExceededException(this.getBalance(), amount, overDraftLimit);
             }
 
-            if (resultingBalance < -overDraftLimit) {
+            if (getAvailableBalance() - amount < -overDraftLimit) {
                 throw new OverdraftExceededException(this.getBalance(), amount, overDraftLimit);
             }
 
-            super.updateBalance(resultingBalance);
-            newTransaction = new Transaction(
-                    this.getAccountNumber(),
-                    "Withdrawal",
-                    amount,
-                    this.getBalance()
-            );
-        manager.addTransaction(newTransaction);
+            // Balance and transaction change together under the state write lock
+            newTransaction = applyPosting(resultingBalance, "Withdrawal", amount);
         return newTransaction;
     }
 
@@ -127,11 +143,25 @@ public class CheckingAccount extends Account {
             return true;
         }
 
-            if (super.getBalance() - monthlyFee >= -overDraftLimit) {
-                super.updateBalance(super.getBalance() - monthlyFee);
-                return true;
+            // Posted as a "Fee" transaction so the journal books it to fee income
+            if (LOCK_FREE_BALANCE) {
+                return postLockFree("Fee", -toCents(monthlyFee), -toCents(overDraftLimit)) != null;
+            }
+            if (isLaneOwned()) {
+                return onOwningLane(this::chargeMonthlyFee);
             }
-            return false;
+            synchronized (this) {
+                return chargeMonthlyFee();
+            }
+    }
+
+    // Held funds are spoken for, so the fee is charged against the available balance
+    private boolean chargeMonthlyFee() {
+        if (toCents(getAvailableBalance()) - toCents(monthlyFee) >= -toCents(overDraftLimit)) {
+            applyPosting(super.getBalance() - monthlyFee, "Fee", monthlyFee);
+            return true;
+        }
+        return false;
     }
 
     public double getMonthlyFee() {
@@ -143,35 +173,61 @@ public class CheckingAccount extends Account {
     }
 
     @Override
-    public synchronized Transaction depositWithType(double amount, String transactionType) {
+    protected long withdrawalFloorCents() {
+        return -toCents(overDraftLimit);
+    }
+
+    @Override
+    protected PostingResult floorRejection() {
+        return PostingResult.OVERDRAFT_EXCEEDED;
+    }
+
+    @Override
+    public Transaction depositWithType(double amount, String transactionType) {
         if (amount <= 0) {
             System.out.println("Deposit amount must be positive.");
             return null;
         }
+        if (LOCK_FREE_BALANCE) {
+            return postLockFree(transactionType, toCents(amount), Long.MIN_VALUE);
+        }
+        if (isLaneOwned()) {
+            return onOwningLane(() -> applyPosting(this.getBalance() + amount, transactionType, amount));
+        }
 
         Transaction newTransaction;
-            super.updateBalance(this.getBalance() + amount);
-            newTransaction = new Transaction(
-                    this.getAccountNumber(),
-                    transactionType,
-                    amount,
-                    this.getBalance()
-            );
-
-
-        manager.addTransaction(newTransaction);
+        synchronized (this) {
+            // Balance and transaction change together under the state write lock
+            newTransaction = applyPosting(this.getBalance() + amount, transactionType, amount);
+        }
         return newTransaction;
     }
 
 
     @Override
-    public synchronized Transaction withdrawWithType(double amount, String transactionType) throws InvalidAmountException, OverdraftExceededException {
+    public Transaction withdrawWithType(double amount, String transactionType) throws InvalidAmountException, OverdraftExceededException {
         if (amount <= 0) {
             throw new InvalidAmountException(amount);
         }
+        if (LOCK_FREE_BALANCE) {
+            Transaction posted = postLockFree(transactionType, -toCents(amount), -toCents(getOverDraftLimit()));
+            if (posted == null) {
+                throw new OverdraftExceededException(this.getBalance(), amount, getOverDraftLimit());
+            }
+            return posted;
+        }
+        if (isLaneOwned()) {
+            return onOwningLane(() -> withdrawWithTypeLocked(amount, transactionType));
+        }
+        synchronized (this) {
+            return withdrawWithTypeLocked(amount, transactionType);
+        }
+    }
+
+    private Transaction withdrawWithTypeLocked(double amount, String transactionType) throws OverdraftExceededException {
         Transaction newTransaction;
         double resultingBalance = super.getBalance() - amount;
-        if (resultingBalance < -getOverDraftLimit()) {
+        if (getAvailableBalance() - amount < -getOverDraftLimit()) {
             throw new OverdraftExceededException(
                     this.getBalance(),
                     amount,
@@ -183,15 +239,8 @@ public class CheckingAccount extends Account {
                 throw new OverdraftExceededException(this.getBalance(), amount, overDraftLimit);
             }
 
-            super.updateBalance(resultingBalance);
-
-            newTransaction = new Transaction(
-                    this.getAccountNumber(),
-                    transactionType,
-                    amount,
-                    this.getBalance()
-            );
-        manager.addTransaction(newTransaction);
+            // Balance and transaction change together under the state write lock
+            newTransaction = applyPosting(resultingBalance, transactionType, amount);
         return newTransaction;
     }
 
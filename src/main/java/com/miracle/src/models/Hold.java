@@ -0,0 +1,88 @@
+package com.miracle.src.models;
+
+import com.miracle.src.utils.TimerWheel;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * An authorization hold: funds reserved on an account until they are captured as a
+ * withdrawal, released, or the hold expires. Managed by {@code HoldService}; the account
+ * only tracks the total it has reserved.
+ */
+public final class Hold extends TimerWheel.Timeout {
+
+    public enum Status {
+        ACTIVE,
+        CAPTURED,
+        RELEASED,
+        EXPIRED
+    }
+
+    private static final VarHandle STATUS;
+
+    static {
+        try {
+            STATUS = MethodHandles.lookup().findVarHandle(Hold.class, "status", Status.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final String holdId;
+    private final Account account;
+    private final long amountCents;
+    private final long placedAtMillis;
+    private final long expiresAtMillis;
+    private volatile Status status = Status.ACTIVE;
+
+    public Hold(String holdId, Account account, long amountCents, long placedAtMillis, long expiresAtMillis) {
+        this.holdId = holdId;
+        this.account = account;
+        this.amountCents = amountCents;
+        this.placedAtMillis = placedAtMillis;
+        this.expiresAtMillis = expiresAtMillis;
+    }
+
+    public String getHoldId() {
+        return holdId;
+    }
+
+    public Account getAccount() {
+        return account;
+    }
+
+    public double getAmount() {
+        return amountCents / 100.0;
+    }
+
+    public long getAmountCents() {
+        return amountCents;
+    }
+
+    public long getPlacedAtMillis() {
+        return placedAtMillis;
+    }
+
+    public long getExpiresAtMillis() {
+        return expiresAtMillis;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    /**
+     * Ends an active hold. Capture, release and expiry can race; only one of them wins.
+     *
+     * @return whether this call moved the hold out of {@link Status#ACTIVE}
+     */
+    public boolean finish(Status outcome) {
+        return STATUS.compareAndSet(this, Status.ACTIVE, outcome);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s %s $%,.2f %s", holdId, account.getAccountNumber(), getAmount(), status);
+    }
+}
@@ -0,0 +1,65 @@
+package com.miracle.src.models;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Tracks lock-free postings between their balance CAS and the moment their transaction
+ * is queued, so a snapshot can wait for the ones it may already have observed.
+ * <p>
+ * Monitor-based postings need none of this: a balance read under the account monitor
+ * cannot see a posting whose transaction is not yet queued. A CAS posting makes its
+ * balance visible first, so {@code SnapshotService.takeSnapshot} reads balances, then
+ * calls {@link #awaitEarlier()}, which flips the epoch and waits until every posting
+ * registered under the old epoch has finished. New postings register under the new epoch,
+ * so the wait is bounded even under constant traffic. Counters are striped
+ * ({@link LongAdder}) to keep registration off a single contended cache line.
+ * </p>
+ * <p>
+ * Posting lanes also write balances before their transactions are queued; each lane
+ * registers once per drained batch and exits after the batch reaches the history.
+ * </p>
+ *
+ * @see Account#LOCK_FREE_BALANCE
+ */
+public final class InFlightPostings {
+
+    private static final LongAdder[] ACTIVE = {new LongAdder(), new LongAdder()};
+    private static volatile int epoch;
+
+    private InFlightPostings() {}
+
+    /**
+     * Registers a posting before its CAS.
+     *
+     * @return the token to pass to {@link #exit(int)}
+     */
+    public static int enter() {
+        while (true) {
+            int current = epoch;
+            ACTIVE[current & 1].increment();
+            // A flip between the read and the increment would leave this posting uncounted
+            // by the waiter; re-register under the new epoch instead
+            if (epoch == current) {
+                return current;
+            }
+            ACTIVE[current & 1].decrement();
+        }
+    }
+
+    public static void exit(int token) {
+        ACTIVE[token & 1].decrement();
+    }
+
+    /**
+     * Waits until every posting registered before this call has exited.
+     */
+    public static synchronized void awaitEarlier() {
+        int previous = epoch;
+        epoch = previous + 1;
+        LongAdder draining = ACTIVE[previous & 1];
+        while (draining.sum() != 0) {
+            Thread.onSpinWait();
+            Thread.yield();
+        }
+    }
+}
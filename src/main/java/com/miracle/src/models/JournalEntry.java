@@ -0,0 +1,93 @@
+package com.miracle.src.models;
+
+import java.time.LocalDateTime;
+
+/**
+ * One double-entry journal entry: the legs of a single posting. Each leg moves an amount
+ * on one ledger account, debits positive and credits negative, so the legs of a balanced
+ * entry sum to zero.
+ */
+public final class JournalEntry {
+
+    private final long sequence;
+    // The transaction this entry journals
+    private final String reference;
+    private final String type;
+    private final LocalDateTime timestamp;
+    private final String[] accounts;
+    private final long[] amountsCents;
+
+    public JournalEntry(long sequence, String reference, String type, LocalDateTime timestamp,
+                        String[] accounts, long[] amountsCents) {
+        if (accounts.length != amountsCents.length) {
+            throw new IllegalArgumentException("Each leg needs an account and an amount");
+        }
+        this.sequence = sequence;
+        this.reference = reference;
+        this.type = type;
+        this.timestamp = timestamp;
+        this.accounts = accounts;
+        this.amountsCents = amountsCents;
+    }
+
+    /**
+     * An entry moving {@code amountCents} from {@code creditAccount} to {@code debitAccount}.
+     */
+    public static JournalEntry of(long sequence, String reference, String type, LocalDateTime timestamp,
+                                  String debitAccount, String creditAccount, long amountCents) {
+        return new JournalEntry(sequence, reference, type, timestamp,
+                new String[]{debitAccount, creditAccount}, new long[]{amountCents, -amountCents});
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public String getReference() {
+        return reference;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public LocalDateTime getTimestamp() {
+        return timestamp;
+    }
+
+    public int getLegCount() {
+        return accounts.length;
+    }
+
+    public String getAccount(int leg) {
+        return accounts[leg];
+    }
+
+    /**
+     * @return the leg's amount in cents: positive for a debit, negative for a credit
+     */
+    public long getAmountCents(int leg) {
+        return amountsCents[leg];
+    }
+
+    /**
+     * @return whether the debits equal the credits
+     */
+    public boolean isBalanced() {
+        long sum = 0;
+        for (long amount : amountsCents) {
+            sum += amount;
+        }
+        return sum == 0;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder legs = new StringBuilder();
+        for (int i = 0; i < accounts.length; i++) {
+            legs.append(i == 0 ? "" : ", ").append(amountsCents[i] >= 0 ? "Dr " : "Cr ")
+                    .append(accounts[i]).append(String.format(" $%,.2f", Math.abs(amountsCents[i]) / 100.0));
+        }
+        return String.format("#%d %s %s [%s]", sequence, reference, type, legs);
+    }
+}
@@ -0,0 +1,39 @@
+package com.miracle.src.models;
+
+/**
+ * A single thread that exclusively owns a set of accounts and runs all of their postings.
+ * <p>
+ * While an account is assigned to a lane, its posting code runs on the lane's thread
+ * without taking the account monitor or the state write lock; calls made from any other
+ * thread are handed to the lane and wait for the result. The lane queues the resulting
+ * transactions and adds them to the history a batch at a time.
+ * </p>
+ *
+ * @see Account#assignLane(PostingLane)
+ */
+public interface PostingLane {
+
+    /**
+     * @return true if the calling thread is this lane's thread
+     */
+    boolean isCurrentThread();
+
+    /**
+     * Runs a posting on this lane's thread and waits for it. Must not be called from the
+     * thread of another lane, which would then block its own accounts.
+     */
+    <T, X extends Exception, Y extends Exception> T call(Posting<T, X, Y> posting) throws X, Y;
+
+    /**
+     * Queues a transaction produced on this lane for the history. Called on the lane's thread.
+     */
+    void journal(Transaction transaction);
+
+    /**
+     * A posting body and the checked exceptions it may throw.
+     */
+    @FunctionalInterface
+    interface Posting<T, X extends Exception, Y extends Exception> {
+        T run() throws X, Y;
+    }
+}
@@ -0,0 +1,127 @@
+package com.miracle.src.models;
+
+import com.miracle.src.models.exceptions.AccountNotFoundException;
+import com.miracle.src.models.exceptions.InsufficientFundsException;
+import com.miracle.src.models.exceptions.InvalidAmountException;
+import com.miracle.src.models.exceptions.OverdraftExceededException;
+import com.miracle.src.models.exceptions.OverloadedException;
+import com.miracle.src.models.exceptions.VelocityLimitExceededException;
+
+/**
+ * Outcome of a posting made through the result-code API ({@link Account#tryProcessTransaction}
+ * and {@code AccountManager.tryProcessTransaction}).
+ * <p>
+ * Rejections are routine business outcomes, so they come back as shared constants: nothing
+ * is allocated, no message is formatted and no stack trace is captured. Callers that want
+ * the throwing style can use {@link #getTransactionOrThrow()}, which throws the shared
+ * stackless exception instances.
+ * </p>
+ */
+public final class PostingResult {
+
+    public enum Status {
+        POSTED,
+        INVALID_AMOUNT,
+        INSUFFICIENT_FUNDS,
+        OVERDRAFT_EXCEEDED,
+        ACCOUNT_NOT_FOUND,
+        INVALID_REQUEST,
+        // Turned away by admission control; nothing was posted, retry later
+        OVERLOADED,
+        // Would take the account past a daily withdrawal or transfer limit
+        LIMIT_EXCEEDED
+    }
+
+    public static final PostingResult INVALID_AMOUNT = new PostingResult(Status.INVALID_AMOUNT, null);
+    public static final PostingResult INSUFFICIENT_FUNDS = new PostingResult(Status.INSUFFICIENT_FUNDS, null);
+    public static final PostingResult OVERDRAFT_EXCEEDED = new PostingResult(Status.OVERDRAFT_EXCEEDED, null);
+    public static final PostingResult ACCOUNT_NOT_FOUND = new PostingResult(Status.ACCOUNT_NOT_FOUND, null);
+    public static final PostingResult INVALID_REQUEST = new PostingResult(Status.INVALID_REQUEST, null);
+    public static final PostingResult OVERLOADED = new PostingResult(Status.OVERLOADED, null);
+    public static final PostingResult LIMIT_EXCEEDED = new PostingResult(Status.LIMIT_EXCEEDED, null);
+
+    private final Status status;
+    private final Transaction transaction;
+
+    private PostingResult(Status status, Transaction transaction) {
+        this.status = status;
+        this.transaction = transaction;
+    }
+
+    public static PostingResult posted(Transaction transaction) {
+        return new PostingResult(Status.POSTED, transaction);
+    }
+
+    /**
+     * The result for a rejection thrown by the throwing API, the reverse of
+     * {@link #getTransactionOrThrow()}; failures that are not business rejections map to
+     * {@link #INVALID_REQUEST}.
+     */
+    public static PostingResult rejected(Throwable cause) {
+        if (cause instanceof InvalidAmountException) {
+            return INVALID_AMOUNT;
+        }
+        if (cause instanceof InsufficientFundsException) {
+            return INSUFFICIENT_FUNDS;
+        }
+        if (cause instanceof OverdraftExceededException) {
+            return OVERDRAFT_EXCEEDED;
+        }
+        if (cause instanceof AccountNotFoundException) {
+            return ACCOUNT_NOT_FOUND;
+        }
+        if (cause instanceof OverloadedException) {
+            return OVERLOADED;
+        }
+        if (cause instanceof VelocityLimitExceededException) {
+            return LIMIT_EXCEEDED;
+        }
+        return INVALID_REQUEST;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public boolean isPosted() {
+        return status == Status.POSTED;
+    }
+
+    /**
+     * @return the posted transaction (the debit, for a transfer), or null if rejected
+     */
+    public Transaction getTransaction() {
+        return transaction;
+    }
+
+    /**
+     * Returns the posted transaction or throws the shared exception for the rejection.
+     * The exceptions carry generic messages and no stack trace.
+     */
+    public Transaction getTransactionOrThrow() throws InvalidAmountException, InsufficientFundsException,
+            OverdraftExceededException, AccountNotFoundException {
+        switch (status) {
+            case POSTED:
+                return transaction;
+            case INVALID_AMOUNT:
+                throw InvalidAmountException.cached();
+            case INSUFFICIENT_FUNDS:
+                throw InsufficientFundsException.cached();
+            case OVERDRAFT_EXCEEDED:
+                throw OverdraftExceededException.cached();
+            case ACCOUNT_NOT_FOUND:
+                throw AccountNotFoundException.cached();
+            case OVERLOADED:
+                throw OverloadedException.cached();
+            case LIMIT_EXCEEDED:
+                throw VelocityLimitExceededException.cached();
+            default:
+                throw new IllegalArgumentException("Invalid transaction request");
+        }
+    }
+
+    @Override
+    public String toString() {
+        return isPosted() ? "POSTED " + transaction.getTransactionId() : status.name();
+    }
+}
@@ -72,12 +72,12 @@ public class SavingsAccount extends Account implements Serializable {
     }
 
     @Override
-    public synchronized Transaction deposit(double amount) throws InvalidAmountException {
+    public Transaction deposit(double amount) throws InvalidAmountException {
         return depositWithType(amount, "Deposit");
     }
 
     @Override
-    public synchronized Transaction depositWithType(double amount, String transactionType) throws InvalidAmountException {
+    public Transaction depositWithType(double amount, String transactionType) throws InvalidAmountException {
         if (amount <= 0) {
             throw new InvalidAmountException(amount);
         }
@@ -86,28 +86,50 @@ public class SavingsAccount extends Account implements Serializable {
             throw new IllegalArgumentException("Transaction type cannot be null or empty");
         }
 
-        Transaction newTransaction;
-
-            super.updateBalance(this.getBalance() + amount);
+        if (LOCK_FREE_BALANCE) {
+            return postLockFree(transactionType, toCents(amount), Long.MIN_VALUE);
+        }
+        if (isLaneOwned()) {
+            return onOwningLane(() -> applyPosting(this.getBalance() + amount, transactionType, amount));
+        }
 
-            newTransaction = new Transaction(
-                    this.getAccountNumber(),
-                    transactionType,
-                    amount,
-                    this.getBalance()
-            );
-        manager.addTransaction(newTransaction);
+        Transaction newTransaction;
+        synchronized (this) {
+            // Balance and transaction change together under the state write lock
+            newTransaction = applyPosting(this.getBalance() + amount, transactionType, amount);
+        }
         return newTransaction;
     }
 
     @Override
-    public synchronized Transaction withdraw(double amount) throws InvalidAmountException, InsufficientFundsException {
+    public Transaction withdraw(double amount) throws InvalidAmountException, InsufficientFundsException {
         if (amount <= 0){
             throw new InvalidAmountException(amount);
         }
 
         double minBalance = getMinimumBalance();
-        if (super.getBalance() - amount < minBalance) {
+        if (LOCK_FREE_BALANCE) {
+            // The minimum-balance check is the CAS floor, so it cannot race with other postings
+            Transaction posted = postLockFree("Withdrawal", -toCents(amount), toCents(minBalance));
+            if (posted == null) {
+                throw new InsufficientFundsException(
+                        String.format("Withdrawal would violate minimum balance requirement of $%,.2f", minBalance));
+            }
+            return posted;
+        }
+        if (isLaneOwned()) {
+            return this.<Transaction, InvalidAmountException, InsufficientFundsException>onOwningLane(
+                    () -> withdrawAboveMinimum(amount, minBalance));
+        }
+        synchronized (this) {
+            return withdrawAboveMinimum(amount, minBalance);
+        }
+    }
+
+    private Transaction withdrawAboveMinimum(double amount, double minBalance)
+            throws InvalidAmountException, InsufficientFundsException {
+        // Held funds are not available to withdraw
+        if (getAvailableBalance() - amount < minBalance) {
             throw new InsufficientFundsException(
                     String.format("Withdrawal would violate minimum balance requirement of $%,.2f", minBalance));
         }
@@ -116,7 +138,7 @@ public class SavingsAccount extends Account implements Serializable {
     }
 
     @Override
-    public synchronized Transaction withdrawWithType(double amount, String transactionType)
+    public Transaction withdrawWithType(double amount, String transactionType)
             throws InvalidAmountException {
 
         if (amount <= 0) {
@@ -128,9 +150,28 @@ public class SavingsAccount extends Account implements Serializable {
             throw new IllegalArgumentException("Transaction type cannot be null or empty");
         }
 
+        if (LOCK_FREE_BALANCE) {
+            return withdrawWithTypeLockFree(amount, transactionType);
+        }
+        if (isLaneOwned()) {
+            return onOwningLane(() -> withdrawWithTypeLocked(amount, transactionType));
+        }
+        synchronized (this) {
+            return withdrawWithTypeLocked(amount, transactionType);
+        }
+    }
+
+    // Rejected by the minimum balance: null, as when the locked path's prompt is answered
+    // with 0. Never prompts, since the CAS may run on any thread; callers that need the
+    // reason use tryProcessTransaction, which reports it as a PostingResult.
+    private Transaction withdrawWithTypeLockFree(double amount, String transactionType) {
+        return postLockFree(transactionType, -toCents(amount), toCents(minimumBalance));
+    }
+
+    private Transaction withdrawWithTypeLocked(double amount, String transactionType) {
         Transaction newTransaction;
-            // Calculate resulting balance with current snapshot
-            double resultingBalance = this.getBalance() - amount;
+            // Calculate resulting balance with current snapshot, less any held funds
+            double resultingBalance = this.getAvailableBalance() - amount;
 
             // Check against minimum balance
             if (resultingBalance < minimumBalance) {
@@ -147,7 +188,7 @@ public class SavingsAccount extends Account implements Serializable {
                         return null; // Exit the transaction
                     }
 
-                    resultingBalance = this.getBalance() - newAmount;
+                    resultingBalance = this.getAvailableBalance() - newAmount;
                     if (resultingBalance >= minimumBalance) {
                         amount = newAmount; // Update the amount to the valid value
                         break;
@@ -155,18 +196,10 @@ public class SavingsAccount extends Account implements Serializable {
                 }
             }
 
-            // Update account balance
+            // Update account balance and record the transaction together under the state write lock
+            // (amount is always positive, type indicates direction)
             double resultingBalanceFinal = this.getBalance() - amount;
-            super.updateBalance(resultingBalanceFinal);
-
-            // Record the transaction (amount is always positive, type indicates direction)
-            newTransaction = new Transaction(
-                    this.getAccountNumber(),
-                    transactionType,
-                    amount,
-                    this.getBalance()
-            );
-        manager.addTransaction(newTransaction);
+            newTransaction = applyPosting(resultingBalanceFinal, transactionType, amount);
         return newTransaction;
     }
 
@@ -176,6 +209,33 @@ public class SavingsAccount extends Account implements Serializable {
         return this.getInterestRate() * super.getBalance();
     }
 
+    /**
+     * Credits one month of interest on the current balance as an "Interest" transaction.
+     *
+     * @return whether any interest was credited; a balance that earns less than a cent gets none
+     */
+    public boolean applyMonthlyInterest() {
+        if (LOCK_FREE_BALANCE) {
+            long interestCents = toCents(calculateInterest() / 12);
+            return interestCents > 0 && postLockFree("Interest", interestCents, Long.MIN_VALUE) != null;
+        }
+        if (isLaneOwned()) {
+            return onOwningLane(this::creditMonthlyInterest);
+        }
+        synchronized (this) {
+            return creditMonthlyInterest();
+        }
+    }
+
+    private boolean creditMonthlyInterest() {
+        double interest = toCents(calculateInterest() / 12) / 100.0;
+        if (interest <= 0) {
+            return false;
+        }
+        applyPosting(super.getBalance() + interest, "Interest", interest);
+        return true;
+    }
+
     public double getInterestRate() {
         return interestRate;
     }
@@ -183,4 +243,9 @@ public class SavingsAccount extends Account implements Serializable {
     public static double getMinimumBalance() {
         return minimumBalance;
     }
+
+    @Override
+    protected long withdrawalFloorCents() {
+        return toCents(minimumBalance);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,208 @@
+package com.miracle.src.models;
+
+import com.miracle.src.dto.TransactionRequest;
+
+import java.time.LocalDateTime;
+
+/**
+ * A recurring transfer between two accounts. Runs are counted from the first one, so a
+ * monthly order started on the 31st runs on the last day of shorter months and on the 31st
+ * again when there is one.
+ * <p>
+ * Scheduling state is owned by {@code StandingOrderService}, which changes it only while
+ * the order is off its due queue.
+ * </p>
+ */
+public final class StandingOrder {
+
+    public enum Frequency {
+        DAILY,
+        WEEKLY,
+        MONTHLY;
+
+        /**
+         * @return the {@code n}-th run after {@code first}, counted from zero
+         */
+        public LocalDateTime occurrence(LocalDateTime first, long n) {
+            switch (this) {
+                case DAILY:
+                    return first.plusDays(n);
+                case WEEKLY:
+                    return first.plusWeeks(n);
+                default:
+                    return first.plusMonths(n);
+            }
+        }
+    }
+
+    private final String orderId;
+    private final String sourceAccountNumber;
+    private final String targetAccountNumber;
+    private final double amount;
+    private final Frequency frequency;
+    private final LocalDateTime firstRun;
+    // Last day a run may fall on, or null for no end
+    private final LocalDateTime endDate;
+
+    private long runsScheduled;
+    private int runsOwed;
+    private long dueMillis;
+    private volatile boolean cancelled;
+    private volatile long runsPosted;
+    private volatile long runsRejected;
+    private volatile PostingResult.Status lastStatus;
+
+    public StandingOrder(String orderId, String sourceAccountNumber, String targetAccountNumber, double amount,
+                         Frequency frequency, LocalDateTime firstRun, LocalDateTime endDate) {
+        this.orderId = orderId;
+        this.sourceAccountNumber = sourceAccountNumber;
+        this.targetAccountNumber = targetAccountNumber;
+        this.amount = amount;
+        this.frequency = frequency;
+        this.firstRun = firstRun;
+        this.endDate = endDate;
+    }
+
+    public String getOrderId() {
+        return orderId;
+    }
+
+    public String getSourceAccountNumber() {
+        return sourceAccountNumber;
+    }
+
+    public String getTargetAccountNumber() {
+        return targetAccountNumber;
+    }
+
+    public double getAmount() {
+        return amount;
+    }
+
+    public Frequency getFrequency() {
+        return frequency;
+    }
+
+    public LocalDateTime getFirstRun() {
+        return firstRun;
+    }
+
+    public LocalDateTime getEndDate() {
+        return endDate;
+    }
+
+    /**
+     * @return the runs taken off the schedule so far, whether or not they posted
+     */
+    public long getRunsScheduled() {
+        return runsScheduled;
+    }
+
+    /**
+     * @return runs that were due but turned away by admission control, to be retried
+     */
+    public int getRunsOwed() {
+        return runsOwed;
+    }
+
+    public long getRunsPosted() {
+        return runsPosted;
+    }
+
+    public long getRunsRejected() {
+        return runsRejected;
+    }
+
+    public PostingResult.Status getLastStatus() {
+        return lastStatus;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * @return the next scheduled run, or null once the order has ended
+     */
+    public LocalDateTime getNextRun() {
+        LocalDateTime next = frequency.occurrence(firstRun, runsScheduled);
+        return endDate != null && next.isAfter(endDate) ? null : next;
+    }
+
+    /**
+     * @return whether the order has no runs left, owed ones included
+     */
+    public boolean isFinished() {
+        return runsOwed == 0 && getNextRun() == null;
+    }
+
+    /**
+     * Takes every run due by {@code now} off the schedule, owed runs first.
+     *
+     * @return the runs to execute now
+     */
+    public int takeDueRuns(LocalDateTime now) {
+        int runs = runsOwed;
+        runsOwed = 0;
+        LocalDateTime next;
+        while ((next = getNextRun()) != null && !next.isAfter(now)) {
+            runsScheduled++;
+            runs++;
+        }
+        return runs;
+    }
+
+    /**
+     * Sets the schedule position and owed runs, when recovering a saved order.
+     */
+    public void restore(long runsScheduled, int runsOwed) {
+        this.runsScheduled = runsScheduled;
+        this.runsOwed = runsOwed;
+    }
+
+    public void owe(int runs) {
+        runsOwed += runs;
+    }
+
+    /**
+     * Records the outcome of one run.
+     */
+    public void recordRun(PostingResult result) {
+        lastStatus = result.getStatus();
+        if (result.isPosted()) {
+            runsPosted++;
+        } else {
+            runsRejected++;
+        }
+    }
+
+    /**
+     * The due-queue key, set by the service while the order is off the queue.
+     */
+    public long getDueMillis() {
+        return dueMillis;
+    }
+
+    public void setDueMillis(long dueMillis) {
+        this.dueMillis = dueMillis;
+    }
+
+    /**
+     * @return a batch-origin transfer request for one run
+     */
+    public TransactionRequest toRequest() {
+        TransactionRequest request = new TransactionRequest(sourceAccountNumber, targetAccountNumber, "TRANSFER", amount);
+        request.setOrigin(TransactionRequest.Origin.BATCH);
+        return request;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s %s -> %s $%,.2f %s next %s", orderId, sourceAccountNumber, targetAccountNumber,
+                amount, frequency, getNextRun());
+    }
+}
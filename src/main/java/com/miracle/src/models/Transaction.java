@@ -4,13 +4,12 @@ import com.miracle.src.services.AccountManager;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class Transaction {
 
-    // Static fields
-    private static int transactionCounter;
+    // Static fields (atomic: lock-free postings on one account create transactions concurrently)
+    private static final AtomicInteger transactionCounter = new AtomicInteger();
 
     // Private fields
     private final String transactionId;
@@ -23,8 +22,7 @@ public class Transaction {
         DateTimeFormatter.ofPattern("dd-MM-yyyy hh:mm:ss a");
 
     public Transaction(String accountNumber, String type, double amount, double balanceAfter) {
-        transactionCounter++;
-        this.transactionId = String.format("TXN%03d", transactionCounter);
+        this.transactionId = formatId(nextId());
         this.accountNumber = accountNumber;
         this.type = type;
         this.amount = amount;
@@ -45,27 +43,54 @@ public class Transaction {
     }
 
 
+    // Same rule as the pattern TXN(\d{3,}), checked by hand: this runs once per loaded record
     private static void updateCounterFromId(String id) {
-        try {
-            Pattern p = Pattern.compile("TXN(\\d{3,})");
-            Matcher m = p.matcher(id);
-            if (m.matches()) {
-                int num = Integer.parseInt(m.group(1));
-                if (num > transactionCounter) {
-                    transactionCounter = num;
-                }
+        if (id == null || id.length() < 6 || !id.startsWith("TXN") || id.length() > 13) {
+            return;
+        }
+        long num = 0;
+        for (int i = 3; i < id.length(); i++) {
+            char c = id.charAt(i);
+            if (c < '0' || c > '9') {
+                return;
             }
-        } catch (Exception ignored) {
+            num = num * 10 + (c - '0');
+        }
+        // Plain read first: loading usually sees IDs below the counter
+        if (num <= Integer.MAX_VALUE && num > transactionCounter.get()) {
+            transactionCounter.accumulateAndGet((int) num, Math::max);
         }
     }
 
+    /**
+     * Takes the next transaction number without building an ID string, for postings that
+     * record transactions as primitive rows.
+     */
+    public static long nextId() {
+        return transactionCounter.incrementAndGet();
+    }
+
+    /**
+     * Formats a transaction number as its display ID (TXN001, TXN1234).
+     */
+    public static String formatId(long id) {
+        return id >= 100 ? "TXN" + id : String.format("TXN%03d", id);
+    }
+
+    /**
+     * Raises the ID counter to at least the given value, e.g. when restoring from a snapshot.
+     */
+    public static void ensureCounterAtLeast(int value) {
+        transactionCounter.accumulateAndGet(value, Math::max);
+    }
+
     public String getFormattedTimestamp() {
         return this.timestamp.format(TIMESTAMP_FORMATTER);
     }
 
     // GETTERS AND SETTERS
     public static int getTransactionCounter() {
-        return transactionCounter;
+        return transactionCounter.get();
     }
 
     public String getTransactionId() {
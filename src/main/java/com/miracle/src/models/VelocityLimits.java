@@ -0,0 +1,95 @@
+package com.miracle.src.models;
+
+import com.miracle.src.utils.CoarseClock;
+import com.miracle.src.utils.SlidingWindowCounter;
+
+/**
+ * Daily withdrawal and transfer limits per account, by customer type, over a sliding 24-hour
+ * window of 96 fifteen-minute buckets (see {@link SlidingWindowCounter}).
+ * <p>
+ * Off unless started with {@code -Dbank.velocity.limits=true} or switched on with
+ * {@link #setEnabled}. Limits are in dollars per account and default to 5,000 withdrawn and
+ * 10,000 transferred out for regular customers, 20,000 and 50,000 for premium customers;
+ * override with {@code bank.velocity.withdrawal.regular}, {@code bank.velocity.transfer.regular},
+ * {@code bank.velocity.withdrawal.premium} and {@code bank.velocity.transfer.premium}.
+ * Counters start empty when limits are switched on at runtime; at startup they are rebuilt
+ * from the last day of the transaction log.
+ * </p>
+ */
+public final class VelocityLimits {
+
+    public enum Kind {
+        WITHDRAWAL("withdrawal"),
+        TRANSFER("transfer");
+
+        private final String label;
+
+        Kind(String label) {
+            this.label = label;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+    }
+
+    public static final int BUCKETS = 96;
+    public static final long BUCKET_MILLIS = 15 * 60 * 1000L;
+    public static final long WINDOW_MILLIS = BUCKETS * BUCKET_MILLIS;
+
+    private static volatile boolean enabled = Boolean.getBoolean("bank.velocity.limits");
+
+    private static final long[] REGULAR_LIMIT_CENTS = {
+            limitCents("bank.velocity.withdrawal.regular", 5_000),
+            limitCents("bank.velocity.transfer.regular", 10_000)
+    };
+    private static final long[] PREMIUM_LIMIT_CENTS = {
+            limitCents("bank.velocity.withdrawal.premium", 20_000),
+            limitCents("bank.velocity.transfer.premium", 50_000)
+    };
+
+    private VelocityLimits() {}
+
+    private static long limitCents(String property, long defaultDollars) {
+        String value = System.getProperty(property);
+        return Math.round((value == null ? defaultDollars : Double.parseDouble(value)) * 100);
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    public static void setEnabled(boolean on) {
+        enabled = on;
+    }
+
+    /**
+     * @return the limited kind a posting type counts toward, or null for credits and
+     * anything else that is not limited
+     */
+    public static Kind kindOf(String type) {
+        if ("Withdrawal".equals(type)) {
+            return Kind.WITHDRAWAL;
+        }
+        if ("Transfer Out".equals(type) || "Transfer".equals(type)) {
+            return Kind.TRANSFER;
+        }
+        return null;
+    }
+
+    public static long dailyLimitCents(Customer customer, Kind kind) {
+        long[] limits = customer instanceof PremiumCustomer ? PREMIUM_LIMIT_CENTS : REGULAR_LIMIT_CENTS;
+        return limits[kind.ordinal()];
+    }
+
+    /**
+     * The window clock: local wall-clock milliseconds, matching transaction timestamps.
+     */
+    public static long nowMillis() {
+        return CoarseClock.localEpochNanos() / 1_000_000L;
+    }
+
+    static SlidingWindowCounter newWindow() {
+        return new SlidingWindowCounter(Kind.values().length, BUCKETS, BUCKET_MILLIS);
+    }
+}
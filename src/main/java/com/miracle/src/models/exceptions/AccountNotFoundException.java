@@ -1,6 +1,7 @@
 package com.miracle.src.models.exceptions;
 
 public class AccountNotFoundException extends Exception {
+    private static final AccountNotFoundException CACHED = new AccountNotFoundException("Account not found", false);
 
     public AccountNotFoundException(String accountNumber) {
 
@@ -11,4 +12,16 @@ public class AccountNotFoundException extends Exception {
         super(message + ": " + accountNumber);
     }
 
+    // For the shared instance only
+    private AccountNotFoundException(String message, boolean writableStackTrace) {
+        super(message, null, false, writableStackTrace);
+    }
+
+    /**
+     * A shared instance with no stack trace that names no account.
+     */
+    public static AccountNotFoundException cached() {
+        return CACHED;
+    }
+
 }
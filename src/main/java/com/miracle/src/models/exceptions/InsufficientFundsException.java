@@ -1,6 +1,8 @@
 package com.miracle.src.models.exceptions;
 
 public class InsufficientFundsException extends Exception {
+    private static final InsufficientFundsException CACHED = new InsufficientFundsException("Insufficient funds", false);
+
     public InsufficientFundsException(String message) {
         super(message);
     }
@@ -9,4 +11,17 @@ public class InsufficientFundsException extends Exception {
         super(String.format("Insufficient funds. Current balance: $%,.2f, Required: $%,.2f",
                 balance, amount));
     }
+
+    // Stackless and immutable: no stack trace, suppression disabled, cause fixed to null
+    private InsufficientFundsException(String message, boolean writableStackTrace) {
+        super(message, null, false, writableStackTrace);
+    }
+
+    /**
+     * Shared instance without a stack trace or per-call details, for rejection paths that
+     * must stay cheap under load (see {@code PostingResult}).
+     */
+    public static InsufficientFundsException cached() {
+        return CACHED;
+    }
 }
\ No newline at end of file
@@ -2,6 +2,8 @@
 package com.miracle.src.models.exceptions;
 
 public class InvalidAmountException extends Exception {
+    private static final InvalidAmountException CACHED = new InvalidAmountException("Amount must be positive.");
+
     private double amount;
 
     public InvalidAmountException(double amount) {
@@ -14,6 +16,19 @@ public class InvalidAmountException extends Exception {
         this.amount = amount;
     }
 
+    // For the shared instance only
+    private InvalidAmountException(String message) {
+        super(message, null, false, false);
+        this.amount = Double.NaN;
+    }
+
+    /**
+     * A shared instance with a generic message and no stack trace; its amount is NaN.
+     */
+    public static InvalidAmountException cached() {
+        return CACHED;
+    }
+
     public double getAmount() {
         return amount;
     }
@@ -2,6 +2,8 @@
 package com.miracle.src.models.exceptions;
 
 public class OverdraftExceededException extends Exception {
+    private static final OverdraftExceededException CACHED = new OverdraftExceededException("Overdraft limit exceeded.");
+
     private double balance;
     private double withdrawalAmount;
     private double overdraftLimit;
@@ -17,6 +19,21 @@ public class OverdraftExceededException extends Exception {
         this.overdraftLimit = overdraftLimit;
     }
 
+    // For the shared instance only
+    private OverdraftExceededException(String message) {
+        super(message, null, false, false);
+        this.balance = Double.NaN;
+        this.withdrawalAmount = Double.NaN;
+        this.overdraftLimit = Double.NaN;
+    }
+
+    /**
+     * A shared instance with a generic message and no stack trace; its amounts are NaN.
+     */
+    public static OverdraftExceededException cached() {
+        return CACHED;
+    }
+
     public double getBalance() {
         return balance;
     }
@@ -0,0 +1,26 @@
+package com.miracle.src.models.exceptions;
+
+/**
+ * Thrown when admission control turns a posting away because the system is at its
+ * concurrency limit and the wait queue is full or the wait ran out. Nothing was posted, so
+ * the request can be retried later. Unchecked, as it is an operational condition rather
+ * than a business rule.
+ */
+public class OverloadedException extends RuntimeException {
+    private static final OverloadedException CACHED = new OverloadedException("System overloaded, try again later", false);
+
+    public OverloadedException(String message) {
+        super(message);
+    }
+
+    private OverloadedException(String message, boolean writableStackTrace) {
+        super(message, null, false, writableStackTrace);
+    }
+
+    /**
+     * Shared stackless instance; rejecting under overload must cost less than serving.
+     */
+    public static OverloadedException cached() {
+        return CACHED;
+    }
+}
@@ -0,0 +1,49 @@
+package com.miracle.src.models.exceptions;
+
+/**
+ * Thrown when a withdrawal or transfer would take an account past its daily limit. Nothing
+ * was posted. Unchecked so the long-standing withdraw signatures stay as they are;
+ * AccountManager still reports it like the other business rejections.
+ */
+public class VelocityLimitExceededException extends RuntimeException {
+    private static final VelocityLimitExceededException CACHED =
+            new VelocityLimitExceededException("Daily limit exceeded", false);
+
+    private final double dailyLimit;
+    private final double usedToday;
+    private final double amount;
+
+    public VelocityLimitExceededException(String kind, double dailyLimit, double usedToday, double amount) {
+        super(String.format("Daily %s limit of $%,.2f exceeded: $%,.2f used in the last 24 hours, $%,.2f requested",
+                kind, dailyLimit, usedToday, amount));
+        this.dailyLimit = dailyLimit;
+        this.usedToday = usedToday;
+        this.amount = amount;
+    }
+
+    private VelocityLimitExceededException(String message, boolean writableStackTrace) {
+        super(message, null, false, writableStackTrace);
+        this.dailyLimit = Double.NaN;
+        this.usedToday = Double.NaN;
+        this.amount = Double.NaN;
+    }
+
+    /**
+     * Shared stackless instance without amounts, for the result-code API.
+     */
+    public static VelocityLimitExceededException cached() {
+        return CACHED;
+    }
+
+    public double getDailyLimit() {
+        return dailyLimit;
+    }
+
+    public double getUsedToday() {
+        return usedToday;
+    }
+
+    public double getAmount() {
+        return amount;
+    }
+}
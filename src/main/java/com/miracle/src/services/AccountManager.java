@@ -7,14 +7,27 @@ import com.miracle.src.models.exceptions.AccountNotFoundException;
 import com.miracle.src.models.exceptions.InsufficientFundsException;
 import com.miracle.src.models.exceptions.InvalidAmountException;
 import com.miracle.src.models.exceptions.OverdraftExceededException;
+import com.miracle.src.models.exceptions.OverloadedException;
+import com.miracle.src.models.exceptions.VelocityLimitExceededException;
+import com.miracle.src.utils.AccountIndex;
 import com.miracle.src.utils.FileIOUtils;
+import com.miracle.src.utils.IdempotencyCache;
+import com.miracle.src.utils.Log;
 
 import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
 
 public class AccountManager {
 
+    private static final Log LOG = Log.get(AccountManager.class);
+
     // Singleton instance
     private AtomicInteger accountCount =  new AtomicInteger(0);
     private static final AccountManager INSTANCE = new AccountManager();
@@ -23,8 +36,23 @@ public class AccountManager {
         return INSTANCE;
     }
 
-//    map for storing accounts
-    private Map<String, Account> accounts = new HashMap<>();
+//    map for storing accounts (concurrent so snapshots can iterate while postings continue)
+    private Map<String, Account> accounts = new ConcurrentHashMap<>();
+
+//    numeric index over ACC%03d numbers in front of the map; misses and other forms use the map
+    private final AccountIndex<Account> accountIndex = new AccountIndex<>();
+
+//    single-writer posting lanes while that execution mode is on, null otherwise
+    private volatile PostingLanes postingLanes;
+
+//    ring-buffer posting pipeline while that execution mode is on, null otherwise
+    private volatile PostingPipeline postingPipeline;
+
+//    concurrency limit and wait queue in front of postings while admission control is on, null otherwise
+    private volatile AdmissionController admissionController;
+
+//    requests that carried an idempotency key, with their results, kept for their retries
+    private final IdempotencyCache<KeyedRequest> idempotentResults = newIdempotencyCache();
 
 //    set for tracking newly created accounts
     private Set<String> newlyCreatedAccountNumbers = new HashSet<>();
@@ -47,6 +75,8 @@ public class AccountManager {
         }
 
         accounts.put(account.getAccountNumber(), account);
+        indexAccount(account);
+        adoptIntoLane(account);
         accountCount.getAndIncrement();
         // Track as newly created so it gets saved to file
         newlyCreatedAccountNumbers.add(account.getAccountNumber());
@@ -67,6 +97,8 @@ public class AccountManager {
         }
 
         accounts.put(account.getAccountNumber(), account);
+        indexAccount(account);
+        adoptIntoLane(account);
         accountCount.getAndIncrement();
         // Don't add to newlyCreatedAccountNumbers - this was loaded from file
         return true;
@@ -74,18 +106,141 @@ public class AccountManager {
 
 
 
+    private void indexAccount(Account account) {
+        int id = AccountIndex.parse(account.getAccountNumber());
+        if (id >= 0) {
+            accountIndex.put(id, account);
+        }
+    }
+
+    private void adoptIntoLane(Account account) {
+        PostingLanes lanes = postingLanes;
+        if (lanes != null) {
+            lanes.adopt(account);
+        }
+        PostingPipeline pipeline = postingPipeline;
+        if (pipeline != null) {
+            account.assignLane(pipeline);
+        }
+    }
+
+    /**
+     * Switches to single-writer execution: every account is handed to one of
+     * {@code laneCount} posting lanes and {@link #processTransaction} submits to them.
+     */
+    public synchronized void enablePostingLanes(int laneCount) {
+        if (postingLanes != null || postingPipeline != null) {
+            throw new IllegalStateException("Another posting execution mode is already running");
+        }
+        PostingLanes lanes = new PostingLanes(laneCount);
+        accounts.values().forEach(lanes::adopt);
+        postingLanes = lanes;
+    }
+
+    /**
+     * Drains and stops the posting lanes and returns accounts to lock-based postings.
+     */
+    public synchronized void disablePostingLanes() {
+        PostingLanes lanes = postingLanes;
+        if (lanes == null) {
+            return;
+        }
+        postingLanes = null;
+        lanes.shutdown();
+        accounts.values().forEach(account -> account.assignLane(null));
+    }
+
+    public PostingLanes getPostingLanes() {
+        return postingLanes;
+    }
+
+    /**
+     * Switches to the ring-buffer pipeline: requests pass through validate, apply, journal
+     * and publish stages, and the apply stage becomes the single writer of every account.
+     */
+    public synchronized void enablePostingPipeline(int ringSize) {
+        if (postingLanes != null || postingPipeline != null) {
+            throw new IllegalStateException("Another posting execution mode is already running");
+        }
+        PostingPipeline pipeline = new PostingPipeline(this, ringSize);
+        accounts.values().forEach(account -> account.assignLane(pipeline));
+        postingPipeline = pipeline;
+    }
+
+    /**
+     * Drains and stops the pipeline and returns accounts to lock-based postings.
+     */
+    public synchronized void disablePostingPipeline() {
+        PostingPipeline pipeline = postingPipeline;
+        if (pipeline == null) {
+            return;
+        }
+        postingPipeline = null;
+        pipeline.shutdown();
+        accounts.values().forEach(account -> account.assignLane(null));
+    }
+
+    public PostingPipeline getPostingPipeline() {
+        return postingPipeline;
+    }
+
+    /**
+     * Puts admission control in front of {@link #processTransaction} and
+     * {@link #tryProcessTransaction}; postings it turns away fail with
+     * {@link OverloadedException} or {@link PostingResult#OVERLOADED}. Works with every
+     * execution mode. Keyed retries answered from the idempotency cache are not admitted.
+     */
+    public synchronized void enableAdmissionControl(AdmissionController controller) {
+        if (admissionController != null) {
+            throw new IllegalStateException("Admission control is already enabled");
+        }
+        admissionController = controller;
+    }
+
+    /**
+     * Removes admission control; postings already admitted still release their permits.
+     */
+    public synchronized void disableAdmissionControl() {
+        admissionController = null;
+    }
+
+    public AdmissionController getAdmissionController() {
+        return admissionController;
+    }
+
     // Get the account using the account number (key)
     public Account findAccount(String accountNumber) throws AccountNotFoundException {
         if (accountNumber == null || accountNumber.trim().isEmpty()) {
             throw new AccountNotFoundException("Account number cannot be empty");
         }
-        Account account = accounts.get(accountNumber);
+        Account account = lookupAccount(accountNumber);
         if (account == null) {
             throw new AccountNotFoundException("Account not found: " + accountNumber);
         }
         return account;
     }
 
+    // Null when there is no such account
+    private Account lookupAccount(String accountNumber) {
+        Account account = accountIndex.get(AccountIndex.parse(accountNumber));
+        return account != null ? account : accounts.get(accountNumber);
+    }
+
+    /**
+     * Gets an account by the number in its ACC%03d account number, for callers that
+     * already hold it parsed.
+     */
+    public Account findAccount(int accountId) throws AccountNotFoundException {
+        Account account = accountIndex.get(accountId);
+        if (account == null) {
+            account = accounts.get(String.format("ACC%03d", accountId));
+        }
+        if (account == null) {
+            throw new AccountNotFoundException("Account not found: ACC" + accountId);
+        }
+        return account;
+    }
+
     //    Get all opened accounts in the banks
     public void viewAllAccounts() {
         System.out.println("\n ACCOUNT LISTING ");
@@ -98,13 +253,14 @@ public class AccountManager {
         accounts.values().stream()
                 .sorted((a1, a2) -> a2.getAccountNumber().compareTo(a1.getAccountNumber()))
                 .forEach(account -> {
-                    // Line 1: Main Account Details
+                    // Line 1: Main Account Details (balance and status read as one pair)
+                    Account.State state = account.readState();
                     System.out.printf("| %-8s | %-25s | %-12s | $%,-13.2f | %-8s |%n",
                             account.getAccountNumber(),
                             account.getCustomer().getName(),
                             account.getAccountType(),
-                            account.getBalance(),
-                            account.getStatus()
+                            state.getBalance(),
+                            state.getStatus()
                     );
 
                     // Line two of the output formatter
@@ -181,27 +337,297 @@ public class AccountManager {
         return accounts.values();
     }
 
+    /**
+     * Counts the last day of withdrawals and transfers in the transaction log toward each
+     * account's velocity limits, so a restart does not hand out a fresh daily allowance.
+     * Run once accounts are loaded and before postings start.
+     *
+     * @return the number of debits counted
+     * @throws IOException if the log cannot be read
+     */
+    public long rebuildVelocityWindows() throws IOException {
+        LocalDateTime now = LocalDateTime.now();
+        long[] counted = {0};
+        FileIOUtils.getTransactionStore().readBetween(now.minusNanos(VelocityLimits.WINDOW_MILLIS * 1_000_000L), now,
+                transaction -> {
+                    Account account = lookupAccount(transaction.getAccountNumber());
+                    if (account != null && VelocityLimits.kindOf(transaction.getType()) != null) {
+                        account.replayVelocity(transaction);
+                        counted[0]++;
+                    }
+                });
+        return counted[0];
+    }
 
-    // In AccountManager.java
-    public void processTransaction(TransactionRequest request)
+
+    /**
+     * Posts a deposit, withdrawal or transfer. Inline, the posting is done when this returns
+     * and the future is already complete. With posting lanes it is submitted to the owning
+     * lane and the future completes, or fails with the exception the inline path would have
+     * thrown, once the lane has journaled it; lookups still fail here. With the posting
+     * pipeline everything after the null check, lookups included, happens in its stages.
+     * <p>
+     * A request carrying an idempotency key is posted at most once while the key is
+     * retained (-Dbank.idempotency.ttl.seconds, default a day); retries get the original
+     * result, thrown here if the original threw here. The cache holds
+     * -Dbank.idempotency.max.keys keys, by default enough for
+     * -Dbank.idempotency.keys.per.second (5) over the whole time-to-live; above that rate
+     * the oldest keys are dropped early and a retry of one posts again. A key reused for a
+     * request with a different type, accounts or amount is rejected with
+     * {@link IllegalArgumentException}.
+     * </p>
+     * <p>
+     * With admission control on, a posting that finds the system at its limit waits in its
+     * {@link PriorityLane}'s bounded queue and fails with {@link OverloadedException} if there is no room or the
+     * wait runs out; the idempotency key, if any, is released for the retry.
+     * </p>
+     *
+     * @return the posted transaction (the debit, for a transfer)
+     */
+    public CompletableFuture<Transaction> processTransaction(TransactionRequest request)
             throws InvalidAmountException, AccountNotFoundException, InsufficientFundsException, OverdraftExceededException {
         if (request == null) {
             throw new IllegalArgumentException("Transaction request cannot be null");
         }
+        String idempotencyKey = request.getIdempotencyKey();
+        if (idempotencyKey != null) {
+            return processOnce(idempotencyKey, request);
+        }
+        return admitAndPost(request);
+    }
+
+    /**
+     * Posts a keyed request unless its key was seen within the retention window; a
+     * duplicate, even one arriving while the first is still in progress, gets the first
+     * request's future, or the first request's exception if that was thrown here. Business
+     * rejections are kept like successes. Other failures release the key so a retry is
+     * posted.
+     */
+    private CompletableFuture<Transaction> processOnce(String idempotencyKey, TransactionRequest request)
+            throws InvalidAmountException, AccountNotFoundException, InsufficientFundsException, OverdraftExceededException {
+        KeyedRequest keyed = new KeyedRequest(fingerprint(request));
+        KeyedRequest original = idempotentResults.putIfAbsent(idempotencyKey, keyed);
+        if (original != null) {
+            checkSamePayload(idempotencyKey, original, keyed);
+            LOG.debug("Duplicate request {} answered with its original result", idempotencyKey);
+            // Set before the result completes, so it is visible once the result is
+            if (original.result.isCompletedExceptionally() && original.rejectedInline) {
+                throw rethrow(causeOf(original.result));
+            }
+            return original.result;
+        }
+        CompletableFuture<Transaction> posted;
+        try {
+            posted = admitAndPost(request);
+        } catch (Exception e) {
+            keyed.rejectedInline = true;
+            settle(idempotencyKey, keyed, null, e);
+            throw e;
+        }
+        posted.whenComplete((transaction, failure) -> settle(idempotencyKey, keyed, transaction, failure));
+        return keyed.result;
+    }
+
+    /**
+     * Result-code counterpart of {@link #processOnce}: a duplicate waits for the first
+     * request's result if it is still in progress.
+     */
+    private PostingResult tryProcessOnce(String idempotencyKey, TransactionRequest request) {
+        KeyedRequest keyed = new KeyedRequest(fingerprint(request));
+        KeyedRequest original = idempotentResults.putIfAbsent(idempotencyKey, keyed);
+        if (original != null) {
+            if (!original.fingerprint.equals(keyed.fingerprint)) {
+                LOG.warn("Idempotency key {} reused for a different request", idempotencyKey);
+                return PostingResult.INVALID_REQUEST;
+            }
+            try {
+                return PostingResult.posted(original.result.join());
+            } catch (CompletionException | CancellationException e) {
+                return PostingResult.rejected(causeOf(original.result));
+            }
+        }
+        // The result-code API answers here, so its rejections count as thrown here
+        keyed.rejectedInline = true;
+        PostingResult result;
+        try {
+            result = tryAdmitAndPost(request);
+        } catch (RuntimeException | Error e) {
+            settle(idempotencyKey, keyed, null, e);
+            throw e;
+        }
+        if (result.isPosted()) {
+            settle(idempotencyKey, keyed, result.getTransaction(), null);
+        } else {
+            try {
+                result.getTransactionOrThrow();
+            } catch (Exception e) {
+                settle(idempotencyKey, keyed, null, e);
+            }
+        }
+        return result;
+    }
+
+    private void settle(String idempotencyKey, KeyedRequest keyed, Transaction transaction, Throwable failure) {
+        if (failure == null) {
+            keyed.result.complete(transaction);
+            return;
+        }
+        Throwable cause = failure instanceof CompletionException && failure.getCause() != null
+                ? failure.getCause() : failure;
+        // A limit rejection is a business outcome like insufficient funds; keep it for retries
+        if ((cause instanceof RuntimeException && !(cause instanceof VelocityLimitExceededException))
+                || cause instanceof Error) {
+            idempotentResults.remove(idempotencyKey, keyed);
+        }
+        keyed.result.completeExceptionally(cause);
+    }
+
+    private static void checkSamePayload(String idempotencyKey, KeyedRequest original, KeyedRequest retry) {
+        if (!original.fingerprint.equals(retry.fingerprint)) {
+            LOG.warn("Idempotency key {} reused for a different request", idempotencyKey);
+            throw new IllegalArgumentException("Idempotency key " + idempotencyKey
+                    + " was already used for a different request");
+        }
+    }
+
+    // What a retry must repeat: the type, as the switch reads it, both accounts and the amount
+    private static String fingerprint(TransactionRequest request) {
+        String type = request.getTransactionType() == null ? null : request.getTransactionType().toUpperCase();
+        return type + "|" + request.getUserAccountNumber() + "|" + request.getReceiverAccountNumber()
+                + "|" + Double.doubleToLongBits(request.getAmount());
+    }
+
+    private static Throwable causeOf(CompletableFuture<Transaction> failed) {
+        try {
+            failed.join();
+            throw new IllegalStateException("Result did not fail");
+        } catch (CompletionException e) {
+            return e.getCause() != null ? e.getCause() : e;
+        } catch (CancellationException e) {
+            return e;
+        }
+    }
+
+    // Throws a kept rejection as processTransaction declares it; the return only satisfies the compiler
+    private static RuntimeException rethrow(Throwable cause)
+            throws InvalidAmountException, AccountNotFoundException, InsufficientFundsException, OverdraftExceededException {
+        if (cause instanceof InvalidAmountException) {
+            throw (InvalidAmountException) cause;
+        }
+        if (cause instanceof AccountNotFoundException) {
+            throw (AccountNotFoundException) cause;
+        }
+        if (cause instanceof InsufficientFundsException) {
+            throw (InsufficientFundsException) cause;
+        }
+        if (cause instanceof OverdraftExceededException) {
+            throw (OverdraftExceededException) cause;
+        }
+        if (cause instanceof RuntimeException) {
+            throw (RuntimeException) cause;
+        }
+        if (cause instanceof Error) {
+            throw (Error) cause;
+        }
+        throw new CompletionException(cause);
+    }
+
+    /**
+     * The idempotency cache, sized for -Dbank.idempotency.keys.per.second over the
+     * time-to-live unless -Dbank.idempotency.max.keys sets the capacity; a capacity below
+     * that is logged with the retention it gives at that rate.
+     */
+    private static IdempotencyCache<KeyedRequest> newIdempotencyCache() {
+        long ttlSeconds = Long.getLong("bank.idempotency.ttl.seconds", 24 * 60 * 60);
+        long keysPerSecond = Math.max(1, Long.getLong("bank.idempotency.keys.per.second", 5));
+        long needed = ttlSeconds * keysPerSecond;
+        int maxKeys = Integer.getInteger("bank.idempotency.max.keys", (int) Math.min(needed, 1 << 30));
+        if (maxKeys < needed) {
+            LOG.warn("Idempotency cache holds {} keys, fewer than the key rate needs over the time-to-live; "
+                    + "keys are dropped after about {}s and their retries post again", maxKeys, maxKeys / keysPerSecond);
+        }
+        return new IdempotencyCache<>(maxKeys, Duration.ofSeconds(ttlSeconds));
+    }
+
+    /**
+     * A keyed request's payload fingerprint and its result, shared by its retries.
+     */
+    private static final class KeyedRequest {
+        final String fingerprint;
+        final CompletableFuture<Transaction> result = new CompletableFuture<>();
+        // Whether the first request's rejection was thrown to its caller rather than through the future
+        volatile boolean rejectedInline;
+
+        KeyedRequest(String fingerprint) {
+            this.fingerprint = fingerprint;
+        }
+    }
+
+    /**
+     * Posts under admission control when it is on; the permit is held until the posting
+     * completes, which with lanes or the pipeline is after this returns.
+     */
+    private CompletableFuture<Transaction> admitAndPost(TransactionRequest request)
+            throws InvalidAmountException, AccountNotFoundException, InsufficientFundsException, OverdraftExceededException {
+        AdmissionController admission = admissionController;
+        if (admission == null) {
+            return post(request);
+        }
+        PriorityLane lane = laneFor(request);
+        if (!admission.tryAdmit(lane)) {
+            LOG.debug("Posting for {} rejected by admission control in lane {}", request.getUserAccountNumber(), lane);
+            throw OverloadedException.cached();
+        }
+        long admittedAt = System.nanoTime();
+        boolean dispatched = false;
+        try {
+            CompletableFuture<Transaction> posted = post(request);
+            dispatched = true;
+            posted.whenComplete((transaction, failure) -> admission.release(admittedAt, lane));
+            return posted;
+        } finally {
+            if (!dispatched) {
+                admission.release(admittedAt, lane);
+            }
+        }
+    }
+
+    /**
+     * The admission lane of a request: its origin and the type of the customer who owns the
+     * source account. Unknown accounts go to the regular lanes and fail once admitted.
+     */
+    private PriorityLane laneFor(TransactionRequest request) {
+        String accountNumber = request.getUserAccountNumber();
+        Account account = accountNumber == null ? null : lookupAccount(accountNumber);
+        Customer customer = account == null ? null : account.getCustomer();
+        return PriorityLane.of(customer == null ? null : customer.getCustomerType(), request.getOrigin());
+    }
+
+    private CompletableFuture<Transaction> post(TransactionRequest request)
+            throws InvalidAmountException, AccountNotFoundException, InsufficientFundsException, OverdraftExceededException {
+        PostingPipeline pipeline = postingPipeline;
+        if (pipeline != null) {
+            return pipeline.submit(request);
+        }
+        PostingLanes lanes = postingLanes;
+        if (lanes != null) {
+            return submitToLanes(lanes, request);
+        }
 
         String transactionType = request.getTransactionType();
         String userAccountNumber = request.getUserAccountNumber();
         double amount = request.getAmount();
+        Transaction result;
 
         try {
             Account userAccount = findAccount(userAccountNumber);
 
             switch (transactionType.toUpperCase()) {
                 case "DEPOSIT":
-                    userAccount.processTransaction(amount, "Deposit");
+                    result = userAccount.processTransaction(amount, "Deposit");
                     break;
                 case "WITHDRAWAL":
-                    userAccount.processTransaction(amount, "Withdrawal");
+                    result = userAccount.processTransaction(amount, "Withdrawal");
                     break;
                 case "TRANSFER":
                     String receiverAccountNumber = request.getReceiverAccountNumber();
@@ -212,13 +638,13 @@ public class AccountManager {
 
                     Account receiverAccount = findAccount(receiverAccountNumber);
                     // First withdraw from source
-                    userAccount.processTransaction(amount, "Transfer");
+                    result = userAccount.processTransaction(amount, "Transfer");
                     // Then deposit to receiver
                     try {
                         receiverAccount.processTransaction(amount, "Receive");
                     } catch (Exception e) {
-                        // If deposit to receiver fails, refund the source account
-                        userAccount.deposit(amount);
+                        // If deposit to receiver fails, return the money to the source as a transfer in
+                        userAccount.processTransaction(amount, "Receive");
                         throw new InsufficientFundsException("Transfer failed: " + e.getMessage());
                     }
                     break;
@@ -226,15 +652,156 @@ public class AccountManager {
                     throw new IllegalArgumentException("Invalid transaction type: " + transactionType);
             }
         } catch (AccountNotFoundException e) {
-            System.err.println("Account not found: " + e.getMessage());
+            LOG.warn("Account not found: {}", e.getMessage());
             throw e;
         } catch (InsufficientFundsException e) {
-            System.err.println("Insufficient funds for transaction: " + e.getMessage());
+            LOG.warn("Insufficient funds for transaction: {}", e.getMessage());
+            throw e;
+        } catch (VelocityLimitExceededException e) {
+            LOG.warn("Velocity limit reached: {}", e.getMessage());
             throw e;
         } catch (Exception e) {
-            System.err.println("Transaction failed: " + e.getMessage());
+            LOG.warn("Transaction failed: {}", e.getMessage());
             throw new RuntimeException("Transaction processing failed", e);
         }
+        return CompletableFuture.completedFuture(result);
+    }
+
+    /**
+     * Result-code counterpart of {@link #processTransaction}: rejections, unknown accounts
+     * included, come back as shared {@link PostingResult} constants without building an
+     * exception or printing anything. Runs on the calling thread; with posting lanes or the
+     * pipeline enabled each posting is handed to its account's owner and waited for.
+     * <p>
+     * An idempotency key works as for {@link #processTransaction}, and the two share one
+     * cache: a retry gets the original result, whichever method posted it, and a key
+     * reused for a different request gets {@link PostingResult#INVALID_REQUEST}.
+     * </p>
+     *
+     * @return the result; for a transfer, the debit's
+     */
+    public PostingResult tryProcessTransaction(TransactionRequest request) {
+        String idempotencyKey = request == null ? null : request.getIdempotencyKey();
+        if (idempotencyKey != null) {
+            return tryProcessOnce(idempotencyKey, request);
+        }
+        return tryAdmitAndPost(request);
+    }
+
+    private PostingResult tryAdmitAndPost(TransactionRequest request) {
+        AdmissionController admission = admissionController;
+        if (admission == null) {
+            return tryPost(request);
+        }
+        if (request == null) {
+            return PostingResult.INVALID_REQUEST;
+        }
+        PriorityLane lane = laneFor(request);
+        if (!admission.tryAdmit(lane)) {
+            return PostingResult.OVERLOADED;
+        }
+        long admittedAt = System.nanoTime();
+        try {
+            return tryPost(request);
+        } finally {
+            admission.release(admittedAt, lane);
+        }
+    }
+
+    private PostingResult tryPost(TransactionRequest request) {
+        if (request == null || request.getTransactionType() == null) {
+            return PostingResult.INVALID_REQUEST;
+        }
+        String userAccountNumber = request.getUserAccountNumber();
+        if (userAccountNumber == null || userAccountNumber.isEmpty()) {
+            return PostingResult.INVALID_REQUEST;
+        }
+        Account userAccount = lookupAccount(userAccountNumber);
+        if (userAccount == null) {
+            return PostingResult.ACCOUNT_NOT_FOUND;
+        }
+        double amount = request.getAmount();
+        switch (request.getTransactionType().toUpperCase()) {
+            case "DEPOSIT":
+                return userAccount.tryProcessTransaction(amount, "Deposit");
+            case "WITHDRAWAL":
+                return userAccount.tryProcessTransaction(amount, "Withdrawal");
+            case "TRANSFER":
+                String receiverAccountNumber = request.getReceiverAccountNumber();
+                if (receiverAccountNumber == null || receiverAccountNumber.isEmpty()) {
+                    return PostingResult.INVALID_REQUEST;
+                }
+                Account receiverAccount = lookupAccount(receiverAccountNumber);
+                if (receiverAccount == null) {
+                    return PostingResult.ACCOUNT_NOT_FOUND;
+                }
+                PostingResult debit = userAccount.tryProcessTransaction(amount, "Transfer");
+                if (debit.isPosted()) {
+                    PostingResult credit = receiverAccount.tryProcessTransaction(amount, "Receive");
+                    if (!credit.isPosted()) {
+                        // Same refund as the throwing path
+                        userAccount.tryProcessTransaction(amount, "Receive");
+                        return credit;
+                    }
+                }
+                return debit;
+            default:
+                return PostingResult.INVALID_REQUEST;
+        }
+    }
+
+    private CompletableFuture<Transaction> submitToLanes(PostingLanes lanes, TransactionRequest request)
+            throws AccountNotFoundException {
+        String transactionType = request.getTransactionType();
+        double amount = request.getAmount();
+        CompletableFuture<Transaction> posted;
+        try {
+            Account userAccount = findAccount(request.getUserAccountNumber());
+            switch (transactionType.toUpperCase()) {
+                case "DEPOSIT":
+                    posted = lanes.post(userAccount, "Deposit", amount);
+                    break;
+                case "WITHDRAWAL":
+                    posted = lanes.post(userAccount, "Withdrawal", amount);
+                    break;
+                case "TRANSFER":
+                    String receiverAccountNumber = request.getReceiverAccountNumber();
+                    if (receiverAccountNumber == null || receiverAccountNumber.trim().isEmpty()) {
+                        throw new IllegalArgumentException("Receiver account number is required for transfer");
+                    }
+                    posted = lanes.transfer(userAccount, findAccount(receiverAccountNumber), amount);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Invalid transaction type: " + transactionType);
+            }
+        } catch (AccountNotFoundException e) {
+            LOG.warn("Account not found: {}", e.getMessage());
+            throw e;
+        } catch (RuntimeException e) {
+            LOG.warn("Transaction failed: {}", e.getMessage());
+            throw new RuntimeException("Transaction processing failed", e);
+        }
+        return posted.exceptionallyCompose(failure -> CompletableFuture.failedFuture(translateFailure(failure)));
+    }
+
+    // Same reporting and wrapping as the inline path's catch blocks
+    static Throwable translateFailure(Throwable failure) {
+        Throwable cause = failure instanceof CompletionException && failure.getCause() != null
+                ? failure.getCause() : failure;
+        if (cause instanceof AccountNotFoundException) {
+            LOG.warn("Account not found: {}", cause.getMessage());
+            return cause;
+        }
+        if (cause instanceof InsufficientFundsException) {
+            LOG.warn("Insufficient funds for transaction: {}", cause.getMessage());
+            return cause;
+        }
+        if (cause instanceof VelocityLimitExceededException) {
+            LOG.warn("Velocity limit reached: {}", cause.getMessage());
+            return cause;
+        }
+        LOG.warn("Transaction failed: {}", cause.getMessage());
+        return new RuntimeException("Transaction processing failed", cause);
     }
 
     public void displayAllCustomers() {
@@ -0,0 +1,453 @@
+package com.miracle.src.services;
+
+import com.miracle.src.utils.LatencyHistogram;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Admission control in front of the posting path: at most {@link #getLimit()} postings run
+ * at once, a bounded number more wait up to a deadline, and the rest are turned away at
+ * once. Under a burst, work therefore queues here with a known bound rather than on
+ * contended account monitors where every posting's latency grows with the convoy.
+ * <p>
+ * The limit follows observed service time, AIMD style. A posting that took longer than
+ * the latency target cuts the limit by a tenth, at most once per round of postings admitted
+ * since the previous cut. Each {@code limit} postings served within the target while the
+ * limit is at least half used raise it by one. Time spent queued is measured apart from
+ * service time and does not steer the limit.
+ * </p>
+ * <p>
+ * Waiting postings are kept in one FIFO queue per {@link PriorityLane}, each with its own
+ * capacity, so a flood in one lane cannot take another's places. Freed permits go to the
+ * lanes by smooth weighted round-robin over the lanes that have waiters: with all lanes
+ * backlogged and the default weights, premium interactive postings get 8 of every 15
+ * permits and regular batch postings still get 1, so no lane starves.
+ * </p>
+ * <p>
+ * Enabled with {@code -Dbank.admission.limit=N} (the starting limit) or
+ * {@link AccountManager#enableAdmissionControl}; see {@link #fromSystemProperties} for the
+ * other settings.
+ * </p>
+ */
+public final class AdmissionController {
+
+    private static final double BACKOFF_RATIO = 0.9;
+    private static final PriorityLane DEFAULT_LANE = PriorityLane.REGULAR_INTERACTIVE;
+    private static final PriorityLane[] LANES = PriorityLane.values();
+
+    private final int maxLimit;
+    private final int queueCapacity;
+    private final long maxQueueWaitNanos;
+    private final long latencyTargetNanos;
+    private final int[] weights;
+
+    private final AtomicInteger limit;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    // Waiters in every lane plus threads about to check for a permit under the queue lock
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicInteger servedWithinTarget = new AtomicInteger();
+    // No cut yet: far enough in the past that every posting counts as admitted after it
+    private volatile long lastDecreaseNanos = System.nanoTime() - Long.MAX_VALUE / 2;
+
+    private final ReentrantLock queueLock = new ReentrantLock();
+    private final ArrayDeque<Waiter>[] waiters;
+    // Smooth weighted round-robin credit per lane, guarded by queueLock
+    private final int[] credit;
+
+    private final LaneStats[] laneStats;
+    private final LatencyHistogram queueTime = new LatencyHistogram();
+    private final LatencyHistogram serviceTime = new LatencyHistogram();
+
+    /**
+     * Uses the lanes' default weights.
+     *
+     * @param initialLimit  starting concurrency limit
+     * @param maxLimit      ceiling the limit never grows past
+     * @param queueCapacity postings allowed to wait in each lane when the limit is reached;
+     *                      0 rejects at once
+     * @param maxQueueWait  how long a posting may wait before it is rejected
+     * @param latencyTarget service time above which the limit is cut
+     */
+    public AdmissionController(int initialLimit, int maxLimit, int queueCapacity,
+                               Duration maxQueueWait, Duration latencyTarget) {
+        this(initialLimit, maxLimit, queueCapacity, maxQueueWait, latencyTarget, defaultWeights());
+    }
+
+    /**
+     * @param laneWeights share of freed permits per lane, by {@link PriorityLane} ordinal
+     */
+    @SuppressWarnings("unchecked")
+    public AdmissionController(int initialLimit, int maxLimit, int queueCapacity,
+                               Duration maxQueueWait, Duration latencyTarget, int[] laneWeights) {
+        if (initialLimit < 1 || maxLimit < initialLimit) {
+            throw new IllegalArgumentException("Invalid limits: " + initialLimit + ", max " + maxLimit);
+        }
+        if (queueCapacity < 0) {
+            throw new IllegalArgumentException("Queue capacity cannot be negative: " + queueCapacity);
+        }
+        if (laneWeights.length != LANES.length || Arrays.stream(laneWeights).anyMatch(w -> w < 1)) {
+            throw new IllegalArgumentException("Need a positive weight for each of " + Arrays.toString(LANES)
+                    + ": " + Arrays.toString(laneWeights));
+        }
+        this.limit = new AtomicInteger(initialLimit);
+        this.maxLimit = maxLimit;
+        this.queueCapacity = queueCapacity;
+        this.maxQueueWaitNanos = maxQueueWait.toNanos();
+        this.latencyTargetNanos = latencyTarget.toNanos();
+        this.weights = laneWeights.clone();
+        this.credit = new int[LANES.length];
+        this.waiters = new ArrayDeque[LANES.length];
+        this.laneStats = new LaneStats[LANES.length];
+        for (PriorityLane lane : LANES) {
+            waiters[lane.ordinal()] = new ArrayDeque<>();
+            laneStats[lane.ordinal()] = new LaneStats(lane);
+        }
+    }
+
+    /**
+     * Settings from {@code bank.admission.max.limit} (default 256),
+     * {@code bank.admission.queue} (64 per lane), {@code bank.admission.queue.timeout.millis}
+     * (50), {@code bank.admission.latency.target.millis} (10) and
+     * {@code bank.admission.lane.weights} (comma-separated in {@link PriorityLane} order,
+     * default 8,4,2,1).
+     */
+    public static AdmissionController fromSystemProperties(int initialLimit) {
+        String weights = System.getProperty("bank.admission.lane.weights");
+        return new AdmissionController(initialLimit,
+                Math.max(initialLimit, Integer.getInteger("bank.admission.max.limit", 256)),
+                Integer.getInteger("bank.admission.queue", 64),
+                Duration.ofMillis(Long.getLong("bank.admission.queue.timeout.millis", 50)),
+                Duration.ofMillis(Long.getLong("bank.admission.latency.target.millis", 10)),
+                weights == null ? defaultWeights()
+                        : Arrays.stream(weights.split(",")).map(String::trim).mapToInt(Integer::parseInt).toArray());
+    }
+
+    private static int[] defaultWeights() {
+        return Arrays.stream(LANES).mapToInt(PriorityLane::getDefaultWeight).toArray();
+    }
+
+    /**
+     * {@link #tryAdmit(PriorityLane)} in the regular interactive lane.
+     */
+    public boolean tryAdmit() {
+        return tryAdmit(DEFAULT_LANE);
+    }
+
+    /**
+     * Takes a permit, waiting in the lane's queue if the limit is reached and there is room.
+     * Every successful call must be paired with {@link #release(long, PriorityLane)} for the
+     * same lane.
+     *
+     * @return false if the posting was rejected (queue full, wait timed out or interrupted)
+     */
+    public boolean tryAdmit(PriorityLane lane) {
+        LaneStats stats = laneStats[lane.ordinal()];
+        if (queued.get() == 0 && tryAcquirePermit()) {
+            recordAdmission(stats, 0);
+            return true;
+        }
+        if (stats.waiting >= queueCapacity && inFlight.get() >= limit.get()) {
+            stats.rejected.increment();
+            return false;
+        }
+        return awaitPermit(lane, stats);
+    }
+
+    /**
+     * {@link #release(long, PriorityLane)} for the regular interactive lane.
+     */
+    public void release(long admittedAtNanos) {
+        release(admittedAtNanos, DEFAULT_LANE);
+    }
+
+    /**
+     * Returns a permit and feeds the posting's service time to the limit.
+     *
+     * @param admittedAtNanos {@link System#nanoTime()} taken right after {@link #tryAdmit}
+     */
+    public void release(long admittedAtNanos, PriorityLane lane) {
+        long now = System.nanoTime();
+        long service = now - admittedAtNanos;
+        serviceTime.record(service);
+        laneStats[lane.ordinal()].serviceTime.record(service);
+        int inFlightBefore = inFlight.getAndDecrement();
+        adjustLimit(admittedAtNanos, now, service, inFlightBefore);
+        if (queued.get() > 0) {
+            admitWaiters();
+        }
+    }
+
+    private boolean awaitPermit(PriorityLane lane, LaneStats stats) {
+        long enqueuedAt = System.nanoTime();
+        ArrayDeque<Waiter> queue = waiters[lane.ordinal()];
+        Waiter waiter;
+        queueLock.lock();
+        try {
+            // Counted before checking for a permit: a concurrent release either sees this
+            // thread as queued and admits it, or freed its permit before the check below
+            queued.incrementAndGet();
+            if (tryAcquirePermit()) {
+                queued.decrementAndGet();
+                recordAdmission(stats, System.nanoTime() - enqueuedAt);
+                return true;
+            }
+            if (queue.size() >= queueCapacity) {
+                queued.decrementAndGet();
+                stats.rejected.increment();
+                return false;
+            }
+            waiter = new Waiter(Thread.currentThread());
+            queue.addLast(waiter);
+            stats.waiting = queue.size();
+        } finally {
+            queueLock.unlock();
+        }
+
+        long deadline = enqueuedAt + maxQueueWaitNanos;
+        while (!waiter.admitted) {
+            long remaining = deadline - System.nanoTime();
+            boolean interrupted = Thread.interrupted();
+            if (remaining <= 0 || interrupted) {
+                if (interrupted) {
+                    Thread.currentThread().interrupt();
+                }
+                queueLock.lock();
+                try {
+                    if (!waiter.admitted) {
+                        queue.remove(waiter);
+                        stats.waiting = queue.size();
+                        queued.decrementAndGet();
+                        stats.timedOut.increment();
+                        return false;
+                    }
+                } finally {
+                    queueLock.unlock();
+                }
+                break;
+            }
+            LockSupport.parkNanos(this, remaining);
+        }
+        recordAdmission(stats, System.nanoTime() - enqueuedAt);
+        return true;
+    }
+
+    private void recordAdmission(LaneStats stats, long waited) {
+        queueTime.record(waited);
+        stats.queueTime.record(waited);
+        stats.admitted.increment();
+    }
+
+    private boolean tryAcquirePermit() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= limit.get()) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    // Hands freed permits to the oldest waiter of the lane whose turn it is
+    private void admitWaiters() {
+        queueLock.lock();
+        try {
+            while (queued.get() > 0 && tryAcquirePermit()) {
+                int lane = nextLane();
+                if (lane < 0) {
+                    // Under the lock queued equals the waiters, so this is only a safeguard
+                    inFlight.decrementAndGet();
+                    return;
+                }
+                ArrayDeque<Waiter> queue = waiters[lane];
+                Waiter waiter = queue.pollFirst();
+                laneStats[lane].waiting = queue.size();
+                queued.decrementAndGet();
+                waiter.admitted = true;
+                LockSupport.unpark(waiter.thread);
+            }
+        } finally {
+            queueLock.unlock();
+        }
+    }
+
+    /**
+     * Smooth weighted round-robin over the lanes with waiters: each earns its weight in
+     * credit, the richest goes next and pays the sum of those weights. Lanes without waiters
+     * drop their credit, so an idle lane cannot save up a burst.
+     *
+     * @return the lane ordinal, or -1 when nobody waits
+     */
+    private int nextLane() {
+        int best = -1;
+        int competing = 0;
+        for (int i = 0; i < LANES.length; i++) {
+            if (waiters[i].isEmpty()) {
+                credit[i] = 0;
+                continue;
+            }
+            credit[i] += weights[i];
+            competing += weights[i];
+            if (best < 0 || credit[i] > credit[best]) {
+                best = i;
+            }
+        }
+        if (best >= 0) {
+            credit[best] -= competing;
+        }
+        return best;
+    }
+
+    private void adjustLimit(long admittedAt, long now, long service, int inFlightBefore) {
+        int current = limit.get();
+        if (service > latencyTargetNanos) {
+            // Postings admitted before the last cut describe the old limit; count one cut per round
+            if (admittedAt - lastDecreaseNanos > 0) {
+                int reduced = Math.max(1, (int) (current * BACKOFF_RATIO));
+                if (reduced < current && limit.compareAndSet(current, reduced)) {
+                    lastDecreaseNanos = now;
+                    servedWithinTarget.set(0);
+                }
+            }
+        } else if (inFlightBefore * 2 >= current && current < maxLimit
+                && servedWithinTarget.incrementAndGet() >= current) {
+            servedWithinTarget.set(0);
+            limit.compareAndSet(current, current + 1);
+        }
+    }
+
+    public int getLimit() {
+        return limit.get();
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    public int getQueued() {
+        return queued.get();
+    }
+
+    public long getAdmittedCount() {
+        return Arrays.stream(laneStats).mapToLong(LaneStats::getAdmittedCount).sum();
+    }
+
+    /**
+     * Postings turned away because their lane's queue was full.
+     */
+    public long getRejectedCount() {
+        return Arrays.stream(laneStats).mapToLong(LaneStats::getRejectedCount).sum();
+    }
+
+    /**
+     * Postings turned away after waiting out the queue deadline.
+     */
+    public long getTimedOutCount() {
+        return Arrays.stream(laneStats).mapToLong(LaneStats::getTimedOutCount).sum();
+    }
+
+    /**
+     * Time from arrival to admission, for admitted postings across lanes.
+     */
+    public LatencyHistogram getQueueTime() {
+        return queueTime;
+    }
+
+    /**
+     * Time from admission to completion, across lanes.
+     */
+    public LatencyHistogram getServiceTime() {
+        return serviceTime;
+    }
+
+    public LaneStats getLaneStats(PriorityLane lane) {
+        return laneStats[lane.ordinal()];
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder report = new StringBuilder()
+                .append("limit=").append(getLimit()).append(" inFlight=").append(getInFlight())
+                .append(" queued=").append(getQueued())
+                .append("\n  queue   ").append(queueTime).append("\n  service ").append(serviceTime);
+        for (LaneStats stats : laneStats) {
+            report.append("\n  ").append(stats);
+        }
+        return report.toString();
+    }
+
+    /**
+     * Counters and latencies of one lane.
+     */
+    public static final class LaneStats {
+        private final PriorityLane lane;
+        private final LongAdder admitted = new LongAdder();
+        private final LongAdder rejected = new LongAdder();
+        private final LongAdder timedOut = new LongAdder();
+        private final LatencyHistogram queueTime = new LatencyHistogram();
+        private final LatencyHistogram serviceTime = new LatencyHistogram();
+        // Written under the queue lock, read by anyone
+        private volatile int waiting;
+
+        private LaneStats(PriorityLane lane) {
+            this.lane = lane;
+        }
+
+        public PriorityLane getLane() {
+            return lane;
+        }
+
+        /**
+         * Postings waiting in the lane now.
+         */
+        public int getQueueDepth() {
+            return waiting;
+        }
+
+        public long getAdmittedCount() {
+            return admitted.sum();
+        }
+
+        public long getRejectedCount() {
+            return rejected.sum();
+        }
+
+        public long getTimedOutCount() {
+            return timedOut.sum();
+        }
+
+        /**
+         * Time from arrival to admission, for the lane's admitted postings.
+         */
+        public LatencyHistogram getQueueTime() {
+            return queueTime;
+        }
+
+        public LatencyHistogram getServiceTime() {
+            return serviceTime;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%-19s depth=%d admitted=%d rejected=%d timedOut=%d queue[%s] service[%s]",
+                    lane, getQueueDepth(), getAdmittedCount(), getRejectedCount(), getTimedOutCount(),
+                    queueTime, serviceTime);
+        }
+    }
+
+    private static final class Waiter {
+        final Thread thread;
+        volatile boolean admitted;
+
+        Waiter(Thread thread) {
+            this.thread = thread;
+        }
+    }
+}
@@ -0,0 +1,364 @@
+package com.miracle.src.services;
+
+import com.miracle.src.utils.FileIOUtils;
+import com.miracle.src.utils.TransactionSegmentStore;
+import com.miracle.src.utils.TransactionSegmentStore.LogPosition;
+import com.miracle.src.utils.TransactionSegmentStore.SegmentManifest;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Service for online, incremental backups of the data directory.
+ * <p>
+ * Sealed transaction segments and snapshots never change once written, so they are
+ * hard-linked into the backup (or copied with {@code FileChannel.transferTo} when the
+ * backup is on another file system) and skipped entirely if the previous backup already
+ * holds them. The mutable files, accounts.txt, the active transactions.txt, and the saved
+ * holds and standing orders with their event logs, are copied only when they changed, and
+ * only up to the length observed when the backup started. A mutable file counts as
+ * unchanged only if its size and its version, the log generation for the active file and
+ * the modification time for the others, both match the previous backup. If the active file is sealed while the backup
+ * runs, the backup starts over. Nothing here takes a lock that postings use.
+ * </p>
+ * <p>
+ * An event log is copied before the saved file it follows. A save replaces the saved file
+ * before it empties the log, so the backup gets either both from before the save, or the
+ * new saved file with events it already covers, which recovery applies again harmlessly.
+ * </p>
+ * <p>
+ * Every backup ends by writing {@value #RESTORE_MANIFEST}, which lists each file with its
+ * role, size and, for mutable files, version; {@link #restore(Path, Path)} uses it to
+ * rebuild a data directory.
+ * </p>
+ */
+public class BackupService {
+
+    public static final String RESTORE_MANIFEST = "RESTORE.txt";
+    private static final int MAX_ATTEMPTS = 3;
+    // Version of files that are never rewritten, and of entries from older manifests
+    private static final long NO_VERSION = -1;
+
+    private static final BackupService INSTANCE = new BackupService(
+            FileIOUtils.getDataDir(),
+            FileIOUtils.getTransactionStore(),
+            FileIOUtils.getDataDir().resolve("snapshots")
+    );
+
+    private final Path dataDir;
+    private final TransactionSegmentStore log;
+    private final SnapshotService snapshots;
+
+    /**
+     * Creates a backup service for a specific data directory.
+     *
+     * @param dataDir     directory holding accounts.txt
+     * @param log         the segmented transaction log
+     * @param snapshotDir directory holding snapshots
+     */
+    public BackupService(Path dataDir, TransactionSegmentStore log, Path snapshotDir) {
+        this.dataDir = dataDir;
+        this.log = log;
+        this.snapshots = new SnapshotService(snapshotDir, log);
+    }
+
+    /**
+     * Gets the singleton instance bound to the application data directory.
+     * @return the singleton instance
+     */
+    public static BackupService getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Backs up the data directory into {@code backupDir}, transferring only what changed
+     * since the previous backup there.
+     *
+     * @param backupDir the backup directory (created if missing)
+     * @return the backup summary
+     * @throws IOException if a file cannot be backed up
+     */
+    public BackupResult backup(Path backupDir) throws IOException {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return backupOnce(backupDir);
+            } catch (NoSuchFileException | LogRotatedException | FileRewrittenException e) {
+                // The active file was sealed, or a saved file replaced, mid-backup, so start over
+                if (attempt == MAX_ATTEMPTS) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    private BackupResult backupOnce(Path backupDir) throws IOException {
+        long start = System.nanoTime();
+        Files.createDirectories(backupDir);
+        Map<String, long[]> previous = readManifest(backupDir);
+        List<String> entries = new ArrayList<>();
+        BackupResult result = new BackupResult();
+
+        // Capture the log end first: every record the snapshot may be missing is below it
+        LogPosition position = log.currentPosition();
+        Optional<Path> snapshot = snapshots.getLatestSnapshot();
+
+        for (SegmentManifest segment : log.getSealedSegments()) {
+            for (Path source : List.of(log.dataFileOf(segment), log.manifestFileOf(segment))) {
+                String relative = "segments/" + source.getFileName();
+                long size = Files.size(source);
+                linkOrCopyImmutable(source, backupDir.resolve(relative), size, previous.get(relative), result);
+                entries.add(entry("SEGMENT", relative, size, NO_VERSION));
+            }
+        }
+
+        if (snapshot.isPresent()) {
+            String relative = "snapshots/" + snapshot.get().getFileName();
+            long size = Files.size(snapshot.get());
+            linkOrCopyImmutable(snapshot.get(), backupDir.resolve(relative), size, previous.get(relative), result);
+            entries.add(entry("SNAPSHOT", relative, size, NO_VERSION));
+        }
+
+        backupModified("ACCOUNTS", "accounts.txt", backupDir, previous, entries, result);
+        backupModified("HOLD_EVENTS", "holds.log", backupDir, previous, entries, result);
+        backupModified("HOLDS", "holds.txt", backupDir, previous, entries, result);
+        backupModified("STANDING_ORDER_EVENTS", "standing_orders.log", backupDir, previous, entries, result);
+        backupModified("STANDING_ORDERS", "standing_orders.txt", backupDir, previous, entries, result);
+
+        Path active = log.getActiveFile();
+        String activeName = active.getFileName().toString();
+        if (position.getOffset() > 0) {
+            try {
+                copyMutable(active, backupDir.resolve(activeName), position.getOffset(), position.getGeneration(),
+                        previous.get(activeName), result);
+            } catch (IOException e) {
+                // A shorter file may be the next generation's
+                checkGeneration(position);
+                throw e;
+            }
+            // The bytes may have come from the next generation's file under the same name
+            checkGeneration(position);
+            entries.add(entry("ACTIVE_LOG", activeName, position.getOffset(), position.getGeneration()));
+        }
+
+        writeManifest(backupDir, position, snapshot, entries);
+        result.elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        return result;
+    }
+
+    /**
+     * Restores a backup into a data directory using its restore manifest.
+     *
+     * @param backupDir the backup directory
+     * @param targetDir the data directory to populate
+     * @return the number of files restored
+     * @throws IOException if the manifest is missing or a file cannot be copied
+     */
+    public int restore(Path backupDir, Path targetDir) throws IOException {
+        Path manifest = backupDir.resolve(RESTORE_MANIFEST);
+        if (Files.notExists(manifest)) {
+            throw new IOException("No restore manifest in " + backupDir);
+        }
+        int restored = 0;
+        for (String line : Files.readAllLines(manifest)) {
+            String[] parts = line.split("\\|");
+            if (!"FILE".equals(parts[0])) {
+                continue;
+            }
+            String relative = parts[2];
+            long size = Long.parseLong(parts[3]);
+            Path source = backupDir.resolve(relative);
+            if (Files.size(source) != size) {
+                throw new IOException("Backup file " + relative + " does not match its manifest size");
+            }
+            Path target = targetDir.resolve(relative);
+            Files.createDirectories(target.getParent());
+            transfer(source, target, size);
+            restored++;
+        }
+        return restored;
+    }
+
+    // A mutable file versioned by its modification time, if it exists
+    private void backupModified(String role, String name, Path backupDir, Map<String, long[]> previous,
+                                List<String> entries, BackupResult result) throws IOException {
+        Path source = dataDir.resolve(name);
+        if (Files.notExists(source)) {
+            return;
+        }
+        // Read before the copy: a rewrite during it leaves a newer time and is copied next backup
+        long modified = Files.getLastModifiedTime(source).toMillis();
+        long size = Files.size(source);
+        try {
+            copyMutable(source, backupDir.resolve(name), size, modified, previous.get(name), result);
+        } catch (IOException e) {
+            // An event log emptied by a save mid-copy is copied again from the start
+            if (Files.exists(source) && Files.getLastModifiedTime(source).toMillis() != modified) {
+                throw new FileRewrittenException(name + " was rewritten during backup", e);
+            }
+            throw e;
+        }
+        entries.add(entry(role, name, size, modified));
+    }
+
+    private void checkGeneration(LogPosition position) throws IOException {
+        long generation = log.currentPosition().getGeneration();
+        if (generation != position.getGeneration()) {
+            throw new LogRotatedException("Log moved from generation " + position.getGeneration()
+                    + " to " + generation + " during backup");
+        }
+    }
+
+    private void linkOrCopyImmutable(Path source, Path target, long size, long[] previous, BackupResult result) throws IOException {
+        if (previous != null && previous[0] == size && Files.exists(target) && Files.size(target) == size) {
+            result.unchanged++;
+            return;
+        }
+        Files.createDirectories(target.getParent());
+        Files.deleteIfExists(target);
+        try {
+            Files.createLink(target, source);
+            result.linked++;
+        } catch (UnsupportedOperationException | IOException e) {
+            transfer(source, target, size);
+            result.copied++;
+            result.bytesCopied += size;
+        }
+    }
+
+    private void copyMutable(Path source, Path target, long size, long version, long[] previous,
+                             BackupResult result) throws IOException {
+        if (previous != null && previous[0] == size && previous[1] == version
+                && Files.exists(target) && Files.size(target) == size) {
+            result.unchanged++;
+            return;
+        }
+        Files.createDirectories(target.getParent());
+        transfer(source, target, size);
+        result.copied++;
+        result.bytesCopied += size;
+    }
+
+    /**
+     * Copies the first {@code length} bytes of a file with transferTo, via a temp file and atomic rename.
+     */
+    private static void transfer(Path source, Path target, long length) throws IOException {
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                     StandardOpenOption.TRUNCATE_EXISTING)) {
+            long done = 0;
+            while (done < length) {
+                long n = in.transferTo(done, length - done, out);
+                if (n <= 0) {
+                    throw new IOException("Source " + source + " shrank during backup");
+                }
+                done += n;
+            }
+            out.force(true);
+        }
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private static String entry(String role, String relative, long size, long version) {
+        return String.join("|", "FILE", role, relative, String.valueOf(size), String.valueOf(version));
+    }
+
+    // Size and version of each file, by relative path
+    private static Map<String, long[]> readManifest(Path backupDir) throws IOException {
+        Map<String, long[]> files = new HashMap<>();
+        Path manifest = backupDir.resolve(RESTORE_MANIFEST);
+        if (Files.exists(manifest)) {
+            for (String line : Files.readAllLines(manifest)) {
+                String[] parts = line.split("\\|");
+                if ("FILE".equals(parts[0])) {
+                    long version = parts.length > 4 ? Long.parseLong(parts[4]) : NO_VERSION;
+                    files.put(parts[2], new long[]{Long.parseLong(parts[3]), version});
+                }
+            }
+        }
+        return files;
+    }
+
+    private static void writeManifest(Path backupDir, LogPosition position, Optional<Path> snapshot, List<String> entries) throws IOException {
+        Path manifest = backupDir.resolve(RESTORE_MANIFEST);
+        Path temp = manifest.resolveSibling(RESTORE_MANIFEST + ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(temp)) {
+            writer.write(String.join("|", "BACKUP", LocalDateTime.now().toString(),
+                    String.valueOf(position.getGeneration()), String.valueOf(position.getOffset()),
+                    snapshot.map(p -> p.getFileName().toString()).orElse("-")));
+            writer.newLine();
+            for (String entry : entries) {
+                writer.write(entry);
+                writer.newLine();
+            }
+        }
+        Files.move(temp, manifest, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * The active file was sealed while it was being backed up.
+     */
+    private static final class LogRotatedException extends IOException {
+        LogRotatedException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * A mutable file was rewritten while it was being backed up.
+     */
+    private static final class FileRewrittenException extends IOException {
+        FileRewrittenException(String message, IOException cause) {
+            super(message, cause);
+        }
+    }
+
+    /**
+     * Summary of one backup run.
+     */
+    public static class BackupResult {
+        private int linked;
+        private int copied;
+        private int unchanged;
+        private long bytesCopied;
+        private long elapsedMillis;
+
+        public int getLinked() {
+            return linked;
+        }
+
+        public int getCopied() {
+            return copied;
+        }
+
+        public int getUnchanged() {
+            return unchanged;
+        }
+
+        public long getBytesCopied() {
+            return bytesCopied;
+        }
+
+        public long getElapsedMillis() {
+            return elapsedMillis;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d linked, %d copied (%,d bytes), %d unchanged in %d ms",
+                    linked, copied, bytesCopied, unchanged, elapsedMillis);
+        }
+    }
+}
@@ -0,0 +1,899 @@
+package com.miracle.src.services;
+
+import com.miracle.src.models.Account;
+import com.miracle.src.models.CheckingAccount;
+import com.miracle.src.models.InFlightPostings;
+import com.miracle.src.models.SavingsAccount;
+import com.miracle.src.utils.FileIOUtils;
+import com.miracle.src.utils.Log;
+import com.miracle.src.utils.TransactionSegmentStore;
+import com.miracle.src.utils.TransactionSegmentStore.LogPosition;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * The end-of-day batch: monthly fees, savings interest, statements and a snapshot, run as
+ * stages in that order.
+ * <p>
+ * Each stage splits the accounts into partitions by a hash of the account number, so an
+ * account falls in the same partition on every attempt, and runs the partitions on
+ * {@code -Dbank.eod.workers} threads. A finished partition flushes its postings to the log
+ * and then appends a line to the run's checkpoint file, forced to disk. A run for the same
+ * business date that finds the file, after a crash or a failed attempt, skips the partitions
+ * it lists. A partition that began but never finished may have logged some of its postings,
+ * so before posting again the run reads the log from where that partition began and skips
+ * the accounts already charged or credited there: nothing is posted twice. Statements and
+ * the snapshot only write files and are simply redone.
+ * </p>
+ * <p>
+ * Statements cover the log between the previous completed run's period end and this run's,
+ * so a run reads only the postings made since the last one. Closing balances carry forward:
+ * each run keeps the logged closing balance of every account in {@code closing.txt}, and the
+ * next run starts from those and applies its own period. Without an earlier run's balances
+ * the log is replayed up to the period start instead.
+ * </p>
+ * <p>
+ * A stage logs its progress and projected finish as partitions complete, and warns when the
+ * projection runs past the window ({@code -Dbank.eod.window.minutes}, 240 by default).
+ * Runs are kept under {@code data/eod/<business date>}.
+ * </p>
+ */
+public class EndOfDayService {
+
+    private static final Log LOG = Log.get(EndOfDayService.class);
+
+    private static final String CHECKPOINT_FILE = "checkpoint.log";
+    private static final String STATEMENTS_DIR = "statements";
+    private static final String CLOSING_FILE = "closing.txt";
+    private static final long PROGRESS_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(5);
+
+    private static final EndOfDayService INSTANCE = new EndOfDayService(
+            FileIOUtils.getDataDir().resolve("eod"),
+            FileIOUtils.getTransactionStore(),
+            () -> AccountManager.getInstance().getAllAccounts(),
+            () -> TransactionManager.getInstance().flushPendingTransactions(),
+            SnapshotService.getInstance(),
+            Integer.getInteger("bank.eod.partitions", 1024),
+            Integer.getInteger("bank.eod.workers", Runtime.getRuntime().availableProcessors()),
+            Duration.ofMinutes(Long.getLong("bank.eod.window.minutes", 240)));
+
+    /**
+     * The stages of a run, in the order they run.
+     */
+    public enum Stage {
+        FEES("Fee"),
+        INTEREST("Interest"),
+        STATEMENTS(null),
+        SNAPSHOT(null);
+
+        private final String postingType;
+
+        Stage(String postingType) {
+            this.postingType = postingType;
+        }
+
+        /**
+         * @return the type of transaction the stage posts, or null if it posts none
+         */
+        public String getPostingType() {
+            return postingType;
+        }
+    }
+
+    // The work of one stage on one partition; returns how many accounts it applied to
+    private interface PartitionWork {
+        long run(int partition, List<Account> accounts) throws IOException;
+    }
+
+    private final Path eodDir;
+    private final TransactionSegmentStore log;
+    private final Supplier<Collection<Account>> accounts;
+    private final TransactionManager.PendingFlush flushPending;
+    private final SnapshotService snapshots;
+    private final int partitions;
+    private final int workers;
+    private final Duration window;
+    // Workers finish partitions at once; each flush writes everything pending, so one at a time
+    private final Object flushLock = new Object();
+
+    /**
+     * @param eodDir       where runs keep their checkpoints and statements
+     * @param log          the transaction log postings are flushed to
+     * @param accounts     the accounts a run covers, read once per stage
+     * @param flushPending writes postings not yet in the log
+     * @param snapshots    takes the closing snapshot
+     * @param partitions   partitions per stage for a new run; a resumed run keeps its own
+     * @param workers      threads running a stage's partitions
+     * @param window       how long a run may take before it is reported late
+     */
+    public EndOfDayService(Path eodDir, TransactionSegmentStore log, Supplier<Collection<Account>> accounts,
+                           TransactionManager.PendingFlush flushPending, SnapshotService snapshots, int partitions,
+                           int workers, Duration window) {
+        this.eodDir = eodDir;
+        this.log = log;
+        this.accounts = accounts;
+        this.flushPending = flushPending;
+        this.snapshots = snapshots;
+        this.partitions = Math.max(1, partitions);
+        this.workers = Math.max(1, workers);
+        this.window = window;
+    }
+
+    public static EndOfDayService getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Runs the end of day for a business date, or finishes the run a crash interrupted.
+     * A date whose run already completed is not run again.
+     *
+     * @throws IOException           if a checkpoint, statement or snapshot cannot be written
+     * @throws IllegalStateException if a partition fails; its checkpoint lets the next
+     *                               attempt pick up where this one stopped
+     */
+    public synchronized RunReport run(LocalDate businessDate) throws IOException {
+        long start = System.nanoTime();
+        long deadline = start + window.toNanos();
+        Path runDir = eodDir.resolve(businessDate.toString());
+        Files.createDirectories(runDir);
+        try (Checkpoint checkpoint = Checkpoint.open(runDir.resolve(CHECKPOINT_FILE), partitions)) {
+            boolean resumed = checkpoint.hasProgress();
+            if (checkpoint.isComplete()) {
+                LOG.info("End-of-day run for {} already completed", businessDate);
+            } else if (resumed) {
+                LOG.info("Resuming the end-of-day run for {} from its checkpoint", businessDate);
+            }
+            List<StageReport> stages = new ArrayList<>();
+            stages.add(runPostingStage(Stage.FEES, checkpoint, deadline,
+                    account -> account instanceof CheckingAccount));
+            stages.add(runPostingStage(Stage.INTEREST, checkpoint, deadline,
+                    account -> account instanceof SavingsAccount));
+            stages.add(runStatements(businessDate, runDir, checkpoint, deadline));
+            stages.add(runSnapshot(checkpoint));
+            checkpoint.complete();
+
+            RunReport report = new RunReport(businessDate, resumed, stages, System.nanoTime() - start, window);
+            LOG.info("{}", report);
+            return report;
+        }
+    }
+
+    /**
+     * Finishes every run that started but did not complete, oldest first, e.g. at startup
+     * after a crash.
+     *
+     * @throws IOException if a run's files cannot be read or written
+     */
+    public List<RunReport> resumeUnfinished() throws IOException {
+        List<RunReport> reports = new ArrayList<>();
+        for (LocalDate date : listRuns()) {
+            if (!readCheckpoint(date).isComplete()) {
+                reports.add(run(date));
+            }
+        }
+        return reports;
+    }
+
+    /**
+     * @return the statement file of one partition of a run
+     */
+    public Path getStatementFile(LocalDate businessDate, int partition) {
+        return eodDir.resolve(businessDate.toString()).resolve(STATEMENTS_DIR)
+                .resolve(String.format("statements-%05d.txt", partition));
+    }
+
+    /**
+     * @return the partition an account falls in; the same on every attempt at a run
+     */
+    static int partitionOf(String accountNumber, int partitions) {
+        return Math.floorMod(accountNumber.hashCode() * 0x9E3779B9, partitions);
+    }
+
+    // Fees and interest: one posting per account, at most once per run
+    private StageReport runPostingStage(Stage stage, Checkpoint checkpoint, long deadline,
+                                        Predicate<Account> member) throws IOException {
+        List<List<Account>> buckets = partition(stage, checkpoint, member);
+        Set<String> alreadyPosted = new HashSet<>();
+        LogPosition unfinished = checkpoint.earliestUnfinished(stage);
+        if (unfinished != null) {
+            flush();
+            new LogReplayService(log, 1).forEachBetween(unfinished, log.currentPosition(), t -> {
+                if (stage.getPostingType().equals(t.getType())) {
+                    alreadyPosted.add(t.getAccountNumber());
+                }
+            });
+            LOG.info("{}: {} accounts already posted by unfinished partitions", stage, alreadyPosted.size());
+        }
+        return runPartitions(stage, checkpoint, buckets, deadline, (partition, members) -> {
+            checkpoint.begin(stage, partition, log.currentPosition());
+            long applied = 0;
+            for (Account account : members) {
+                if (!alreadyPosted.contains(account.getAccountNumber()) && post(stage, account)) {
+                    applied++;
+                }
+            }
+            flush();
+            return applied;
+        });
+    }
+
+    private static boolean post(Stage stage, Account account) {
+        if (stage == Stage.FEES) {
+            return ((CheckingAccount) account).applyMonthlyFee();
+        }
+        return ((SavingsAccount) account).applyMonthlyInterest();
+    }
+
+    // Statements: one file per partition, one line per account, over the postings since the last run
+    private StageReport runStatements(LocalDate businessDate, Path runDir, Checkpoint checkpoint,
+                                      long deadline) throws IOException {
+        List<List<Account>> buckets = partition(Stage.STATEMENTS, checkpoint, account -> true);
+        if (checkpoint.isStageDone(Stage.STATEMENTS)) {
+            return runPartitions(Stage.STATEMENTS, checkpoint, buckets, deadline, (partition, members) -> 0);
+        }
+        if (checkpoint.getPeriodEnd() == null) {
+            // Fixed on the first attempt, so a resumed run writes the same statements
+            flush();
+            checkpoint.period(previousPeriodEnd(businessDate), log.currentPosition());
+        }
+        // accountNumber -> {credits, debits, postings}, in cents
+        Map<String, long[]> totals = new HashMap<>();
+        Map<String, Long> lastBalances = new HashMap<>();
+        new LogReplayService(log, 1).forEachBetween(checkpoint.getPeriodStart(), checkpoint.getPeriodEnd(), t -> {
+            long[] row = totals.computeIfAbsent(t.getAccountNumber(), k -> new long[3]);
+            long cents = LogReplayService.signedCents(t);
+            if (cents != LogReplayService.UNKNOWN_TYPE) {
+                row[cents >= 0 ? 0 : 1] += Math.abs(cents);
+            }
+            row[2]++;
+            lastBalances.put(t.getAccountNumber(), LogReplayService.toCents(t.getBalanceAfter()));
+        });
+        // Closing balances are the last balanceAfter at or before the period end, not the live
+        // balance, which may already include later postings
+        Map<String, Long> closing = openingBalances(businessDate, checkpoint.getPeriodStart());
+        closing.putAll(lastBalances);
+        writeClosing(runDir.resolve(CLOSING_FILE), closing);
+        OpeningsAfter unlogged = new OpeningsAfter(checkpoint.getPeriodEnd());
+
+        Files.createDirectories(runDir.resolve(STATEMENTS_DIR));
+        return runPartitions(Stage.STATEMENTS, checkpoint, buckets, deadline, (partition, members) -> {
+            members.sort(Comparator.comparing(Account::getAccountNumber));
+            long[] balances = new long[members.size()];
+            boolean anyUnlogged = false;
+            for (int i = 0; i < members.size(); i++) {
+                Long logged = closing.get(members.get(i).getAccountNumber());
+                if (logged == null) {
+                    // Never posted before the period end: its balance then is its balance now,
+                    // unless a posting since then shows up in the log below
+                    balances[i] = LogReplayService.toCents(members.get(i).readState().getBalance());
+                    anyUnlogged = true;
+                } else {
+                    balances[i] = logged;
+                }
+            }
+            if (anyUnlogged) {
+                InFlightPostings.awaitEarlier();
+                flush();
+                unlogged.catchUp();
+            }
+            Path target = getStatementFile(businessDate, partition);
+            Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+            try (BufferedWriter writer = Files.newBufferedWriter(temp)) {
+                for (int i = 0; i < members.size(); i++) {
+                    Account account = members.get(i);
+                    long closingCents = balances[i];
+                    if (!closing.containsKey(account.getAccountNumber())) {
+                        closingCents = unlogged.openingOf(account.getAccountNumber(), closingCents);
+                    }
+                    long[] row = totals.getOrDefault(account.getAccountNumber(), new long[3]);
+                    writer.write(StatementGenerator.formatStatementLine(account, row[0], row[1], closingCents, row[2]));
+                    writer.newLine();
+                }
+            }
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            return members.size();
+        });
+    }
+
+    private StageReport runSnapshot(Checkpoint checkpoint) throws IOException {
+        long start = System.nanoTime();
+        if (checkpoint.isDone(Stage.SNAPSHOT, 0)) {
+            return new StageReport(Stage.SNAPSHOT, 1, 1, 0, 0, 0);
+        }
+        int covered = accounts.get().size();
+        snapshots.takeSnapshot();
+        checkpoint.done(Stage.SNAPSHOT, 0, covered, 1);
+        return new StageReport(Stage.SNAPSHOT, 1, 0, covered, 1, System.nanoTime() - start);
+    }
+
+    // Buckets the stage's accounts by partition, leaving out partitions already done
+    private List<List<Account>> partition(Stage stage, Checkpoint checkpoint, Predicate<Account> member) {
+        int count = checkpoint.getPartitions();
+        List<List<Account>> buckets = new ArrayList<>(count);
+        for (int p = 0; p < count; p++) {
+            buckets.add(checkpoint.isDone(stage, p) ? null : new ArrayList<>());
+        }
+        if (checkpoint.isStageDone(stage)) {
+            return buckets;
+        }
+        for (Account account : accounts.get()) {
+            if (member.test(account)) {
+                List<Account> bucket = buckets.get(partitionOf(account.getAccountNumber(), count));
+                if (bucket != null) {
+                    bucket.add(account);
+                }
+            }
+        }
+        return buckets;
+    }
+
+    private StageReport runPartitions(Stage stage, Checkpoint checkpoint, List<List<Account>> buckets,
+                                      long deadline, PartitionWork work) {
+        long start = System.nanoTime();
+        List<Integer> pending = new ArrayList<>();
+        long accountTotal = 0;
+        for (int p = 0; p < buckets.size(); p++) {
+            if (buckets.get(p) != null) {
+                pending.add(p);
+                accountTotal += buckets.get(p).size();
+            }
+        }
+        int skipped = buckets.size() - pending.size();
+        if (pending.isEmpty()) {
+            return new StageReport(stage, buckets.size(), skipped, 0, 0, 0);
+        }
+
+        Progress progress = new Progress(stage, pending.size(), accountTotal, start, deadline);
+        AtomicInteger next = new AtomicInteger();
+        AtomicBoolean failed = new AtomicBoolean();
+        AtomicInteger threadNumber = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(workers, pending.size()), r -> {
+            Thread t = new Thread(r, "eod-" + stage.name().toLowerCase() + "-" + threadNumber.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        List<Future<?>> futures = new ArrayList<>();
+        try {
+            for (int w = 0; w < Math.min(workers, pending.size()); w++) {
+                futures.add(pool.submit(() -> {
+                    int i;
+                    // A failure stops the stage after the partitions already running
+                    while (!failed.get() && (i = next.getAndIncrement()) < pending.size()) {
+                        int partition = pending.get(i);
+                        List<Account> members = buckets.get(partition);
+                        try {
+                            long applied = work.run(partition, members);
+                            checkpoint.done(stage, partition, members.size(), applied);
+                            progress.partitionDone(members.size(), applied);
+                        } catch (Exception e) {
+                            failed.set(true);
+                            throw new IllegalStateException(stage + " failed in partition " + partition, e);
+                        }
+                    }
+                    return null;
+                }));
+            }
+            IllegalStateException failure = null;
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while running " + stage, e);
+                } catch (ExecutionException e) {
+                    if (failure == null) {
+                        failure = new IllegalStateException("End-of-day stage " + stage + " failed", e.getCause());
+                    }
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+        } finally {
+            pool.shutdown();
+        }
+        StageReport report = new StageReport(stage, buckets.size(), skipped, progress.accounts.get(),
+                progress.applied.get(), System.nanoTime() - start);
+        LOG.info("{}", report);
+        return report;
+    }
+
+    private void flush() throws IOException {
+        synchronized (flushLock) {
+            flushPending.flush();
+        }
+    }
+
+    // Where the latest completed earlier run's statements stopped, or the start of the log
+    private LogPosition previousPeriodEnd(LocalDate businessDate) throws IOException {
+        LocalDate previous = previousRun(businessDate);
+        return previous == null ? LogReplayService.LOG_START : readCheckpoint(previous).getPeriodEnd();
+    }
+
+    private Checkpoint readCheckpoint(LocalDate date) throws IOException {
+        return Checkpoint.read(eodDir.resolve(date.toString()).resolve(CHECKPOINT_FILE));
+    }
+
+    // The latest completed earlier run that fixed a statement period, or null
+    private LocalDate previousRun(LocalDate businessDate) throws IOException {
+        List<LocalDate> earlier = new ArrayList<>();
+        for (LocalDate date : listRuns()) {
+            if (date.isBefore(businessDate)) {
+                earlier.add(date);
+            }
+        }
+        Collections.reverse(earlier);
+        for (LocalDate date : earlier) {
+            Checkpoint previous = readCheckpoint(date);
+            if (previous.isComplete() && previous.getPeriodEnd() != null) {
+                return date;
+            }
+        }
+        return null;
+    }
+
+    // Logged balances at the period start: the previous run's closing balances when it ended
+    // the period there, otherwise a replay of the log up to it
+    private Map<String, Long> openingBalances(LocalDate businessDate, LogPosition periodStart) throws IOException {
+        if (periodStart.getGeneration() == LogReplayService.LOG_START.getGeneration()
+                && periodStart.getOffset() == LogReplayService.LOG_START.getOffset()) {
+            return new HashMap<>();
+        }
+        LocalDate previous = previousRun(businessDate);
+        LogPosition previousEnd = previous == null ? null : readCheckpoint(previous).getPeriodEnd();
+        if (previousEnd != null && previousEnd.getGeneration() == periodStart.getGeneration()
+                && previousEnd.getOffset() == periodStart.getOffset()) {
+            Path file = eodDir.resolve(previous.toString()).resolve(CLOSING_FILE);
+            if (Files.exists(file)) {
+                Map<String, Long> balances = new HashMap<>();
+                for (String line : Files.readAllLines(file)) {
+                    int separator = line.indexOf('|');
+                    if (separator > 0) {
+                        balances.put(line.substring(0, separator), Long.parseLong(line.substring(separator + 1)));
+                    }
+                }
+                return balances;
+            }
+        }
+        LOG.info("No closing balances from an earlier run; replaying the log up to the period start");
+        return new HashMap<>(new LogReplayService(log, workers).replayTo(periodStart).getBalances());
+    }
+
+    private static void writeClosing(Path target, Map<String, Long> closing) throws IOException {
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(temp)) {
+            for (Map.Entry<String, Long> entry : closing.entrySet()) {
+                writer.write(entry.getKey() + "|" + entry.getValue());
+                writer.newLine();
+            }
+        }
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private List<LocalDate> listRuns() throws IOException {
+        List<LocalDate> dates = new ArrayList<>();
+        if (Files.notExists(eodDir)) {
+            return dates;
+        }
+        try (Stream<Path> dirs = Files.list(eodDir)) {
+            for (Path dir : (Iterable<Path>) dirs::iterator) {
+                try {
+                    LocalDate date = LocalDate.parse(dir.getFileName().toString());
+                    if (Files.exists(dir.resolve(CHECKPOINT_FILE))) {
+                        dates.add(date);
+                    }
+                } catch (DateTimeParseException ignored) {
+                    // Not a run directory
+                }
+            }
+        }
+        Collections.sort(dates);
+        return dates;
+    }
+
+    /**
+     * The balance each account held just before its first posting after a log position,
+     * read forward as the log grows.
+     */
+    private final class OpeningsAfter {
+        private final Map<String, Long> openings = new HashMap<>();
+        private LogPosition readTo;
+
+        private OpeningsAfter(LogPosition from) {
+            this.readTo = from;
+        }
+
+        synchronized void catchUp() throws IOException {
+            LogPosition end = log.currentPosition();
+            new LogReplayService(log, 1).forEachBetween(readTo, end, t -> {
+                long delta = LogReplayService.signedCents(t);
+                if (delta != LogReplayService.UNKNOWN_TYPE) {
+                    openings.putIfAbsent(t.getAccountNumber(), LogReplayService.toCents(t.getBalanceAfter()) - delta);
+                }
+            });
+            readTo = end;
+        }
+
+        /**
+         * @return the balance before the account's first posting since the position, or
+         *         {@code current} if it has none
+         */
+        synchronized long openingOf(String accountNumber, long current) {
+            return openings.getOrDefault(accountNumber, current);
+        }
+    }
+
+    /**
+     * A run's checkpoint file: one line per event, appended and forced before the run moves on.
+     * <pre>
+     * RUN|partitions
+     * BEGIN|stage|partition|generation|offset   a posting partition started at this log position
+     * DONE|stage|partition|accounts|applied     a partition finished and its postings are logged
+     * PERIOD|generation|offset|generation|offset  the log range the statements cover
+     * COMPLETE
+     * </pre>
+     * A line torn by a crash is cut off when the file is reopened.
+     */
+    private static final class Checkpoint implements Closeable {
+        private final FileChannel channel;
+        private int partitions;
+        private final Set<String> done = new HashSet<>();
+        private final Map<String, LogPosition> begun = new HashMap<>();
+        private final Map<Stage, Integer> doneByStage = new HashMap<>();
+        private LogPosition periodStart;
+        private LogPosition periodEnd;
+        private boolean complete;
+
+        private Checkpoint(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        static Checkpoint read(Path file) throws IOException {
+            Checkpoint checkpoint = new Checkpoint(null);
+            if (Files.exists(file)) {
+                checkpoint.load(new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+            }
+            return checkpoint;
+        }
+
+        static Checkpoint open(Path file, int partitions) throws IOException {
+            byte[] contents = Files.exists(file) ? Files.readAllBytes(file) : new byte[0];
+            int length = contents.length;
+            while (length > 0 && contents[length - 1] != '\n') {
+                length--;
+            }
+            FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            Checkpoint checkpoint = new Checkpoint(channel);
+            try {
+                channel.truncate(length);
+                channel.position(length);
+                checkpoint.load(new String(contents, 0, length, StandardCharsets.UTF_8));
+                if (checkpoint.partitions == 0) {
+                    checkpoint.partitions = partitions;
+                    checkpoint.write("RUN|" + partitions);
+                }
+            } catch (IOException | RuntimeException e) {
+                channel.close();
+                throw e;
+            }
+            return checkpoint;
+        }
+
+        private void load(String text) {
+            for (String line : text.split("\n")) {
+                String[] fields = line.split("\\|");
+                try {
+                    switch (fields[0]) {
+                        case "RUN":
+                            partitions = Integer.parseInt(fields[1]);
+                            break;
+                        case "BEGIN":
+                            begun.put(fields[1] + "|" + fields[2],
+                                    new LogPosition(Long.parseLong(fields[3]), Long.parseLong(fields[4])));
+                            break;
+                        case "DONE":
+                            markDone(Stage.valueOf(fields[1]), Integer.parseInt(fields[2]));
+                            break;
+                        case "PERIOD":
+                            periodStart = new LogPosition(Long.parseLong(fields[1]), Long.parseLong(fields[2]));
+                            periodEnd = new LogPosition(Long.parseLong(fields[3]), Long.parseLong(fields[4]));
+                            break;
+                        case "COMPLETE":
+                            complete = true;
+                            break;
+                        default:
+                            break;
+                    }
+                } catch (RuntimeException e) {
+                    LOG.warn("Ignoring unreadable checkpoint line: {}", line);
+                }
+            }
+        }
+
+        private void markDone(Stage stage, int partition) {
+            if (done.add(stage + "|" + partition)) {
+                doneByStage.merge(stage, 1, Integer::sum);
+            }
+        }
+
+        private synchronized void write(String line) throws IOException {
+            ByteBuffer buffer = ByteBuffer.wrap((line + "\n").getBytes(StandardCharsets.UTF_8));
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        }
+
+        int getPartitions() {
+            return partitions;
+        }
+
+        boolean hasProgress() {
+            return !done.isEmpty() || !begun.isEmpty();
+        }
+
+        boolean isComplete() {
+            return complete;
+        }
+
+        synchronized boolean isDone(Stage stage, int partition) {
+            return done.contains(stage + "|" + partition);
+        }
+
+        synchronized boolean isStageDone(Stage stage) {
+            return doneByStage.getOrDefault(stage, 0) >= (stage == Stage.SNAPSHOT ? 1 : partitions);
+        }
+
+        // The earliest start of a partition of the stage that began but did not finish
+        synchronized LogPosition earliestUnfinished(Stage stage) {
+            LogPosition earliest = null;
+            for (Map.Entry<String, LogPosition> entry : begun.entrySet()) {
+                if (entry.getKey().startsWith(stage + "|") && !done.contains(entry.getKey())) {
+                    LogPosition position = entry.getValue();
+                    if (earliest == null || position.getGeneration() < earliest.getGeneration()
+                            || (position.getGeneration() == earliest.getGeneration()
+                            && position.getOffset() < earliest.getOffset())) {
+                        earliest = position;
+                    }
+                }
+            }
+            return earliest;
+        }
+
+        LogPosition getPeriodStart() {
+            return periodStart;
+        }
+
+        LogPosition getPeriodEnd() {
+            return periodEnd;
+        }
+
+        synchronized void begin(Stage stage, int partition, LogPosition position) throws IOException {
+            write(String.join("|", "BEGIN", stage.name(), String.valueOf(partition),
+                    String.valueOf(position.getGeneration()), String.valueOf(position.getOffset())));
+            begun.put(stage + "|" + partition, position);
+        }
+
+        synchronized void done(Stage stage, int partition, long accounts, long applied) throws IOException {
+            write(String.join("|", "DONE", stage.name(), String.valueOf(partition),
+                    String.valueOf(accounts), String.valueOf(applied)));
+            markDone(stage, partition);
+        }
+
+        synchronized void period(LogPosition start, LogPosition end) throws IOException {
+            write(String.join("|", "PERIOD", String.valueOf(start.getGeneration()), String.valueOf(start.getOffset()),
+                    String.valueOf(end.getGeneration()), String.valueOf(end.getOffset())));
+            periodStart = start;
+            periodEnd = end;
+        }
+
+        synchronized void complete() throws IOException {
+            if (!complete) {
+                write("COMPLETE");
+                complete = true;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (channel != null) {
+                channel.close();
+            }
+        }
+    }
+
+    // Counts a running stage's finished partitions and logs its rate and projected finish
+    private static final class Progress {
+        private final Stage stage;
+        private final int partitions;
+        private final long accountTotal;
+        private final long startNanos;
+        private final long deadlineNanos;
+        private final AtomicInteger partitionsDone = new AtomicInteger();
+        private final AtomicLong accounts = new AtomicLong();
+        private final AtomicLong applied = new AtomicLong();
+        private final AtomicLong lastReportNanos;
+        private final AtomicBoolean lateReported = new AtomicBoolean();
+
+        private Progress(Stage stage, int partitions, long accountTotal, long startNanos, long deadlineNanos) {
+            this.stage = stage;
+            this.partitions = partitions;
+            this.accountTotal = accountTotal;
+            this.startNanos = startNanos;
+            this.deadlineNanos = deadlineNanos;
+            this.lastReportNanos = new AtomicLong(startNanos);
+        }
+
+        void partitionDone(long partitionAccounts, long partitionApplied) {
+            int finished = partitionsDone.incrementAndGet();
+            long done = accounts.addAndGet(partitionAccounts);
+            applied.addAndGet(partitionApplied);
+            long now = System.nanoTime();
+            long last = lastReportNanos.get();
+            if (now - last < PROGRESS_INTERVAL_NANOS || !lastReportNanos.compareAndSet(last, now)) {
+                return;
+            }
+            double perSecond = done * 1e9 / Math.max(1, now - startNanos);
+            long remainingNanos = perSecond == 0 ? Long.MAX_VALUE / 2 : (long) ((accountTotal - done) / perSecond * 1e9);
+            LOG.info("{} {}", stage, String.format("%d/%d partitions, %,d/%,d accounts, %,.0f accounts/s, %,d s to go",
+                    finished, partitions, done, accountTotal, perSecond, remainingNanos / 1_000_000_000L));
+            if (now + remainingNanos > deadlineNanos && lateReported.compareAndSet(false, true)) {
+                LOG.warn("{} is projected to end {} s past the end-of-day window", stage,
+                        (now + remainingNanos - deadlineNanos) / 1_000_000_000L);
+            }
+        }
+    }
+
+    /**
+     * What one stage did in one attempt at a run.
+     */
+    public static final class StageReport {
+        private final Stage stage;
+        private final int partitions;
+        private final int skippedPartitions;
+        private final long accounts;
+        private final long applied;
+        private final long elapsedNanos;
+
+        StageReport(Stage stage, int partitions, int skippedPartitions, long accounts, long applied, long elapsedNanos) {
+            this.stage = stage;
+            this.partitions = partitions;
+            this.skippedPartitions = skippedPartitions;
+            this.accounts = accounts;
+            this.applied = applied;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public Stage getStage() {
+            return stage;
+        }
+
+        public int getPartitions() {
+            return partitions;
+        }
+
+        /**
+         * @return partitions an earlier attempt had already finished
+         */
+        public int getSkippedPartitions() {
+            return skippedPartitions;
+        }
+
+        /**
+         * @return accounts in the partitions this attempt ran
+         */
+        public long getAccounts() {
+            return accounts;
+        }
+
+        /**
+         * @return fees charged (or waived), interest credits, statement lines or snapshots written
+         */
+        public long getApplied() {
+            return applied;
+        }
+
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        public double getAccountsPerSecond() {
+            return elapsedNanos == 0 ? 0 : accounts * 1e9 / elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s: %d partitions (%d already done), %,d accounts, %,d applied in %,.1f s, %,.0f accounts/s",
+                    stage, partitions, skippedPartitions, accounts, applied, elapsedNanos / 1e9, getAccountsPerSecond());
+        }
+    }
+
+    /**
+     * What one attempt at a run did, stage by stage, and whether it fit the window.
+     */
+    public static final class RunReport {
+        private final LocalDate businessDate;
+        private final boolean resumed;
+        private final List<StageReport> stages;
+        private final long elapsedNanos;
+        private final Duration window;
+
+        RunReport(LocalDate businessDate, boolean resumed, List<StageReport> stages, long elapsedNanos, Duration window) {
+            this.businessDate = businessDate;
+            this.resumed = resumed;
+            this.stages = Collections.unmodifiableList(stages);
+            this.elapsedNanos = elapsedNanos;
+            this.window = window;
+        }
+
+        public LocalDate getBusinessDate() {
+            return businessDate;
+        }
+
+        /**
+         * @return whether this attempt picked up from an earlier one's checkpoint
+         */
+        public boolean isResumed() {
+            return resumed;
+        }
+
+        public List<StageReport> getStages() {
+            return stages;
+        }
+
+        public StageReport getStage(Stage stage) {
+            return stages.get(stage.ordinal());
+        }
+
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        public boolean isWithinWindow() {
+            return elapsedNanos <= window.toNanos();
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder text = new StringBuilder(String.format("End of day %s%s in %,.1f s (window %d min, %s)",
+                    businessDate, resumed ? ", resumed," : "", elapsedNanos / 1e9, window.toMinutes(),
+                    isWithinWindow() ? "on time" : "late"));
+            for (StageReport stage : stages) {
+                text.append(System.lineSeparator()).append("  ").append(stage);
+            }
+            return text.toString();
+        }
+    }
+}
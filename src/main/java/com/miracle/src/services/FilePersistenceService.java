@@ -2,11 +2,16 @@ package com.miracle.src.services;
 
 import com.miracle.src.models.Account;
 import com.miracle.src.models.Transaction;
+import com.miracle.src.models.VelocityLimits;
 import com.miracle.src.utils.FileIOUtils;
+import com.miracle.src.utils.Log;
 
 import java.io.IOException;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Service class for handling file persistence operations.
@@ -17,8 +22,12 @@ import java.util.Map;
  */
 public class FilePersistenceService {
 
+    private static final Log LOG = Log.get(FilePersistenceService.class);
+
     private static final FilePersistenceService INSTANCE = new FilePersistenceService();
 
+    private ScheduledExecutorService checkpointScheduler;
+
     private FilePersistenceService() {
     }
 
@@ -49,8 +58,9 @@ public class FilePersistenceService {
     /**
      * Saves transactions to the transactions.txt file.
      * @param transactions List of transactions to save
+     * @throws IOException if the transactions could not be appended
      */
-    public void saveTransactions(List<Transaction> transactions) {
+    public void saveTransactions(List<Transaction> transactions) throws IOException {
         FileIOUtils.saveTransactionsToFile(transactions);
     }
 
@@ -67,20 +77,77 @@ public class FilePersistenceService {
      * @throws IOException if file reading fails
      */
     public void loadAllDataOnStartup() throws IOException {
-        System.out.println("Loading data from files...");
+        LOG.info("Loading data from files...");
         loadAccounts();
-        loadTransactions();
-        System.out.println("Data loading complete.");
+        // Latest snapshot plus log tail, or a full log replay when no snapshot exists
+        SnapshotService.getInstance().recover();
+        try {
+            // The journal is derived from the log; the bank can run while it is rebuilt later
+            JournalService.getInstance().recover();
+        } catch (IOException e) {
+            LOG.error("Error bringing the journal up to date: {}", e.getMessage());
+        }
+        // Holds reserve against the recovered balances
+        HoldService.getInstance().recoverHolds();
+        StandingOrderService.getInstance().recoverOrders();
+        if (VelocityLimits.isEnabled()) {
+            AccountManager.getInstance().rebuildVelocityWindows();
+        }
+        TransactionManager.markDataLoaded();
+        LOG.info("Data loading complete.");
+    }
+
+    /**
+     * Saves pending accounts and transactions, then snapshots balances against the log.
+     * @throws IOException if the snapshot cannot be written
+     */
+    public void checkpoint() throws IOException {
+        saveAllDataOnExit();
+        SnapshotService.getInstance().takeSnapshot();
+    }
+
+    /**
+     * Starts a background thread that checkpoints at a fixed interval, bounding restart time.
+     * @param intervalSeconds seconds between checkpoints
+     */
+    public synchronized void startPeriodicCheckpoints(long intervalSeconds) {
+        if (checkpointScheduler != null) {
+            return;
+        }
+        checkpointScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "snapshot-checkpoint");
+            t.setDaemon(true);
+            return t;
+        });
+        checkpointScheduler.scheduleAtFixedRate(() -> {
+            try {
+                checkpoint();
+            } catch (Exception e) {
+                LOG.error("Periodic checkpoint failed: {}", e.getMessage());
+            }
+        }, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
     }
 
     /**
      * Saves all data (accounts and transactions) on application exit.
      */
     public void saveAllDataOnExit() {
-        System.out.println("Saving data to files...");
-        AccountManager.getInstance().saveAccountsOnExit();
+        LOG.info("Saving data to files...");
+        // The log first: accounts saved ahead of the postings that opened them would
+        // recover with balances the log cannot account for if the process died in between
         TransactionManager.getInstance().saveTransactionsOnExit();
-        System.out.println("Data saving complete.");
+        AccountManager.getInstance().saveAccountsOnExit();
+        try {
+            HoldService.getInstance().saveHolds();
+        } catch (IOException e) {
+            LOG.error("Saving holds failed: {}", e.getMessage());
+        }
+        try {
+            StandingOrderService.getInstance().saveOrders();
+        } catch (IOException e) {
+            LOG.error("Saving standing orders failed: {}", e.getMessage());
+        }
+        LOG.info("Data saving complete.");
     }
 }
 
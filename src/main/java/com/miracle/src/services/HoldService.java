@@ -0,0 +1,418 @@
+package com.miracle.src.services;
+
+import com.miracle.src.models.Account;
+import com.miracle.src.models.Hold;
+import com.miracle.src.models.Transaction;
+import com.miracle.src.models.exceptions.AccountNotFoundException;
+import com.miracle.src.models.exceptions.InsufficientFundsException;
+import com.miracle.src.models.exceptions.InvalidAmountException;
+import com.miracle.src.utils.FileIOUtils;
+import com.miracle.src.utils.Log;
+import com.miracle.src.utils.TimerWheel;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Authorization holds: reserve funds on an account, then capture them as a withdrawal or
+ * release them. Holds left open expire on their own.
+ * <p>
+ * Expiry runs on one {@link TimerWheel} advanced by a single ticker thread, so placing or
+ * ending a hold is O(1) however many are open, and expiring a hold costs the same. The
+ * account only keeps the total it has reserved; {@link Account#getBalance()} is untouched
+ * and reads no differently with holds open.
+ * </p>
+ * <p>
+ * Every placement, capture and release is appended to {@code holds.log} and forced to
+ * disk before it takes effect; a capture is logged before its withdrawal is posted, so a
+ * crash can lose the withdrawal but never bring a captured hold back as open. Open holds
+ * are written to {@code holds.txt} with the other data on save and checkpoint, which also
+ * empties the event log, and startup reserves them again from both files. Holds that ran
+ * out while the system was down expire on the first tick after recovery. The default
+ * lifetime is seven days, {@code -Dbank.hold.ttl.minutes} changes it.
+ * </p>
+ */
+public class HoldService {
+
+    private static final Log LOG = Log.get(HoldService.class);
+
+    private static final long TICK_MILLIS = 1_000;
+    private static final int WHEEL_LEVELS = 4;
+
+    private static final String PLACED = "PLACED";
+    private static final String CAPTURED = "CAPTURED";
+    private static final String RELEASED = "RELEASED";
+
+    private static final HoldService INSTANCE = new HoldService(
+            FileIOUtils.getDataDir().resolve("holds.txt"),
+            Duration.ofMinutes(Long.getLong("bank.hold.ttl.minutes", 7 * 24 * 60)),
+            TICK_MILLIS);
+
+    private final Path holdsFile;
+    private final Path eventFile;
+    private final Duration defaultTtl;
+    private final long tickMillis;
+    // Changed only together with the event log, under eventLock, so a save sees them agree
+    private final ConcurrentHashMap<String, Hold> holds = new ConcurrentHashMap<>();
+    private final Object eventLock = new Object();
+    // Guarded by eventLock
+    private FileChannel events;
+    // Guarded by itself
+    private final TimerWheel<Hold> wheel;
+    private final AtomicLong holdCounter = new AtomicLong();
+    private ScheduledExecutorService ticker;
+
+    /**
+     * Creates a hold service with its own holds file, and its event log next to it.
+     *
+     * @param holdsFile  where open holds are saved
+     * @param defaultTtl lifetime of holds placed without one
+     * @param tickMillis expiry resolution
+     */
+    public HoldService(Path holdsFile, Duration defaultTtl, long tickMillis) {
+        this.holdsFile = holdsFile;
+        String name = holdsFile.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        this.eventFile = holdsFile.resolveSibling((dot > 0 ? name.substring(0, dot) : name) + ".log");
+        this.defaultTtl = defaultTtl;
+        this.tickMillis = tickMillis;
+        this.wheel = new TimerWheel<>(tickMillis, WHEEL_LEVELS, System.currentTimeMillis());
+    }
+
+    public static HoldService getInstance() {
+        return INSTANCE;
+    }
+
+    public Hold placeHold(String accountNumber, double amount)
+            throws AccountNotFoundException, InvalidAmountException, InsufficientFundsException, IOException {
+        return placeHold(AccountManager.getInstance().findAccount(accountNumber), amount, defaultTtl);
+    }
+
+    /**
+     * Reserves {@code amount} on the account until it is captured, released or expires.
+     *
+     * @throws InvalidAmountException     if the amount is not positive
+     * @throws InsufficientFundsException if the available balance does not cover it
+     * @throws IOException                if the placement cannot be logged; nothing is reserved then
+     */
+    public Hold placeHold(Account account, double amount, Duration ttl)
+            throws InvalidAmountException, InsufficientFundsException, IOException {
+        long amountCents = Math.round(amount * 100);
+        if (amountCents <= 0) {
+            throw new InvalidAmountException(amount);
+        }
+        if (!account.reserveCents(amountCents)) {
+            throw new InsufficientFundsException(String.format(
+                    "Hold of $%,.2f exceeds the available balance of $%,.2f", amount, account.getAvailableBalance()));
+        }
+        long now = System.currentTimeMillis();
+        Hold hold = new Hold(formatId(holdCounter.incrementAndGet()), account, amountCents, now, now + ttl.toMillis());
+        try {
+            synchronized (eventLock) {
+                logEvent(PLACED + "," + format(hold));
+                holds.put(hold.getHoldId(), hold);
+            }
+        } catch (IOException e) {
+            account.releaseReservedCents(amountCents);
+            throw e;
+        }
+        schedule(hold);
+        return hold;
+    }
+
+    /**
+     * Captures the whole hold as a withdrawal.
+     */
+    public Transaction capture(String holdId) throws InvalidAmountException, IOException {
+        Hold hold = activeHold(holdId);
+        return capture(hold, hold.getAmount());
+    }
+
+    /**
+     * Captures part or all of a hold as a withdrawal and releases the rest.
+     *
+     * @throws InvalidAmountException if the amount is not positive or exceeds the hold
+     * @throws IllegalArgumentException if there is no such hold
+     * @throws IllegalStateException if the hold has already ended
+     * @throws IOException if the capture cannot be logged; the hold stays open then
+     */
+    public Transaction capture(String holdId, double amount) throws InvalidAmountException, IOException {
+        return capture(activeHold(holdId), amount);
+    }
+
+    // Logged first, so a restart never reopens a hold whose withdrawal reached the transaction
+    // log; the hold ends only once the withdrawal is posted
+    private Transaction capture(Hold hold, double amount) throws InvalidAmountException, IOException {
+        long captureCents = Math.round(amount * 100);
+        if (captureCents <= 0 || captureCents > hold.getAmountCents()) {
+            throw new InvalidAmountException(amount);
+        }
+        synchronized (hold) {
+            checkActive(hold);
+            unlist(hold, CAPTURED);
+            Transaction posted;
+            try {
+                posted = hold.getAccount().captureReservedCents(captureCents, hold.getAmountCents());
+            } catch (RuntimeException e) {
+                // Still reserved: log the hold as open again
+                synchronized (eventLock) {
+                    logEvent(PLACED + "," + format(hold));
+                    holds.put(hold.getHoldId(), hold);
+                }
+                throw e;
+            }
+            end(hold, Hold.Status.CAPTURED);
+            return posted;
+        }
+    }
+
+    /**
+     * Releases a hold without posting anything.
+     *
+     * @throws IllegalArgumentException if there is no such hold
+     * @throws IllegalStateException if the hold has already ended
+     * @throws IOException if the release cannot be logged; the hold stays open then
+     */
+    public void release(String holdId) throws IOException {
+        Hold hold = activeHold(holdId);
+        synchronized (hold) {
+            checkActive(hold);
+            unlist(hold, RELEASED);
+            end(hold, Hold.Status.RELEASED);
+        }
+        hold.getAccount().releaseReservedCents(hold.getAmountCents());
+    }
+
+    /**
+     * @return the hold while it is open, or null once it has ended
+     */
+    public Hold getHold(String holdId) {
+        return holds.get(holdId);
+    }
+
+    public int getOpenHoldCount() {
+        return holds.size();
+    }
+
+    /**
+     * Expires the holds due at {@code nowMillis}. Called by the ticker, or directly.
+     *
+     * @return the number of holds expired
+     */
+    public int expireDue(long nowMillis) {
+        List<Hold> due = new ArrayList<>();
+        synchronized (wheel) {
+            wheel.advance(nowMillis, due::add);
+        }
+        int expired = 0;
+        // A capture or release that won the race has already given the funds back. Expiry is
+        // not logged: a recovered hold past its time expires again on the first tick
+        for (Hold hold : due) {
+            synchronized (hold) {
+                if (!hold.finish(Hold.Status.EXPIRED)) {
+                    continue;
+                }
+                synchronized (eventLock) {
+                    holds.remove(hold.getHoldId(), hold);
+                }
+            }
+            hold.getAccount().releaseReservedCents(hold.getAmountCents());
+            expired++;
+        }
+        if (expired > 0) {
+            LOG.debug("Expired {} holds", expired);
+        }
+        return expired;
+    }
+
+    /**
+     * Starts the thread that expires holds once per tick.
+     */
+    public synchronized void start() {
+        if (ticker != null) {
+            return;
+        }
+        ticker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "hold-expiry");
+            t.setDaemon(true);
+            return t;
+        });
+        ticker.scheduleAtFixedRate(() -> {
+            try {
+                expireDue(System.currentTimeMillis());
+            } catch (RuntimeException e) {
+                LOG.error("Hold expiry failed: {}", e.getMessage());
+            }
+        }, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void stop() {
+        if (ticker != null) {
+            ticker.shutdownNow();
+            ticker = null;
+        }
+    }
+
+    /**
+     * Writes the open holds to the holds file, replacing it atomically, then empties the
+     * event log it now covers.
+     *
+     * @return the number of holds written
+     * @throws IOException if the file cannot be written
+     */
+    public int saveHolds() throws IOException {
+        Files.createDirectories(holdsFile.toAbsolutePath().getParent());
+        Path temp = holdsFile.resolveSibling(holdsFile.getFileName() + ".tmp");
+        int written = 0;
+        synchronized (eventLock) {
+            try (BufferedWriter writer = Files.newBufferedWriter(temp)) {
+                for (Hold hold : holds.values()) {
+                    writer.write(format(hold));
+                    writer.newLine();
+                    written++;
+                }
+            }
+            Files.move(temp, holdsFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            if (events != null) {
+                events.truncate(0);
+                events.force(true);
+            } else {
+                Files.deleteIfExists(eventFile);
+            }
+        }
+        return written;
+    }
+
+    /**
+     * Reserves the saved holds again on their accounts, with the events logged since they
+     * were saved applied on top. Accounts must be loaded first.
+     *
+     * @return the number of holds recovered
+     * @throws IOException if a file cannot be read
+     */
+    public int recoverHolds() throws IOException {
+        Map<String, String[]> open = new LinkedHashMap<>();
+        if (Files.exists(holdsFile)) {
+            for (String line : Files.readAllLines(holdsFile)) {
+                String[] fields = line.split(",");
+                if (fields.length == 5) {
+                    open.put(fields[0], fields);
+                }
+            }
+        }
+        if (Files.exists(eventFile)) {
+            for (String line : Files.readAllLines(eventFile)) {
+                String[] fields = line.split(",");
+                if (fields.length == 6 && PLACED.equals(fields[0])) {
+                    open.put(fields[1], Arrays.copyOfRange(fields, 1, 6));
+                } else if (fields.length == 2 && (CAPTURED.equals(fields[0]) || RELEASED.equals(fields[0]))) {
+                    open.remove(fields[1]);
+                }
+                // Anything else is a line torn by a crash, and the last one written
+            }
+        }
+
+        AccountManager accountManager = AccountManager.getInstance();
+        int recovered = 0;
+        for (String[] fields : open.values()) {
+            if (holds.containsKey(fields[0])) {
+                continue;
+            }
+            Account account;
+            try {
+                account = accountManager.findAccount(fields[1]);
+            } catch (AccountNotFoundException e) {
+                LOG.warn("Dropping hold {} on unknown account {}", fields[0], fields[1]);
+                continue;
+            }
+            Hold hold = new Hold(fields[0], account, Long.parseLong(fields[2]),
+                    Long.parseLong(fields[3]), Long.parseLong(fields[4]));
+            account.restoreReservedCents(hold.getAmountCents());
+            holds.put(hold.getHoldId(), hold);
+            schedule(hold);
+            holdCounter.accumulateAndGet(Long.parseLong(fields[0].substring(3)), Math::max);
+            recovered++;
+        }
+        return recovered;
+    }
+
+    // Same shape as transaction IDs: padded to three digits, plain concatenation beyond
+    private static String formatId(long id) {
+        return id >= 100 ? "HLD" + id : String.format("HLD%03d", id);
+    }
+
+    private static String format(Hold hold) {
+        return String.join(",", hold.getHoldId(), hold.getAccount().getAccountNumber(),
+                String.valueOf(hold.getAmountCents()), String.valueOf(hold.getPlacedAtMillis()),
+                String.valueOf(hold.getExpiresAtMillis()));
+    }
+
+    // Callers hold eventLock; the event is on disk when this returns
+    private void logEvent(String line) throws IOException {
+        if (events == null) {
+            Files.createDirectories(eventFile.toAbsolutePath().getParent());
+            events = FileChannel.open(eventFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.APPEND);
+        }
+        ByteBuffer bytes = ByteBuffer.wrap((line + System.lineSeparator()).getBytes(StandardCharsets.UTF_8));
+        while (bytes.hasRemaining()) {
+            events.write(bytes);
+        }
+        events.force(false);
+    }
+
+    private void schedule(Hold hold) {
+        synchronized (wheel) {
+            wheel.schedule(hold, hold.getExpiresAtMillis());
+        }
+    }
+
+    private Hold activeHold(String holdId) {
+        Hold hold = holds.get(holdId);
+        if (hold == null) {
+            throw new IllegalArgumentException("No open hold " + holdId);
+        }
+        return hold;
+    }
+
+    // Callers hold the hold's monitor, which expiry takes too
+    private static void checkActive(Hold hold) {
+        if (hold.getStatus() != Hold.Status.ACTIVE) {
+            throw new IllegalStateException("Hold " + hold.getHoldId() + " is already " + hold.getStatus());
+        }
+    }
+
+    // Logs the hold's end and drops it from the open holds a save writes
+    private void unlist(Hold hold, String event) throws IOException {
+        synchronized (eventLock) {
+            logEvent(event + "," + hold.getHoldId());
+            holds.remove(hold.getHoldId(), hold);
+        }
+    }
+
+    // Callers hold the hold's monitor and have checked it is still active
+    private void end(Hold hold, Hold.Status outcome) {
+        hold.finish(outcome);
+        synchronized (wheel) {
+            wheel.cancel(hold);
+        }
+    }
+}
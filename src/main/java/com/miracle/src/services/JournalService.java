@@ -0,0 +1,660 @@
+package com.miracle.src.services;
+
+import com.miracle.src.models.JournalEntry;
+import com.miracle.src.models.Transaction;
+import com.miracle.src.utils.FileIOUtils;
+import com.miracle.src.utils.Log;
+import com.miracle.src.utils.TransactionSegmentStore;
+import com.miracle.src.utils.TransactionSegmentStore.LogPosition;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Double-entry journal of every posting.
+ * <p>
+ * Each transaction that reaches the log is journaled, in log order, as one entry with a
+ * debit and a credit leg: the customer's account on one side and an internal ledger
+ * account on the other. Deposits and withdrawals move against {@link #CASH}, fees against
+ * {@link #FEE_INCOME} and interest against {@link #INTEREST_EXPENSE}. The two sides of a
+ * transfer are separate postings, possibly on different lanes, so each side is its own
+ * entry against {@link #TRANSFERS_IN_FLIGHT}; that clearing account holds exactly the money
+ * between a transfer's debit and its credit, and is back at zero once every transfer has
+ * completed or been returned.
+ * </p>
+ * <p>
+ * Entries go to one sequential file, {@code journal/journal.log}, under the same lock as
+ * the log append they follow. {@code journal.pos} records how far into the transaction
+ * log the journal reaches and how long the journal was at that point. At startup
+ * {@link #recover()} cuts the journal back to that length and catches it up from the log,
+ * so a crash between the two appends neither loses nor repeats an entry; a missing journal
+ * is rebuilt from the whole log. The log stays the record the journal is checked against.
+ * </p>
+ * <p>
+ * {@link #trialBalance()} checks every entry and totals every ledger account in one
+ * streaming pass; {@link #rebuildBalances(int)} projects account balances from the journal
+ * with the file split across threads.
+ * </p>
+ */
+public class JournalService {
+
+    private static final Log LOG = Log.get(JournalService.class);
+
+    public static final String CASH = "GL-CASH";
+    public static final String FEE_INCOME = "GL-FEE-INCOME";
+    public static final String INTEREST_EXPENSE = "GL-INTEREST-EXPENSE";
+    public static final String TRANSFERS_IN_FLIGHT = "GL-TRANSFERS-IN-FLIGHT";
+    private static final String INTERNAL_PREFIX = "GL-";
+
+    // Leg fields start after sequence, reference, type and timestamp
+    private static final int HEADER_FIELDS = 4;
+    private static final int CATCH_UP_FLUSH_CHARS = 1 << 20;
+    private static final int MAX_LISTED_UNBALANCED = 10;
+    // Below this a rebuild thread costs more to start than its range takes to read
+    private static final long MIN_RANGE_BYTES = 1 << 20;
+
+    private static final JournalService INSTANCE = new JournalService(
+            FileIOUtils.getDataDir().resolve("journal"), FileIOUtils.getTransactionStore());
+
+    private final Path journalFile;
+    private final Path positionFile;
+    private final TransactionSegmentStore log;
+
+    // Guarded by this
+    private boolean positionLoaded;
+    private LogPosition logPosition;
+    private long journalBytes;
+    private long nextSequence = 1;
+
+    /**
+     * Creates a journal of the given log, kept in its own directory.
+     *
+     * @param journalDir where journal.log and journal.pos are kept
+     * @param log        the transaction log the journal follows
+     */
+    public JournalService(Path journalDir, TransactionSegmentStore log) {
+        this.journalFile = journalDir.resolve("journal.log");
+        this.positionFile = journalDir.resolve("journal.pos");
+        this.log = log;
+    }
+
+    public static JournalService getInstance() {
+        return INSTANCE;
+    }
+
+    public static boolean isInternalAccount(String account) {
+        return account.startsWith(INTERNAL_PREFIX);
+    }
+
+    /**
+     * Journals one posting: the customer's account against the internal account its type
+     * settles with.
+     *
+     * @return the entry, or null for a type the journal does not know
+     */
+    public static JournalEntry toEntry(long sequence, Transaction transaction) {
+        String account = transaction.getAccountNumber();
+        String debit;
+        String credit;
+        switch (transaction.getType()) {
+            case "Deposit":
+                debit = CASH;
+                credit = account;
+                break;
+            case "Withdrawal":
+                debit = account;
+                credit = CASH;
+                break;
+            case "Transfer Out":
+                debit = account;
+                credit = TRANSFERS_IN_FLIGHT;
+                break;
+            case "Transfer In":
+                debit = TRANSFERS_IN_FLIGHT;
+                credit = account;
+                break;
+            case "Fee":
+                debit = account;
+                credit = FEE_INCOME;
+                break;
+            case "Interest":
+                debit = INTEREST_EXPENSE;
+                credit = account;
+                break;
+            default:
+                return null;
+        }
+        return JournalEntry.of(sequence, transaction.getTransactionId(), transaction.getType(),
+                transaction.getTimestamp(), debit, credit, Math.round(transaction.getAmount() * 100));
+    }
+
+    /**
+     * Journals a batch just appended to the log between {@code before} and {@code after}.
+     * If the journal did not end at {@code before}, after a failed write or an append that
+     * went around it, it catches up from the log instead. Failures are logged rather than
+     * thrown: the batch is safe in the log, and the next batch or restart catches up.
+     */
+    public synchronized void record(List<Transaction> batch, LogPosition before, LogPosition after) {
+        try {
+            loadPosition();
+            if (logPosition == null || !samePosition(logPosition, before)) {
+                catchUp();
+                return;
+            }
+            StringBuilder lines = new StringBuilder(batch.size() * 80);
+            long sequence = nextSequence;
+            for (Transaction transaction : batch) {
+                sequence = appendLine(lines, sequence, transaction);
+            }
+            write(lines);
+            nextSequence = sequence;
+            logPosition = after;
+            savePosition();
+        } catch (IOException | RuntimeException e) {
+            LOG.error("Journal append failed; it will catch up from the log: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Brings the journal level with the log at startup: drops anything written past the
+     * last recorded position and journals the log from there. A journal that is shorter
+     * than recorded, or ahead of a log restored from backup, is rebuilt from the start.
+     *
+     * @return the number of entries journaled
+     * @throws IOException if the log or journal cannot be read or written
+     */
+    public synchronized long recover() throws IOException {
+        loadPosition();
+        if (logPosition != null && (Files.notExists(journalFile) || Files.size(journalFile) < journalBytes)) {
+            LOG.warn("Journal is shorter than its recorded position; rebuilding it from the log");
+            reset();
+        }
+        if (logPosition != null && isPast(logPosition, log.currentPosition())) {
+            LOG.warn("Journal reaches past the end of the log; rebuilding it from the log");
+            reset();
+        }
+        try {
+            return catchUp();
+        } catch (IOException e) {
+            if (logPosition == null) {
+                throw e;
+            }
+            LOG.warn("Journal position is not in the log ({}); rebuilding it from the log", e.getMessage());
+            reset();
+            return catchUp();
+        }
+    }
+
+    /**
+     * @return the sequence number the next entry will get
+     */
+    public synchronized long getNextSequence() {
+        return nextSequence;
+    }
+
+    /**
+     * Streams every entry journaled so far, in order.
+     *
+     * @throws IOException if the journal cannot be read
+     */
+    public void readAll(Consumer<JournalEntry> sink) throws IOException {
+        long limit = committedBytes();
+        if (limit == 0) {
+            return;
+        }
+        scan(journalFile, 0, limit, (line, length) -> sink.accept(parseEntry(line, length)));
+    }
+
+    /**
+     * Checks that every entry balances and totals the debits and credits of every ledger
+     * account, in one pass over the journal.
+     *
+     * @throws IOException if the journal cannot be read
+     */
+    public TrialBalance trialBalance() throws IOException {
+        TrialBalance trial = new TrialBalance();
+        long limit = committedBytes();
+        if (limit > 0) {
+            scan(journalFile, 0, limit, trial::add);
+        }
+        return trial;
+    }
+
+    /**
+     * Projects every customer account's balance from the journal: its credits less its
+     * debits. The journal is split into {@code threads} byte ranges, each totalled on its
+     * own thread, and the totals are merged; sums do not depend on order, so no range
+     * waits for another.
+     *
+     * @return balances in cents by account number; internal accounts are left out
+     * @throws IOException if the journal cannot be read
+     */
+    public Map<String, Long> rebuildBalances(int threads) throws IOException {
+        long limit = committedBytes();
+        int parts = (int) Math.max(1, Math.min(threads, limit / MIN_RANGE_BYTES + 1));
+        List<Map<String, long[]>> totals = new ArrayList<>(parts);
+        if (parts == 1) {
+            totals.add(netDebits(0, limit));
+        } else {
+            AtomicInteger threadNumber = new AtomicInteger();
+            ExecutorService pool = Executors.newFixedThreadPool(parts, r -> {
+                Thread t = new Thread(r, "journal-rebuild-" + threadNumber.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            });
+            try {
+                List<Future<Map<String, long[]>>> ranges = new ArrayList<>(parts);
+                for (int i = 0; i < parts; i++) {
+                    long start = limit * i / parts;
+                    long end = limit * (i + 1) / parts;
+                    ranges.add(pool.submit(() -> netDebits(start, end)));
+                }
+                for (Future<Map<String, long[]>> range : ranges) {
+                    totals.add(range.get());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while rebuilding balances", e);
+            } catch (ExecutionException e) {
+                throw new IOException("Rebuilding balances failed", e.getCause());
+            } finally {
+                pool.shutdown();
+            }
+        }
+        Map<String, Long> balances = new HashMap<>();
+        for (Map<String, long[]> range : totals) {
+            range.forEach((account, net) -> {
+                if (!isInternalAccount(account)) {
+                    balances.merge(account, -net[0], Long::sum);
+                }
+            });
+        }
+        return balances;
+    }
+
+    private Map<String, long[]> netDebits(long start, long end) throws IOException {
+        Map<String, long[]> net = new HashMap<>();
+        if (end > start) {
+            scan(journalFile, start, end, (line, length) ->
+                    forEachLeg(line, length, (account, cents) -> net.computeIfAbsent(account, k -> new long[1])[0] += cents));
+        }
+        return net;
+    }
+
+    // Journal length covered by the recorded position; lines past it may be half written
+    private synchronized long committedBytes() throws IOException {
+        loadPosition();
+        return journalBytes;
+    }
+
+    private long catchUp() throws IOException {
+        try {
+            return journalFromLog();
+        } catch (IOException | RuntimeException e) {
+            // Part of the catch-up may be written; start again from what journal.pos records
+            positionLoaded = false;
+            logPosition = null;
+            journalBytes = 0;
+            nextSequence = 1;
+            throw e;
+        }
+    }
+
+    private long journalFromLog() throws IOException {
+        LogPosition from = logPosition != null ? logPosition : new LogPosition(1, 0);
+        if (logPosition == null) {
+            reset();
+        }
+        // Callers hold the append lock or run before postings start, so nothing lands past this
+        LogPosition to = log.currentPosition();
+        StringBuilder lines = new StringBuilder();
+        long[] sequence = {nextSequence};
+        long firstSequence = nextSequence;
+        IOException[] failure = {null};
+        log.readFrom(from, transaction -> {
+            if (failure[0] != null) {
+                return;
+            }
+            sequence[0] = appendLine(lines, sequence[0], transaction);
+            if (lines.length() >= CATCH_UP_FLUSH_CHARS) {
+                try {
+                    write(lines);
+                } catch (IOException e) {
+                    failure[0] = e;
+                }
+            }
+        });
+        if (failure[0] != null) {
+            throw failure[0];
+        }
+        write(lines);
+        nextSequence = sequence[0];
+        logPosition = to;
+        savePosition();
+        long journaled = nextSequence - firstSequence;
+        if (journaled > 0) {
+            LOG.debug("Journal caught up {} entries from the log", journaled);
+        }
+        return journaled;
+    }
+
+    private static long appendLine(StringBuilder lines, long sequence, Transaction transaction) {
+        JournalEntry entry = toEntry(sequence, transaction);
+        if (entry == null) {
+            LOG.warn("Not journaling {} of unknown type {}", transaction.getTransactionId(), transaction.getType());
+            return sequence;
+        }
+        lines.append(entry.getSequence()).append(',').append(entry.getReference()).append(',')
+                .append(entry.getType()).append(',').append(entry.getTimestamp());
+        for (int leg = 0; leg < entry.getLegCount(); leg++) {
+            lines.append(',').append(entry.getAccount(leg)).append(',').append(entry.getAmountCents(leg));
+        }
+        lines.append('\n');
+        return sequence + 1;
+    }
+
+    // Writes at the recorded end, over anything a failed write left behind
+    private void write(StringBuilder lines) throws IOException {
+        if (lines.length() == 0) {
+            return;
+        }
+        Files.createDirectories(journalFile.toAbsolutePath().getParent());
+        ByteBuffer bytes = ByteBuffer.wrap(lines.toString().getBytes(StandardCharsets.UTF_8));
+        try (FileChannel channel = FileChannel.open(journalFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            long position = journalBytes;
+            while (bytes.hasRemaining()) {
+                position += channel.write(bytes, position);
+            }
+            channel.truncate(position);
+            journalBytes = position;
+        }
+        lines.setLength(0);
+    }
+
+    private void reset() throws IOException {
+        Files.deleteIfExists(positionFile);
+        Files.deleteIfExists(journalFile);
+        logPosition = null;
+        journalBytes = 0;
+        nextSequence = 1;
+    }
+
+    private void loadPosition() throws IOException {
+        if (positionLoaded) {
+            return;
+        }
+        positionLoaded = true;
+        if (Files.notExists(positionFile)) {
+            return;
+        }
+        String[] fields = Files.readString(positionFile).trim().split(",");
+        if (fields.length != 4) {
+            LOG.warn("Ignoring unreadable journal position {}", positionFile);
+            return;
+        }
+        journalBytes = Long.parseLong(fields[0]);
+        logPosition = new LogPosition(Long.parseLong(fields[1]), Long.parseLong(fields[2]));
+        nextSequence = Long.parseLong(fields[3]);
+    }
+
+    private void savePosition() throws IOException {
+        Files.createDirectories(positionFile.toAbsolutePath().getParent());
+        Path temp = positionFile.resolveSibling(positionFile.getFileName() + ".tmp");
+        Files.writeString(temp, journalBytes + "," + logPosition.getGeneration() + ","
+                + logPosition.getOffset() + "," + nextSequence);
+        Files.move(temp, positionFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private static boolean isPast(LogPosition position, LogPosition end) {
+        return position.getGeneration() > end.getGeneration()
+                || (position.getGeneration() == end.getGeneration() && position.getOffset() > end.getOffset());
+    }
+
+    private static boolean samePosition(LogPosition a, LogPosition b) {
+        return b != null && a.getGeneration() == b.getGeneration() && a.getOffset() == b.getOffset();
+    }
+
+    @FunctionalInterface
+    private interface LineSink {
+        void accept(byte[] line, int length) throws IOException;
+    }
+
+    @FunctionalInterface
+    private interface LegSink {
+        void accept(String account, long amountCents);
+    }
+
+    /**
+     * Passes each line starting in [start, end) to the sink, without its newline. A range
+     * starting inside a line leaves that line to the range before it.
+     */
+    private static void scan(Path file, long start, long end, LineSink sink) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            boolean skipping = false;
+            if (start > 0) {
+                ByteBuffer previous = ByteBuffer.allocate(1);
+                channel.read(previous, start - 1);
+                skipping = previous.get(0) != '\n';
+            }
+            ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+            byte[] line = new byte[256];
+            int length = 0;
+            long position = start;
+            long lineStart = start;
+            channel.position(start);
+            while ((skipping || lineStart < end) && channel.read(buffer) > 0) {
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    byte b = buffer.get();
+                    position++;
+                    if (b == '\n') {
+                        if (!skipping) {
+                            if (lineStart >= end) {
+                                return;
+                            }
+                            sink.accept(line, length);
+                        }
+                        skipping = false;
+                        length = 0;
+                        lineStart = position;
+                    } else if (!skipping) {
+                        if (length == line.length) {
+                            line = Arrays.copyOf(line, length * 2);
+                        }
+                        line[length++] = b;
+                    }
+                }
+                buffer.clear();
+            }
+        }
+    }
+
+    /**
+     * @return the sum of the line's legs, zero for a balanced entry
+     * @throws IllegalArgumentException if the line has no legs or a malformed amount
+     */
+    private static long forEachLeg(byte[] line, int length, LegSink sink) {
+        int i = 0;
+        for (int field = 0; field < HEADER_FIELDS; field++) {
+            while (i < length && line[i] != ',') {
+                i++;
+            }
+            i++;
+        }
+        if (i >= length) {
+            throw new IllegalArgumentException("Journal entry has no legs");
+        }
+        long sum = 0;
+        while (i < length) {
+            int accountStart = i;
+            while (i < length && line[i] != ',') {
+                i++;
+            }
+            String account = new String(line, accountStart, i - accountStart, StandardCharsets.ISO_8859_1);
+            i++;
+            boolean negative = i < length && line[i] == '-';
+            if (negative) {
+                i++;
+            }
+            int digitsStart = i;
+            long cents = 0;
+            while (i < length && line[i] != ',') {
+                int digit = line[i++] - '0';
+                if (digit < 0 || digit > 9) {
+                    throw new IllegalArgumentException("Malformed amount for " + account);
+                }
+                cents = cents * 10 + digit;
+            }
+            if (i == digitsStart) {
+                throw new IllegalArgumentException("Missing amount for " + account);
+            }
+            i++;
+            cents = negative ? -cents : cents;
+            sink.accept(account, cents);
+            sum += cents;
+        }
+        return sum;
+    }
+
+    private static JournalEntry parseEntry(byte[] line, int length) {
+        String[] fields = new String(line, 0, length, StandardCharsets.UTF_8).split(",");
+        int legs = (fields.length - HEADER_FIELDS) / 2;
+        String[] accounts = new String[legs];
+        long[] amounts = new long[legs];
+        for (int leg = 0; leg < legs; leg++) {
+            accounts[leg] = fields[HEADER_FIELDS + 2 * leg];
+            amounts[leg] = Long.parseLong(fields[HEADER_FIELDS + 2 * leg + 1]);
+        }
+        return new JournalEntry(Long.parseLong(fields[0]), fields[1], fields[2],
+                "null".equals(fields[3]) ? null : LocalDateTime.parse(fields[3]), accounts, amounts);
+    }
+
+    /**
+     * Debit and credit totals of every ledger account, and the entries that did not balance.
+     */
+    public static final class TrialBalance {
+        private final Map<String, long[]> totals = new HashMap<>();
+        private final List<Long> unbalanced = new ArrayList<>();
+        private long entries;
+        private long unbalancedCount;
+        private long debitCents;
+        private long creditCents;
+
+        private void add(byte[] line, int length) {
+            entries++;
+            long sum;
+            try {
+                sum = forEachLeg(line, length, (account, cents) -> {
+                    long[] accountTotals = totals.computeIfAbsent(account, k -> new long[2]);
+                    if (cents >= 0) {
+                        accountTotals[0] += cents;
+                        debitCents += cents;
+                    } else {
+                        accountTotals[1] -= cents;
+                        creditCents -= cents;
+                    }
+                });
+            } catch (IllegalArgumentException e) {
+                sum = 1;
+            }
+            if (sum != 0) {
+                unbalancedCount++;
+                if (unbalanced.size() < MAX_LISTED_UNBALANCED) {
+                    unbalanced.add(sequenceOf(line, length));
+                }
+            }
+        }
+
+        private static long sequenceOf(byte[] line, int length) {
+            long sequence = 0;
+            for (int i = 0; i < length && line[i] != ','; i++) {
+                if (line[i] < '0' || line[i] > '9') {
+                    return -1;
+                }
+                sequence = sequence * 10 + (line[i] - '0');
+            }
+            return sequence;
+        }
+
+        /**
+         * @return whether every entry balanced and total debits equal total credits
+         */
+        public boolean isBalanced() {
+            return unbalancedCount == 0 && debitCents == creditCents;
+        }
+
+        public long getEntryCount() {
+            return entries;
+        }
+
+        public long getUnbalancedCount() {
+            return unbalancedCount;
+        }
+
+        /**
+         * @return the sequence numbers of the first unbalanced entries, -1 where unreadable
+         */
+        public List<Long> getFirstUnbalanced() {
+            return Collections.unmodifiableList(unbalanced);
+        }
+
+        public long getTotalDebitCents() {
+            return debitCents;
+        }
+
+        public long getTotalCreditCents() {
+            return creditCents;
+        }
+
+        /**
+         * @return every ledger account in the journal, sorted
+         */
+        public List<String> getAccounts() {
+            return new ArrayList<>(new TreeMap<>(totals).keySet());
+        }
+
+        public long getDebitCents(String account) {
+            long[] accountTotals = totals.get(account);
+            return accountTotals == null ? 0 : accountTotals[0];
+        }
+
+        public long getCreditCents(String account) {
+            long[] accountTotals = totals.get(account);
+            return accountTotals == null ? 0 : accountTotals[1];
+        }
+
+        /**
+         * @return debits less credits; a customer account's balance is the negative of this
+         */
+        public long getNetDebitCents(String account) {
+            return getDebitCents(account) - getCreditCents(account);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d entries, debits $%,.2f, credits $%,.2f, %d unbalanced, in flight $%,.2f",
+                    entries, debitCents / 100.0, creditCents / 100.0, unbalancedCount,
+                    -getNetDebitCents(TRANSFERS_IN_FLIGHT) / 100.0);
+        }
+    }
+}
@@ -0,0 +1,834 @@
+package com.miracle.src.services;
+
+import com.miracle.src.models.Account;
+import com.miracle.src.models.Transaction;
+import com.miracle.src.models.exceptions.AccountNotFoundException;
+import com.miracle.src.utils.FileIOUtils;
+import com.miracle.src.utils.Log;
+import com.miracle.src.utils.TransactionSegmentStore;
+import com.miracle.src.utils.TransactionSegmentStore.LogPosition;
+import com.miracle.src.utils.TransactionSegmentStore.LogView;
+import com.miracle.src.utils.TransactionSegmentStore.SegmentManifest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Rebuilds every account's balance from the transaction log, checking each recorded
+ * balanceAfter on the way.
+ * <p>
+ * The log is cut into line-aligned byte ranges (a compressed segment is one range) that
+ * are parsed on all threads at once. Each range folds its transactions into one summary
+ * per account: its first posting, its last balanceAfter, its net movement and the first
+ * posting whose balanceAfter does not follow from the one before. Summaries chain: a
+ * later range's first posting must continue from an earlier range's last balance. So the
+ * summaries are merged in log order, split by account hash into partitions that merge
+ * independently, and a thread that finishes a range merges whatever is ready without
+ * waiting for the rest. Memory grows with accounts, not with the log.
+ * </p>
+ * <p>
+ * With {@code -Dbank.recovery.parallel=true} it replaces the sequential replay at startup
+ * when there is no snapshot to start from.
+ * </p>
+ */
+public class LogReplayService {
+
+    private static final Log LOG = Log.get(LogReplayService.class);
+
+    private static final boolean STARTUP_PATH = Boolean.getBoolean("bank.recovery.parallel");
+    private static final int DEFAULT_THREADS = Integer.getInteger("bank.replay.threads",
+            Runtime.getRuntime().availableProcessors());
+    private static final long RANGE_BYTES = Long.getLong("bank.replay.range.bytes", 32L << 20);
+    private static final int PARTITION_BITS = 6;
+    private static final int PARTITIONS = 1 << PARTITION_BITS;
+    private static final int MAX_LOGGED_DIVERGENCES = 10;
+    static final long UNKNOWN_TYPE = Long.MIN_VALUE;
+    static final LogPosition LOG_START = new LogPosition(1, 0);
+    // Enough ranges per thread to even out uneven ones; each range's summaries cost a merge
+    private static final int RANGES_PER_THREAD = 4;
+
+    private static final LogReplayService INSTANCE = new LogReplayService(FileIOUtils.getTransactionStore(),
+            DEFAULT_THREADS, RANGE_BYTES);
+
+    private final TransactionSegmentStore log;
+    private final int threads;
+    private final long rangeBytes;
+
+    /**
+     * @param log        the transaction log to replay
+     * @param threads    how many ranges are parsed at once
+     * @param rangeBytes the smallest range worth cutting; a compressed segment is never cut
+     */
+    public LogReplayService(TransactionSegmentStore log, int threads, long rangeBytes) {
+        this.log = log;
+        this.threads = Math.max(1, threads);
+        this.rangeBytes = Math.max(1, rangeBytes);
+    }
+
+    /**
+     * A replay of the given log on the configured number of threads.
+     */
+    public LogReplayService(TransactionSegmentStore log) {
+        this(log, DEFAULT_THREADS, RANGE_BYTES);
+    }
+
+    /**
+     * A replay of the given log on {@code threads} threads, with the configured range size.
+     */
+    public LogReplayService(TransactionSegmentStore log, int threads) {
+        this(log, threads, RANGE_BYTES);
+    }
+
+    public static LogReplayService getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * @return whether startup without a snapshot rebuilds balances with this service
+     */
+    public static boolean isStartupPath() {
+        return STARTUP_PATH;
+    }
+
+    /**
+     * Replays the whole log.
+     *
+     * @return the rebuilt balances and every divergent posting found
+     * @throws IOException if the log cannot be read
+     */
+    public ReplayReport replay() throws IOException {
+        return replay(null);
+    }
+
+    /**
+     * Replays the whole log, also passing the transactions at its head, in order, to
+     * {@code head}: those of the first range, at least {@code rangeBytes} of log unless
+     * the log is shorter, and a {@code 1 / (threads * 4)} share of a larger log. Startup
+     * fills the capped in-memory history from it.
+     *
+     * @throws IOException if the log cannot be read
+     */
+    public ReplayReport replay(Consumer<Transaction> head) throws IOException {
+        return replay(LOG_START, log.currentPosition(), head);
+    }
+
+    /**
+     * Replays the log from its start up to a position captured earlier, while appends
+     * continue past it.
+     *
+     * @throws IOException if the log cannot be read
+     */
+    public ReplayReport replayTo(LogPosition to) throws IOException {
+        return replay(LOG_START, to, null);
+    }
+
+    /**
+     * Replays the part of the log between two positions, e.g. up to a position captured
+     * earlier while appends continue past it.
+     *
+     * @param from where to start, at a record boundary
+     * @param to   where to stop, at a record boundary
+     * @param head receives the transactions of the first range, as for {@link #replay(Consumer)}; may be null
+     * @throws IOException if the log cannot be read
+     */
+    public ReplayReport replay(LogPosition from, LogPosition to, Consumer<Transaction> head) throws IOException {
+        long start = System.nanoTime();
+        try (LogView view = log.openView()) {
+            return replay(planRanges(view, from, to), from, head, start);
+        }
+    }
+
+    private ReplayReport replay(List<Range> ranges, LogPosition from, Consumer<Transaction> head, long start)
+            throws IOException {
+        AtomicReferenceArray<Map<String, AccountFold>[]> folded = new AtomicReferenceArray<>(ranges.size());
+        PartitionMerger merger = new PartitionMerger(folded);
+        AtomicInteger nextRange = new AtomicInteger();
+        Map<String, long[]> typeTotals = new HashMap<>();
+
+        int workers = Math.min(threads, Math.max(1, ranges.size()));
+        RangeWorker worker = () -> {
+            long transactions = 0;
+            for (int r = nextRange.getAndIncrement(); r < ranges.size(); r = nextRange.getAndIncrement()) {
+                Map<String, AccountFold>[] parts = newPartitions();
+                Map<String, long[]> rangeTypeTotals = new HashMap<>();
+                transactions += ranges.get(r).read(parts, rangeTypeTotals, r == 0 ? head : null);
+                folded.set(r, parts);
+                merger.drain(r, false);
+                synchronized (typeTotals) {
+                    rangeTypeTotals.forEach((type, cents) -> typeTotals.computeIfAbsent(type, k -> new long[1])[0] += cents[0]);
+                }
+            }
+            return transactions;
+        };
+
+        long transactions = 0;
+        if (workers == 1) {
+            transactions = worker.call();
+        } else {
+            AtomicInteger threadNumber = new AtomicInteger();
+            ExecutorService pool = Executors.newFixedThreadPool(workers - 1, r -> {
+                Thread t = new Thread(r, "log-replay-" + threadNumber.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            });
+            try {
+                List<Future<Long>> helpers = new ArrayList<>();
+                for (int i = 1; i < workers; i++) {
+                    helpers.add(pool.submit(worker::call));
+                }
+                // The calling thread parses ranges too
+                transactions = worker.call();
+                for (Future<Long> helper : helpers) {
+                    transactions += helper.get();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while replaying the log", e);
+            } catch (ExecutionException e) {
+                throw e.getCause() instanceof IOException ? (IOException) e.getCause()
+                        : new IOException("Replaying the log failed", e.getCause());
+            } finally {
+                pool.shutdown();
+            }
+        }
+        merger.drain(0, true);
+        boolean fromStart = from.getGeneration() <= LOG_START.getGeneration() && from.getOffset() == 0;
+        return new ReplayReport(merger.accounts, typeTotals, fromStart, transactions, ranges.size(), workers,
+                System.nanoTime() - start);
+    }
+
+    /**
+     * Passes every transaction between two positions to the sink, in log order, on the
+     * calling thread.
+     *
+     * @throws IOException if the log cannot be read
+     */
+    public long forEachBetween(LogPosition from, LogPosition to, Consumer<Transaction> sink) throws IOException {
+        try (LogView view = log.openView()) {
+            long count = 0;
+            for (Range range : planRanges(view, from, to, Long.MAX_VALUE)) {
+                count += range.read(sink);
+            }
+            return count;
+        }
+    }
+
+    /**
+     * Like {@link #forEachBetween}, but stops reading once the sink returns false, e.g.
+     * when filling the capped history from the head of a long log.
+     *
+     * @throws IOException if the log cannot be read
+     */
+    public void forEachWhile(LogPosition from, LogPosition to, Predicate<Transaction> sink) throws IOException {
+        boolean[] more = {true};
+        try (LogView view = log.openView()) {
+            for (Range range : planRanges(view, from, to, Long.MAX_VALUE)) {
+                range.readWhile(transaction -> more[0] = more[0] && sink.test(transaction));
+                if (!more[0]) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Startup without a snapshot: replays the log, sets every registered account to its
+     * rebuilt balance and warns about the postings that did not add up.
+     *
+     * @param head receives the transactions at the head of the log, as for {@link #replay(Consumer)}
+     * @throws IOException if the log cannot be read
+     */
+    public ReplayReport restoreBalances(Consumer<Transaction> head) throws IOException {
+        ReplayReport report = replay(head);
+        AccountManager accountManager = AccountManager.getInstance();
+        report.getBalances().forEach((accountNumber, cents) -> {
+            try {
+                accountManager.findAccount(accountNumber).updateBalance(cents / 100.0);
+            } catch (AccountNotFoundException e) {
+                // Postings of an account missing from accounts.txt have nothing to restore
+            }
+        });
+        List<Divergence> divergences = report.getDivergences();
+        for (Divergence divergence : divergences.subList(0, Math.min(MAX_LOGGED_DIVERGENCES, divergences.size()))) {
+            LOG.warn("Log does not add up: {}", divergence);
+        }
+        if (divergences.size() > MAX_LOGGED_DIVERGENCES) {
+            LOG.warn("{} more accounts do not add up", divergences.size() - MAX_LOGGED_DIVERGENCES);
+        }
+        return report;
+    }
+
+    @FunctionalInterface
+    private interface RangeWorker {
+        long call() throws IOException;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, AccountFold>[] newPartitions() {
+        Map<String, AccountFold>[] parts = new Map[PARTITIONS];
+        for (int p = 0; p < PARTITIONS; p++) {
+            parts[p] = new HashMap<>();
+        }
+        return parts;
+    }
+
+    // Top bits of a multiplicative hash: HashMap buckets by the low bits, so partitioning on
+    // those would crowd every partition's accounts into a 64th of its map's buckets
+    private static int partitionOf(String accountNumber) {
+        return (accountNumber.hashCode() * 0x9E3779B9) >>> (Integer.SIZE - PARTITION_BITS);
+    }
+
+    /**
+     * Cuts the log between two positions into line-aligned ranges, in log order. A file
+     * that is sealed, and perhaps compressed, after {@code to} was taken is still read up to
+     * {@code to}, as offsets count uncompressed bytes. The ranges read through the view,
+     * so they stay valid until it is closed.
+     */
+    private List<Range> planRanges(LogView view, LogPosition from, LogPosition to) throws IOException {
+        List<Range> files = planRanges(view, from, to, Long.MAX_VALUE);
+        long splittable = 0;
+        for (Range file : files) {
+            if (!file.compressed) {
+                splittable += file.end - file.start;
+            }
+        }
+        long cut = Math.max(rangeBytes, splittable / ((long) threads * RANGES_PER_THREAD));
+        List<Range> ranges = new ArrayList<>();
+        for (Range file : files) {
+            if (file.compressed) {
+                ranges.add(file);
+            } else if (file.shared != null) {
+                split(file.file, file.shared, file.shared, file.start, file.end, cut, ranges);
+            } else {
+                split(file.file, file.start, file.end, cut, ranges);
+            }
+        }
+        return ranges;
+    }
+
+    // One range per file when cut is Long.MAX_VALUE
+    private List<Range> planRanges(LogView view, LogPosition from, LogPosition to, long cut) throws IOException {
+        List<Range> ranges = new ArrayList<>();
+        for (SegmentManifest manifest : view.getSealedSegments()) {
+            long generation = manifest.getSequence();
+            if (generation < from.getGeneration() || generation > to.getGeneration()) {
+                continue;
+            }
+            log.verify(manifest);
+            Path file = log.dataFileOf(manifest);
+            long start = generation == from.getGeneration() ? from.getOffset() : 0;
+            long end = generation == to.getGeneration() ? to.getOffset()
+                    : manifest.isCompressed() ? Long.MAX_VALUE : Files.size(file);
+            if (manifest.isCompressed()) {
+                ranges.add(new Range(file, null, true, start, end));
+            } else {
+                split(file, start, end, cut, ranges);
+            }
+        }
+        LogPosition current = view.getEnd();
+        long generation = current.getGeneration();
+        if (view.getActiveChannel() != null && generation >= from.getGeneration() && generation <= to.getGeneration()) {
+            long start = generation == from.getGeneration() ? from.getOffset() : 0;
+            long end = generation == to.getGeneration() ? to.getOffset() : current.getOffset();
+            split(log.getActiveFile(), view.getActiveChannel(), view.getActiveChannel(), start, end, cut, ranges);
+        }
+        return ranges;
+    }
+
+    private static void split(Path file, long from, long length, long rangeBytes, List<Range> ranges) throws IOException {
+        if (length <= from) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            split(file, channel, null, from, length, rangeBytes, ranges);
+        }
+    }
+
+    // Ranges of the active file pass the view's channel as shared, which a seal cannot swap
+    private static void split(Path file, FileChannel channel, FileChannel shared, long from, long length,
+                              long rangeBytes, List<Range> ranges) throws IOException {
+        long start = from;
+        while (start < length) {
+            long end = length - start <= rangeBytes ? length : nextLineStart(channel, start + rangeBytes, length);
+            ranges.add(new Range(file, shared, false, start, end));
+            start = end;
+        }
+    }
+
+    private static long nextLineStart(FileChannel channel, long from, long limit) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(4096);
+        long position = from;
+        while (position < limit) {
+            buffer.clear();
+            int n = channel.read(buffer, position);
+            if (n <= 0) {
+                break;
+            }
+            for (int i = 0; i < n; i++) {
+                if (buffer.get(i) == '\n') {
+                    return Math.min(position + i + 1, limit);
+                }
+            }
+            position += n;
+        }
+        return limit;
+    }
+
+    /**
+     * Signed movement of a posting, or {@link #UNKNOWN_TYPE} for a type that does not move money.
+     */
+    static long signedCents(Transaction transaction) {
+        long cents = toCents(transaction.getAmount());
+        switch (transaction.getType()) {
+            case "Deposit":
+            case "Transfer In":
+            case "Interest":
+                return cents;
+            case "Withdrawal":
+            case "Transfer Out":
+            case "Fee":
+                return -cents;
+            default:
+                return UNKNOWN_TYPE;
+        }
+    }
+
+    /**
+     * A logged amount or balance in cents, rounded as the log's two decimals are written.
+     */
+    static long toCents(double amount) {
+        return Math.round(amount * 100);
+    }
+
+    /**
+     * A contiguous part of one log file, starting at a line boundary.
+     */
+    private static final class Range {
+        private final Path file;
+        // The view's channel on the active file, read by position; null for sealed files
+        private final FileChannel shared;
+        private final boolean compressed;
+        private final long start;
+        private final long end;
+
+        private Range(Path file, FileChannel shared, boolean compressed, long start, long end) {
+            this.file = file;
+            this.shared = shared;
+            this.compressed = compressed;
+            this.start = start;
+            this.end = end;
+        }
+
+        private long read(Map<String, AccountFold>[] parts, Map<String, long[]> typeTotals,
+                          Consumer<Transaction> head) throws IOException {
+            return read(transaction -> {
+                Map<String, AccountFold> part = parts[partitionOf(transaction.getAccountNumber())];
+                part.computeIfAbsent(transaction.getAccountNumber(), k -> new AccountFold()).add(transaction);
+                typeTotals.computeIfAbsent(transaction.getType(), k -> new long[1])[0]
+                        += toCents(transaction.getAmount());
+                if (head != null) {
+                    head.accept(transaction);
+                }
+            });
+        }
+
+        private long read(Consumer<Transaction> sink) throws IOException {
+            return readWhile(transaction -> {
+                sink.accept(transaction);
+                return true;
+            });
+        }
+
+        // Stops reading input once the sink returns false; lines already buffered still reach it
+        private long readWhile(Predicate<Transaction> sink) throws IOException {
+            if (compressed) {
+                try (InputStream in = new GZIPInputStream(Files.newInputStream(file), 1 << 16)) {
+                    in.skipNBytes(start);
+                    return readWhile(new BoundedChannel(Channels.newChannel(in), end - start), sink);
+                }
+            }
+            if (shared != null) {
+                return readWhile(new BoundedChannel(new PositionedChannel(shared, start), end - start), sink);
+            }
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                channel.position(start);
+                return readWhile(new BoundedChannel(channel, end - start), sink);
+            }
+        }
+
+        private static long readWhile(BoundedChannel channel, Predicate<Transaction> sink) throws IOException {
+            return FileIOUtils.readTransactions(channel, transaction -> {
+                if (!sink.test(transaction)) {
+                    channel.remaining = 0;
+                }
+            });
+        }
+    }
+
+    /**
+     * Reads at most {@code remaining} bytes of a channel, then reports end of input.
+     */
+    private static final class BoundedChannel implements ReadableByteChannel {
+        private final ReadableByteChannel channel;
+        private long remaining;
+
+        private BoundedChannel(ReadableByteChannel channel, long remaining) {
+            this.channel = channel;
+            this.remaining = remaining;
+        }
+
+        @Override
+        public int read(ByteBuffer dst) throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int limit = dst.limit();
+            dst.limit(dst.position() + (int) Math.min(dst.remaining(), remaining));
+            try {
+                int n = channel.read(dst);
+                if (n > 0) {
+                    remaining -= n;
+                }
+                return n;
+            } finally {
+                dst.limit(limit);
+            }
+        }
+
+        @Override
+        public boolean isOpen() {
+            return channel.isOpen();
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    /**
+     * Reads a channel shared between ranges by position, so ranges on several threads do not
+     * move each other's place. Closing it leaves the shared channel open.
+     */
+    private static final class PositionedChannel implements ReadableByteChannel {
+        private final FileChannel channel;
+        private long position;
+
+        private PositionedChannel(FileChannel channel, long position) {
+            this.channel = channel;
+            this.position = position;
+        }
+
+        @Override
+        public int read(ByteBuffer dst) throws IOException {
+            int n = channel.read(dst, position);
+            if (n > 0) {
+                position += n;
+            }
+            return n;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return channel.isOpen();
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    /**
+     * Merges range summaries into the account totals, partition by partition, always in
+     * log order. A partition another thread is merging is left to that thread; the final
+     * drain takes every partition and finishes what is left.
+     */
+    private static final class PartitionMerger {
+        private final AtomicReferenceArray<Map<String, AccountFold>[]> folded;
+        private final ReentrantLock[] locks = new ReentrantLock[PARTITIONS];
+        // Next range each partition merges; guarded by its lock
+        private final int[] mergedUpTo = new int[PARTITIONS];
+        private final Map<String, AccountFold> accounts = new HashMap<>();
+        private final List<Map<String, AccountFold>> totals = new ArrayList<>(PARTITIONS);
+
+        private PartitionMerger(AtomicReferenceArray<Map<String, AccountFold>[]> folded) {
+            this.folded = folded;
+            for (int p = 0; p < PARTITIONS; p++) {
+                locks[p] = new ReentrantLock();
+                totals.add(new HashMap<>());
+            }
+        }
+
+        private void drain(int hint, boolean last) {
+            for (int i = 0; i < PARTITIONS; i++) {
+                // Threads start at different partitions so they rarely meet on one lock
+                int p = (hint + i) & (PARTITIONS - 1);
+                if (last) {
+                    locks[p].lock();
+                } else if (!locks[p].tryLock()) {
+                    continue;
+                }
+                try {
+                    Map<String, AccountFold> total = totals.get(p);
+                    for (int r = mergedUpTo[p]; r < folded.length() && folded.get(r) != null; r = ++mergedUpTo[p]) {
+                        Map<String, AccountFold>[] parts = folded.get(r);
+                        parts[p].forEach((account, later) -> total.merge(account, later, AccountFold::then));
+                        // Each partition's summary is needed once; let it go
+                        parts[p] = null;
+                    }
+                } finally {
+                    locks[p].unlock();
+                }
+            }
+            if (last) {
+                totals.forEach(accounts::putAll);
+            }
+        }
+    }
+
+    /**
+     * One account's postings within a stretch of the log.
+     */
+    private static final class AccountFold {
+        private String accountNumber;
+        private long count;
+        private String firstId;
+        private long firstDeltaCents;
+        private long firstBalanceAfterCents;
+        private long lastBalanceAfterCents;
+        private long netCents;
+        private Divergence divergence;
+
+        private void add(Transaction transaction) {
+            long delta = signedCents(transaction);
+            long balanceAfter = toCents(transaction.getBalanceAfter());
+            if (delta == UNKNOWN_TYPE) {
+                if (divergence == null) {
+                    divergence = new Divergence(transaction.getAccountNumber(), transaction.getTransactionId(),
+                            "unknown type " + transaction.getType(), lastBalanceAfterCents, balanceAfter);
+                }
+                delta = balanceAfter - (count == 0 ? balanceAfter : lastBalanceAfterCents);
+            }
+            if (count == 0) {
+                accountNumber = transaction.getAccountNumber();
+                firstId = transaction.getTransactionId();
+                firstDeltaCents = delta;
+                firstBalanceAfterCents = balanceAfter;
+            } else if (divergence == null && lastBalanceAfterCents + delta != balanceAfter) {
+                divergence = new Divergence(transaction.getAccountNumber(), transaction.getTransactionId(),
+                        "balanceAfter does not follow the previous posting", lastBalanceAfterCents + delta, balanceAfter);
+            }
+            lastBalanceAfterCents = balanceAfter;
+            netCents += delta;
+            count++;
+        }
+
+        // This stretch followed by a later one of the same account
+        private AccountFold then(AccountFold later) {
+            if (divergence == null && lastBalanceAfterCents + later.firstDeltaCents != later.firstBalanceAfterCents) {
+                divergence = new Divergence(accountNumber, later.firstId,
+                        "balanceAfter does not follow the previous posting",
+                        lastBalanceAfterCents + later.firstDeltaCents, later.firstBalanceAfterCents);
+            }
+            if (divergence == null) {
+                divergence = later.divergence;
+            }
+            lastBalanceAfterCents = later.lastBalanceAfterCents;
+            netCents += later.netCents;
+            count += later.count;
+            return this;
+        }
+    }
+
+    /**
+     * The first posting of an account whose recorded balance disagrees with its history,
+     * or an account whose live balance disagrees with its log.
+     */
+    public static final class Divergence {
+        private final String accountNumber;
+        private final String transactionId;
+        private final String reason;
+        private final long expectedCents;
+        private final long actualCents;
+
+        public Divergence(String accountNumber, String transactionId, String reason, long expectedCents, long actualCents) {
+            this.accountNumber = accountNumber;
+            this.transactionId = transactionId;
+            this.reason = reason;
+            this.expectedCents = expectedCents;
+            this.actualCents = actualCents;
+        }
+
+        public String getAccountNumber() {
+            return accountNumber;
+        }
+
+        /**
+         * @return the divergent posting, or null when the account disagrees as a whole
+         */
+        public String getTransactionId() {
+            return transactionId;
+        }
+
+        public String getReason() {
+            return reason;
+        }
+
+        public long getExpectedCents() {
+            return expectedCents;
+        }
+
+        public long getActualCents() {
+            return actualCents;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s%s: %s (expected $%,.2f, found $%,.2f)", accountNumber,
+                    transactionId == null ? "" : " at " + transactionId, reason, expectedCents / 100.0, actualCents / 100.0);
+        }
+    }
+
+    /**
+     * Balances rebuilt from the log, the postings that did not add up, and how long it took.
+     */
+    public static final class ReplayReport {
+        private final Map<String, Long> balances;
+        private final Map<String, Long> netMovements;
+        private final List<Divergence> divergences;
+        private final Map<String, Long> typeTotals;
+        private final long transactions;
+        private final int ranges;
+        private final int threads;
+        private final long elapsedNanos;
+
+        private ReplayReport(Map<String, AccountFold> accounts, Map<String, long[]> typeTotals, boolean fromStart,
+                             long transactions, int ranges, int threads, long elapsedNanos) {
+            this.balances = new HashMap<>(accounts.size() * 2);
+            this.netMovements = new HashMap<>(accounts.size() * 2);
+            List<Divergence> found = new ArrayList<>();
+            accounts.forEach((account, fold) -> {
+                balances.put(account, fold.lastBalanceAfterCents);
+                netMovements.put(account, fold.netCents);
+                if (fromStart && fold.firstBalanceAfterCents != fold.firstDeltaCents) {
+                    // A whole history has to start from an empty account
+                    found.add(new Divergence(account, fold.firstId, "history does not start from a zero balance",
+                            fold.firstDeltaCents, fold.firstBalanceAfterCents));
+                } else if (fold.divergence != null) {
+                    found.add(fold.divergence);
+                }
+            });
+            found.sort(Comparator.comparing(Divergence::getAccountNumber));
+            this.divergences = Collections.unmodifiableList(found);
+            this.typeTotals = new HashMap<>();
+            typeTotals.forEach((type, cents) -> this.typeTotals.put(type, cents[0]));
+            this.transactions = transactions;
+            this.ranges = ranges;
+            this.threads = threads;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        /**
+         * @return each account's last logged balanceAfter, in cents
+         */
+        public Map<String, Long> getBalances() {
+            return Collections.unmodifiableMap(balances);
+        }
+
+        /**
+         * @return each account's deposits and credits less its debits, in cents
+         */
+        public Map<String, Long> getNetMovements() {
+            return Collections.unmodifiableMap(netMovements);
+        }
+
+        /**
+         * @return the first divergent posting of each account that has one, by account number
+         */
+        public List<Divergence> getDivergences() {
+            return divergences;
+        }
+
+        /**
+         * Compares live balances, e.g. as loaded from accounts.txt, with the log: an
+         * account whose balance is not its last logged balanceAfter, or that has a balance
+         * but no postings, is reported.
+         */
+        public List<Divergence> compareWith(Collection<Account> accounts) {
+            List<Divergence> mismatched = new ArrayList<>();
+            for (Account account : accounts) {
+                long live = toCents(account.getBalance());
+                Long logged = balances.get(account.getAccountNumber());
+                if (logged == null ? live != 0 : logged != live) {
+                    mismatched.add(new Divergence(account.getAccountNumber(), null,
+                            logged == null ? "no postings in the log" : "balance differs from the log",
+                            logged == null ? 0 : logged, live));
+                }
+            }
+            mismatched.sort(Comparator.comparing(Divergence::getAccountNumber));
+            return mismatched;
+        }
+
+        /**
+         * @return the total amount logged under a transaction type, in cents
+         */
+        public long getTotalCents(String type) {
+            return typeTotals.getOrDefault(type, 0L);
+        }
+
+        public long getTransactionCount() {
+            return transactions;
+        }
+
+        public int getAccountCount() {
+            return balances.size();
+        }
+
+        public int getRangeCount() {
+            return ranges;
+        }
+
+        public int getThreads() {
+            return threads;
+        }
+
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        public double getTransactionsPerSecond() {
+            return elapsedNanos == 0 ? 0 : transactions * 1e9 / elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Replayed %,d transactions for %,d accounts from %d ranges on %d threads in %,d ms"
+                            + " (%,.0f/s); %d divergent", transactions, balances.size(), ranges, threads,
+                    elapsedNanos / 1_000_000, getTransactionsPerSecond(), divergences.size());
+        }
+    }
+}
@@ -0,0 +1,319 @@
+package com.miracle.src.services;
+
+import com.miracle.src.models.Account;
+import com.miracle.src.models.InFlightPostings;
+import com.miracle.src.models.PostingLane;
+import com.miracle.src.models.Transaction;
+import com.miracle.src.models.exceptions.InsufficientFundsException;
+import com.miracle.src.utils.AccountIndex;
+import com.miracle.src.utils.Log;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Single-writer execution mode: accounts are partitioned across a fixed number of lanes,
+ * each a thread that exclusively owns its accounts and drains a multi-producer queue of
+ * postings for them.
+ * <p>
+ * As the only writer of its accounts, a lane runs their posting code without the account
+ * monitor, the state lock or CAS, so lanes scale with cores on workloads spread across
+ * accounts. Each drain takes up to {@value #MAX_BATCH} postings, adds their transactions to
+ * the history in one step and registers the whole batch once with {@link InFlightPostings}
+ * so snapshots stay consistent. Results complete after that step, on the lane thread:
+ * dependent stages added without an executor run there too and should be short.
+ * </p>
+ * <p>
+ * A transfer between accounts is a two-phase exchange. The source lane debits, and once
+ * the debit is journaled it sends the credit to the target's lane. If the credit fails,
+ * the source lane is sent a refund. No lane ever waits for another.
+ * </p>
+ * <p>
+ * Enabled with {@code -Dbank.posting.lanes=N} or {@link AccountManager#enablePostingLanes}.
+ * </p>
+ */
+public final class PostingLanes {
+
+    private static final Log LOG = Log.get(PostingLanes.class);
+
+    private static final int MAX_BATCH = 256;
+    private static final int SPINS_BEFORE_PARK = 64;
+
+    private final Lane[] lanes;
+
+    public PostingLanes(int laneCount) {
+        if (laneCount < 1) {
+            throw new IllegalArgumentException("Lane count must be positive: " + laneCount);
+        }
+        lanes = new Lane[laneCount];
+        for (int i = 0; i < laneCount; i++) {
+            lanes[i] = new Lane(i);
+        }
+        for (Lane lane : lanes) {
+            lane.thread.start();
+        }
+    }
+
+    public int laneCount() {
+        return lanes.length;
+    }
+
+    /**
+     * Hands an account to its lane. Must happen before postings reach it from other threads;
+     * AccountManager does this when lanes start and as accounts are added.
+     */
+    public void adopt(Account account) {
+        account.assignLane(laneFor(account));
+    }
+
+    /**
+     * Runs {@link Account#tryProcessTransaction} on the account's lane, which never prompts
+     * on the lane thread: a savings withdrawal below the minimum fails the future instead.
+     *
+     * @return the recorded transaction, completed once it is in the history, or failed with
+     * the rejection's shared exception
+     */
+    public CompletableFuture<Transaction> post(Account account, String type, double amount) {
+        Lane lane = ownerOf(account);
+        CompletableFuture<Transaction> result = new CompletableFuture<>();
+        lane.submit(() -> {
+            try {
+                lane.completeAfterFlush(result, account.tryProcessTransaction(amount, type).getTransactionOrThrow());
+            } catch (Exception e) {
+                result.completeExceptionally(e);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Moves money between two accounts in two phases across their lanes. Both sides post
+     * through the result-code path, which never prompts on a lane thread; the target is
+     * credited only after the debit has posted.
+     *
+     * @return the debit transaction, completed once the credit is in the history as well,
+     * or failed with the rejection's shared exception
+     */
+    public CompletableFuture<Transaction> transfer(Account source, Account target, double amount) {
+        Lane sourceLane = ownerOf(source);
+        Lane targetLane = ownerOf(target);
+        CompletableFuture<Transaction> result = new CompletableFuture<>();
+        sourceLane.submit(() -> {
+            Transaction debit;
+            try {
+                debit = source.tryProcessTransaction(amount, "Transfer").getTransactionOrThrow();
+            } catch (Exception e) {
+                result.completeExceptionally(e);
+                return;
+            }
+            sourceLane.afterFlush(() -> targetLane.submit(() -> {
+                try {
+                    target.tryProcessTransaction(amount, "Receive").getTransactionOrThrow();
+                    targetLane.completeAfterFlush(result, debit);
+                } catch (Exception e) {
+                    sourceLane.submit(() -> refund(source, amount, e, result));
+                }
+            }));
+        });
+        return result;
+    }
+
+    private static void refund(Account source, double amount, Exception creditFailure,
+                               CompletableFuture<Transaction> result) {
+        InsufficientFundsException failure = new InsufficientFundsException("Transfer failed: " + creditFailure.getMessage());
+        try {
+            // Posted as a transfer in, so the transfer clears in the journal
+            source.tryProcessTransaction(amount, "Receive").getTransactionOrThrow();
+        } catch (Exception e) {
+            failure.addSuppressed(e);
+        }
+        result.completeExceptionally(failure);
+    }
+
+    /**
+     * Stops every lane after it has drained the postings already queued.
+     */
+    public void shutdown() {
+        for (Lane lane : lanes) {
+            lane.running = false;
+            LockSupport.unpark(lane.thread);
+        }
+        for (Lane lane : lanes) {
+            try {
+                lane.thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private Lane laneFor(Account account) {
+        String accountNumber = account.getAccountNumber();
+        int id = AccountIndex.parse(accountNumber);
+        // Sequential numbers spread evenly by themselves; other forms go by hash
+        int key = id >= 0 ? id : accountNumber.hashCode();
+        return lanes[Math.floorMod(key, lanes.length)];
+    }
+
+    private Lane ownerOf(Account account) {
+        Lane lane = laneFor(account);
+        if (account.getLane() != lane) {
+            // Accounts added while lanes were starting are adopted on first use
+            account.assignLane(lane);
+        }
+        return lane;
+    }
+
+    /**
+     * Rethrows the failure of a posting run for another thread. The posting declared only
+     * X and Y, so a checked failure is one of them; the cast is erased and only satisfies
+     * the compiler.
+     */
+    @SuppressWarnings("unchecked")
+    static <X extends Exception> X rethrow(Throwable failure) throws X {
+        if (failure instanceof RuntimeException runtime) {
+            throw runtime;
+        }
+        if (failure instanceof Error error) {
+            throw error;
+        }
+        throw (X) failure;
+    }
+
+    private static final class LaneThread extends Thread {
+        LaneThread(Runnable body, String name) {
+            super(body, name);
+            setDaemon(true);
+        }
+    }
+
+    private static final class Lane implements PostingLane {
+        private final ConcurrentLinkedQueue<Runnable> queue = new ConcurrentLinkedQueue<>();
+        private final LaneThread thread;
+        // Touched only by the lane thread
+        private final List<Transaction> journal = new ArrayList<>();
+        private final List<Runnable> completions = new ArrayList<>();
+        private volatile boolean parked;
+        private volatile boolean running = true;
+
+        Lane(int index) {
+            thread = new LaneThread(this::drainLoop, "posting-lane-" + index);
+        }
+
+        void submit(Runnable task) {
+            if (!running) {
+                throw new RejectedExecutionException("Posting lanes are shut down");
+            }
+            queue.offer(task);
+            // The lane may have drained its last task just before the flag was cleared
+            if (!running && queue.remove(task)) {
+                throw new RejectedExecutionException("Posting lanes are shut down");
+            }
+            if (parked) {
+                LockSupport.unpark(thread);
+            }
+        }
+
+        void afterFlush(Runnable action) {
+            completions.add(action);
+        }
+
+        void completeAfterFlush(CompletableFuture<Transaction> result, Transaction transaction) {
+            completions.add(() -> result.complete(transaction));
+        }
+
+        @Override
+        public boolean isCurrentThread() {
+            return Thread.currentThread() == thread;
+        }
+
+        @Override
+        public <T, X extends Exception, Y extends Exception> T call(Posting<T, X, Y> posting) throws X, Y {
+            if (isCurrentThread()) {
+                return posting.run();
+            }
+            if (Thread.currentThread() instanceof LaneThread) {
+                throw new IllegalStateException("A posting lane cannot wait on another lane");
+            }
+            CompletableFuture<T> result = new CompletableFuture<>();
+            submit(() -> {
+                try {
+                    T value = posting.run();
+                    completions.add(() -> result.complete(value));
+                } catch (Throwable e) {
+                    result.completeExceptionally(e);
+                }
+            });
+            try {
+                return result.join();
+            } catch (CompletionException e) {
+                throw PostingLanes.<X>rethrow(e.getCause());
+            }
+        }
+
+        @Override
+        public void journal(Transaction transaction) {
+            journal.add(transaction);
+        }
+
+        private void drainLoop() {
+            int idleSpins = 0;
+            while (running || !queue.isEmpty()) {
+                Runnable task = queue.poll();
+                if (task == null) {
+                    if (idleSpins++ < SPINS_BEFORE_PARK) {
+                        Thread.onSpinWait();
+                        continue;
+                    }
+                    parked = true;
+                    if (running && queue.isEmpty()) {
+                        LockSupport.park(this);
+                    }
+                    parked = false;
+                    idleSpins = 0;
+                    continue;
+                }
+                idleSpins = 0;
+                int token = InFlightPostings.enter();
+                try {
+                    int batch = 0;
+                    do {
+                        runTask(task);
+                    } while (++batch < MAX_BATCH && (task = queue.poll()) != null);
+                    flush();
+                } finally {
+                    InFlightPostings.exit(token);
+                }
+            }
+        }
+
+        private void flush() {
+            // Completions may post again inline on this lane; repeat until nothing is left
+            while (!journal.isEmpty() || !completions.isEmpty()) {
+                if (!journal.isEmpty()) {
+                    TransactionManager.getInstance().addTransactions(journal);
+                    journal.clear();
+                }
+                int ready = completions.size();
+                for (int i = 0; i < ready; i++) {
+                    runTask(completions.get(i));
+                }
+                completions.subList(0, ready).clear();
+            }
+        }
+
+        private static void runTask(Runnable task) {
+            try {
+                task.run();
+            } catch (Throwable t) {
+                LOG.error("Posting lane task failed: {}", t);
+            }
+        }
+    }
+}
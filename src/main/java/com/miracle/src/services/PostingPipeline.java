@@ -0,0 +1,463 @@
+package com.miracle.src.services;
+
+import com.miracle.src.dto.TransactionRequest;
+import com.miracle.src.models.Account;
+import com.miracle.src.models.InFlightPostings;
+import com.miracle.src.models.PostingLane;
+import com.miracle.src.models.Transaction;
+import com.miracle.src.models.exceptions.InsufficientFundsException;
+import com.miracle.src.models.exceptions.InvalidAmountException;
+import com.miracle.src.utils.Log;
+import com.miracle.src.utils.PaddedSequence;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Posting pipeline over a pre-allocated ring of slots, in the style of the LMAX Disruptor.
+ * <p>
+ * Callers claim a sequence, fill the slot and publish it. Four stages then follow each
+ * other around the ring, each on its own thread and each gated on the sequence of the
+ * stage before it:
+ * </p>
+ * <ol>
+ *     <li>validate: decode the {@link TransactionRequest} and look up its accounts;</li>
+ *     <li>apply: post to the accounts. This stage is the only writer of every account
+ *     (it is their {@link PostingLane}), so postings take no monitor or lock;</li>
+ *     <li>journal: add the postings' transactions to the history;</li>
+ *     <li>publish: complete the caller's future, then free the slot for reuse.</li>
+ * </ol>
+ * <p>
+ * Each stage handles every slot that has become available in one batch and advances its
+ * sequence once per batch; apply registers a batch once with {@link InFlightPostings} and
+ * journal releases it after the batch is in the history. Sequences are
+ * {@link PaddedSequence}s and the slot array is padded at both ends, so neither shares a
+ * cache line with unrelated data. Idle stages spin, then yield, then park briefly.
+ * </p>
+ * <p>
+ * Enabled with {@code -Dbank.posting.pipeline=<ring size>} or
+ * {@link AccountManager#enablePostingPipeline}.
+ * </p>
+ */
+public final class PostingPipeline implements PostingLane {
+
+    private static final Log LOG = Log.get(PostingPipeline.class);
+
+    private static final int DEPOSIT = 1;
+    private static final int WITHDRAWAL = 2;
+    private static final int TRANSFER = 3;
+
+    // References either side of the ring, so slots never share a line with other objects
+    private static final int SLOT_PADDING = 32;
+    private static final int SPINS = 100;
+    private static final int YIELDS = 100;
+    private static final long PARK_NANOS = 20_000;
+
+    private static final VarHandle AVAILABLE = MethodHandles.arrayElementVarHandle(int[].class);
+
+    private final AccountManager accountManager;
+    private final int mask;
+    private final int shift;
+    private final Slot[] slots;
+    // Round in which each slot was last published; -1 before the first
+    private final int[] available;
+
+    private final PaddedSequence claimed = new PaddedSequence(0);
+    private final Stage validate;
+    private final Stage apply;
+    private final Stage journal;
+    private final Stage publish;
+    private final Stage[] stages;
+
+    private final LongAdder submitting = new LongAdder();
+    private volatile boolean running = true;
+    private volatile boolean stopped;
+
+    // Apply stage only: the slot whose postings are being journaled
+    private Slot applying;
+    private final List<Transaction> journalBatch = new ArrayList<>();
+
+    public PostingPipeline(AccountManager accountManager, int ringSize) {
+        if (ringSize < 2 || Integer.bitCount(ringSize) != 1) {
+            throw new IllegalArgumentException("Ring size must be a power of two: " + ringSize);
+        }
+        this.accountManager = accountManager;
+        this.mask = ringSize - 1;
+        this.shift = Integer.numberOfTrailingZeros(ringSize);
+        this.slots = new Slot[ringSize + 2 * SLOT_PADDING];
+        for (int i = 0; i < ringSize; i++) {
+            slots[SLOT_PADDING + i] = new Slot();
+        }
+        this.available = new int[ringSize];
+        Arrays.fill(available, -1);
+
+        validate = new Stage("validate", null) {
+            @Override
+            void process(Slot slot) {
+                decode(slot);
+            }
+        };
+        apply = new Stage("apply", validate) {
+            @Override
+            void processBatch(long from, long to) {
+                // Handed to journal before posting, so it is released even if the batch fails
+                Slot last = slotAt(to);
+                last.barrierToken = InFlightPostings.enter();
+                last.holdsBarrier = true;
+                super.processBatch(from, to);
+            }
+
+            @Override
+            void process(Slot slot) {
+                post(slot);
+            }
+        };
+        journal = new Stage("journal", apply) {
+            @Override
+            void processBatch(long from, long to) {
+                try {
+                    for (long sequence = from; sequence <= to; sequence++) {
+                        journalBatch.addAll(slotAt(sequence).transactions);
+                    }
+                    TransactionManager.getInstance().addTransactions(journalBatch);
+                } finally {
+                    journalBatch.clear();
+                    // A snapshot must never wait forever on a batch that failed
+                    for (long sequence = from; sequence <= to; sequence++) {
+                        Slot slot = slotAt(sequence);
+                        if (slot.holdsBarrier) {
+                            InFlightPostings.exit(slot.barrierToken);
+                        }
+                    }
+                }
+            }
+
+            @Override
+            void process(Slot slot) {
+            }
+        };
+        publish = new Stage("publish", journal) {
+            @Override
+            void process(Slot slot) {
+                complete(slot);
+            }
+
+            @Override
+            void failBatch(long from, long to, Throwable failure) {
+                super.failBatch(from, to, failure);
+                for (long next = from; next <= to; next++) {
+                    slotAt(next).clear();
+                }
+            }
+        };
+        stages = new Stage[]{validate, apply, journal, publish};
+        for (Stage stage : stages) {
+            stage.thread.start();
+        }
+    }
+
+    public int ringSize() {
+        return mask + 1;
+    }
+
+    /**
+     * Publishes a request to the ring, waiting for a free slot if the ring is full.
+     *
+     * @return completes with the posted transaction (the debit, for a transfer) once it is in
+     * the history, or fails with the exception the inline path would have thrown
+     */
+    public CompletableFuture<Transaction> submit(TransactionRequest request) {
+        CompletableFuture<Transaction> result = new CompletableFuture<>();
+        publishSlot(request, null, result);
+        return result;
+    }
+
+    @Override
+    public boolean isCurrentThread() {
+        return Thread.currentThread() == apply.thread;
+    }
+
+    @Override
+    public <T, X extends Exception, Y extends Exception> T call(Posting<T, X, Y> posting) throws X, Y {
+        if (isCurrentThread()) {
+            return posting.run();
+        }
+        for (Stage stage : stages) {
+            if (Thread.currentThread() == stage.thread) {
+                throw new IllegalStateException("A pipeline stage cannot wait on the pipeline");
+            }
+        }
+        CompletableFuture<T> result = new CompletableFuture<>();
+        publishSlot(null, posting, result);
+        try {
+            return result.join();
+        } catch (CompletionException e) {
+            throw PostingLanes.<X>rethrow(e.getCause());
+        }
+    }
+
+    @Override
+    public void journal(Transaction transaction) {
+        applying.transactions.add(transaction);
+    }
+
+    /**
+     * Stops accepting requests, lets the ring drain and stops the stages.
+     */
+    public void shutdown() {
+        running = false;
+        while (submitting.sum() != 0) {
+            Thread.onSpinWait();
+        }
+        long last = claimed.get() - 1;
+        while (publish.sequence.get() < last) {
+            LockSupport.parkNanos(PARK_NANOS);
+        }
+        stopped = true;
+        for (Stage stage : stages) {
+            try {
+                stage.thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void publishSlot(TransactionRequest request, Posting<?, ?, ?> posting, CompletableFuture<?> result) {
+        submitting.increment();
+        try {
+            if (!running) {
+                throw new RejectedExecutionException("Posting pipeline is shut down");
+            }
+            long sequence = claimed.getAndIncrement();
+            // Wrap point: the slot is free once publish has finished with its previous round
+            long wrap = sequence - ringSize();
+            int idle = 0;
+            while (wrap > publish.sequence.get()) {
+                idle = backOff(idle);
+            }
+            Slot slot = slotAt(sequence);
+            slot.request = request;
+            slot.posting = posting;
+            slot.future = (CompletableFuture<Object>) result;
+            AVAILABLE.setRelease(available, (int) (sequence & mask), (int) (sequence >>> shift));
+        } finally {
+            submitting.decrement();
+        }
+    }
+
+    private void decode(Slot slot) {
+        if (slot.posting != null) {
+            return;
+        }
+        // Same checks, in the same order, as AccountManager's inline path
+        TransactionRequest request = slot.request;
+        try {
+            slot.source = accountManager.findAccount(request.getUserAccountNumber());
+            String transactionType = request.getTransactionType();
+            switch (transactionType.toUpperCase()) {
+                case "DEPOSIT":
+                    slot.kind = DEPOSIT;
+                    break;
+                case "WITHDRAWAL":
+                    slot.kind = WITHDRAWAL;
+                    break;
+                case "TRANSFER":
+                    String receiverAccountNumber = request.getReceiverAccountNumber();
+                    if (receiverAccountNumber == null || receiverAccountNumber.trim().isEmpty()) {
+                        throw new IllegalArgumentException("Receiver account number is required for transfer");
+                    }
+                    slot.target = accountManager.findAccount(receiverAccountNumber);
+                    slot.kind = TRANSFER;
+                    break;
+                default:
+                    throw new IllegalArgumentException("Invalid transaction type: " + transactionType);
+            }
+            slot.amount = request.getAmount();
+            if (slot.amount <= 0) {
+                throw new InvalidAmountException(slot.amount);
+            }
+        } catch (Exception e) {
+            slot.failure = e;
+        }
+    }
+
+    private void post(Slot slot) {
+        if (slot.failure != null) {
+            return;
+        }
+        applying = slot;
+        try {
+            if (slot.posting != null) {
+                slot.result = slot.posting.run();
+                return;
+            }
+            // The result-code path never prompts on this thread, and throws on a rejected
+            // debit before a transfer's target is credited
+            switch (slot.kind) {
+                case DEPOSIT:
+                    slot.result = slot.source.tryProcessTransaction(slot.amount, "Deposit").getTransactionOrThrow();
+                    break;
+                case WITHDRAWAL:
+                    slot.result = slot.source.tryProcessTransaction(slot.amount, "Withdrawal").getTransactionOrThrow();
+                    break;
+                default:
+                    Transaction debit = slot.source.tryProcessTransaction(slot.amount, "Transfer").getTransactionOrThrow();
+                    try {
+                        slot.target.tryProcessTransaction(slot.amount, "Receive").getTransactionOrThrow();
+                    } catch (Exception e) {
+                        slot.source.tryProcessTransaction(slot.amount, "Receive");
+                        throw new InsufficientFundsException("Transfer failed: " + e.getMessage());
+                    }
+                    slot.result = debit;
+            }
+        } catch (Throwable e) {
+            slot.failure = e;
+        } finally {
+            applying = null;
+        }
+    }
+
+    private void complete(Slot slot) {
+        CompletableFuture<Object> future = slot.future;
+        if (slot.failure == null) {
+            future.complete(slot.result);
+        } else if (slot.posting != null) {
+            future.completeExceptionally(slot.failure);
+        } else {
+            future.completeExceptionally(AccountManager.translateFailure(slot.failure));
+        }
+        slot.clear();
+    }
+
+    private Slot slotAt(long sequence) {
+        return slots[SLOT_PADDING + (int) (sequence & mask)];
+    }
+
+    /**
+     * Highest sequence published contiguously from {@code next}, or {@code next - 1}.
+     */
+    private long highestPublished(long next) {
+        long limit = claimed.get();
+        long sequence = next;
+        while (sequence < limit
+                && (int) AVAILABLE.getAcquire(available, (int) (sequence & mask)) == (int) (sequence >>> shift)) {
+            sequence++;
+        }
+        return sequence - 1;
+    }
+
+    private static int backOff(int idle) {
+        if (idle < SPINS) {
+            Thread.onSpinWait();
+        } else if (idle < SPINS + YIELDS) {
+            Thread.yield();
+        } else {
+            LockSupport.parkNanos(PARK_NANOS);
+        }
+        return idle + 1;
+    }
+
+    /**
+     * One consumer around the ring, gated on the stage before it (or on publication).
+     */
+    private abstract class Stage implements Runnable {
+        final PaddedSequence sequence = new PaddedSequence(-1);
+        final Stage upstream;
+        final Thread thread;
+
+        Stage(String name, Stage upstream) {
+            this.upstream = upstream;
+            this.thread = new Thread(this, "posting-" + name);
+            this.thread.setDaemon(true);
+        }
+
+        abstract void process(Slot slot);
+
+        void processBatch(long from, long to) {
+            for (long next = from; next <= to; next++) {
+                process(slotAt(next));
+            }
+        }
+
+        /**
+         * Fails the futures of a batch this stage could not finish. Later stages still see
+         * the slots; completing an already failed future does nothing.
+         */
+        void failBatch(long from, long to, Throwable failure) {
+            for (long next = from; next <= to; next++) {
+                CompletableFuture<Object> future = slotAt(next).future;
+                if (future != null) {
+                    future.completeExceptionally(failure);
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            long next = 0;
+            int idle = 0;
+            while (true) {
+                long ready = upstream == null ? highestPublished(next) : upstream.sequence.get();
+                if (ready < next) {
+                    if (stopped) {
+                        return;
+                    }
+                    idle = backOff(idle);
+                    continue;
+                }
+                try {
+                    processBatch(next, ready);
+                } catch (Throwable t) {
+                    LOG.error("Posting pipeline stage {} failed: {}", thread.getName(), t);
+                    // Before the sequence moves on, so no caller sees the batch succeed
+                    failBatch(next, ready, t);
+                }
+                sequence.set(ready);
+                next = ready + 1;
+                idle = 0;
+            }
+        }
+    }
+
+    /**
+     * One ring entry, reused every time the ring wraps.
+     */
+    private static final class Slot {
+        TransactionRequest request;
+        Posting<?, ?, ?> posting;
+        CompletableFuture<Object> future;
+        int kind;
+        Account source;
+        Account target;
+        double amount;
+        Object result;
+        Throwable failure;
+        final List<Transaction> transactions = new ArrayList<>(2);
+        int barrierToken;
+        boolean holdsBarrier;
+
+        void clear() {
+            request = null;
+            posting = null;
+            future = null;
+            kind = 0;
+            source = null;
+            target = null;
+            result = null;
+            failure = null;
+            transactions.clear();
+            holdsBarrier = false;
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.miracle.src.services;
+
+import com.miracle.src.dto.TransactionRequest;
+
+/**
+ * Scheduling lanes of the admission queue, keyed by customer type and request origin. When
+ * postings have to wait, {@link AdmissionController} hands freed permits to the lanes in
+ * proportion to their weights, so interactive work goes ahead of batch and premium ahead of
+ * regular, while every lane with waiters keeps a share.
+ */
+public enum PriorityLane {
+    PREMIUM_INTERACTIVE(8),
+    REGULAR_INTERACTIVE(4),
+    PREMIUM_BATCH(2),
+    REGULAR_BATCH(1);
+
+    private final int defaultWeight;
+
+    PriorityLane(int defaultWeight) {
+        this.defaultWeight = defaultWeight;
+    }
+
+    public int getDefaultWeight() {
+        return defaultWeight;
+    }
+
+    /**
+     * @param customerType as from {@code Customer.getCustomerType()}; null counts as regular
+     */
+    public static PriorityLane of(String customerType, TransactionRequest.Origin origin) {
+        boolean premium = "Premium".equalsIgnoreCase(customerType);
+        if (origin == TransactionRequest.Origin.BATCH) {
+            return premium ? PREMIUM_BATCH : REGULAR_BATCH;
+        }
+        return premium ? PREMIUM_INTERACTIVE : REGULAR_INTERACTIVE;
+    }
+}
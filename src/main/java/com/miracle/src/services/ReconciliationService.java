@@ -0,0 +1,405 @@
+package com.miracle.src.services;
+
+import com.miracle.src.models.Account;
+import com.miracle.src.models.InFlightPostings;
+import com.miracle.src.models.Transaction;
+import com.miracle.src.utils.FileIOUtils;
+import com.miracle.src.utils.TransactionSegmentStore;
+import com.miracle.src.utils.TransactionSegmentStore.LogPosition;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Reconciles account balances with the ledger, the transaction log, while postings
+ * continue.
+ * <p>
+ * Every account's balance must equal its credits less its debits, every history must add
+ * up posting by posting, and money transferred out must equal money transferred in. A
+ * reconciliation runs in four steps:
+ * </p>
+ * <ol>
+ *   <li>pending postings are flushed and the log position {@code cut} taken;</li>
+ *   <li>every balance is read, on a fork/join pool over the accounts;</li>
+ *   <li>postings whose balance those reads may have seen are flushed, as for a snapshot,
+ *       and the position {@code end} taken;</li>
+ *   <li>the log up to {@code cut} is folded per account in parallel ({@link LogReplayService}),
+ *       the few postings between {@code cut} and {@code end} are indexed by account, and a
+ *       second fork/join pass compares each account with its ledger.</li>
+ * </ol>
+ * <p>
+ * A balance read in step 2 is one the account held at some moment between {@code cut} and
+ * {@code end}, so it reconciles if it equals the account's ledger total at {@code cut}
+ * plus some prefix of its postings after {@code cut}. Nothing is paused: postings only
+ * wait on the flushes they would wait on for a snapshot. A transfer whose two sides
+ * straddle {@code cut} shows as money in flight; a clean run of the same data reports none.
+ * </p>
+ */
+public class ReconciliationService {
+
+    // Accounts per fork/join leaf; reading one balance is a few nanoseconds
+    private static final int LEAF_ACCOUNTS = 1024;
+
+    private static final ReconciliationService INSTANCE = new ReconciliationService(
+            FileIOUtils.getTransactionStore(),
+            () -> TransactionManager.getInstance().flushPendingTransactions(),
+            Integer.getInteger("bank.reconcile.threads", Runtime.getRuntime().availableProcessors()));
+
+    private final TransactionSegmentStore log;
+    private final TransactionManager.PendingFlush flushPending;
+    private final int threads;
+
+    /**
+     * @param log          the transaction log holding the ledger
+     * @param flushPending writes postings not yet in the log
+     * @param threads      parallelism of the fork/join passes and the log fold
+     */
+    public ReconciliationService(TransactionSegmentStore log, TransactionManager.PendingFlush flushPending, int threads) {
+        this.log = log;
+        this.flushPending = flushPending;
+        this.threads = Math.max(1, threads);
+    }
+
+    public static ReconciliationService getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Reconciles every account, and reports accounts the ledger has postings for but the
+     * bank does not know.
+     *
+     * @throws IOException if the log cannot be read or the flush fails
+     */
+    public Report reconcile() throws IOException {
+        return reconcile(AccountManager.getInstance().getAllAccounts(), true);
+    }
+
+    /**
+     * Reconciles the given accounts only.
+     *
+     * @throws IOException if the log cannot be read or the flush fails
+     */
+    public Report reconcile(Collection<Account> accounts) throws IOException {
+        return reconcile(accounts, false);
+    }
+
+    private Report reconcile(Collection<Account> accounts, boolean wholeBank) throws IOException {
+        long start = System.nanoTime();
+        Account[] checked = accounts.toArray(new Account[0]);
+        long[] balances = new long[checked.length];
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            flushPending.flush();
+            LogPosition cut = log.currentPosition();
+            pool.invoke(new ReadBalances(checked, balances, 0, checked.length));
+            // Lock-free postings publish a balance before queueing their transaction
+            InFlightPostings.awaitEarlier();
+            flushPending.flush();
+            LogPosition end = log.currentPosition();
+
+            LogReplayService replay = new LogReplayService(log, threads);
+            LogReplayService.ReplayReport ledger = replay.replayTo(cut);
+            Map<String, List<Transaction>> window = new HashMap<>();
+            long windowPostings = replay.forEachBetween(cut, end,
+                    t -> window.computeIfAbsent(t.getAccountNumber(), k -> new ArrayList<>()).add(t));
+
+            Map<String, LogReplayService.Divergence> divergences = new HashMap<>();
+            for (LogReplayService.Divergence divergence : ledger.getDivergences()) {
+                divergences.put(divergence.getAccountNumber(), divergence);
+            }
+            Partial partial = pool.invoke(new Compare(checked, balances, 0, checked.length,
+                    ledger.getNetMovements(), divergences, window));
+            List<Discrepancy> discrepancies = new ArrayList<>(partial.discrepancies);
+            if (wholeBank) {
+                Set<String> known = new HashSet<>();
+                for (Account account : checked) {
+                    known.add(account.getAccountNumber());
+                }
+                for (String accountNumber : ledger.getBalances().keySet()) {
+                    if (!known.contains(accountNumber)) {
+                        discrepancies.add(new Discrepancy(accountNumber, Discrepancy.Kind.UNKNOWN_ACCOUNT, null,
+                                ledger.getNetMovements().get(accountNumber), 0));
+                    }
+                }
+            }
+            discrepancies.sort(Comparator.comparing(Discrepancy::getAccountNumber));
+
+            long transfersOut = ledger.getTotalCents("Transfer Out");
+            long transfersIn = ledger.getTotalCents("Transfer In");
+            for (List<Transaction> postings : window.values()) {
+                for (Transaction t : postings) {
+                    if ("Transfer Out".equals(t.getType())) {
+                        transfersOut -= LogReplayService.signedCents(t);
+                    } else if ("Transfer In".equals(t.getType())) {
+                        transfersIn += LogReplayService.signedCents(t);
+                    }
+                }
+            }
+            return new Report(checked.length, ledger.getTransactionCount() + windowPostings, partial.balanceCents,
+                    partial.ledgerCents, transfersOut, transfersIn, discrepancies, System.nanoTime() - start);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Reads each account's balance with an optimistic state read, halving the range until
+     * a leaf is small enough to read directly.
+     */
+    private static final class ReadBalances extends RecursiveAction {
+        private final Account[] accounts;
+        private final long[] balances;
+        private final int from;
+        private final int to;
+
+        private ReadBalances(Account[] accounts, long[] balances, int from, int to) {
+            this.accounts = accounts;
+            this.balances = balances;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= LEAF_ACCOUNTS) {
+                for (int i = from; i < to; i++) {
+                    balances[i] = LogReplayService.toCents(accounts[i].readState().getBalance());
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new ReadBalances(accounts, balances, from, middle), new ReadBalances(accounts, balances, middle, to));
+        }
+    }
+
+    /**
+     * Compares each account's balance with its ledger; halves of the range are compared in
+     * parallel and their findings concatenated.
+     */
+    private static final class Compare extends RecursiveTask<Partial> {
+        private final Account[] accounts;
+        private final long[] balances;
+        private final int from;
+        private final int to;
+        private final Map<String, Long> ledgerTotals;
+        private final Map<String, LogReplayService.Divergence> divergences;
+        private final Map<String, List<Transaction>> window;
+
+        private Compare(Account[] accounts, long[] balances, int from, int to, Map<String, Long> ledgerTotals,
+                        Map<String, LogReplayService.Divergence> divergences, Map<String, List<Transaction>> window) {
+            this.accounts = accounts;
+            this.balances = balances;
+            this.from = from;
+            this.to = to;
+            this.ledgerTotals = ledgerTotals;
+            this.divergences = divergences;
+            this.window = window;
+        }
+
+        @Override
+        protected Partial compute() {
+            if (to - from > LEAF_ACCOUNTS) {
+                int middle = (from + to) >>> 1;
+                Compare left = new Compare(accounts, balances, from, middle, ledgerTotals, divergences, window);
+                left.fork();
+                Partial right = new Compare(accounts, balances, middle, to, ledgerTotals, divergences, window).compute();
+                return left.join().add(right);
+            }
+            Partial partial = new Partial();
+            for (int i = from; i < to; i++) {
+                compare(accounts[i].getAccountNumber(), balances[i], partial);
+            }
+            return partial;
+        }
+
+        private void compare(String accountNumber, long balance, Partial partial) {
+            long ledgerTotal = ledgerTotals.getOrDefault(accountNumber, 0L);
+            boolean matched = ledgerTotal == balance;
+            for (Transaction t : window.getOrDefault(accountNumber, Collections.emptyList())) {
+                long delta = LogReplayService.signedCents(t);
+                if (delta != LogReplayService.UNKNOWN_TYPE) {
+                    ledgerTotal += delta;
+                }
+                matched |= ledgerTotal == balance;
+            }
+            partial.balanceCents += balance;
+            partial.ledgerCents += ledgerTotal;
+            if (!matched) {
+                partial.discrepancies.add(new Discrepancy(accountNumber, Discrepancy.Kind.BALANCE_MISMATCH, null,
+                        ledgerTotal, balance));
+            }
+            LogReplayService.Divergence divergence = divergences.get(accountNumber);
+            if (divergence != null) {
+                partial.discrepancies.add(new Discrepancy(accountNumber, Discrepancy.Kind.LEDGER_DIVERGENCE,
+                        divergence.getTransactionId(), divergence.getExpectedCents(), divergence.getActualCents()));
+            }
+        }
+    }
+
+    private static final class Partial {
+        private final List<Discrepancy> discrepancies = new ArrayList<>();
+        private long balanceCents;
+        private long ledgerCents;
+
+        private Partial add(Partial other) {
+            discrepancies.addAll(other.discrepancies);
+            balanceCents += other.balanceCents;
+            ledgerCents += other.ledgerCents;
+            return this;
+        }
+    }
+
+    /**
+     * One account that does not reconcile.
+     */
+    public static final class Discrepancy {
+
+        public enum Kind {
+            /** The balance is not the ledger total at any point during the reconciliation. */
+            BALANCE_MISMATCH,
+            /** A posting's balanceAfter does not follow from the postings before it. */
+            LEDGER_DIVERGENCE,
+            /** The ledger has postings for an account the bank does not know. */
+            UNKNOWN_ACCOUNT
+        }
+
+        private final String accountNumber;
+        private final Kind kind;
+        private final String transactionId;
+        private final long ledgerCents;
+        private final long balanceCents;
+
+        public Discrepancy(String accountNumber, Kind kind, String transactionId, long ledgerCents, long balanceCents) {
+            this.accountNumber = accountNumber;
+            this.kind = kind;
+            this.transactionId = transactionId;
+            this.ledgerCents = ledgerCents;
+            this.balanceCents = balanceCents;
+        }
+
+        public String getAccountNumber() {
+            return accountNumber;
+        }
+
+        public Kind getKind() {
+            return kind;
+        }
+
+        /**
+         * @return the divergent posting for {@link Kind#LEDGER_DIVERGENCE}, otherwise null
+         */
+        public String getTransactionId() {
+            return transactionId;
+        }
+
+        /**
+         * @return what the ledger says: its total, or the balanceAfter the postings before
+         *         a divergent one lead to
+         */
+        public long getLedgerCents() {
+            return ledgerCents;
+        }
+
+        /**
+         * @return what was found: the account's balance, or the divergent posting's balanceAfter
+         */
+        public long getBalanceCents() {
+            return balanceCents;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s %s%s: ledger $%,.2f, found $%,.2f", accountNumber, kind,
+                    transactionId == null ? "" : " at " + transactionId, ledgerCents / 100.0, balanceCents / 100.0);
+        }
+    }
+
+    /**
+     * What a reconciliation checked and what did not reconcile.
+     */
+    public static final class Report {
+        private final int accounts;
+        private final long postings;
+        private final long balanceCents;
+        private final long ledgerCents;
+        private final long transfersOutCents;
+        private final long transfersInCents;
+        private final List<Discrepancy> discrepancies;
+        private final long elapsedNanos;
+
+        private Report(int accounts, long postings, long balanceCents, long ledgerCents, long transfersOutCents,
+                       long transfersInCents, List<Discrepancy> discrepancies, long elapsedNanos) {
+            this.accounts = accounts;
+            this.postings = postings;
+            this.balanceCents = balanceCents;
+            this.ledgerCents = ledgerCents;
+            this.transfersOutCents = transfersOutCents;
+            this.transfersInCents = transfersInCents;
+            this.discrepancies = Collections.unmodifiableList(discrepancies);
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        /**
+         * @return whether every account reconciled and every transfer out has its transfer in
+         */
+        public boolean isClean() {
+            return discrepancies.isEmpty() && getTransfersInFlightCents() == 0;
+        }
+
+        public int getAccountCount() {
+            return accounts;
+        }
+
+        public long getPostingCount() {
+            return postings;
+        }
+
+        /**
+         * @return the sum of the balances read
+         */
+        public long getBalanceCents() {
+            return balanceCents;
+        }
+
+        /**
+         * @return the sum of the checked accounts' ledger totals, to the end of the reconciliation
+         */
+        public long getLedgerCents() {
+            return ledgerCents;
+        }
+
+        /**
+         * @return money transferred out and not (yet) transferred in; zero when transfers net out
+         */
+        public long getTransfersInFlightCents() {
+            return transfersOutCents - transfersInCents;
+        }
+
+        public List<Discrepancy> getDiscrepancies() {
+            return discrepancies;
+        }
+
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Reconciled %,d accounts against %,d postings in %,d ms: balances $%,.2f,"
+                            + " ledger $%,.2f, transfers in flight $%,.2f, %d discrepancies", accounts, postings,
+                    elapsedNanos / 1_000_000, balanceCents / 100.0, ledgerCents / 100.0,
+                    getTransfersInFlightCents() / 100.0, discrepancies.size());
+        }
+    }
+}
@@ -0,0 +1,385 @@
+package com.miracle.src.services;
+
+import com.miracle.src.models.Account;
+import com.miracle.src.models.Customer;
+import com.miracle.src.models.InFlightPostings;
+import com.miracle.src.models.Transaction;
+import com.miracle.src.models.exceptions.AccountNotFoundException;
+import com.miracle.src.utils.FileIOUtils;
+import com.miracle.src.utils.Log;
+import com.miracle.src.utils.TransactionSegmentStore;
+import com.miracle.src.utils.TransactionSegmentStore.LogPosition;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Service for taking and restoring snapshots of account state.
+ * <p>
+ * A snapshot records every account balance and status plus the account, customer
+ * and transaction ID counters, together with the end position of the transaction
+ * log (segment generation and offset) at the moment the snapshot started. On restart the latest valid
+ * snapshot is loaded and only the log tail after that position is replayed, so
+ * restart time is bounded by the snapshot interval rather than the full history.
+ * </p>
+ * <p>
+ * Snapshots are fuzzy: balances are read while postings continue. This is safe because
+ * replaying a logged transaction sets the balance to its recorded balanceAfter, so
+ * re-applying a record already reflected in the snapshot is idempotent.
+ * </p>
+ * <p>
+ * The in-memory history is refilled on restart too. The capped history takes the head of
+ * the log until it is full; the uncapped columnar history takes only the last
+ * {@code -Dbank.history.segments} sealed segments (1 by default) and the active file, so a
+ * restart never reads the whole log just to fill it. Older postings stay in the log.
+ * </p>
+ */
+public class SnapshotService {
+
+    private static final Log LOG = Log.get(SnapshotService.class);
+
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final String SNAPSHOT_SUFFIX = ".snap";
+    private static final String HEADER = "SNAPSHOT";
+    private static final String TRAILER = "END";
+    private static final int FORMAT_VERSION = 2;
+    private static final int SNAPSHOTS_TO_KEEP = 2;
+    private static final int HISTORY_SEGMENTS = Math.max(0, Integer.getInteger("bank.history.segments", 1));
+
+    private static final SnapshotService INSTANCE = new SnapshotService(
+            FileIOUtils.getDataDir().resolve("snapshots"),
+            FileIOUtils.getTransactionStore(),
+            () -> TransactionManager.getInstance().flushPendingTransactions()
+    );
+
+    private final Path snapshotDir;
+    private final TransactionSegmentStore log;
+    private final TransactionManager.PendingFlush flushPending;
+    private final AccountManager accountManager = AccountManager.getInstance();
+    private final TransactionManager transactionManager = TransactionManager.getInstance();
+
+    /**
+     * Creates a snapshot service for a specific snapshot directory and transaction log.
+     *
+     * @param snapshotDir directory where snapshot files are kept
+     * @param log         the transaction log whose position snapshots record
+     */
+    public SnapshotService(Path snapshotDir, TransactionSegmentStore log) {
+        this(snapshotDir, log, () -> { });
+    }
+
+    /**
+     * Creates a snapshot service that flushes pending postings to the log before publishing.
+     *
+     * @param snapshotDir  directory where snapshot files are kept
+     * @param log          the transaction log whose position snapshots record
+     * @param flushPending writes postings not yet in the log
+     */
+    public SnapshotService(Path snapshotDir, TransactionSegmentStore log, TransactionManager.PendingFlush flushPending) {
+        this.snapshotDir = snapshotDir;
+        this.log = log;
+        this.flushPending = flushPending;
+    }
+
+    /**
+     * Gets the singleton instance bound to the application data directory.
+     * @return the singleton instance
+     */
+    public static SnapshotService getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Writes a new snapshot of all accounts without pausing postings.
+     * The log position is captured before any balance is read, so every posting
+     * missing from the snapshot is guaranteed to lie in the replayed tail.
+     *
+     * @return the path of the snapshot written
+     * @throws IOException if the snapshot cannot be written
+     */
+    public synchronized Path takeSnapshot() throws IOException {
+        Files.createDirectories(snapshotDir);
+
+        LogPosition walPosition = log.currentPosition();
+        int accountCounter = Account.accountCounter;
+        int customerCounter = Customer.customerCounter;
+        int transactionCounter = Transaction.getTransactionCounter();
+
+        Path target = snapshotDir.resolve(String.format("%s%020d%s", SNAPSHOT_PREFIX, nextSequence(), SNAPSHOT_SUFFIX));
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+
+        int written = 0;
+        try (BufferedWriter writer = Files.newBufferedWriter(temp)) {
+            writer.write(String.join("|", HEADER, String.valueOf(FORMAT_VERSION),
+                    String.valueOf(walPosition.getGeneration()), String.valueOf(walPosition.getOffset()),
+                    String.valueOf(accountCounter), String.valueOf(customerCounter), String.valueOf(transactionCounter)));
+            writer.newLine();
+            // ConcurrentHashMap iteration is weakly consistent and never blocks writers.
+            // Each balance/status pair is an optimistic state read: a validated read never
+            // overlaps a posting's write, so a posting it reflects has already queued its
+            // transaction for the flush below, and postings are not held up by the scan.
+            for (Account account : accountManager.getAllAccounts()) {
+                Account.State state = account.readState();
+                writer.write(String.join("|",
+                        account.getAccountNumber(),
+                        String.format("%.2f", state.getBalance()),
+                        state.getStatus()));
+                writer.newLine();
+                written++;
+            }
+            writer.write(TRAILER + "|" + written);
+            writer.newLine();
+        }
+        // Lock-free postings make their balance visible before queueing their transaction;
+        // wait for any the loop above may have seen so the flush below includes them
+        InFlightPostings.awaitEarlier();
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+        // Never publish a balance whose posting could still be lost from the log
+        flushPending.flush();
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+
+        pruneOldSnapshots();
+        LOG.info("Snapshot written: {} ({} accounts, log position {})", target.getFileName(), written, walPosition);
+        return target;
+    }
+
+    /**
+     * Restores account state from the latest valid snapshot and replays the log tail.
+     * Accounts must already be registered (accounts.txt loaded) so balances can be applied.
+     *
+     * @return the recovery result, or empty if no usable snapshot exists
+     * @throws IOException if the log tail cannot be read
+     */
+    public Optional<RecoveryResult> restoreLatest() throws IOException {
+        long start = System.nanoTime();
+
+        for (Path snapshot : listSnapshots()) {
+            List<String> lines;
+            try {
+                lines = readValidSnapshot(snapshot);
+            } catch (IOException | RuntimeException e) {
+                LOG.warn("Ignoring unreadable snapshot {}: {}", snapshot.getFileName(), e.getMessage());
+                continue;
+            }
+            if (lines == null) {
+                LOG.warn("Ignoring incomplete snapshot {}", snapshot.getFileName());
+                continue;
+            }
+
+            String[] header = lines.get(0).split("\\|");
+            LogPosition walPosition = new LogPosition(Long.parseLong(header[2]), Long.parseLong(header[3]));
+            Account.accountCounter = Math.max(Account.accountCounter, Integer.parseInt(header[4]));
+            Customer.customerCounter = Math.max(Customer.customerCounter, Integer.parseInt(header[5]));
+            Transaction.ensureCounterAtLeast(Integer.parseInt(header[6]));
+
+            int restored = 0;
+            for (String line : lines.subList(1, lines.size() - 1)) {
+                String[] parts = line.split("\\|");
+                Account account = lookup(parts[0]);
+                if (account != null) {
+                    account.updateBalance(Double.parseDouble(parts[1]));
+                    account.setStatus(parts[2]);
+                    restored++;
+                }
+            }
+
+            // The snapshot holds balances, not history: fill the history as a full replay
+            // would, so it has no gap before the tail replayed below
+            if (TransactionManager.isColumnarStore()) {
+                new LogReplayService(log, 1).forEachBetween(recentHistoryStart(walPosition), walPosition, this::loadHistory);
+            } else if (!transactionManager.isFull()) {
+                new LogReplayService(log, 1).forEachWhile(LogReplayService.LOG_START, walPosition, t -> {
+                    loadHistory(t);
+                    return !transactionManager.isFull();
+                });
+            }
+            long replayed = log.readFrom(walPosition, this::applyLoggedTransaction);
+
+            long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+            RecoveryResult result = new RecoveryResult(snapshot, restored, replayed, elapsedMillis);
+            LOG.info("{}", result);
+            return Optional.of(result);
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Restores from the latest snapshot, or replays the whole log when there is none,
+     * so balances always end at the last durable balanceAfter of each account.
+     *
+     * @return the recovery result
+     * @throws IOException if the log cannot be read
+     */
+    public RecoveryResult recover() throws IOException {
+        Optional<RecoveryResult> restored = restoreLatest();
+        if (restored.isPresent()) {
+            return restored.get();
+        }
+        if (LogReplayService.isStartupPath()) {
+            LogReplayService.ReplayReport report;
+            if (TransactionManager.isColumnarStore()) {
+                // Ranges finish out of order, so the recent history is read in order afterwards
+                LogPosition end = log.currentPosition();
+                report = new LogReplayService(log).restoreBalances(null);
+                new LogReplayService(log, 1).forEachBetween(recentHistoryStart(end), end, this::loadHistory);
+            } else {
+                report = new LogReplayService(log).restoreBalances(this::loadHistory);
+            }
+            report.getBalances().keySet().forEach(Account::ensureCounterAtLeast);
+            LOG.info("No snapshot found; {}", report);
+            return new RecoveryResult(null, 0, report.getTransactionCount(), report.getElapsedNanos() / 1_000_000);
+        }
+        long start = System.nanoTime();
+        long replayed = log.readAll(this::applyLoggedTransaction);
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        LOG.info("No snapshot found; replayed {} logged transactions in {} ms.", replayed, elapsedMillis);
+        return new RecoveryResult(null, 0, replayed, elapsedMillis);
+    }
+
+    // Where the columnar history starts: the last few sealed segments before the end
+    private static LogPosition recentHistoryStart(LogPosition end) {
+        return new LogPosition(Math.max(LogReplayService.LOG_START.getGeneration(),
+                end.getGeneration() - HISTORY_SEGMENTS), 0);
+    }
+
+    private void applyLoggedTransaction(Transaction t) {
+        Account account = lookup(t.getAccountNumber());
+        if (account != null) {
+            account.updateBalance(t.getBalanceAfter());
+        } else {
+            // Logged before its account reached accounts.txt; never hand its number out again
+            Account.ensureCounterAtLeast(t.getAccountNumber());
+        }
+        loadHistory(t);
+    }
+
+    private void loadHistory(Transaction t) {
+        if (!transactionManager.isFull()) {
+            transactionManager.addLoadedTransaction(t);
+        }
+    }
+
+    private Account lookup(String accountNumber) {
+        try {
+            return accountManager.findAccount(accountNumber);
+        } catch (AccountNotFoundException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Reads a snapshot, returning null if its trailer is missing or the account count does not match.
+     */
+    private List<String> readValidSnapshot(Path snapshot) throws IOException {
+        List<String> lines = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(snapshot)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lines.add(line);
+            }
+        }
+        if (lines.size() < 2 || !lines.get(0).startsWith(HEADER + "|" + FORMAT_VERSION + "|")) {
+            return null;
+        }
+        String last = lines.get(lines.size() - 1);
+        if (!last.startsWith(TRAILER + "|")) {
+            return null;
+        }
+        int expected = Integer.parseInt(last.substring(TRAILER.length() + 1));
+        return expected == lines.size() - 2 ? lines : null;
+    }
+
+    /**
+     * Lists snapshot files, newest first.
+     */
+    private List<Path> listSnapshots() throws IOException {
+        if (Files.notExists(snapshotDir)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(snapshotDir)) {
+            return files
+                    .filter(p -> {
+                        String name = p.getFileName().toString();
+                        return name.startsWith(SNAPSHOT_PREFIX) && name.endsWith(SNAPSHOT_SUFFIX);
+                    })
+                    .sorted(Comparator.comparing((Path p) -> p.getFileName().toString()).reversed())
+                    .toList();
+        }
+    }
+
+    private long nextSequence() throws IOException {
+        List<Path> existing = listSnapshots();
+        if (existing.isEmpty()) {
+            return 1;
+        }
+        String name = existing.get(0).getFileName().toString();
+        return Long.parseLong(name.substring(SNAPSHOT_PREFIX.length(), name.length() - SNAPSHOT_SUFFIX.length())) + 1;
+    }
+
+    private void pruneOldSnapshots() throws IOException {
+        List<Path> existing = listSnapshots();
+        for (int i = SNAPSHOTS_TO_KEEP; i < existing.size(); i++) {
+            Files.deleteIfExists(existing.get(i));
+        }
+    }
+
+    /**
+     * Gets the newest snapshot file, if any.
+     * @return the latest snapshot path
+     */
+    public Optional<Path> getLatestSnapshot() throws IOException {
+        return listSnapshots().stream().findFirst();
+    }
+
+    /**
+     * Outcome of a snapshot restore.
+     */
+    public static class RecoveryResult {
+        private final Path snapshot;
+        private final int accountsRestored;
+        private final long transactionsReplayed;
+        private final long elapsedMillis;
+
+        public RecoveryResult(Path snapshot, int accountsRestored, long transactionsReplayed, long elapsedMillis) {
+            this.snapshot = snapshot;
+            this.accountsRestored = accountsRestored;
+            this.transactionsReplayed = transactionsReplayed;
+            this.elapsedMillis = elapsedMillis;
+        }
+
+        public Path getSnapshot() {
+            return snapshot;
+        }
+
+        public int getAccountsRestored() {
+            return accountsRestored;
+        }
+
+        public long getTransactionsReplayed() {
+            return transactionsReplayed;
+        }
+
+        public long getElapsedMillis() {
+            return elapsedMillis;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Restored %d accounts from %s and replayed %d logged transactions in %d ms.",
+                    accountsRestored, snapshot == null ? "no snapshot" : snapshot.getFileName(), transactionsReplayed, elapsedMillis);
+        }
+    }
+}
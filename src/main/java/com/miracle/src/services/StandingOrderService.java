@@ -0,0 +1,581 @@
+package com.miracle.src.services;
+
+import com.miracle.src.models.PostingResult;
+import com.miracle.src.models.StandingOrder;
+import com.miracle.src.models.exceptions.AccountNotFoundException;
+import com.miracle.src.models.exceptions.InvalidAmountException;
+import com.miracle.src.utils.FileIOUtils;
+import com.miracle.src.utils.Log;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Standing orders: recurring transfers run by one ticker.
+ * <p>
+ * Orders wait in a priority queue keyed by their next due time, so a tick looks only at the
+ * orders that are due and costs O(log n) per order it takes. Each tick takes every due
+ * order, including every run missed while the system was down, and executes them as one
+ * batch: grouped by source account, each group posted in order by one worker, the groups
+ * spread over {@code -Dbank.standing.workers} workers. Runs go through
+ * {@link AccountManager#tryProcessTransaction} as batch-origin requests, so they report
+ * failures as result codes and yield to interactive traffic under admission control. Runs
+ * turned away as overloaded are owed and retried on the next tick; other failures are
+ * recorded on the order and skipped.
+ * </p>
+ * <p>
+ * At most {@code -Dbank.standing.catchup.max} runs of one order are caught up in a tick
+ * (31 by default); older missed runs are skipped and counted. Orders are saved to
+ * {@code standing_orders.txt} with the other data.
+ * </p>
+ * <p>
+ * Before a batch posts, the schedule position it takes each order to is appended to
+ * {@code standing_orders.log} and forced to disk, and once the batch is done the runs it
+ * owes are appended too. Creating and cancelling an order are logged the same way before
+ * they return. Recovery applies the log on top of the saved orders, so a crash mid-batch
+ * can lose that batch's runs but never repeats a run whose transfer was posted, and no
+ * order created or cancelled since the last save is lost or revived; runs that were in
+ * flight are reported at startup. A save empties the log.
+ * </p>
+ */
+public class StandingOrderService {
+
+    private static final Log LOG = Log.get(StandingOrderService.class);
+
+    private static final StandingOrderService INSTANCE = new StandingOrderService(
+            FileIOUtils.getDataDir().resolve("standing_orders.txt"),
+            Integer.getInteger("bank.standing.workers", Runtime.getRuntime().availableProcessors()),
+            Integer.getInteger("bank.standing.catchup.max", 31));
+
+    private static final long TICK_SECONDS = Long.getLong("bank.standing.tick.seconds", 60);
+
+    private static final String TAKEN = "TAKEN";
+    private static final String DONE = "DONE";
+    private static final String CREATED = "CREATED";
+    private static final String CANCELLED = "CANCELLED";
+
+    private final Path ordersFile;
+    private final Path runFile;
+    private final int workers;
+    private final int maxCatchUp;
+    private final ConcurrentHashMap<String, StandingOrder> orders = new ConcurrentHashMap<>();
+    // Guarded by itself; orders being run are off the queue until their batch finishes
+    private final PriorityQueue<StandingOrder> due =
+            new PriorityQueue<>(Comparator.comparingLong(StandingOrder::getDueMillis));
+    private final AtomicLong orderCounter = new AtomicLong();
+    // Orders are created and cancelled together with the run log, under logLock, so a save sees them agree
+    private final Object logLock = new Object();
+    // Guarded by logLock
+    private FileChannel runLog;
+    private ExecutorService pool;
+    private ScheduledExecutorService ticker;
+
+    /**
+     * Execution totals for one tick.
+     */
+    public static final class RunReport {
+        private final int dueOrders;
+        private final long runs;
+        private final long missedRuns;
+        private final long[] counts;
+        private final long elapsedNanos;
+
+        RunReport(int dueOrders, long runs, long missedRuns, long[] counts, long elapsedNanos) {
+            this.dueOrders = dueOrders;
+            this.runs = runs;
+            this.missedRuns = missedRuns;
+            this.counts = counts;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public int getDueOrders() {
+            return dueOrders;
+        }
+
+        /**
+         * @return the runs attempted, caught-up ones included
+         */
+        public long getRuns() {
+            return runs;
+        }
+
+        /**
+         * @return runs past the catch-up limit, skipped without posting
+         */
+        public long getMissedRuns() {
+            return missedRuns;
+        }
+
+        public long getPosted() {
+            return counts[PostingResult.Status.POSTED.ordinal()];
+        }
+
+        public long getCount(PostingResult.Status status) {
+            return counts[status.ordinal()];
+        }
+
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        public double getRunsPerSecond() {
+            return elapsedNanos == 0 ? 0 : runs * 1e9 / elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d orders, %d runs (%d posted, %d missed) in %.1f ms, %.0f runs/s",
+                    dueOrders, runs, getPosted(), missedRuns, elapsedNanos / 1e6, getRunsPerSecond());
+        }
+    }
+
+    /**
+     * Creates a service with its own orders file, and its run log next to it.
+     *
+     * @param ordersFile where orders are saved
+     * @param workers    threads posting a batch, the ticker's own included
+     * @param maxCatchUp most runs of one order executed in a tick
+     */
+    public StandingOrderService(Path ordersFile, int workers, int maxCatchUp) {
+        this.ordersFile = ordersFile;
+        String name = ordersFile.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        this.runFile = ordersFile.resolveSibling((dot > 0 ? name.substring(0, dot) : name) + ".log");
+        this.workers = Math.max(1, workers);
+        this.maxCatchUp = Math.max(1, maxCatchUp);
+    }
+
+    public static StandingOrderService getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Schedules a transfer from {@code source} to {@code target} every period from
+     * {@code firstRun}, until {@code endDate} if there is one.
+     *
+     * @throws AccountNotFoundException if either account does not exist
+     * @throws InvalidAmountException   if the amount is not positive
+     * @throws IOException              if the order cannot be logged; nothing is scheduled then
+     */
+    public StandingOrder createOrder(String source, String target, double amount, StandingOrder.Frequency frequency,
+                                     LocalDateTime firstRun, LocalDateTime endDate)
+            throws AccountNotFoundException, InvalidAmountException, IOException {
+        AccountManager accountManager = AccountManager.getInstance();
+        accountManager.findAccount(source);
+        accountManager.findAccount(target);
+        if (Math.round(amount * 100) <= 0) {
+            throw new InvalidAmountException(amount);
+        }
+        if (source.equals(target)) {
+            throw new IllegalArgumentException("A standing order needs two different accounts");
+        }
+        StandingOrder order = new StandingOrder(formatId(orderCounter.incrementAndGet()), source, target, amount,
+                frequency, firstRun, endDate);
+        synchronized (logLock) {
+            logRuns(List.of(CREATED + "," + format(order)));
+            track(order);
+        }
+        return order;
+    }
+
+    /**
+     * Cancels an order; runs already in a batch still complete.
+     *
+     * @return whether there was such an order
+     * @throws IOException if the cancellation cannot be logged; the order stays open then
+     */
+    public boolean cancel(String orderId) throws IOException {
+        synchronized (logLock) {
+            StandingOrder order = orders.get(orderId);
+            if (order == null) {
+                return false;
+            }
+            logRuns(List.of(CANCELLED + "," + orderId));
+            orders.remove(orderId);
+            // Left on the queue and dropped when it comes up
+            order.cancel();
+            return true;
+        }
+    }
+
+    public StandingOrder getOrder(String orderId) {
+        return orders.get(orderId);
+    }
+
+    public int getOrderCount() {
+        return orders.size();
+    }
+
+    /**
+     * Runs every order due by {@code now} as one batch. Called by the ticker, or directly.
+     *
+     * @throws IllegalStateException if the batch cannot be logged; nothing is posted then
+     */
+    public synchronized RunReport runDue(LocalDateTime now) {
+        long started = System.nanoTime();
+        long nowMillis = toMillis(now);
+        List<StandingOrder> taken = new ArrayList<>();
+        Map<StandingOrder, long[]> positions = new HashMap<>();
+        Map<String, List<StandingOrder>> bySource = new HashMap<>();
+        Map<StandingOrder, Integer> runsOf = new HashMap<>();
+        List<String> intent = new ArrayList<>();
+        long runs = 0;
+        long missed = 0;
+        synchronized (due) {
+            while (!due.isEmpty() && due.peek().getDueMillis() <= nowMillis) {
+                StandingOrder order = due.poll();
+                if (order.isCancelled()) {
+                    continue;
+                }
+                taken.add(order);
+                positions.put(order, new long[]{order.getRunsScheduled(), order.getRunsOwed()});
+                int dueRuns = order.takeDueRuns(now);
+                int toRun = Math.min(dueRuns, maxCatchUp);
+                missed += dueRuns - toRun;
+                if (toRun > 0) {
+                    runs += toRun;
+                    runsOf.put(order, toRun);
+                    bySource.computeIfAbsent(order.getSourceAccountNumber(), k -> new ArrayList<>()).add(order);
+                }
+                intent.add(String.join(",", TAKEN, order.getOrderId(), String.valueOf(order.getRunsScheduled()),
+                        String.valueOf(toRun)));
+            }
+        }
+
+        try {
+            logRuns(intent);
+        } catch (IOException e) {
+            synchronized (due) {
+                for (StandingOrder order : taken) {
+                    long[] position = positions.get(order);
+                    order.restore(position[0], (int) position[1]);
+                    order.setDueMillis(order.getRunsOwed() > 0 ? nowMillis + 1 : toMillis(order.getNextRun()));
+                    due.add(order);
+                }
+            }
+            throw new IllegalStateException("Could not log standing order runs; none were posted", e);
+        }
+
+        long[] counts = execute(new ArrayList<>(bySource.values()), runsOf);
+
+        List<String> outcome = new ArrayList<>(taken.size());
+        synchronized (due) {
+            for (StandingOrder order : taken) {
+                outcome.add(String.join(",", DONE, order.getOrderId(), String.valueOf(order.getRunsScheduled()),
+                        String.valueOf(order.getRunsOwed())));
+                if (order.isCancelled()) {
+                    continue;
+                }
+                if (order.isFinished()) {
+                    orders.remove(order.getOrderId(), order);
+                    continue;
+                }
+                // Owed runs come up again on the next tick
+                order.setDueMillis(order.getRunsOwed() > 0 ? nowMillis + 1 : toMillis(order.getNextRun()));
+                due.add(order);
+            }
+        }
+        try {
+            logRuns(outcome);
+        } catch (IOException e) {
+            LOG.error("Could not log the outcome of standing order runs; a crash before the next save loses owed runs", e);
+        }
+        RunReport report = new RunReport(taken.size(), runs, missed, counts, System.nanoTime() - started);
+        if (missed > 0) {
+            LOG.warn("Standing orders skipped {} runs past the catch-up limit of {}", missed, maxCatchUp);
+        }
+        if (report.getDueOrders() > 0) {
+            LOG.debug("Standing orders: {}", report);
+        }
+        return report;
+    }
+
+    /**
+     * Starts the thread that runs due orders once per tick, first catching up on anything
+     * missed while the system was down.
+     */
+    public synchronized void start() {
+        if (ticker != null) {
+            return;
+        }
+        ticker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "standing-orders");
+            t.setDaemon(true);
+            return t;
+        });
+        ticker.scheduleWithFixedDelay(() -> {
+            try {
+                runDue(LocalDateTime.now());
+            } catch (RuntimeException e) {
+                LOG.error("Standing order run failed: {}", e.getMessage());
+            }
+        }, 0, TICK_SECONDS, TimeUnit.SECONDS);
+    }
+
+    public synchronized void stop() {
+        if (ticker != null) {
+            ticker.shutdownNow();
+            ticker = null;
+        }
+        if (pool != null) {
+            pool.shutdown();
+            pool = null;
+        }
+    }
+
+    /**
+     * Writes the orders to the orders file, replacing it atomically, then empties the run
+     * log it now covers.
+     *
+     * @return the number of orders written
+     * @throws IOException if the file cannot be written
+     */
+    public synchronized int saveOrders() throws IOException {
+        if (orders.isEmpty() && !Files.exists(ordersFile)) {
+            return 0;
+        }
+        Files.createDirectories(ordersFile.toAbsolutePath().getParent());
+        Path temp = ordersFile.resolveSibling(ordersFile.getFileName() + ".tmp");
+        int written = 0;
+        synchronized (logLock) {
+            try (BufferedWriter writer = Files.newBufferedWriter(temp)) {
+                // Holding the service lock, no batch is changing the schedule
+                for (StandingOrder order : orders.values()) {
+                    writer.write(format(order));
+                    writer.newLine();
+                    written++;
+                }
+            }
+            Files.move(temp, ordersFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            if (runLog != null) {
+                runLog.truncate(0);
+                runLog.force(true);
+            } else {
+                Files.deleteIfExists(runFile);
+            }
+        }
+        return written;
+    }
+
+    /**
+     * Loads the saved orders and moves them on by the runs logged since. Runs that fell due
+     * while the system was down execute on the first tick.
+     *
+     * @return the number of orders recovered
+     * @throws IOException if a file cannot be read
+     */
+    public int recoverOrders() throws IOException {
+        Map<String, StandingOrder> saved = new LinkedHashMap<>();
+        if (Files.exists(ordersFile)) {
+            for (String line : Files.readAllLines(ordersFile)) {
+                String[] fields = line.split(",", -1);
+                if (fields.length == 9 && !orders.containsKey(fields[0])) {
+                    StandingOrder order = parse(fields, 0);
+                    saved.put(order.getOrderId(), order);
+                }
+            }
+        }
+
+        Map<String, Long> inFlight = new LinkedHashMap<>();
+        if (Files.exists(runFile)) {
+            for (String line : Files.readAllLines(runFile)) {
+                String[] fields = line.split(",", -1);
+                // A torn last line is skipped
+                if (CREATED.equals(fields[0]) && fields.length == 10) {
+                    if (!orders.containsKey(fields[1])) {
+                        StandingOrder order = parse(fields, 1);
+                        saved.put(order.getOrderId(), order);
+                    }
+                    // Cancelled orders' numbers are not handed out again either
+                    orderCounter.accumulateAndGet(Long.parseLong(fields[1].substring(3)), Math::max);
+                    continue;
+                }
+                if (CANCELLED.equals(fields[0]) && fields.length == 2) {
+                    saved.remove(fields[1]);
+                    inFlight.remove(fields[1]);
+                    continue;
+                }
+                StandingOrder order = fields.length == 4 ? saved.get(fields[1]) : null;
+                if (order == null) {
+                    continue;
+                }
+                if (TAKEN.equals(fields[0])) {
+                    order.restore(Long.parseLong(fields[2]), 0);
+                    inFlight.put(order.getOrderId(), Long.parseLong(fields[3]));
+                } else if (DONE.equals(fields[0])) {
+                    order.restore(Long.parseLong(fields[2]), Integer.parseInt(fields[3]));
+                    inFlight.remove(order.getOrderId());
+                }
+            }
+        }
+        inFlight.forEach((orderId, runs) -> {
+            if (runs > 0) {
+                LOG.warn("Standing order {} had {} runs in flight when the system stopped; they are not run again, check them against the log",
+                        orderId, runs);
+            }
+        });
+
+        int recovered = 0;
+        for (StandingOrder order : saved.values()) {
+            if (order.isFinished()) {
+                continue;
+            }
+            track(order);
+            orderCounter.accumulateAndGet(Long.parseLong(order.getOrderId().substring(3)), Math::max);
+            recovered++;
+        }
+        return recovered;
+    }
+
+    // The lines are on disk when this returns
+    private void logRuns(List<String> lines) throws IOException {
+        if (lines.isEmpty()) {
+            return;
+        }
+        StringBuilder text = new StringBuilder();
+        for (String line : lines) {
+            text.append(line).append(System.lineSeparator());
+        }
+        ByteBuffer bytes = ByteBuffer.wrap(text.toString().getBytes(StandardCharsets.UTF_8));
+        synchronized (logLock) {
+            if (runLog == null) {
+                Files.createDirectories(runFile.toAbsolutePath().getParent());
+                runLog = FileChannel.open(runFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                        StandardOpenOption.APPEND);
+            }
+            while (bytes.hasRemaining()) {
+                runLog.write(bytes);
+            }
+            runLog.force(false);
+        }
+    }
+
+    // Posts each source's runs in order, one group per worker at a time
+    private long[] execute(List<List<StandingOrder>> groups, Map<StandingOrder, Integer> runsOf) {
+        long[] counts = new long[PostingResult.Status.values().length];
+        if (groups.isEmpty()) {
+            return counts;
+        }
+        int tasks = Math.min(workers, groups.size());
+        AtomicInteger nextGroup = new AtomicInteger();
+        List<Future<long[]>> helpers = new ArrayList<>(tasks - 1);
+        for (int i = 1; i < tasks; i++) {
+            helpers.add(pool().submit(() -> postGroups(groups, nextGroup, runsOf)));
+        }
+        // The ticker takes a share itself
+        add(counts, postGroups(groups, nextGroup, runsOf));
+        for (Future<long[]> helper : helpers) {
+            try {
+                add(counts, helper.get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while running standing orders", e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Standing order worker failed", e.getCause());
+            }
+        }
+        return counts;
+    }
+
+    private static long[] postGroups(List<List<StandingOrder>> groups, AtomicInteger nextGroup,
+                                     Map<StandingOrder, Integer> runsOf) {
+        AccountManager accountManager = AccountManager.getInstance();
+        long[] counts = new long[PostingResult.Status.values().length];
+        int index;
+        while ((index = nextGroup.getAndIncrement()) < groups.size()) {
+            for (StandingOrder order : groups.get(index)) {
+                int runs = runsOf.get(order);
+                for (int run = 0; run < runs; run++) {
+                    PostingResult result = accountManager.tryProcessTransaction(order.toRequest());
+                    counts[result.getStatus().ordinal()]++;
+                    if (result.getStatus() == PostingResult.Status.OVERLOADED) {
+                        order.owe(runs - run);
+                        break;
+                    }
+                    order.recordRun(result);
+                }
+            }
+        }
+        return counts;
+    }
+
+    private static void add(long[] into, long[] counts) {
+        for (int i = 0; i < into.length; i++) {
+            into[i] += counts[i];
+        }
+    }
+
+    private synchronized ExecutorService pool() {
+        if (pool == null) {
+            AtomicInteger threadNumber = new AtomicInteger();
+            pool = Executors.newFixedThreadPool(workers - 1, r -> {
+                Thread t = new Thread(r, "standing-orders-" + threadNumber.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            });
+        }
+        return pool;
+    }
+
+    // One saved order, with its schedule position; a CREATED log line carries the same fields
+    private static String format(StandingOrder order) {
+        return String.join(",", order.getOrderId(), order.getSourceAccountNumber(),
+                order.getTargetAccountNumber(), String.valueOf(order.getAmount()),
+                order.getFrequency().name(), order.getFirstRun().toString(),
+                order.getEndDate() == null ? "" : order.getEndDate().toString(),
+                String.valueOf(order.getRunsScheduled()), String.valueOf(order.getRunsOwed()));
+    }
+
+    // The order formatted at fields[from..from + 8]
+    private static StandingOrder parse(String[] fields, int from) {
+        StandingOrder order = new StandingOrder(fields[from], fields[from + 1], fields[from + 2],
+                Double.parseDouble(fields[from + 3]), StandingOrder.Frequency.valueOf(fields[from + 4]),
+                LocalDateTime.parse(fields[from + 5]),
+                fields[from + 6].isEmpty() ? null : LocalDateTime.parse(fields[from + 6]));
+        order.restore(Long.parseLong(fields[from + 7]), Integer.parseInt(fields[from + 8]));
+        return order;
+    }
+
+    private void track(StandingOrder order) {
+        orders.put(order.getOrderId(), order);
+        synchronized (due) {
+            order.setDueMillis(order.getRunsOwed() > 0 ? Long.MIN_VALUE : toMillis(order.getNextRun()));
+            due.add(order);
+        }
+    }
+
+    // Wall-clock local time as epoch millis, so due times compare like the dates they came from
+    private static long toMillis(LocalDateTime time) {
+        return time.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    // Same shape as transaction IDs: padded to three digits, plain concatenation beyond
+    private static String formatId(long id) {
+        return id >= 100 ? "STO" + id : String.format("STO%03d", id);
+    }
+}
@@ -97,9 +97,11 @@ public class StatementGenerator {
                     matchedCount++;
                     foundTransactions = true;
 
-                    if (t.getType().equalsIgnoreCase("DEPOSIT") || t.getType().equalsIgnoreCase("Transfer In")) {
+                    if (t.getType().equalsIgnoreCase("DEPOSIT") || t.getType().equalsIgnoreCase("Transfer In")
+                            || t.getType().equalsIgnoreCase("Interest")) {
                         accountDeposits += t.getAmount();
-                    } else if (t.getType().equalsIgnoreCase("WITHDRAWAL") || t.getType().equalsIgnoreCase("Transfer Out")) {
+                    } else if (t.getType().equalsIgnoreCase("WITHDRAWAL") || t.getType().equalsIgnoreCase("Transfer Out")
+                            || t.getType().equalsIgnoreCase("Fee")) {
                         accountWithdrawals += t.getAmount();
                     } else if (t.getType().equalsIgnoreCase("TRANSFER OUT")) {
                         accountTransfersOuts += t.getAmount();
@@ -229,16 +231,12 @@ public class StatementGenerator {
 
                 foundTransactions = true;
                 transactionCount++;
-
-                if (t.getType().equalsIgnoreCase("DEPOSIT") ||
-                        t.getType().equalsIgnoreCase("TRANSFER IN")) {
-                    totalDeposits += t.getAmount();
-                } else if (t.getType().equalsIgnoreCase("WITHDRAWAL") ||
-                        t.getType().equalsIgnoreCase("TRANSFER OUT")) {
-                    totalWithdrawals += t.getAmount();
-                }
             }
 
+            // Summed by the transaction manager, over the primitive columns when it has them
+            totalDeposits = transactionManager.getTotalAmount(account.getAccountNumber(), "Deposit", "Transfer In");
+            totalWithdrawals = transactionManager.getTotalAmount(account.getAccountNumber(), "Withdrawal", "Transfer Out");
+
             System.out.println("-".repeat(85));
 
             if (!foundTransactions) {
@@ -264,6 +262,32 @@ public class StatementGenerator {
         }
     }
 
+    /**
+     * Formats one account's line of a batch statement, as the end-of-day run writes them:
+     * account, holder, type, opening balance, credits, debits, closing balance and the
+     * number of postings in the period, pipe-delimited.
+     */
+    public static String formatStatementLine(Account account, long creditCents, long debitCents,
+                                             long closingCents, long postings) {
+        long openingCents = closingCents - creditCents + debitCents;
+        return String.join("|",
+                account.getAccountNumber(),
+                account.getCustomer().getName(),
+                account.getAccountType(),
+                formatCents(openingCents),
+                formatCents(creditCents),
+                formatCents(debitCents),
+                formatCents(closingCents),
+                String.valueOf(postings));
+    }
+
+    // As "%.2f" would print it, without the formatter's cost over millions of lines
+    private static String formatCents(long cents) {
+        long abs = Math.abs(cents);
+        long fraction = abs % 100;
+        return (cents < 0 ? "-" : "") + abs / 100 + (fraction < 10 ? ".0" : ".") + fraction;
+    }
+
     public static void requestAndGenerateStatement() {
         while (true) {
             System.out.println("GENERATE ACCOUNT STATEMENT");
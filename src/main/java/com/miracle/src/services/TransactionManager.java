@@ -1,19 +1,43 @@
 package com.miracle.src.services;
 
 import com.miracle.src.models.Transaction;
+import com.miracle.src.utils.CoarseClock;
+import com.miracle.src.utils.ColumnarTransactionStore;
 import com.miracle.src.utils.FileIOUtils;
 import com.miracle.src.utils.FunctionalUtils;
+import com.miracle.src.utils.PostingRing;
+import com.miracle.src.utils.TransactionAnalytics;
+import com.miracle.src.utils.Log;
 
+import java.io.IOException;
 import java.util.*;
 import java.util.stream.Collectors;
-import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.LockSupport;
 
 public class TransactionManager {
+    private static final Log LOG = Log.get(TransactionManager.class);
     private static final TransactionManager INSTANCE = new TransactionManager();
-    private static final int maxTransactions = 200;
-    private static final List<Transaction> transactions = Collections.synchronizedList(new ArrayList<>());
-    private static final List<Transaction> newTransactions = new CopyOnWriteArrayList<>();
+    // -Dbank.transaction.store=columnar keeps history in primitive columns instead of
+    // Transaction objects; at ~38 bytes a row it is not capped like the object list
+    private static final boolean columnarStore = "columnar".equalsIgnoreCase(System.getProperty("bank.transaction.store"));
+    private static final int maxTransactions = columnarStore ? Integer.MAX_VALUE : 200;
+    private static final ColumnarTransactionStore columnarHistory = columnarStore ? new ColumnarTransactionStore() : null;
+    private static final List<Transaction> transactions = Collections.synchronizedList(
+            columnarStore ? columnarHistory : new ArrayList<>());
+    // Appended at the tail, saved and removed from the head; a batch job queues millions
+    private static final Queue<Transaction> newTransactions = new ConcurrentLinkedQueue<>();
+    private static final Object saveLock = new Object();
     private static volatile boolean dataLoaded = false;
+    private static volatile boolean historyLimitReported = false;
+    // Once the history is at capacity, postings check this flag instead of taking the list lock
+    private static volatile boolean historyFull = false;
+    // Set by the first hot-path posting; until then readers skip draining the posting ring
+    private static volatile boolean postingRingStarted = false;
+    private static final Object postingRingDrainLock = new Object();
+    // Drained records on their way to the pending list; guarded by postingRingDrainLock
+    private static final List<Transaction> drainedPostings = new ArrayList<>();
+    private static final PostingRing.RecordSink drainSink = TransactionManager::acceptDrained;
 
     public static TransactionManager getInstance() {
         return INSTANCE;
@@ -28,17 +52,166 @@ public class TransactionManager {
         if (transaction == null) {
             throw new IllegalArgumentException("Transaction cannot be null");
         }
+        // Hot-path postings recorded before this one must reach the log first
+        syncPostingRing();
 
-        if (transactions.size() >= maxTransactions) {
-            System.out.println("Transaction limit reached. Dropping transaction:");
-        } else {
+        if (historyFull || !addToHistory(transaction)) {
+            if (!historyLimitReported) {
+                LOG.warn("Transaction history limit reached. Older entries remain on disk only.");
+                historyLimitReported = true;
+            }
+        }
+        // Only track as new if we've already loaded from file
+        // This prevents loaded transactions from being re-saved.
+        // The history limit only bounds memory; every posting must still reach the log.
+        if (dataLoaded) {
+            newTransactions.add(transaction);
+        }
+    }
+
+    /**
+     * Adds a batch of transactions with one history lock acquisition and one copy of the
+     * pending list, e.g. everything a posting lane produced in one drain.
+     */
+    public void addTransactions(List<Transaction> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        syncPostingRing();
+        boolean dropped = historyFull;
+        if (!dropped) {
+            synchronized (transactions) {
+                for (Transaction transaction : batch) {
+                    if (transactions.size() >= maxTransactions) {
+                        historyFull = true;
+                        dropped = true;
+                        break;
+                    }
+                    transactions.add(transaction);
+                }
+            }
+        }
+        if (dropped && !historyLimitReported) {
+            LOG.warn("Transaction history limit reached. Older entries remain on disk only.");
+            historyLimitReported = true;
+        }
+        if (dataLoaded) {
+            newTransactions.addAll(batch);
+        }
+    }
+
+    private static boolean addToHistory(Transaction transaction) {
+        synchronized (transactions) {
+            if (transactions.size() >= maxTransactions) {
+                historyFull = true;
+                return false;
+            }
+            transactions.add(transaction);
+            return true;
+        }
+    }
+
+    /**
+     * Records a hot-path posting ({@code Account.depositCents}/{@code withdrawCents}) as a
+     * row in a preallocated ring, without allocating. A background thread moves rows into
+     * the history, building Transaction objects only where the history and the pending
+     * list need them; every reader here drains the ring first, so it sees all postings
+     * recorded before the call, and so does every other posting before it is queued, so
+     * one account's transactions reach the log in the order its balance changed.
+     *
+     * @param epochNanos local wall-clock time read as UTC, as from {@link CoarseClock}
+     */
+    public void recordPosting(long id, String accountNumber, String type,
+                              long amountCents, long balanceCents, long epochNanos) {
+        if (!postingRingStarted) {
+            postingRingStarted = true;
+        }
+        PostingRingHolder.RING.append(id, accountNumber, type, amountCents, balanceCents, epochNanos);
+    }
+
+    /**
+     * Moves every hot-path posting recorded so far into the history.
+     */
+    public static void syncPostingRing() {
+        if (postingRingStarted) {
+            drainPostingRing(true);
+        }
+    }
+
+    /**
+     * @return the number of records drained when not draining all, otherwise 0
+     */
+    private static int drainPostingRing(boolean all) {
+        synchronized (postingRingDrainLock) {
+            int drained = 0;
             synchronized (transactions) {
+                if (all) {
+                    PostingRingHolder.RING.drainAll(drainSink);
+                } else {
+                    drained = PostingRingHolder.RING.drain(drainSink);
+                }
+            }
+            if (!drainedPostings.isEmpty()) {
+                newTransactions.addAll(drainedPostings);
+                drainedPostings.clear();
+            }
+            return drained;
+        }
+    }
+
+    // Runs under both drain locks
+    private static void acceptDrained(long id, String accountNumber, String type,
+                                      long amountCents, long balanceCents, long epochNanos) {
+        Transaction transaction = null;
+        if (!historyFull) {
+            if (transactions.size() >= maxTransactions) {
+                historyFull = true;
+            } else if (columnarHistory != null) {
+                columnarHistory.appendRow(id, accountNumber, type, amountCents, balanceCents, epochNanos);
+            } else {
+                transaction = toTransaction(id, accountNumber, type, amountCents, balanceCents, epochNanos);
                 transactions.add(transaction);
             }
-            // Only track as new if we've already loaded from file
-            // This prevents loaded transactions from being re-saved
-            if (dataLoaded) {
-                newTransactions.add(transaction);
+        }
+        if (historyFull && !historyLimitReported) {
+            LOG.warn("Transaction history limit reached. Older entries remain on disk only.");
+            historyLimitReported = true;
+        }
+        if (dataLoaded) {
+            drainedPostings.add(transaction != null ? transaction
+                    : toTransaction(id, accountNumber, type, amountCents, balanceCents, epochNanos));
+        }
+    }
+
+    private static Transaction toTransaction(long id, String accountNumber, String type,
+                                             long amountCents, long balanceCents, long epochNanos) {
+        return new Transaction(Transaction.formatId(id), accountNumber, type,
+                amountCents / 100.0, balanceCents / 100.0, CoarseClock.toDateTime(epochNanos));
+    }
+
+    /**
+     * The ring and its drainer start on the first hot-path posting.
+     */
+    private static final class PostingRingHolder {
+        private static final long IDLE_PARK_NANOS = 200_000;
+        static final PostingRing RING = new PostingRing(Integer.getInteger("bank.posting.ring.size", 1 << 16));
+
+        static {
+            Thread drainer = new Thread(PostingRingHolder::drainLoop, "posting-ring-drain");
+            drainer.setDaemon(true);
+            drainer.start();
+        }
+
+        private static void drainLoop() {
+            while (true) {
+                try {
+                    if (drainPostingRing(false) == 0) {
+                        LockSupport.parkNanos(IDLE_PARK_NANOS);
+                    }
+                } catch (RuntimeException e) {
+                    LOG.error("Posting ring drain failed: {}", e.getMessage());
+                    LockSupport.parkNanos(IDLE_PARK_NANOS);
+                }
             }
         }
     }
@@ -65,6 +238,7 @@ public class TransactionManager {
             return Collections.emptyList();
         }
 
+        syncPostingRing();
         String normalizedType = type.trim().toUpperCase();
         return transactions.stream()
                 .filter(t -> t != null && t.getType() != null)
@@ -74,6 +248,7 @@ public class TransactionManager {
 
 
     public List<Transaction> getTransactionsByAccount(String accountNumber) {
+        syncPostingRing();
         return transactions.stream()
                 .filter(Objects::nonNull)
                 .filter(t -> t.getAccountNumber().equalsIgnoreCase(accountNumber))
@@ -82,21 +257,25 @@ public class TransactionManager {
 
 
     public void sortTransactionsByAmount() {
+        syncPostingRing();
         FunctionalUtils.sortTransactionsByAmount(transactions);
     }
 
 
     public List<Transaction> sortTransactionsByDate() {
+        syncPostingRing();
         return FunctionalUtils.sortTransactionsByDate(transactions);
     }
 
 
     public List<Transaction> sorTransactionsByID(){
+        syncPostingRing();
         return FunctionalUtils.sortTransactionsByIdDescending(transactions);
     }
 
 
     public Transaction getTransaction(int index) {
+        syncPostingRing();
         if (index < 0 || index >= transactions.size()) {
             throw new IndexOutOfBoundsException("Invalid transaction index: " + index);
         }
@@ -104,19 +283,81 @@ public class TransactionManager {
     }
 
     public int getTransactionCount() {
+        syncPostingRing();
         return transactions.size();
     }
 
+    /**
+     * Whether the history is kept in primitive columns, uncapped, rather than as a capped
+     * list of Transaction objects.
+     */
+    public static boolean isColumnarStore() {
+        return columnarStore;
+    }
+
+    /**
+     * Whether the in-memory history has reached its capacity.
+     */
+    public boolean isFull() {
+        syncPostingRing();
+        return transactions.size() >= maxTransactions;
+    }
+
 
     /**
      * Groups transactions by their type (DEPOSIT, WITHDRAWAL, TRANSFER)
      * @return A Map where the key is the transaction type and the value is a list of transactions of that type
      */
     public Map<String, List<Transaction>> groupTransactionsByType() {
+        syncPostingRing();
         return transactions.stream()
                 .collect(Collectors.groupingBy(Transaction::getType));
     }
 
+    /**
+     * Total amount per transaction type. With the columnar store this runs on the amount
+     * and type columns without building Transaction objects.
+     */
+    public Map<String, Double> totalAmountByType() {
+        syncPostingRing();
+        if (columnarHistory != null) {
+            Map<String, Double> totals = new LinkedHashMap<>();
+            synchronized (transactions) {
+                TransactionAnalytics.totalsByType(columnarHistory).forEach((type, cents) -> totals.put(type, cents / 100.0));
+            }
+            return totals;
+        }
+        synchronized (transactions) {
+            return transactions.stream()
+                    .collect(Collectors.groupingBy(Transaction::getType, LinkedHashMap::new,
+                            Collectors.summingDouble(Transaction::getAmount)));
+        }
+    }
+
+    /**
+     * Total amount of an account's transactions of the given types.
+     */
+    public double getTotalAmount(String accountNumber, String... types) {
+        syncPostingRing();
+        if (columnarHistory != null) {
+            long cents = 0;
+            synchronized (transactions) {
+                for (String type : types) {
+                    cents += TransactionAnalytics.sumAmountCents(columnarHistory, accountNumber, type);
+                }
+            }
+            return cents / 100.0;
+        }
+        Set<String> wanted = Arrays.stream(types).map(String::toUpperCase).collect(Collectors.toSet());
+        synchronized (transactions) {
+            return transactions.stream()
+                    .filter(t -> t != null && t.getAccountNumber().equalsIgnoreCase(accountNumber))
+                    .filter(t -> wanted.contains(t.getType().toUpperCase()))
+                    .mapToDouble(Transaction::getAmount)
+                    .sum();
+        }
+    }
+
     // Lifecycle persistence: load on start, save on exit
     public static void loadTransactionsOnStart() {
         try {
@@ -135,36 +376,70 @@ public class TransactionManager {
             dataLoaded = true; // Mark that loading is complete
             System.out.println("Transaction data loaded. Total transactions in memory: " + transactions.size());
         } catch (Exception e) {
-            System.err.println("Failed to load transactions: " + e.getMessage());
+            LOG.error("Failed to load transactions: {}", e.getMessage());
             dataLoaded = true; // Still set to true so new transactions get tracked
         }
     }
 
+    /**
+     * Marks startup loading as complete so later postings are tracked for saving.
+     */
+    public static void markDataLoaded() {
+        dataLoaded = true;
+    }
+
     public  List<Transaction> getAllTransactions() {
+        syncPostingRing();
         return transactions;
     }
 
     public void saveTransactionsOnExit() {
         try {
-            if (newTransactions.isEmpty()) {
-                System.out.println("No new transactions to save.");
-                return;
-            }
+            flushPendingTransactions();
+        } catch (IOException e) {
+            // Still pending, so the next save writes them
+            LOG.error("Error saving transactions: {}", e);
+        }
+    }
+
+    /**
+     * Appends the postings not yet in the log. They stay pending until the append
+     * succeeds, so a failed flush loses nothing and the next one writes them.
+     *
+     * @throws IOException if the log append fails
+     */
+    public void flushPendingTransactions() throws IOException {
+        syncPostingRing();
+        if (newTransactions.isEmpty()) {
+            LOG.debug("No new transactions to save.");
+            return;
+        }
+        // One save at a time, so no two callers write the same postings
+        synchronized (saveLock) {
             // Take a snapshot to minimize lock contention while writing to disk
             List<Transaction> snapshot = new ArrayList<>(newTransactions);
             FileIOUtils.saveTransactionsToFile(snapshot);
-            // Only clear after successful save
-            newTransactions.clear();
-        } catch (Exception e) {
-            System.err.println(" error saving transactions: " + e.getMessage());
-            e.printStackTrace();
+            // Only drop what was written, the head of the queue; postings may have arrived while saving
+            for (int i = 0; i < snapshot.size(); i++) {
+                newTransactions.poll();
+            }
         }
     }
 
+    /**
+     * Writes postings not yet in the log before a reader depends on the log being complete,
+     * such as a snapshot, a reconciliation or an end-of-day stage.
+     */
+    @FunctionalInterface
+    public interface PendingFlush {
+        void flush() throws IOException;
+    }
+
     /**
      * Gets the count of new transactions that will be saved on exit
      */
     public int getNewTransactionCount() {
+        syncPostingRing();
         return newTransactions.size();
     }
 }
\ No newline at end of file
@@ -0,0 +1,210 @@
+package com.miracle.src.utils;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.BiConsumer;
+
+/**
+ * Lookup by the numeric part of account numbers of the form {@code ACC%03d}, with no
+ * String hashing or boxing.
+ * <p>
+ * Generated numbers are sequential, so most land in a dense array indexed by the number
+ * itself; numbers too far past the dense range go to an int-keyed open-addressing table.
+ * Numbers of any other form are not indexed: {@link #parse} returns -1 and callers keep
+ * them in their string map. Reads are lock-free; writes are serialized, and an entry
+ * becomes visible to readers only after its value is fully published. A read racing with
+ * the dense array's growth can miss an entry being moved, so the index is an accelerator
+ * in front of an authoritative map: callers treat a miss as "look it up there". Entries
+ * are never removed.
+ * </p>
+ *
+ * @param <V> the value type, e.g. Account
+ */
+public final class AccountIndex<V> {
+
+    private static final int MIN_DENSE = 1024;
+    private static final int EMPTY = -1;
+
+    private volatile AtomicReferenceArray<V> dense = new AtomicReferenceArray<>(MIN_DENSE);
+    private volatile SparseTable<V> sparse = new SparseTable<>(16);
+    private int size;
+
+    /**
+     * Gets the number in an account number of the usual form, or -1 for any other form.
+     * Zero padding beyond three digits is rejected so that each number has one spelling.
+     */
+    public static int parse(String accountNumber) {
+        if (accountNumber == null) {
+            return -1;
+        }
+        int length = accountNumber.length();
+        if (length < 6 || length > 13 || !accountNumber.startsWith("ACC")
+                || (length > 6 && accountNumber.charAt(3) == '0')) {
+            return -1;
+        }
+        long value = 0;
+        for (int i = 3; i < length; i++) {
+            char c = accountNumber.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value <= Integer.MAX_VALUE ? (int) value : -1;
+    }
+
+    public V get(int id) {
+        if (id < 0) {
+            return null;
+        }
+        AtomicReferenceArray<V> array = dense;
+        if (id < array.length()) {
+            return array.get(id);
+        }
+        return sparse.get(id);
+    }
+
+    /**
+     * Indexes a value under a non-negative number, replacing any earlier value.
+     */
+    public synchronized void put(int id, V value) {
+        if (id < 0) {
+            throw new IllegalArgumentException("Account id must be non-negative: " + id);
+        }
+        if (id >= dense.length() && id < 2L * Math.max(size, MIN_DENSE)) {
+            growDense(id);
+        }
+        AtomicReferenceArray<V> array = dense;
+        if (id < array.length()) {
+            if (array.getAndSet(id, value) == null) {
+                size++;
+            }
+            return;
+        }
+        if (sparse.put(id, value)) {
+            size++;
+            if (sparse.isOverloaded()) {
+                sparse = sparse.resized();
+            }
+        }
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Approximate heap held by the index structures, excluding the values.
+     */
+    public long estimatedBytes() {
+        return 16L + 4L * dense.length() + sparse.estimatedBytes();
+    }
+
+    private void growDense(int id) {
+        AtomicReferenceArray<V> old = dense;
+        int capacity = id >= 1 << 30 ? Integer.MAX_VALUE - 8 : Integer.highestOneBit(id) * 2;
+        AtomicReferenceArray<V> grown = new AtomicReferenceArray<>(capacity);
+        for (int i = 0; i < old.length(); i++) {
+            grown.set(i, old.get(i));
+        }
+        // Sparse entries now inside the dense range move over; the old table keeps
+        // serving them until the new array is published
+        SparseTable<V> remaining = new SparseTable<>(sparse.capacity());
+        sparse.forEach((key, value) -> {
+            if (key < capacity) {
+                grown.set(key, value);
+            } else {
+                remaining.put(key, value);
+            }
+        });
+        dense = grown;
+        sparse = remaining;
+    }
+
+    /**
+     * Linear-probing table from non-negative int keys to values. A slot's value is
+     * written before its key, so a reader that finds the key also finds the value.
+     */
+    private static final class SparseTable<V> {
+        private final AtomicIntegerArray keys;
+        private final AtomicReferenceArray<V> values;
+        private final int mask;
+        // 32 - log2(capacity): slotOf keeps the top bits of the product
+        private final int shift;
+        private int count;
+
+        SparseTable(int capacity) {
+            keys = new AtomicIntegerArray(capacity);
+            for (int i = 0; i < capacity; i++) {
+                keys.set(i, EMPTY);
+            }
+            values = new AtomicReferenceArray<>(capacity);
+            mask = capacity - 1;
+            shift = Integer.numberOfLeadingZeros(capacity) + 1;
+        }
+
+        int capacity() {
+            return mask + 1;
+        }
+
+        V get(int key) {
+            for (int slot = slotOf(key); ; slot = (slot + 1) & mask) {
+                int found = keys.get(slot);
+                if (found == key) {
+                    return values.get(slot);
+                }
+                if (found == EMPTY) {
+                    return null;
+                }
+            }
+        }
+
+        /**
+         * @return true if the key was not present before
+         */
+        boolean put(int key, V value) {
+            for (int slot = slotOf(key); ; slot = (slot + 1) & mask) {
+                int found = keys.get(slot);
+                if (found == key) {
+                    values.set(slot, value);
+                    return false;
+                }
+                if (found == EMPTY) {
+                    values.set(slot, value);
+                    keys.set(slot, key);
+                    count++;
+                    return true;
+                }
+            }
+        }
+
+        boolean isOverloaded() {
+            return count * 4 >= capacity() * 3;
+        }
+
+        SparseTable<V> resized() {
+            SparseTable<V> table = new SparseTable<>(capacity() * 2);
+            forEach(table::put);
+            return table;
+        }
+
+        void forEach(BiConsumer<Integer, V> action) {
+            for (int slot = 0; slot <= mask; slot++) {
+                int key = keys.get(slot);
+                if (key != EMPTY) {
+                    action.accept(key, values.get(slot));
+                }
+            }
+        }
+
+        long estimatedBytes() {
+            return 32L + 8L * capacity();
+        }
+
+        private int slotOf(int key) {
+            // Fibonacci hashing: the high bits of the product mix every bit of the key, so
+            // sequential account numbers spread across the table
+            return (key * 0x9E3779B9) >>> shift;
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.miracle.src.utils;
+
+/**
+ * Aggregation loops over primitive transaction columns. Every method reads the first
+ * {@code length} entries of its arrays; amounts are in cents and times in epoch nanoseconds.
+ * <p>
+ * {@link TransactionAnalytics} picks the implementation: SIMD when the
+ * {@code jdk.incubator.vector} module is present, plain loops otherwise.
+ * </p>
+ */
+public interface AggregationKernels {
+
+    long sum(long[] values, int length);
+
+    /** Smallest value, or {@link Long#MAX_VALUE} when length is 0. */
+    long min(long[] values, int length);
+
+    /** Largest value, or {@link Long#MIN_VALUE} when length is 0. */
+    long max(long[] values, int length);
+
+    /** Sums values whose type code equals {@code type}. */
+    long sumWhereType(byte[] types, byte type, long[] values, int length);
+
+    int countWhereType(byte[] types, byte type, int length);
+
+    /** Sums values whose time lies in [from, to). */
+    long sumInRange(long[] times, long from, long to, long[] values, int length);
+
+    int countInRange(long[] times, long from, long to, int length);
+
+    /** Sums values whose account code equals {@code account} and type code equals {@code type}. */
+    long sumWhereAccountAndType(int[] accounts, int account, byte[] types, byte type, long[] values, int length);
+}
@@ -0,0 +1,50 @@
+package com.miracle.src.utils;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+/**
+ * Allocation-free timestamps for the posting hot path.
+ * <p>
+ * {@link LocalDateTime#now()} builds several objects per call. This reads the millisecond
+ * wall clock and applies the local UTC offset, which is looked up again only once a minute
+ * so offset changes are picked up within that time. Precision is one millisecond.
+ * </p>
+ */
+public final class CoarseClock {
+
+    private static final long OFFSET_REFRESH_MILLIS = 60_000;
+
+    private static volatile long offsetMillis;
+    private static volatile long offsetValidUntil;
+
+    private CoarseClock() {}
+
+    /**
+     * Current local wall-clock time as epoch nanoseconds read as UTC, the timestamp form of
+     * {@link ColumnarTransactionStore} and {@link PostingRing}.
+     */
+    public static long localEpochNanos() {
+        long now = System.currentTimeMillis();
+        if (now >= offsetValidUntil) {
+            refreshOffset(now);
+        }
+        return (now + offsetMillis) * 1_000_000L;
+    }
+
+    public static LocalDateTime toDateTime(long epochNanos) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(epochNanos, 1_000_000_000L),
+                (int) Math.floorMod(epochNanos, 1_000_000_000L), ZoneOffset.UTC);
+    }
+
+    private static synchronized void refreshOffset(long now) {
+        if (now < offsetValidUntil) {
+            return;
+        }
+        int seconds = ZoneId.systemDefault().getRules().getOffset(Instant.ofEpochMilli(now)).getTotalSeconds();
+        offsetMillis = seconds * 1000L;
+        offsetValidUntil = now + OFFSET_REFRESH_MILLIS;
+    }
+}
@@ -0,0 +1,331 @@
+package com.miracle.src.utils;
+
+import com.miracle.src.models.Transaction;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In-memory transaction history stored column by column instead of one object per record.
+ * <p>
+ * Each transaction occupies one row across primitive columns: the numeric transaction ID,
+ * amount and balance in cents, the timestamp as epoch nanoseconds (local wall-clock time
+ * read as UTC), an {@code int} dictionary code for the account number and a {@code byte}
+ * code for the type. Columns grow in fixed-size chunks, so appending never copies existing
+ * rows. That is roughly 38 bytes per transaction against about 225 for a {@link Transaction}
+ * with its ID string and {@link LocalDateTime}.
+ * </p>
+ * <p>
+ * As a {@link List} the store hands out {@link Transaction} views built on demand; they are
+ * copies, so setters on a view do not write back (use {@link #set} instead). Amounts are
+ * kept to the cent, the same precision the transaction log stores. Like {@link ArrayList}
+ * the store is not synchronized; wrap it for shared use.
+ * </p>
+ */
+public final class ColumnarTransactionStore extends AbstractList<Transaction> {
+
+    private static final int CHUNK_SHIFT = 14;
+    private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    /** ID column value for IDs that are not of the usual TXN%03d form. */
+    private static final long IRREGULAR_ID = -1L;
+
+    private long[][] ids = new long[0][];
+    private long[][] amountCents = new long[0][];
+    private long[][] balanceCents = new long[0][];
+    private long[][] epochNanos = new long[0][];
+    private int[][] accountCodes = new int[0][];
+    private byte[][] typeCodes = new byte[0][];
+    private int chunkCount;
+    private int size;
+
+    private final List<String> accounts = new ArrayList<>();
+    private final Map<String, Integer> accountIndex = new HashMap<>();
+    private final List<String> types = new ArrayList<>();
+    private final Map<String, Integer> typeIndex = new HashMap<>();
+    private final Map<Integer, String> irregularIds = new HashMap<>();
+
+    @Override
+    public boolean add(Transaction transaction) {
+        if (size == chunkCount << CHUNK_SHIFT) {
+            addChunk();
+        }
+        write(size, transaction);
+        size++;
+        modCount++;
+        return true;
+    }
+
+    /**
+     * Appends a row from its column values without going through a {@link Transaction},
+     * e.g. when draining a {@link PostingRing}.
+     *
+     * @param id the transaction number, as from {@link Transaction#nextId()}
+     * @param epochNanos local wall-clock time read as UTC, as from {@link CoarseClock}
+     */
+    public void appendRow(long id, String accountNumber, String type, long amountCents, long balanceCents, long epochNanos) {
+        if (size == chunkCount << CHUNK_SHIFT) {
+            addChunk();
+        }
+        int chunk = size >>> CHUNK_SHIFT;
+        int row = size & CHUNK_MASK;
+        ids[chunk][row] = id;
+        this.amountCents[chunk][row] = amountCents;
+        this.balanceCents[chunk][row] = balanceCents;
+        this.epochNanos[chunk][row] = epochNanos;
+        accountCodes[chunk][row] = encode(accountNumber, accounts, accountIndex);
+        typeCodes[chunk][row] = encodeType(type);
+        size++;
+        modCount++;
+    }
+
+    @Override
+    public Transaction get(int index) {
+        checkIndex(index);
+        int chunk = index >>> CHUNK_SHIFT;
+        int row = index & CHUNK_MASK;
+        return new Transaction(
+                transactionId(index),
+                accounts.get(accountCodes[chunk][row]),
+                types.get(typeCodes[chunk][row]),
+                centsToDouble(amountCents[chunk][row]),
+                centsToDouble(balanceCents[chunk][row]),
+                CoarseClock.toDateTime(epochNanos[chunk][row]));
+    }
+
+    /**
+     * Overwrites a row; this is how sorting in place works over the columns.
+     */
+    @Override
+    public Transaction set(int index, Transaction transaction) {
+        Transaction previous = get(index);
+        irregularIds.remove(index);
+        write(index, transaction);
+        return previous;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Rows are append-only, so only a trailing range can be removed (e.g. through
+     * {@code subList(from, size()).clear()}); chunks stay allocated for reuse.
+     */
+    @Override
+    protected void removeRange(int fromIndex, int toIndex) {
+        if (toIndex != size) {
+            throw new UnsupportedOperationException("Only trailing rows can be removed");
+        }
+        for (int index = fromIndex; index < toIndex; index++) {
+            irregularIds.remove(index);
+        }
+        size = fromIndex;
+        modCount++;
+    }
+
+    // Column access for scans that should not build views
+
+    public long amountCents(int index) {
+        checkIndex(index);
+        return amountCents[index >>> CHUNK_SHIFT][index & CHUNK_MASK];
+    }
+
+    public long balanceCents(int index) {
+        checkIndex(index);
+        return balanceCents[index >>> CHUNK_SHIFT][index & CHUNK_MASK];
+    }
+
+    public long epochNanos(int index) {
+        checkIndex(index);
+        return epochNanos[index >>> CHUNK_SHIFT][index & CHUNK_MASK];
+    }
+
+    public int accountCode(int index) {
+        checkIndex(index);
+        return accountCodes[index >>> CHUNK_SHIFT][index & CHUNK_MASK];
+    }
+
+    public byte typeCode(int index) {
+        checkIndex(index);
+        return typeCodes[index >>> CHUNK_SHIFT][index & CHUNK_MASK];
+    }
+
+    /**
+     * Gets the dictionary code of an account number, or -1 if no row references it.
+     */
+    public int accountCodeOf(String accountNumber) {
+        Integer code = accountIndex.get(accountNumber);
+        return code == null ? -1 : code;
+    }
+
+    /**
+     * Gets the code of a transaction type, or -1 if no row has that type.
+     */
+    public int typeCodeOf(String type) {
+        Integer code = typeIndex.get(type);
+        return code == null ? -1 : code;
+    }
+
+    public String accountOf(int code) {
+        return accounts.get(code);
+    }
+
+    public String typeOf(int code) {
+        return types.get(code);
+    }
+
+    public int typeCount() {
+        return types.size();
+    }
+
+    // Whole chunks, for the analytics kernels in this package. Only the first
+    // rowsInChunk(chunk) entries of a chunk are rows.
+
+    int chunkCount() {
+        return chunkCount;
+    }
+
+    int rowsInChunk(int chunk) {
+        return Math.min(CHUNK_SIZE, size - (chunk << CHUNK_SHIFT));
+    }
+
+    long[] amountChunk(int chunk) {
+        return amountCents[chunk];
+    }
+
+    long[] epochNanosChunk(int chunk) {
+        return epochNanos[chunk];
+    }
+
+    int[] accountChunk(int chunk) {
+        return accountCodes[chunk];
+    }
+
+    byte[] typeChunk(int chunk) {
+        return typeCodes[chunk];
+    }
+
+    /**
+     * Estimates the heap held by the columns and dictionaries, for footprint reporting.
+     *
+     * @return approximate bytes, counting allocated chunk capacity
+     */
+    public long estimatedBytes() {
+        long rows = (long) chunkCount << CHUNK_SHIFT;
+        long columns = rows * (4 * Long.BYTES + Integer.BYTES + Byte.BYTES);
+        // Dictionary entries: the string plus map node and list slot, about 100 bytes each
+        long dictionaries = (long) (accounts.size() + types.size() + irregularIds.size()) * 100;
+        return columns + dictionaries;
+    }
+
+    private void write(int index, Transaction transaction) {
+        int chunk = index >>> CHUNK_SHIFT;
+        int row = index & CHUNK_MASK;
+        long id = numericId(transaction.getTransactionId());
+        if (id == IRREGULAR_ID) {
+            irregularIds.put(index, transaction.getTransactionId());
+        }
+        ids[chunk][row] = id;
+        amountCents[chunk][row] = toCents(transaction.getAmount());
+        balanceCents[chunk][row] = toCents(transaction.getBalanceAfter());
+        epochNanos[chunk][row] = toEpochNanos(transaction.getTimestamp());
+        accountCodes[chunk][row] = encode(transaction.getAccountNumber(), accounts, accountIndex);
+        typeCodes[chunk][row] = encodeType(transaction.getType());
+    }
+
+    private byte encodeType(String type) {
+        int code = encode(type, types, typeIndex);
+        if (code > Byte.MAX_VALUE) {
+            throw new IllegalStateException("Too many distinct transaction types: " + type);
+        }
+        return (byte) code;
+    }
+
+    private void addChunk() {
+        if (chunkCount == ids.length) {
+            // Only the chunk directories are copied; rows never move once written
+            int capacity = Math.max(4, chunkCount * 2);
+            ids = Arrays.copyOf(ids, capacity);
+            amountCents = Arrays.copyOf(amountCents, capacity);
+            balanceCents = Arrays.copyOf(balanceCents, capacity);
+            epochNanos = Arrays.copyOf(epochNanos, capacity);
+            accountCodes = Arrays.copyOf(accountCodes, capacity);
+            typeCodes = Arrays.copyOf(typeCodes, capacity);
+        }
+        ids[chunkCount] = new long[CHUNK_SIZE];
+        amountCents[chunkCount] = new long[CHUNK_SIZE];
+        balanceCents[chunkCount] = new long[CHUNK_SIZE];
+        epochNanos[chunkCount] = new long[CHUNK_SIZE];
+        accountCodes[chunkCount] = new int[CHUNK_SIZE];
+        typeCodes[chunkCount] = new byte[CHUNK_SIZE];
+        chunkCount++;
+    }
+
+    private String transactionId(int index) {
+        long id = ids[index >>> CHUNK_SHIFT][index & CHUNK_MASK];
+        if (id == IRREGULAR_ID) {
+            return irregularIds.get(index);
+        }
+        return Transaction.formatId(id);
+    }
+
+    /**
+     * Gets the number in an ID of the form the Transaction constructor generates
+     * (TXN%03d), or {@link #IRREGULAR_ID} for any other ID so it is kept verbatim.
+     */
+    private static long numericId(String id) {
+        if (id == null || id.length() < 6 || id.length() > 21 || !id.startsWith("TXN")) {
+            return IRREGULAR_ID;
+        }
+        // Padding beyond three digits would not survive the round trip through %03d
+        if (id.length() > 6 && id.charAt(3) == '0') {
+            return IRREGULAR_ID;
+        }
+        long value = 0;
+        for (int i = 3; i < id.length(); i++) {
+            char c = id.charAt(i);
+            if (c < '0' || c > '9') {
+                return IRREGULAR_ID;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value < 0 ? IRREGULAR_ID : value;
+    }
+
+    private static int encode(String value, List<String> values, Map<String, Integer> index) {
+        Integer code = index.get(value);
+        if (code == null) {
+            code = values.size();
+            values.add(value);
+            index.put(value, code);
+        }
+        return code;
+    }
+
+    private static long toCents(double amount) {
+        return Math.round(amount * 100);
+    }
+
+    private static double centsToDouble(long cents) {
+        return cents / 100.0;
+    }
+
+    static long toEpochNanos(LocalDateTime timestamp) {
+        return timestamp.toEpochSecond(ZoneOffset.UTC) * 1_000_000_000L + timestamp.getNano();
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Invalid transaction index: " + index);
+        }
+    }
+}
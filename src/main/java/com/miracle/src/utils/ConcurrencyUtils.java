@@ -9,6 +9,7 @@ import java.util.stream.IntStream;
 import java.util.concurrent.atomic.AtomicInteger;
 
 public class ConcurrencyUtils {
+    private static final Log LOG = Log.get(ConcurrencyUtils.class);
 
     // Defines the batch size (number of transactions to simulate)
     private static final int TRANSACTION_COUNT = 10;
@@ -46,17 +47,17 @@ public class ConcurrencyUtils {
                 Future<?> future = executor.submit(() -> {
                     try {
                         // Deposit
-                        System.out.println("Thread-" + threadNum + ": Depositing $" + (int)transactionAmount + " to " + accountNumber);
+                        LOG.info("Thread-{}: Depositing ${} to {}", threadNum, (int) transactionAmount, accountNumber);
                         account.deposit(transactionAmount);
 
                         // Withdraw
-                        System.out.println("Thread-" + threadNum + ": Withdrawing $" + (int)transactionAmount + " from " + accountNumber);
+                        LOG.info("Thread-{}: Withdrawing ${} from {}", threadNum, (int) transactionAmount, accountNumber);
                         account.withdraw(transactionAmount);
 
                         successfulOps.incrementAndGet();
                     } catch (Exception e) {
                         failedOps.incrementAndGet();
-                        System.err.println("Thread-" + threadNum + " - Operation failed: " + e.getMessage());
+                        LOG.error("Thread-{} - Operation failed: {}", threadNum, e.getMessage());
                     }
                 });
                 futures.add(future);
@@ -67,7 +68,7 @@ public class ConcurrencyUtils {
                 try {
                     future.get(); // Wait for this task to complete
                 } catch (InterruptedException | ExecutionException e) {
-                    System.err.println("Error waiting for task completion: " + e.getMessage());
+                    LOG.error("Error waiting for task completion: {}", e.getMessage());
                 }
             }
 
@@ -81,7 +82,8 @@ public class ConcurrencyUtils {
                 executor.shutdownNow();
             }
 
-            // Print results
+            // Print results once the workers' log lines are out
+            Log.flush();
             System.out.println("\n√ Thread-safe operations completed successfully.");
             System.out.printf("Final Balance for %s: $%,.2f%n", accountNumber, account.getBalance());
 
@@ -2,15 +2,21 @@ package com.miracle.src.utils;
 
 import com.miracle.src.models.*;
 import com.miracle.src.services.AccountManager;
+import com.miracle.src.services.JournalService;
 import com.miracle.src.services.TransactionManager;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardOpenOption;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 import static com.miracle.src.models.Transaction.TIMESTAMP_FORMATTER;
@@ -19,10 +25,18 @@ import static com.miracle.src.models.Transaction.TIMESTAMP_FORMATTER;
  * The type File io utils.
  */
 public class FileIOUtils {
-    private static final String DATA_DIR = "src/main/java/com/miracle/data";
+    private static final Log LOG = Log.get(FileIOUtils.class);
+
+    // Overridable with -Dbank.data.dir so benchmarks and harnesses can point at a scratch store
+    private static final String DATA_DIR = System.getProperty("bank.data.dir", "src/main/java/com/miracle/data");
 
     private static final AccountManager accountManager = AccountManager.getInstance();
 
+    // One parser per thread; its field slots are reused for every record
+    private static final ThreadLocal<RecordParser> PARSER = ThreadLocal.withInitial(RecordParser::new);
+    private static final String[] TRANSACTION_TYPES = {"Deposit", "Withdrawal", "Transfer Out", "Transfer In", "Fee", "Interest"};
+    private static final int READ_BUFFER_SIZE = 1 << 16;
+
 
     private static final String ACCOUNTS_FILE_NAME = "accounts.txt";
     private static final String TRANSACTIONS_FILE_NAME = "transactions.txt";
@@ -31,6 +45,16 @@ public class FileIOUtils {
     private static final Path accountFile = Paths.get(DATA_DIR, ACCOUNTS_FILE_NAME);
     private static final Path transactionFile = Paths.get(DATA_DIR, TRANSACTIONS_FILE_NAME);
 
+    // transactions.txt is the active segment; sealed segments live under data/segments
+    private static final TransactionSegmentStore transactionStore = new TransactionSegmentStore(
+            transactionFile,
+            Paths.get(DATA_DIR, "segments"),
+            Long.getLong("bank.segment.max.bytes", TransactionSegmentStore.DEFAULT_MAX_SEGMENT_BYTES),
+            Boolean.getBoolean("bank.segment.compress")
+    );
+    // Keeps the journal in log order: each batch is journaled before the next is appended
+    private static final Object APPEND_LOCK = new Object();
+
 
     /**
      * Save accounts to file.
@@ -53,7 +77,7 @@ public class FileIOUtils {
             );
             System.out.println("Successfully saved " + lines.size() + " new account" + (lines.size() == 1 ? "." : "s."));
         } catch (IOException e) {
-            System.err.println("Failed to append accounts to file: " + e.getMessage());
+            LOG.error("Failed to append accounts to file: {}", e.getMessage());
         }
     }
 
@@ -65,7 +89,7 @@ public class FileIOUtils {
      */
     public static List<String> readAccountsFromFile() {
         if (Files.notExists(accountFile)) {
-            System.err.println("Account file does not exist: " + accountFile);
+            LOG.warn("Account file does not exist: {}", accountFile);
             return List.of();
         }
 
@@ -82,22 +106,24 @@ public class FileIOUtils {
 
             int loadedCount = 0;
 
+            // Each line is scanned once; the account number check reuses the parsed fields
+            RecordParser parser = new RecordParser();
             for (String line : lines) {
-                String accountNumber = extractAccountNumber(line);
-                if (accountNumber != null) {
-                    if (existingAccountNumbers.contains(accountNumber)) {
-                        continue;
-                    }
-                    parseAccount(line);
-                    loadedAccounts.add(line);
-                    loadedCount++;
+                if (parser.parse(line) == 0) {
+                    continue;
                 }
+                if (existingAccountNumbers.contains(parser.field(0))) {
+                    continue;
+                }
+                parseAccount(parser);
+                loadedAccounts.add(line);
+                loadedCount++;
             }
 
             System.out.printf(loadedCount + " accounts loaded successfully from accounts.txt.\n");
 
         } catch (IOException e) {
-            System.err.println("Failed to load accounts from file: " + e.getMessage());
+            LOG.error("Failed to load accounts from file: {}", e.getMessage());
         }
         return loadedAccounts;
     }
@@ -106,15 +132,6 @@ public class FileIOUtils {
 
 
 
-    private static String extractAccountNumber(String line) {
-        if (line == null || line.trim().isEmpty()) {
-            return null;
-        }
-        String[] parts = line.split("\\|");
-        return (parts.length > 0) ? parts[0].trim() : null;
-    }
-
-
     /**
      * Deserialize transactions.
      *
@@ -122,16 +139,28 @@ public class FileIOUtils {
      * @return the transaction
      */
     public static Transaction deserializeTransaction(String line) {
-        if (line == null || line.trim().isEmpty()) return null;
-        String[] parts = line.split("\\|");
-        if (parts.length < 6) return null;
-        String id = parts[0].trim();
-        String accNo = parts[1].trim();
-        String type = parts[2].trim();
-        double amount = Double.parseDouble(parts[3].trim());
-        double balanceAfter = Double.parseDouble(parts[4].trim());
-        LocalDateTime ts = LocalDateTime.parse(parts[5].trim(), TIMESTAMP_FORMATTER);
-        return new Transaction(id, accNo, type, amount, balanceAfter, ts);
+        if (line == null) return null;
+        RecordParser parser = PARSER.get();
+        if (parser.parse(line) == 0) return null;
+        return toTransaction(parser);
+    }
+
+    /**
+     * Builds a transaction from an already parsed record.
+     *
+     * @param parser the parser holding the record
+     * @return the transaction, or null if the record has too few fields
+     */
+    private static Transaction toTransaction(RecordParser parser) {
+        if (parser.fieldCount() < 6) return null;
+        return new Transaction(
+                parser.field(0),
+                parser.cachedField(1),
+                parser.field(2, TRANSACTION_TYPES),
+                parser.decimal(3),
+                parser.decimal(4),
+                parser.timestamp(5, TIMESTAMP_FORMATTER)
+        );
     }
 
     /**
@@ -144,81 +173,194 @@ public class FileIOUtils {
         try {
             ensureDataDirExists();
 
-            if (Files.notExists(transactionFile)) {
-                System.out.println("No transaction file found at: " + transactionFile);
-                return loadedTransactions;
-            }
-
-            // Read and process lines
-            List<String> lines = Files.readAllLines(transactionFile)
-                    .stream()
-                    .filter(line -> !line.trim().isEmpty())
-                    .toList();
-
-            // Track IDs to avoid duplicates - include both file and in-memory transactions
+            // Records are written to the log exactly once, so duplicates can only be
+            // transactions already held in memory; that set is bounded by the in-memory history
             Set<String> existingIds = new HashSet<>();
-
-            // Add IDs of transactions already in memory
             TransactionManager.getInstance().getAllTransactions().stream()
                     .filter(t -> t != null && t.getTransactionId() != null)
                     .forEach(t -> existingIds.add(t.getTransactionId()));
 
-            int skippedCount = 0;
-
-            for (String line : lines) {
-                try {
-                    Transaction t = deserializeTransaction(line.trim());
-                    if (t != null && t.getTransactionId() != null) {
-                        // Only add if not already in memory or already loaded from file
-                        if (!existingIds.contains(t.getTransactionId())) {
-                            loadedTransactions.add(t);
-                            existingIds.add(t.getTransactionId());
-                        } else {
-                            skippedCount++;
-                        }
-                    }
-                } catch (Exception e) {
-                    System.err.println("Skipping invalid transaction: " + line);
-                    System.err.println("Error: " + e.getMessage());
+            transactionStore.readAll(t -> {
+                if (t.getTransactionId() != null && !existingIds.contains(t.getTransactionId())) {
+                    loadedTransactions.add(t);
                 }
-            }
+            });
 
             // Log summary
                 System.out.println(loadedTransactions.size() + " transactions loaded from transactions.txt");
 
         } catch (Exception e) {
-            System.err.println("Fatal error loading transactions: " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("Fatal error loading transactions: {}", e);
         }
         return loadedTransactions;
     }
 
+    /**
+     * Reads transactions whose timestamps fall in a range, skipping sealed segments
+     * whose manifests exclude it.
+     *
+     * @param from inclusive lower bound
+     * @param to   inclusive upper bound
+     * @return the matching transactions in log order
+     */
+    public static List<Transaction> readTransactionsBetween(LocalDateTime from, LocalDateTime to) {
+        List<Transaction> matched = new ArrayList<>();
+        try {
+            transactionStore.readBetween(from, to, matched::add);
+        } catch (IOException e) {
+            LOG.error("Failed to read transactions: {}", e.getMessage());
+        }
+        return matched;
+    }
+
     /**
      * Save transactions to file.
      *
      * @param txns the txns
+     * @throws IOException if the transactions could not be appended to the log
      */
 // Append multiple transactions (e.g., only new ones) to the file
-    public static void saveTransactionsToFile(List<Transaction> txns) {
+    public static void saveTransactionsToFile(List<Transaction> txns) throws IOException {
         if (txns == null || txns.isEmpty()) return;
         List<String> lines = txns.stream()
                 .map(FileIOUtils::serializeTransaction)
                 .collect(Collectors.toList());
+        ensureDataDirExists();
+        synchronized (APPEND_LOCK) {
+            TransactionSegmentStore.LogPosition before = transactionStore.currentPosition();
+            transactionStore.append(lines, txns.get(0).getTimestamp().toLocalDate());
+            JournalService.getInstance().record(txns, before, transactionStore.currentPosition());
+        }
+        LOG.debug("Successfully saved {} new transaction{}.", lines.size(), lines.size() == 1 ? "" : "s");
+    }
+
+
+
+    /**
+     * Streams transactions from the given log file starting at a byte position.
+     * Used to replay only the tail of the log written after a snapshot.
+     *
+     * @param file     the transaction log
+     * @param position byte offset to start reading from (must be at a line boundary)
+     * @param sink     receives each successfully parsed transaction, in file order
+     * @return the number of transactions replayed
+     */
+    public static long readTransactionsFrom(Path file, long position, Consumer<Transaction> sink) throws IOException {
+        if (Files.notExists(file)) {
+            return 0;
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (position > channel.size()) {
+                throw new IOException("Log position " + position + " is beyond end of " + file);
+            }
+            channel.position(position);
+            return readTransactions(channel, sink);
+        }
+    }
+
+    /**
+     * Parses transaction records from a channel until end of input.
+     * Lines are parsed in place in the read buffer; only the fields a Transaction keeps
+     * are materialized as Strings.
+     *
+     * @param channel the source of serialized transactions
+     * @param sink    receives each successfully parsed transaction, in order
+     * @return the number of transactions read
+     */
+    public static long readTransactions(ReadableByteChannel channel, Consumer<Transaction> sink) throws IOException {
+        RecordParser parser = new RecordParser();
+        RecordParser.ByteWindow window = new RecordParser.ByteWindow();
+        byte[] buffer = new byte[READ_BUFFER_SIZE];
+        int filled = 0;
+        long count = 0;
+        boolean eof = false;
+
+        while (!eof) {
+            int n = channel.read(ByteBuffer.wrap(buffer, filled, buffer.length - filled));
+            if (n < 0) {
+                eof = true;
+            } else {
+                filled += n;
+            }
+
+            int lineStart = 0;
+            boolean ascii = true;
+            for (int i = 0; i < filled; i++) {
+                byte b = buffer[i];
+                if (b == '\n') {
+                    count += emitTransaction(buffer, lineStart, i, ascii, parser, window, sink);
+                    lineStart = i + 1;
+                    ascii = true;
+                } else if (b < 0) {
+                    ascii = false;
+                }
+            }
+            if (eof && lineStart < filled) {
+                // Final line without a newline, e.g. a torn append
+                count += emitTransaction(buffer, lineStart, filled, ascii, parser, window, sink);
+                lineStart = filled;
+            }
+
+            int remaining = filled - lineStart;
+            if (remaining == buffer.length) {
+                buffer = Arrays.copyOf(buffer, buffer.length * 2);
+            } else {
+                System.arraycopy(buffer, lineStart, buffer, 0, remaining);
+            }
+            filled = remaining;
+        }
+        return count;
+    }
+
+    private static int emitTransaction(byte[] buffer, int start, int end, boolean ascii, RecordParser parser,
+                                       RecordParser.ByteWindow window, Consumer<Transaction> sink) {
+        CharSequence line = ascii
+                ? window.wrap(buffer, start, end - start)
+                : new String(buffer, start, end - start, StandardCharsets.UTF_8);
         try {
-            ensureDataDirExists();
-            Files.write(
-                    transactionFile,
-                    lines,
-                    StandardOpenOption.CREATE,
-                    StandardOpenOption.APPEND
-            );
-            System.out.println("Successfully saved " + lines.size() + " new transaction" + (lines.size()==1?"":"s") + ".");
-        } catch (IOException e) {
-            System.err.println("Failed to append transactions: " + e.getMessage());
+            if (parser.parse(line) == 0) {
+                return 0;
+            }
+            Transaction t = toTransaction(parser);
+            if (t == null) {
+                return 0;
+            }
+            sink.accept(t);
+            return 1;
+        } catch (Exception e) {
+            // Skip only this line, e.g. the partial line of a torn final append; later lines still parse
+            LOG.warn("Skipping invalid transaction: {}", line);
+            return 0;
         }
     }
 
+    /**
+     * Gets the data directory holding accounts, transactions and snapshots.
+     *
+     * @return the data directory
+     */
+    public static Path getDataDir() {
+        return Paths.get(DATA_DIR);
+    }
 
+    /**
+     * Gets the transaction log file.
+     *
+     * @return the transactions file path
+     */
+    public static Path getTransactionFile() {
+        return transactionFile;
+    }
+
+    /**
+     * Gets the segmented transaction log backing transactions.txt.
+     *
+     * @return the transaction segment store
+     */
+    public static TransactionSegmentStore getTransactionStore() {
+        return transactionStore;
+    }
 
     private static void ensureDataDirExists() throws IOException {
         Path dir = Paths.get(DATA_DIR);
@@ -283,27 +425,31 @@ public class FileIOUtils {
      */
     public static void parseAccount(String line) {
         if (line == null || line.trim().isEmpty()) {
-            System.err.println("Empty line in account file");
+            LOG.warn("Empty line in account file");
             return;
         }
+        RecordParser parser = PARSER.get();
+        parser.parse(line);
+        parseAccount(parser);
+    }
 
-        String[] columns = line.split("\\|");
-        if (columns.length < 9) {
-            System.err.println("Invalid account format. Expected 9 fields but got " + columns.length);
+    private static void parseAccount(RecordParser columns) {
+        if (columns.fieldCount() < 9) {
+            LOG.warn("Invalid account format. Expected 9 fields but got {}", columns.fieldCount());
             return;
         }
 
         try {
             int index = 0;
-            String accountNumber = columns[index++].trim();
-            String customerName = columns[index++].trim();
-            int customerAge = Integer.parseInt(columns[index++].trim());
-            String customerContact = columns[index++].trim();
-            String customerAddress = columns[index++].trim();
-            String customerId = columns[index++].trim();
-            String customerType = columns[index++].trim();
-            String accountType = columns[index++].trim();
-            double balance = Double.parseDouble(columns[index].trim());
+            String accountNumber = columns.field(index++);
+            String customerName = columns.field(index++);
+            int customerAge = columns.intField(index++);
+            String customerContact = columns.field(index++);
+            String customerAddress = columns.field(index++);
+            String customerId = columns.field(index++);
+            String customerType = columns.field(index++);
+            String accountType = columns.field(index++);
+            double balance = columns.decimal(index);
 
             // Create customer using the file-loading constructor (preserves customer ID)
             Customer customer;
@@ -325,10 +471,9 @@ public class FileIOUtils {
             accountManager.addAccountFromFile(account);
 
         } catch (NumberFormatException e) {
-            System.err.println("Invalid number format in account data: " + e.getMessage());
+            LOG.warn("Invalid number format in account data: {}", e.getMessage());
         } catch (Exception e) {
-            System.err.println("Error processing account: " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("Error processing account: {}", e);
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,291 @@
+package com.miracle.src.utils;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.LongSupplier;
+
+/**
+ * Bounded, time-expiring map from idempotency keys to the result of their first request.
+ * <p>
+ * Keys are spread over independently locked segments. Each segment is a fixed ring of
+ * slots in insertion order, held in preallocated arrays, with an open-addressing index
+ * from key hash to slot, so storing a key allocates nothing and memory is bounded by the
+ * capacity whatever the key rate. Every entry lives for the same time-to-live from its
+ * first insertion, so insertion order is also expiry order: expired entries are always at
+ * the head of the ring and are dropped there, and a full segment overwrites its oldest
+ * entry, the next to expire anyway. Past the capacity the effective retention window is
+ * shorter than the time-to-live; {@link #evictedCount()} shows when that happens.
+ * </p>
+ * <p>
+ * A lookup first reads the segment optimistically without locking; a retried key is
+ * usually answered that way. Only stores, and reads that race with one, take the lock.
+ * </p>
+ *
+ * @param <V> the stored result
+ */
+public final class IdempotencyCache<V> {
+
+    private static final int SEGMENTS = 16;
+
+    private final Segment[] segments;
+    private final long ttlNanos;
+    private final LongSupplier clock;
+    private final LongAdder evicted = new LongAdder();
+
+    public IdempotencyCache(int maxEntries, Duration timeToLive) {
+        this(maxEntries, timeToLive, System::nanoTime);
+    }
+
+    /**
+     * @param clock nanosecond time source, replaceable in tests
+     */
+    public IdempotencyCache(int maxEntries, Duration timeToLive, LongSupplier clock) {
+        if (maxEntries < SEGMENTS) {
+            throw new IllegalArgumentException("Capacity must be at least " + SEGMENTS + ": " + maxEntries);
+        }
+        this.ttlNanos = timeToLive.toNanos();
+        this.clock = clock;
+        segments = new Segment[SEGMENTS];
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment(maxEntries / SEGMENTS);
+        }
+    }
+
+    /**
+     * Stores the value unless the key already holds an unexpired one.
+     *
+     * @return the value already stored for the key, or null if this value was stored
+     */
+    @SuppressWarnings("unchecked")
+    public V putIfAbsent(String key, V value) {
+        int hash = spread(key.hashCode());
+        Segment segment = segmentFor(hash);
+        long now = clock.getAsLong();
+        long stamp = segment.lock.tryOptimisticRead();
+        if (stamp != 0) {
+            int slot = segment.find(key, hash, now);
+            Object existing = slot >= 0 ? segment.values[slot] : null;
+            if (segment.lock.validate(stamp) && existing != null) {
+                return (V) existing;
+            }
+        }
+        stamp = segment.lock.writeLock();
+        try {
+            segment.purgeExpired(now);
+            int slot = segment.find(key, hash, now);
+            if (slot >= 0) {
+                return (V) segment.values[slot];
+            }
+            if (segment.insert(key, hash, value, now + ttlNanos)) {
+                evicted.increment();
+            }
+            return null;
+        } finally {
+            segment.lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * @return the unexpired value for the key, or null
+     */
+    @SuppressWarnings("unchecked")
+    public V get(String key) {
+        int hash = spread(key.hashCode());
+        Segment segment = segmentFor(hash);
+        long now = clock.getAsLong();
+        long stamp = segment.lock.tryOptimisticRead();
+        if (stamp != 0) {
+            int slot = segment.find(key, hash, now);
+            Object value = slot >= 0 ? segment.values[slot] : null;
+            if (segment.lock.validate(stamp)) {
+                return (V) value;
+            }
+        }
+        stamp = segment.lock.readLock();
+        try {
+            int slot = segment.find(key, hash, now);
+            return slot >= 0 ? (V) segment.values[slot] : null;
+        } finally {
+            segment.lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Removes the key only while it still maps to the given value.
+     */
+    public void remove(String key, V value) {
+        int hash = spread(key.hashCode());
+        Segment segment = segmentFor(hash);
+        long stamp = segment.lock.writeLock();
+        try {
+            // An expired entry is left for the head of the ring to drop
+            int slot = segment.find(key, hash, clock.getAsLong());
+            if (slot >= 0 && segment.values[slot] == value) {
+                segment.release(slot);
+            }
+        } finally {
+            segment.lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Entries held, including expired ones not yet dropped.
+     */
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            long stamp = segment.lock.readLock();
+            try {
+                size += segment.live;
+            } finally {
+                segment.lock.unlockRead(stamp);
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Entries evicted for capacity before they expired.
+     */
+    public long evictedCount() {
+        return evicted.sum();
+    }
+
+    private Segment segmentFor(int hash) {
+        // Low bits pick the index position, so take the segment from the high bits
+        return segments[hash >>> 28];
+    }
+
+    private static int spread(int h) {
+        return (h ^ (h >>> 16)) * 0x9E3779B1;
+    }
+
+    /**
+     * One ring of slots plus its index; all access under {@link #lock}, except lookups that
+     * read optimistically and validate afterwards.
+     */
+    private static final class Segment {
+        final StampedLock lock = new StampedLock();
+        final String[] keys;
+        final Object[] values;
+        final int[] hashes;
+        final long[] expiresAt;
+        // Slot number + 1 by hash position, 0 when empty; linear probing
+        final int[] index;
+        final int indexMask;
+        int head;
+        // Slots in the ring from head, including released ones
+        int used;
+        // Slots holding a key
+        int live;
+
+        Segment(int capacity) {
+            keys = new String[capacity];
+            values = new Object[capacity];
+            hashes = new int[capacity];
+            expiresAt = new long[capacity];
+            index = new int[Integer.highestOneBit(capacity * 2 - 1) << 1];
+            indexMask = index.length - 1;
+        }
+
+        /**
+         * @return the slot holding the key unexpired at {@code now}, or -1. Safe to run
+         * against concurrent changes; the caller validates the result.
+         */
+        int find(String key, int hash, long now) {
+            for (int probe = 0, position = hash & indexMask; probe <= indexMask; probe++, position = (position + 1) & indexMask) {
+                int entry = index[position];
+                if (entry == 0) {
+                    return -1;
+                }
+                int slot = entry - 1;
+                if (slot < keys.length && hashes[slot] == hash && key.equals(keys[slot])) {
+                    return now - expiresAt[slot] < 0 ? slot : -1;
+                }
+            }
+            return -1;
+        }
+
+        void purgeExpired(long now) {
+            while (used > 0) {
+                int slot = head;
+                if (keys[slot] != null && now - expiresAt[slot] < 0) {
+                    return;
+                }
+                dropHead();
+            }
+        }
+
+        /**
+         * Adds an entry at the tail, overwriting the oldest if the ring is full.
+         *
+         * @return whether a live entry was evicted for room
+         */
+        boolean insert(String key, int hash, Object value, long expiry) {
+            boolean evicted = false;
+            if (used == keys.length) {
+                evicted = keys[head] != null;
+                dropHead();
+            }
+            int slot = head + used;
+            if (slot >= keys.length) {
+                slot -= keys.length;
+            }
+            keys[slot] = key;
+            values[slot] = value;
+            hashes[slot] = hash;
+            expiresAt[slot] = expiry;
+            int position = hash & indexMask;
+            while (index[position] != 0) {
+                position = (position + 1) & indexMask;
+            }
+            index[position] = slot + 1;
+            used++;
+            live++;
+            return evicted;
+        }
+
+        /**
+         * Empties a slot in place; the ring skips it when it reaches the head.
+         */
+        void release(int slot) {
+            unindex(slot);
+            keys[slot] = null;
+            values[slot] = null;
+            live--;
+        }
+
+        private void dropHead() {
+            if (keys[head] != null) {
+                release(head);
+            }
+            head = head + 1 == keys.length ? 0 : head + 1;
+            used--;
+        }
+
+        // Backward-shift deletion keeps every probe chain unbroken without tombstones
+        private void unindex(int slot) {
+            int hole = hashes[slot] & indexMask;
+            while (index[hole] != slot + 1) {
+                hole = (hole + 1) & indexMask;
+            }
+            index[hole] = 0;
+            int next = hole;
+            while (true) {
+                next = (next + 1) & indexMask;
+                int entry = index[next];
+                if (entry == 0) {
+                    return;
+                }
+                int home = hashes[entry - 1] & indexMask;
+                boolean reachable = hole <= next ? hole < home && home <= next : hole < home || home <= next;
+                if (!reachable) {
+                    index[hole] = entry;
+                    index[next] = 0;
+                    hole = next;
+                }
+            }
+        }
+    }
+}
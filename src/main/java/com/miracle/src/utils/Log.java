@@ -0,0 +1,405 @@
+package com.miracle.src.utils;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Small asynchronous logger for the transaction path.
+ * <p>
+ * A call below the configured level returns after one comparison against a constant, so
+ * it costs nothing once compiled; arguments are only turned into text if the entry is
+ * written. An enabled call stores its template and arguments in a preallocated lock-free
+ * ring and returns. A background thread formats entries, appends them to a rolling file
+ * and echoes them to the console, so callers never wait on console or disk I/O. If the ring
+ * is full the entry is dropped and counted rather than blocking the caller.
+ * </p>
+ * <p>
+ * Messages use {@code {}} placeholders. A {@link Throwable} passed as the last argument
+ * also fills its placeholder, and its stack trace is written after the message. Configured with system properties:
+ * {@code bank.log.level} (DEBUG, INFO, WARN, ERROR or OFF; default INFO),
+ * {@code bank.log.console} (lowest level echoed to the console; default INFO),
+ * {@code bank.log.dir} (default {@code logs} under the data directory),
+ * {@code bank.log.max.bytes} (default 10 MB), {@code bank.log.files} (rolled files kept;
+ * default 5) and {@code bank.log.buffer} (ring entries; default 8192).
+ * </p>
+ */
+public final class Log {
+
+    public enum Level { DEBUG, INFO, WARN, ERROR, OFF }
+
+    private static final int THRESHOLD = level("bank.log.level", Level.INFO).ordinal();
+    private static final int CONSOLE_THRESHOLD = level("bank.log.console", Level.INFO).ordinal();
+    private static final long IDLE_PARK_NANOS = 1_000_000;
+    private static final long FLUSH_TIMEOUT_NANOS = 5_000_000_000L;
+    private static final DateTimeFormatter TIMESTAMP = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS");
+
+    private final String name;
+
+    private Log(String name) {
+        this.name = name;
+    }
+
+    public static Log get(Class<?> owner) {
+        return new Log(owner.getSimpleName());
+    }
+
+    public static boolean isEnabled(Level level) {
+        return level.ordinal() >= THRESHOLD;
+    }
+
+    public boolean isDebugEnabled() {
+        return Level.DEBUG.ordinal() >= THRESHOLD;
+    }
+
+    public void debug(String template) {
+        if (Level.DEBUG.ordinal() >= THRESHOLD) Writer.RING.offer(this, Level.DEBUG, template, 0, null, null, null);
+    }
+
+    public void debug(String template, Object a) {
+        if (Level.DEBUG.ordinal() >= THRESHOLD) Writer.RING.offer(this, Level.DEBUG, template, 1, a, null, null);
+    }
+
+    public void debug(String template, Object a, Object b) {
+        if (Level.DEBUG.ordinal() >= THRESHOLD) Writer.RING.offer(this, Level.DEBUG, template, 2, a, b, null);
+    }
+
+    public void debug(String template, Object a, Object b, Object c) {
+        if (Level.DEBUG.ordinal() >= THRESHOLD) Writer.RING.offer(this, Level.DEBUG, template, 3, a, b, c);
+    }
+
+    public void info(String template) {
+        if (Level.INFO.ordinal() >= THRESHOLD) Writer.RING.offer(this, Level.INFO, template, 0, null, null, null);
+    }
+
+    public void info(String template, Object a) {
+        if (Level.INFO.ordinal() >= THRESHOLD) Writer.RING.offer(this, Level.INFO, template, 1, a, null, null);
+    }
+
+    public void info(String template, Object a, Object b) {
+        if (Level.INFO.ordinal() >= THRESHOLD) Writer.RING.offer(this, Level.INFO, template, 2, a, b, null);
+    }
+
+    public void info(String template, Object a, Object b, Object c) {
+        if (Level.INFO.ordinal() >= THRESHOLD) Writer.RING.offer(this, Level.INFO, template, 3, a, b, c);
+    }
+
+    public void warn(String template) {
+        if (Level.WARN.ordinal() >= THRESHOLD) Writer.RING.offer(this, Level.WARN, template, 0, null, null, null);
+    }
+
+    public void warn(String template, Object a) {
+        if (Level.WARN.ordinal() >= THRESHOLD) Writer.RING.offer(this, Level.WARN, template, 1, a, null, null);
+    }
+
+    public void warn(String template, Object a, Object b) {
+        if (Level.WARN.ordinal() >= THRESHOLD) Writer.RING.offer(this, Level.WARN, template, 2, a, b, null);
+    }
+
+    public void warn(String template, Throwable cause) {
+        if (Level.WARN.ordinal() >= THRESHOLD) Writer.RING.offer(this, Level.WARN, template, 1, cause, null, null, cause);
+    }
+
+    public void warn(String template, Object a, Throwable cause) {
+        if (Level.WARN.ordinal() >= THRESHOLD) Writer.RING.offer(this, Level.WARN, template, 2, a, cause, null, cause);
+    }
+
+    public void error(String template) {
+        if (Level.ERROR.ordinal() >= THRESHOLD) Writer.RING.offer(this, Level.ERROR, template, 0, null, null, null);
+    }
+
+    public void error(String template, Object a) {
+        if (Level.ERROR.ordinal() >= THRESHOLD) Writer.RING.offer(this, Level.ERROR, template, 1, a, null, null);
+    }
+
+    public void error(String template, Object a, Object b) {
+        if (Level.ERROR.ordinal() >= THRESHOLD) Writer.RING.offer(this, Level.ERROR, template, 2, a, b, null);
+    }
+
+    public void error(String template, Throwable cause) {
+        if (Level.ERROR.ordinal() >= THRESHOLD) Writer.RING.offer(this, Level.ERROR, template, 1, cause, null, null, cause);
+    }
+
+    public void error(String template, Object a, Throwable cause) {
+        if (Level.ERROR.ordinal() >= THRESHOLD) Writer.RING.offer(this, Level.ERROR, template, 2, a, cause, null, cause);
+    }
+
+    /**
+     * Waits, for up to five seconds, until every entry logged before this call has been
+     * written and flushed.
+     */
+    public static void flush() {
+        if (THRESHOLD < Level.OFF.ordinal()) {
+            Writer.RING.awaitWritten();
+        }
+    }
+
+    /**
+     * Entries dropped because the ring was full.
+     */
+    public static long droppedCount() {
+        return THRESHOLD < Level.OFF.ordinal() ? Writer.RING.dropped.sum() : 0;
+    }
+
+    /**
+     * The active log file.
+     */
+    public static Path logFile() {
+        String dir = System.getProperty("bank.log.dir");
+        return (dir != null ? Paths.get(dir) : FileIOUtils.getDataDir().resolve("logs")).resolve("bank.log");
+    }
+
+    /**
+     * Replaces each {@code {}} in the template with the next argument.
+     */
+    static void format(StringBuilder out, String template, int argCount, Object a, Object b, Object c) {
+        int from = 0;
+        for (int arg = 0; arg < argCount; arg++) {
+            int at = template.indexOf("{}", from);
+            if (at < 0) {
+                break;
+            }
+            out.append(template, from, at).append(arg == 0 ? a : arg == 1 ? b : c);
+            from = at + 2;
+        }
+        out.append(template, from, template.length());
+    }
+
+    private static Level level(String property, Level fallback) {
+        String value = System.getProperty(property);
+        if (value == null) {
+            return fallback;
+        }
+        try {
+            return Level.valueOf(value.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            System.err.println("Unknown log level for " + property + ": " + value);
+            return fallback;
+        }
+    }
+
+    /**
+     * Preallocated entries; claimed by any thread, drained by the writer thread.
+     */
+    private static final class Ring {
+        private static final VarHandle PUBLISHED = MethodHandles.arrayElementVarHandle(int[].class);
+
+        private final Entry[] entries;
+        // Round in which each entry was last published; -1 before the first
+        private final int[] published;
+        private final int mask;
+        private final int shift;
+        private final PaddedSequence claimed = new PaddedSequence(0);
+        private final PaddedSequence written = new PaddedSequence(0);
+        // Entries below this have also been flushed to the file
+        private final PaddedSequence flushed = new PaddedSequence(0);
+        private final LongAdder dropped = new LongAdder();
+
+        Ring(int capacity) {
+            entries = new Entry[capacity];
+            for (int i = 0; i < capacity; i++) {
+                entries[i] = new Entry();
+            }
+            published = new int[capacity];
+            Arrays.fill(published, -1);
+            mask = capacity - 1;
+            shift = Integer.numberOfTrailingZeros(capacity);
+        }
+
+        void offer(Log source, Level level, String template, int argCount, Object a, Object b, Object c) {
+            offer(source, level, template, argCount, a, b, c, null);
+        }
+
+        void offer(Log source, Level level, String template, int argCount, Object a, Object b, Object c,
+                   Throwable cause) {
+            long sequence;
+            do {
+                sequence = claimed.get();
+                if (sequence - written.get() >= entries.length) {
+                    dropped.increment();
+                    return;
+                }
+            } while (!claimed.compareAndSet(sequence, sequence + 1));
+            int slot = (int) (sequence & mask);
+            Entry entry = entries[slot];
+            entry.source = source;
+            entry.level = level;
+            entry.millis = System.currentTimeMillis();
+            entry.thread = Thread.currentThread().getName();
+            entry.template = template;
+            entry.argCount = argCount;
+            entry.a = a;
+            entry.b = b;
+            entry.c = c;
+            entry.cause = cause;
+            PUBLISHED.setRelease(published, slot, (int) (sequence >>> shift));
+        }
+
+        /**
+         * Hands published entries to the sink in order, stopping at one still being written.
+         */
+        int drain(Writer sink) {
+            long next = written.get();
+            long limit = claimed.get();
+            long start = next;
+            while (next < limit) {
+                int slot = (int) (next & mask);
+                if ((int) PUBLISHED.getAcquire(published, slot) != (int) (next >>> shift)) {
+                    break;
+                }
+                Entry entry = entries[slot];
+                sink.write(entry);
+                entry.clear();
+                next++;
+            }
+            written.set(next);
+            return (int) (next - start);
+        }
+
+        void awaitWritten() {
+            long target = claimed.get();
+            long deadline = System.nanoTime() + FLUSH_TIMEOUT_NANOS;
+            while (flushed.get() < target && System.nanoTime() < deadline) {
+                LockSupport.unpark(Writer.THREAD);
+                LockSupport.parkNanos(100_000);
+            }
+        }
+    }
+
+    private static final class Entry {
+        Log source;
+        Level level;
+        long millis;
+        String thread;
+        String template;
+        int argCount;
+        Object a;
+        Object b;
+        Object c;
+        Throwable cause;
+
+        void clear() {
+            source = null;
+            template = null;
+            a = null;
+            b = null;
+            c = null;
+            cause = null;
+        }
+    }
+
+    /**
+     * The writer thread and its outputs; started on the first enabled log call.
+     */
+    private static final class Writer {
+        static final Ring RING = new Ring(Integer.highestOneBit(Math.max(2, Integer.getInteger("bank.log.buffer", 8192))));
+        static final Thread THREAD;
+
+        private static final Writer INSTANCE = new Writer();
+
+        static {
+            THREAD = new Thread(INSTANCE::run, "bank-log-writer");
+            THREAD.setDaemon(true);
+            THREAD.start();
+            Runtime.getRuntime().addShutdownHook(new Thread(Log::flush, "bank-log-flush"));
+        }
+
+        private final StringBuilder message = new StringBuilder(256);
+        private final StringBuilder line = new StringBuilder(320);
+        private RollingLogFile file;
+        private boolean fileFailed;
+        private long droppedReported;
+
+        private void run() {
+            while (true) {
+                int written = RING.drain(this);
+                reportDropped();
+                if (written == 0) {
+                    LockSupport.parkNanos(IDLE_PARK_NANOS);
+                    continue;
+                }
+                // One flush per drained batch, so a burst costs one write to the file
+                flushFile();
+                RING.flushed.set(RING.written.get());
+            }
+        }
+
+        void write(Entry entry) {
+            message.setLength(0);
+            try {
+                format(message, entry.template, entry.argCount, entry.a, entry.b, entry.c);
+            } catch (RuntimeException e) {
+                // An argument's toString failed; keep the template
+                message.setLength(0);
+                message.append(entry.template).append(" [unformattable: ").append(e).append(']');
+            }
+            if (entry.cause != null) {
+                StringWriter trace = new StringWriter();
+                entry.cause.printStackTrace(new PrintWriter(trace));
+                // printStackTrace ends with a line separator; the line writer adds its own
+                message.append(System.lineSeparator()).append(trace.getBuffer(), 0,
+                        trace.getBuffer().length() - System.lineSeparator().length());
+            }
+            if (entry.level.ordinal() >= CONSOLE_THRESHOLD) {
+                (entry.level.ordinal() >= Level.WARN.ordinal() ? System.err : System.out).println(message);
+            }
+            line.setLength(0);
+            line.append(TIMESTAMP.format(LocalDateTime.ofInstant(Instant.ofEpochMilli(entry.millis), ZoneId.systemDefault())))
+                    .append(' ').append(entry.level.name())
+                    .append(" [").append(entry.thread).append("] ")
+                    .append(entry.source.name).append(" - ")
+                    .append(message);
+            writeLine(line);
+        }
+
+        private void reportDropped() {
+            long dropped = RING.dropped.sum();
+            if (dropped != droppedReported) {
+                line.setLength(0);
+                line.append("Log buffer full: ").append(dropped - droppedReported).append(" entries dropped");
+                droppedReported = dropped;
+                System.err.println(line);
+                writeLine(line);
+            }
+        }
+
+        private void writeLine(CharSequence text) {
+            if (fileFailed) {
+                return;
+            }
+            try {
+                if (file == null) {
+                    file = new RollingLogFile(logFile(),
+                            Long.getLong("bank.log.max.bytes", 10L * 1024 * 1024),
+                            Integer.getInteger("bank.log.files", 5));
+                }
+                file.writeLine(text);
+            } catch (IOException e) {
+                fileFailed = true;
+                System.err.println("Logging to file disabled: " + e.getMessage());
+            }
+        }
+
+        private void flushFile() {
+            if (file != null && !fileFailed) {
+                try {
+                    file.flush();
+                } catch (IOException e) {
+                    fileFailed = true;
+                    System.err.println("Logging to file disabled: " + e.getMessage());
+                }
+            }
+        }
+    }
+}
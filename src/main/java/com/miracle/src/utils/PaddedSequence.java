@@ -0,0 +1,67 @@
+package com.miracle.src.utils;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * A sequence number alone on its cache line.
+ * <p>
+ * Pipeline stages each advance their own sequence while the others poll it. Without
+ * padding, neighbouring sequences would share a 64-byte line and every advance would
+ * invalidate the line in the other cores (false sharing). The value sits between two
+ * blocks of unused longs declared in superclasses, which HotSpot lays out before the
+ * subclass fields, so the padding survives field reordering.
+ * </p>
+ */
+public final class PaddedSequence extends SequenceRhsPadding {
+
+    private static final VarHandle VALUE;
+
+    static {
+        try {
+            VALUE = MethodHandles.lookup().findVarHandle(SequenceValue.class, "value", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    public PaddedSequence(long initial) {
+        VALUE.setRelease(this, initial);
+    }
+
+    public long get() {
+        return (long) VALUE.getAcquire(this);
+    }
+
+    /**
+     * Publishes a new value; writes made before it are visible to a reader that sees it.
+     */
+    public void set(long value) {
+        VALUE.setRelease(this, value);
+    }
+
+    public long getAndIncrement() {
+        return (long) VALUE.getAndAdd(this, 1L);
+    }
+
+    public boolean compareAndSet(long expected, long value) {
+        return VALUE.compareAndSet(this, expected, value);
+    }
+
+    @Override
+    public String toString() {
+        return Long.toString(get());
+    }
+}
+
+abstract class SequenceLhsPadding {
+    protected long p01, p02, p03, p04, p05, p06, p07;
+}
+
+abstract class SequenceValue extends SequenceLhsPadding {
+    protected volatile long value;
+}
+
+abstract class SequenceRhsPadding extends SequenceValue {
+    protected long p09, p10, p11, p12, p13, p14, p15;
+}
@@ -0,0 +1,143 @@
+package com.miracle.src.utils;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Fixed-capacity ring of transaction records held in preallocated columns, so appending a
+ * record allocates nothing: numbers go into primitive arrays and the account number and
+ * type are stored as references to strings the caller already holds.
+ * <p>
+ * Any number of threads append: each claims a sequence, waits if the ring is full, writes
+ * its row and marks it published for that round. A single consumer at a time drains
+ * published rows in sequence order and frees their slots. IDs stay numeric and timestamps
+ * are epoch nanoseconds of local wall-clock time read as UTC, as in
+ * {@link ColumnarTransactionStore}; turning a row into strings is left to the consumer.
+ * </p>
+ */
+public final class PostingRing {
+
+    /**
+     * Receives drained records.
+     */
+    @FunctionalInterface
+    public interface RecordSink {
+        void accept(long id, String accountNumber, String type, long amountCents, long balanceCents, long epochNanos);
+    }
+
+    private static final VarHandle PUBLISHED = MethodHandles.arrayElementVarHandle(int[].class);
+    private static final long PARK_NANOS = 50_000;
+
+    private final int mask;
+    private final int shift;
+    private final long[] ids;
+    private final long[] amountCents;
+    private final long[] balanceCents;
+    private final long[] epochNanos;
+    private final String[] accountNumbers;
+    private final String[] types;
+    // Round in which each slot was last published; -1 before the first
+    private final int[] published;
+
+    private final PaddedSequence claimed = new PaddedSequence(0);
+    // Next sequence to drain; slots below it are free
+    private final PaddedSequence consumed = new PaddedSequence(0);
+
+    public PostingRing(int capacity) {
+        if (capacity < 2 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity must be a power of two: " + capacity);
+        }
+        mask = capacity - 1;
+        shift = Integer.numberOfTrailingZeros(capacity);
+        ids = new long[capacity];
+        amountCents = new long[capacity];
+        balanceCents = new long[capacity];
+        epochNanos = new long[capacity];
+        accountNumbers = new String[capacity];
+        types = new String[capacity];
+        published = new int[capacity];
+        Arrays.fill(published, -1);
+    }
+
+    public int capacity() {
+        return mask + 1;
+    }
+
+    /**
+     * Appends one record, waiting for the consumer while the ring is full.
+     */
+    public void append(long id, String accountNumber, String type, long amount, long balance, long timestamp) {
+        long sequence = claimed.getAndIncrement();
+        int idle = 0;
+        while (sequence - capacity() >= consumed.get()) {
+            idle = backOff(idle);
+        }
+        int slot = (int) (sequence & mask);
+        ids[slot] = id;
+        amountCents[slot] = amount;
+        balanceCents[slot] = balance;
+        epochNanos[slot] = timestamp;
+        accountNumbers[slot] = accountNumber;
+        types[slot] = type;
+        PUBLISHED.setRelease(published, slot, (int) (sequence >>> shift));
+    }
+
+    /**
+     * Records appended but not yet drained, including ones still being written.
+     */
+    public long pending() {
+        return claimed.get() - consumed.get();
+    }
+
+    /**
+     * Drains the records published so far in sequence order, stopping at the first one still
+     * being written. Callers must not drain concurrently.
+     *
+     * @return the number of records drained
+     */
+    public int drain(RecordSink sink) {
+        long next = consumed.get();
+        long limit = claimed.get();
+        long start = next;
+        while (next < limit) {
+            int slot = (int) (next & mask);
+            if ((int) PUBLISHED.getAcquire(published, slot) != (int) (next >>> shift)) {
+                break;
+            }
+            sink.accept(ids[slot], accountNumbers[slot], types[slot], amountCents[slot], balanceCents[slot], epochNanos[slot]);
+            // Drop the references so drained slots do not keep strings reachable
+            accountNumbers[slot] = null;
+            types[slot] = null;
+            next++;
+        }
+        consumed.set(next);
+        return (int) (next - start);
+    }
+
+    /**
+     * Drains every record appended before this call, waiting for any still being written.
+     * Callers must not drain concurrently.
+     */
+    public void drainAll(RecordSink sink) {
+        long target = claimed.get();
+        int idle = 0;
+        while (consumed.get() < target) {
+            if (drain(sink) == 0) {
+                idle = backOff(idle);
+            }
+        }
+    }
+
+    private static int backOff(int idle) {
+        if (idle < 100) {
+            Thread.onSpinWait();
+        } else if (idle < 200) {
+            Thread.yield();
+        } else {
+            LockSupport.parkNanos(PARK_NANOS);
+        }
+        return idle + 1;
+    }
+}
@@ -0,0 +1,376 @@
+package com.miracle.src.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.Month;
+import java.time.Year;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Single-pass parser for the pipe-delimited record formats in accounts.txt and
+ * transactions.txt.
+ * <p>
+ * {@link #parse(CharSequence, int, int)} scans a line once and records trimmed field
+ * boundaries in reusable slots; nothing is allocated until a caller asks for a field as a
+ * {@code String}. Decimals parse straight into cents, and timestamps in the fixed
+ * {@code dd-MM-yyyy hh:mm:ss a} layout are decoded by position instead of through
+ * {@link DateTimeFormatter}. Anything outside those fast paths falls back to the JDK parsers.
+ * </p>
+ * <p>
+ * Instances are not thread-safe; keep one per thread and reuse it across records.
+ * </p>
+ */
+public final class RecordParser {
+
+    public static final int MAX_FIELDS = 16;
+    private static final int FIELD_CACHE_SIZE = 1024;
+
+    private static final int TIMESTAMP_LENGTH = "dd-MM-yyyy hh:mm:ss AM".length();
+    private static final long MAX_EXACT_CENTS = 1L << 53;
+
+    private final int[] starts = new int[MAX_FIELDS];
+    private final int[] ends = new int[MAX_FIELDS];
+    private final String[] fieldCache = new String[FIELD_CACHE_SIZE];
+    private CharSequence source;
+    private int fieldCount;
+
+    /**
+     * Parses a whole line.
+     *
+     * @param line the record
+     * @return the number of fields found
+     */
+    public int parse(CharSequence line) {
+        return parse(line, 0, line.length());
+    }
+
+    /**
+     * Parses the record in {@code source[start, end)}. A trailing '\r' is ignored.
+     *
+     * @param source the text holding the record
+     * @param start  inclusive start index
+     * @param end    exclusive end index
+     * @return the number of fields found (at most {@link #MAX_FIELDS})
+     */
+    public int parse(CharSequence source, int start, int end) {
+        this.source = source;
+        if (end > start && source.charAt(end - 1) == '\r') {
+            end--;
+        }
+        // Delimiter search dispatches once per record: String.indexOf is intrinsified and
+        // ByteWindow scans its array directly, both far cheaper than charAt per character
+        String text = source instanceof String str ? str : null;
+        ByteWindow window = source instanceof ByteWindow w ? w : null;
+        int count = 0;
+        int fieldStart = start;
+        while (count < MAX_FIELDS) {
+            int bar;
+            if (text != null) {
+                bar = text.indexOf('|', fieldStart, end);
+            } else if (window != null) {
+                bar = window.indexOf((byte) '|', fieldStart, end);
+            } else {
+                bar = fieldStart;
+                while (bar < end && source.charAt(bar) != '|') bar++;
+                if (bar == end) bar = -1;
+            }
+            int fieldEnd = bar < 0 ? end : bar;
+
+            int s = fieldStart;
+            int e = fieldEnd;
+            while (s < e && source.charAt(s) <= ' ') s++;
+            while (e > s && source.charAt(e - 1) <= ' ') e--;
+            starts[count] = s;
+            ends[count] = e;
+            count++;
+
+            if (bar < 0) {
+                break;
+            }
+            fieldStart = bar + 1;
+        }
+        // A blank line is zero fields, not one empty field
+        if (count == 1 && starts[0] == ends[0]) {
+            count = 0;
+        }
+        fieldCount = count;
+        return count;
+    }
+
+    public int fieldCount() {
+        return fieldCount;
+    }
+
+    /**
+     * Gets a field as a new String.
+     */
+    public String field(int index) {
+        checkIndex(index);
+        return source.subSequence(starts[index], ends[index]).toString();
+    }
+
+    /**
+     * Gets a field, returning the matching canonical instance when the field equals one of
+     * {@code known}, so repeated values such as transaction types are not re-allocated.
+     */
+    public String field(int index, String[] known) {
+        for (String candidate : known) {
+            if (fieldEquals(index, candidate)) {
+                return candidate;
+            }
+        }
+        return field(index);
+    }
+
+    /**
+     * Gets a field through a small direct-mapped cache, for columns such as account numbers
+     * that repeat across records: a hit returns the earlier instance instead of a new string.
+     */
+    public String cachedField(int index) {
+        checkIndex(index);
+        int hash = 0;
+        for (int i = starts[index]; i < ends[index]; i++) {
+            hash = 31 * hash + source.charAt(i);
+        }
+        int slot = (hash ^ (hash >>> 16)) & (FIELD_CACHE_SIZE - 1);
+        String cached = fieldCache[slot];
+        if (cached != null && fieldEquals(index, cached)) {
+            return cached;
+        }
+        String value = field(index);
+        fieldCache[slot] = value;
+        return value;
+    }
+
+    public int fieldLength(int index) {
+        checkIndex(index);
+        return ends[index] - starts[index];
+    }
+
+    /**
+     * Compares a field with a string without allocating.
+     */
+    public boolean fieldEquals(int index, String expected) {
+        checkIndex(index);
+        int length = ends[index] - starts[index];
+        if (length != expected.length()) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (source.charAt(starts[index] + i) != expected.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Parses a plain integer field.
+     *
+     * @throws NumberFormatException if the field is not an integer
+     */
+    public int intField(int index) {
+        long value = longField(index);
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            throw new NumberFormatException("Integer out of range: " + field(index));
+        }
+        return (int) value;
+    }
+
+    /**
+     * Parses a plain long field.
+     *
+     * @throws NumberFormatException if the field is not an integer
+     */
+    public long longField(int index) {
+        checkIndex(index);
+        int i = starts[index];
+        int end = ends[index];
+        boolean negative = i < end && source.charAt(i) == '-';
+        if (negative) i++;
+        if (i == end || end - i > 18) {
+            return Long.parseLong(field(index));
+        }
+        long value = 0;
+        for (; i < end; i++) {
+            char c = source.charAt(i);
+            if (c < '0' || c > '9') {
+                throw new NumberFormatException("Not an integer: " + field(index));
+            }
+            value = value * 10 + (c - '0');
+        }
+        return negative ? -value : value;
+    }
+
+    /**
+     * Parses a decimal field with at most two fraction digits directly into cents.
+     *
+     * @throws NumberFormatException if the field is not such a decimal
+     */
+    public long cents(int index) {
+        long cents = centsOrMin(index);
+        if (cents == Long.MIN_VALUE) {
+            throw new NumberFormatException("Not a two-decimal amount: " + field(index));
+        }
+        return cents;
+    }
+
+    /**
+     * Parses a decimal field as a double. Values with at most two fraction digits take the
+     * cents fast path, which yields exactly the double {@link Double#parseDouble} would.
+     */
+    public double decimal(int index) {
+        long cents = centsOrMin(index);
+        // Past 2^53 cents the long-to-double conversion rounds before the division does
+        return cents != Long.MIN_VALUE && Math.abs(cents) <= MAX_EXACT_CENTS
+                ? cents / 100.0 : Double.parseDouble(field(index));
+    }
+
+    private long centsOrMin(int index) {
+        checkIndex(index);
+        int i = starts[index];
+        int end = ends[index];
+        boolean negative = i < end && source.charAt(i) == '-';
+        if (negative) i++;
+        if (i == end) {
+            return Long.MIN_VALUE;
+        }
+        long whole = 0;
+        int digits = 0;
+        for (; i < end; i++) {
+            char c = source.charAt(i);
+            if (c == '.') break;
+            // 17 digits cannot overflow the long; whether they fit as cents is checked below
+            if (c < '0' || c > '9' || ++digits > 17) return Long.MIN_VALUE;
+            whole = whole * 10 + (c - '0');
+        }
+        long fraction = 0;
+        int fractionDigits = 0;
+        if (i < end) {
+            i++;
+            for (; i < end; i++) {
+                char c = source.charAt(i);
+                if (c < '0' || c > '9' || ++fractionDigits > 2) return Long.MIN_VALUE;
+                fraction = fraction * 10 + (c - '0');
+            }
+        }
+        if (digits == 0 && fractionDigits == 0) {
+            return Long.MIN_VALUE;
+        }
+        if (fractionDigits == 1) {
+            fraction *= 10;
+        }
+        // Rejected rather than wrapped when scaling to cents would overflow
+        if (whole > (Long.MAX_VALUE - fraction) / 100) {
+            return Long.MIN_VALUE;
+        }
+        long cents = whole * 100 + fraction;
+        return negative ? -cents : cents;
+    }
+
+    /**
+     * Parses a timestamp in the {@code dd-MM-yyyy hh:mm:ss a} layout, decoding fixed
+     * positions directly and falling back to the formatter for anything else, including
+     * values the formatter resolves rather than rejects, such as the 31st of a 30-day month.
+     *
+     * @param index     the field index
+     * @param formatter the formatter used when the fast path does not apply
+     */
+    public LocalDateTime timestamp(int index, DateTimeFormatter formatter) {
+        checkIndex(index);
+        int s = starts[index];
+        if (ends[index] - s == TIMESTAMP_LENGTH
+                && source.charAt(s + 2) == '-' && source.charAt(s + 5) == '-' && source.charAt(s + 10) == ' '
+                && source.charAt(s + 13) == ':' && source.charAt(s + 16) == ':' && source.charAt(s + 19) == ' ') {
+            int day = twoDigits(s);
+            int month = twoDigits(s + 3);
+            int century = twoDigits(s + 6);
+            int yearOfCentury = twoDigits(s + 8);
+            int hour = twoDigits(s + 11);
+            int minute = twoDigits(s + 14);
+            int second = twoDigits(s + 17);
+            char meridiem = source.charAt(s + 20);
+            char m = source.charAt(s + 21);
+            if ((day | month | century | yearOfCentury | hour | minute | second) >= 0 && m == 'M'
+                    && (meridiem == 'A' || meridiem == 'P') && hour >= 1 && hour <= 12
+                    && minute < 60 && second < 60 && month >= 1 && month <= 12 && day >= 1) {
+                int year = century * 100 + yearOfCentury;
+                if (day <= 28 || day <= Month.of(month).length(Year.isLeap(year))) {
+                    int hour24 = hour % 12 + (meridiem == 'P' ? 12 : 0);
+                    return LocalDateTime.of(year, month, day, hour24, minute, second);
+                }
+            }
+        }
+        return LocalDateTime.parse(field(index), formatter);
+    }
+
+    /**
+     * Decodes two ASCII digits, or returns a negative value if either is not a digit.
+     */
+    private int twoDigits(int at) {
+        int hi = source.charAt(at) - '0';
+        int lo = source.charAt(at + 1) - '0';
+        if (hi < 0 || hi > 9 || lo < 0 || lo > 9) {
+            return -1;
+        }
+        return hi * 10 + lo;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= fieldCount) {
+            throw new IndexOutOfBoundsException("Field " + index + " of " + fieldCount);
+        }
+    }
+
+    /**
+     * A reusable CharSequence view over ASCII bytes, so records can be parsed straight
+     * out of a read buffer without decoding each line into a String.
+     */
+    public static final class ByteWindow implements CharSequence {
+        private byte[] bytes;
+        private int offset;
+        private int length;
+
+        /**
+         * Points this window at {@code bytes[offset, offset + length)}.
+         */
+        public ByteWindow wrap(byte[] bytes, int offset, int length) {
+            this.bytes = bytes;
+            this.offset = offset;
+            this.length = length;
+            return this;
+        }
+
+        @Override
+        public int length() {
+            return length;
+        }
+
+        /**
+         * Finds a byte in [from, to) of this window, or -1.
+         */
+        int indexOf(byte value, int from, int to) {
+            for (int i = offset + from, end = offset + to; i < end; i++) {
+                if (bytes[i] == value) {
+                    return i - offset;
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        public char charAt(int index) {
+            return (char) (bytes[offset + index] & 0xFF);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return new String(bytes, offset + start, end - start, StandardCharsets.ISO_8859_1);
+        }
+
+        @Override
+        public String toString() {
+            return new String(bytes, offset, length, StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.miracle.src.utils;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Append-only text file that rolls over at a size limit: {@code name} is renamed to
+ * {@code name.1}, older files move up one number and the oldest beyond the kept count is
+ * deleted. Not thread-safe; {@link Log} uses it from its writer thread only.
+ */
+public final class RollingLogFile implements Closeable {
+
+    private final Path file;
+    private final long maxBytes;
+    private final int keptFiles;
+    private BufferedWriter writer;
+    private long size;
+
+    /**
+     * @param file      the active file
+     * @param maxBytes  size at which the file is rolled over
+     * @param keptFiles number of rolled files kept besides the active one
+     */
+    public RollingLogFile(Path file, long maxBytes, int keptFiles) {
+        this.file = file;
+        this.maxBytes = maxBytes;
+        this.keptFiles = keptFiles;
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * Appends a line, rolling over first if it would take the file past the limit.
+     */
+    public void writeLine(CharSequence line) throws IOException {
+        if (writer == null) {
+            open();
+        }
+        long lineBytes = line.length() + 1L;
+        if (size > 0 && size + lineBytes > maxBytes) {
+            roll();
+        }
+        writer.append(line).append('\n');
+        size += lineBytes;
+    }
+
+    public void flush() throws IOException {
+        if (writer != null) {
+            writer.flush();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (writer != null) {
+            writer.close();
+            writer = null;
+        }
+    }
+
+    private void open() throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        size = Files.size(file);
+    }
+
+    private void roll() throws IOException {
+        close();
+        Files.deleteIfExists(rolled(keptFiles));
+        for (int i = keptFiles - 1; i >= 1; i--) {
+            Path older = rolled(i);
+            if (Files.exists(older)) {
+                Files.move(older, rolled(i + 1), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        if (keptFiles > 0) {
+            Files.move(file, rolled(1), StandardCopyOption.REPLACE_EXISTING);
+        } else {
+            Files.delete(file);
+        }
+        open();
+    }
+
+    private Path rolled(int index) {
+        return file.resolveSibling(file.getFileName() + "." + index);
+    }
+}
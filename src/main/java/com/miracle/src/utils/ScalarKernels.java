@@ -0,0 +1,93 @@
+package com.miracle.src.utils;
+
+/**
+ * Plain-loop kernels; the fallback when the Vector API is unavailable.
+ */
+final class ScalarKernels implements AggregationKernels {
+
+    static final ScalarKernels INSTANCE = new ScalarKernels();
+
+    private ScalarKernels() {}
+
+    @Override
+    public long sum(long[] values, int length) {
+        long sum = 0;
+        for (int i = 0; i < length; i++) {
+            sum += values[i];
+        }
+        return sum;
+    }
+
+    @Override
+    public long min(long[] values, int length) {
+        long min = Long.MAX_VALUE;
+        for (int i = 0; i < length; i++) {
+            min = Math.min(min, values[i]);
+        }
+        return min;
+    }
+
+    @Override
+    public long max(long[] values, int length) {
+        long max = Long.MIN_VALUE;
+        for (int i = 0; i < length; i++) {
+            max = Math.max(max, values[i]);
+        }
+        return max;
+    }
+
+    @Override
+    public long sumWhereType(byte[] types, byte type, long[] values, int length) {
+        long sum = 0;
+        for (int i = 0; i < length; i++) {
+            if (types[i] == type) {
+                sum += values[i];
+            }
+        }
+        return sum;
+    }
+
+    @Override
+    public int countWhereType(byte[] types, byte type, int length) {
+        int count = 0;
+        for (int i = 0; i < length; i++) {
+            if (types[i] == type) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public long sumInRange(long[] times, long from, long to, long[] values, int length) {
+        long sum = 0;
+        for (int i = 0; i < length; i++) {
+            if (times[i] >= from && times[i] < to) {
+                sum += values[i];
+            }
+        }
+        return sum;
+    }
+
+    @Override
+    public int countInRange(long[] times, long from, long to, int length) {
+        int count = 0;
+        for (int i = 0; i < length; i++) {
+            if (times[i] >= from && times[i] < to) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public long sumWhereAccountAndType(int[] accounts, int account, byte[] types, byte type, long[] values, int length) {
+        long sum = 0;
+        for (int i = 0; i < length; i++) {
+            if (accounts[i] == account && types[i] == type) {
+                sum += values[i];
+            }
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,119 @@
+package com.miracle.src.utils;
+
+import java.util.Arrays;
+
+/**
+ * Running sums over a sliding time window, kept as a ring of fixed-width buckets, for one or
+ * more independent series (e.g. withdrawals and transfers of one account).
+ * <p>
+ * Each series keeps its window total next to the buckets, so reading or adding is O(1).
+ * Buckets are never swept on a timer. When time has moved on, the next call clears the
+ * buckets that fell out of the window and takes their amounts off the totals. That costs one
+ * step per elapsed bucket, at most the ring size, and each bucket is cleared once per pass
+ * of the ring. The window covers the current bucket and the ones before it, so its reach is
+ * between {@code (buckets - 1)} and {@code buckets} bucket widths.
+ * </p>
+ * <p>
+ * Methods are synchronized on the counter; callers keep one counter per account, so the
+ * lock is practically uncontended.
+ * </p>
+ */
+public final class SlidingWindowCounter {
+
+    private final int series;
+    private final int buckets;
+    private final long bucketMillis;
+    // The window totals of each series, then the buckets, bucket-major so the series of one
+    // bucket are adjacent and cleared together. One array keeps a check to few cache lines.
+    private final long[] amounts;
+    private long currentBucket;
+    private boolean started;
+
+    public SlidingWindowCounter(int series, int buckets, long bucketMillis) {
+        if (series < 1 || buckets < 1 || bucketMillis < 1) {
+            throw new IllegalArgumentException("Series, buckets and bucket width must be positive");
+        }
+        this.series = series;
+        this.buckets = buckets;
+        this.bucketMillis = bucketMillis;
+        this.amounts = new long[series + series * buckets];
+    }
+
+    /**
+     * @return the series' sum over the window ending at {@code nowMillis}
+     */
+    public synchronized long total(int seriesIndex, long nowMillis) {
+        advanceTo(Math.floorDiv(nowMillis, bucketMillis));
+        return amounts[seriesIndex];
+    }
+
+    /**
+     * Adds the amount at {@code nowMillis} unless that would take the series' window total
+     * past {@code limit}.
+     *
+     * @return whether the amount was added
+     */
+    public synchronized boolean tryAdd(int seriesIndex, long amount, long limit, long nowMillis) {
+        long bucket = Math.floorDiv(nowMillis, bucketMillis);
+        advanceTo(bucket);
+        if (amounts[seriesIndex] + amount > limit) {
+            return false;
+        }
+        amounts[slotOf(bucket) + seriesIndex] += amount;
+        amounts[seriesIndex] += amount;
+        return true;
+    }
+
+    /**
+     * Adds an amount at a given time without a limit, e.g. when replaying history. Times
+     * already outside the window are ignored; later ones move the window forward.
+     */
+    public synchronized void add(int seriesIndex, long amount, long atMillis) {
+        long bucket = Math.floorDiv(atMillis, bucketMillis);
+        advanceTo(bucket);
+        if (bucket <= currentBucket - buckets) {
+            return;
+        }
+        amounts[slotOf(bucket) + seriesIndex] += amount;
+        amounts[seriesIndex] += amount;
+    }
+
+    /**
+     * Takes back an amount added at {@code atMillis}, if its bucket is still in the window.
+     */
+    public synchronized void subtract(int seriesIndex, long amount, long atMillis) {
+        long bucket = Math.floorDiv(atMillis, bucketMillis);
+        if (!started || bucket > currentBucket || bucket <= currentBucket - buckets) {
+            return;
+        }
+        amounts[slotOf(bucket) + seriesIndex] -= amount;
+        amounts[seriesIndex] -= amount;
+    }
+
+    private void advanceTo(long bucket) {
+        if (!started) {
+            started = true;
+            currentBucket = bucket;
+            return;
+        }
+        if (bucket <= currentBucket) {
+            return;
+        }
+        if (bucket - currentBucket >= buckets) {
+            Arrays.fill(amounts, 0);
+        } else {
+            for (long expired = currentBucket + 1; expired <= bucket; expired++) {
+                int slot = slotOf(expired);
+                for (int s = 0; s < series; s++) {
+                    amounts[s] -= amounts[slot + s];
+                    amounts[slot + s] = 0;
+                }
+            }
+        }
+        currentBucket = bucket;
+    }
+
+    private int slotOf(long bucket) {
+        return series + (int) Math.floorMod(bucket, (long) buckets) * series;
+    }
+}
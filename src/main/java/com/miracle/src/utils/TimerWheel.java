@@ -0,0 +1,185 @@
+package com.miracle.src.utils;
+
+import java.util.function.Consumer;
+
+/**
+ * Hierarchical timing wheel: deadlines for very many timeouts, each scheduled and cancelled
+ * in O(1), fired by one clock that calls {@link #advance} instead of a task per timeout.
+ * <p>
+ * Level 0 has one slot per tick for the next 64 ticks; each level above covers 64 slots
+ * of the level below. A timeout goes into the lowest level whose range reaches its
+ * deadline. When the ticks below a level roll over, that level's slot for the new range
+ * is moved down, so every timeout is moved at most once per level before it fires.
+ * Timeouts are linked into their slots through fields of {@link Timeout}, so scheduling
+ * allocates nothing.
+ * </p>
+ * <p>
+ * Not thread-safe; callers guard the wheel with one lock.
+ * </p>
+ */
+public final class TimerWheel<T extends TimerWheel.Timeout> {
+
+    private static final int WHEEL_BITS = 6;
+    private static final int WHEEL_SIZE = 1 << WHEEL_BITS;
+    private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+    private static final int MAX_LEVELS = 10;
+
+    /**
+     * Something with a deadline on a wheel; subclass it to be scheduled.
+     */
+    public abstract static class Timeout {
+        private long deadlineTick;
+        private Timeout prev;
+        private Timeout next;
+        private int slot = -1;
+
+        public final boolean isScheduled() {
+            return slot >= 0;
+        }
+    }
+
+    private final long tickMillis;
+    private final int levels;
+    private final Timeout[] slots;
+    private long currentTick;
+    private int size;
+
+    /**
+     * @param tickMillis  resolution; timeouts fire on the first tick at or after their deadline
+     * @param levels      wheel levels; four levels of 1-second ticks reach about 194 days,
+     *                    later deadlines wait on the top level and are moved down in time
+     * @param startMillis the clock's current time
+     */
+    public TimerWheel(long tickMillis, int levels, long startMillis) {
+        if (tickMillis < 1 || levels < 1 || levels > MAX_LEVELS) {
+            throw new IllegalArgumentException("Tick must be positive and levels between 1 and " + MAX_LEVELS);
+        }
+        this.tickMillis = tickMillis;
+        this.levels = levels;
+        this.slots = new Timeout[levels * WHEEL_SIZE];
+        this.currentTick = Math.floorDiv(startMillis, tickMillis);
+    }
+
+    /**
+     * Schedules a timeout. A deadline already passed fires on the next tick.
+     */
+    public void schedule(T scheduled, long deadlineMillis) {
+        Timeout timeout = scheduled;
+        if (timeout.isScheduled()) {
+            throw new IllegalStateException("Timeout is already scheduled");
+        }
+        long deadlineTick = -Math.floorDiv(-deadlineMillis, tickMillis);
+        timeout.deadlineTick = Math.max(deadlineTick, currentTick + 1);
+        place(timeout);
+        size++;
+    }
+
+    /**
+     * @return whether the timeout was scheduled; it will not fire
+     */
+    public boolean cancel(T timeout) {
+        if (!timeout.isScheduled()) {
+            return false;
+        }
+        unlink(timeout);
+        size--;
+        return true;
+    }
+
+    /**
+     * Moves the wheel to {@code nowMillis}, passing every timeout that came due to
+     * {@code expired}; they are unscheduled by then. The clock never moves backwards.
+     *
+     * @return the number of timeouts fired
+     */
+    @SuppressWarnings("unchecked")
+    public int advance(long nowMillis, Consumer<? super T> expired) {
+        long target = Math.floorDiv(nowMillis, tickMillis);
+        int fired = 0;
+        while (currentTick < target && size > 0) {
+            currentTick++;
+            cascade();
+            int index = (int) (currentTick & WHEEL_MASK);
+            Timeout timeout = slots[index];
+            slots[index] = null;
+            while (timeout != null) {
+                Timeout next = timeout.next;
+                timeout.prev = null;
+                timeout.next = null;
+                if (timeout.deadlineTick > currentTick) {
+                    // Parked beyond a one-level wheel's reach
+                    place(timeout);
+                    timeout = next;
+                    continue;
+                }
+                timeout.slot = -1;
+                size--;
+                fired++;
+                expired.accept((T) timeout);
+                timeout = next;
+            }
+        }
+        // Nothing left to move down: jump straight to now
+        currentTick = Math.max(currentTick, target);
+        return fired;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private void cascade() {
+        for (int level = 1; level < levels; level++) {
+            int shift = WHEEL_BITS * level;
+            if ((currentTick & ((1L << shift) - 1)) != 0) {
+                return;
+            }
+            int index = level * WHEEL_SIZE + (int) ((currentTick >>> shift) & WHEEL_MASK);
+            Timeout timeout = slots[index];
+            slots[index] = null;
+            while (timeout != null) {
+                Timeout next = timeout.next;
+                timeout.prev = null;
+                timeout.next = null;
+                place(timeout);
+                timeout = next;
+            }
+        }
+    }
+
+    private void place(Timeout timeout) {
+        long delta = timeout.deadlineTick - currentTick;
+        long tick = timeout.deadlineTick;
+        int level = 0;
+        while (level < levels - 1 && delta >= 1L << (WHEEL_BITS * (level + 1))) {
+            level++;
+        }
+        long reach = 1L << (WHEEL_BITS * levels);
+        if (delta >= reach) {
+            // Past the top level: park in its furthest slot and place again from there
+            tick = currentTick + reach - 1;
+        }
+        int index = level * WHEEL_SIZE + (int) ((tick >>> (WHEEL_BITS * level)) & WHEEL_MASK);
+        Timeout head = slots[index];
+        timeout.next = head;
+        if (head != null) {
+            head.prev = timeout;
+        }
+        slots[index] = timeout;
+        timeout.slot = index;
+    }
+
+    private void unlink(Timeout timeout) {
+        if (timeout.prev != null) {
+            timeout.prev.next = timeout.next;
+        } else {
+            slots[timeout.slot] = timeout.next;
+        }
+        if (timeout.next != null) {
+            timeout.next.prev = timeout.prev;
+        }
+        timeout.prev = null;
+        timeout.next = null;
+        timeout.slot = -1;
+    }
+}
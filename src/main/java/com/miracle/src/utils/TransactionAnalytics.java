@@ -0,0 +1,184 @@
+package com.miracle.src.utils;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Report aggregations over a {@link ColumnarTransactionStore}, run chunk by chunk on the
+ * primitive columns instead of over Transaction objects.
+ * <p>
+ * The kernels are SIMD ({@code jdk.incubator.vector}) when the JVM was started with
+ * {@code --add-modules jdk.incubator.vector}, and plain loops otherwise or when
+ * {@code -Dbank.analytics.scalar=true} is set. Callers must hold whatever lock guards the
+ * store while an aggregation runs.
+ * </p>
+ */
+public final class TransactionAnalytics {
+
+    private static final AggregationKernels KERNELS = selectKernels();
+
+    private TransactionAnalytics() {}
+
+    private static AggregationKernels selectKernels() {
+        if (Boolean.getBoolean("bank.analytics.scalar")
+                || ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+            return ScalarKernels.INSTANCE;
+        }
+        try {
+            // First reference to VectorKernels; it cannot link without the module
+            return VectorKernels.isSupported() ? VectorKernels.INSTANCE : ScalarKernels.INSTANCE;
+        } catch (LinkageError e) {
+            return ScalarKernels.INSTANCE;
+        }
+    }
+
+    /**
+     * Gets the kernels in use.
+     */
+    public static AggregationKernels kernels() {
+        return KERNELS;
+    }
+
+    /**
+     * Gets the plain-loop kernels, regardless of which are in use.
+     */
+    public static AggregationKernels scalarKernels() {
+        return ScalarKernels.INSTANCE;
+    }
+
+    public static boolean isVectorized() {
+        return KERNELS != ScalarKernels.INSTANCE;
+    }
+
+    /**
+     * Count, total, smallest and largest amount over every row.
+     */
+    public static Summary summarize(ColumnarTransactionStore store) {
+        long total = 0;
+        long min = Long.MAX_VALUE;
+        long max = Long.MIN_VALUE;
+        for (int c = 0; c < store.chunkCount(); c++) {
+            long[] amounts = store.amountChunk(c);
+            int rows = store.rowsInChunk(c);
+            total += KERNELS.sum(amounts, rows);
+            min = Math.min(min, KERNELS.min(amounts, rows));
+            max = Math.max(max, KERNELS.max(amounts, rows));
+        }
+        return new Summary(store.size(), total, min, max);
+    }
+
+    /**
+     * Sums amounts in cents of one transaction type.
+     */
+    public static long sumAmountCents(ColumnarTransactionStore store, String type) {
+        int code = store.typeCodeOf(type);
+        if (code < 0) {
+            return 0;
+        }
+        long total = 0;
+        for (int c = 0; c < store.chunkCount(); c++) {
+            total += KERNELS.sumWhereType(store.typeChunk(c), (byte) code, store.amountChunk(c), store.rowsInChunk(c));
+        }
+        return total;
+    }
+
+    public static int countByType(ColumnarTransactionStore store, String type) {
+        int code = store.typeCodeOf(type);
+        if (code < 0) {
+            return 0;
+        }
+        int count = 0;
+        for (int c = 0; c < store.chunkCount(); c++) {
+            count += KERNELS.countWhereType(store.typeChunk(c), (byte) code, store.rowsInChunk(c));
+        }
+        return count;
+    }
+
+    /**
+     * Sums amounts in cents of one account's transactions of one type, e.g. for statements.
+     */
+    public static long sumAmountCents(ColumnarTransactionStore store, String accountNumber, String type) {
+        int account = store.accountCodeOf(accountNumber);
+        int code = store.typeCodeOf(type);
+        if (account < 0 || code < 0) {
+            return 0;
+        }
+        long total = 0;
+        for (int c = 0; c < store.chunkCount(); c++) {
+            total += KERNELS.sumWhereAccountAndType(store.accountChunk(c), account,
+                    store.typeChunk(c), (byte) code, store.amountChunk(c), store.rowsInChunk(c));
+        }
+        return total;
+    }
+
+    /**
+     * Sums amounts in cents of transactions timestamped in [from, to).
+     */
+    public static long sumAmountCentsBetween(ColumnarTransactionStore store, LocalDateTime from, LocalDateTime to) {
+        long start = ColumnarTransactionStore.toEpochNanos(from);
+        long end = ColumnarTransactionStore.toEpochNanos(to);
+        long total = 0;
+        for (int c = 0; c < store.chunkCount(); c++) {
+            total += KERNELS.sumInRange(store.epochNanosChunk(c), start, end, store.amountChunk(c), store.rowsInChunk(c));
+        }
+        return total;
+    }
+
+    public static int countBetween(ColumnarTransactionStore store, LocalDateTime from, LocalDateTime to) {
+        long start = ColumnarTransactionStore.toEpochNanos(from);
+        long end = ColumnarTransactionStore.toEpochNanos(to);
+        int count = 0;
+        for (int c = 0; c < store.chunkCount(); c++) {
+            count += KERNELS.countInRange(store.epochNanosChunk(c), start, end, store.rowsInChunk(c));
+        }
+        return count;
+    }
+
+    /**
+     * Total amount in cents per transaction type, in the order types first appeared.
+     */
+    public static Map<String, Long> totalsByType(ColumnarTransactionStore store) {
+        Map<String, Long> totals = new LinkedHashMap<>();
+        for (int code = 0; code < store.typeCount(); code++) {
+            String type = store.typeOf(code);
+            totals.put(type, sumAmountCents(store, type));
+        }
+        return totals;
+    }
+
+    /**
+     * Aggregate figures over a store; amounts in cents.
+     */
+    public static final class Summary {
+        private final int count;
+        private final long totalCents;
+        private final long minCents;
+        private final long maxCents;
+
+        Summary(int count, long totalCents, long minCents, long maxCents) {
+            this.count = count;
+            this.totalCents = totalCents;
+            this.minCents = minCents;
+            this.maxCents = maxCents;
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        public long getTotalCents() {
+            return totalCents;
+        }
+
+        /** Smallest amount, or {@link Long#MAX_VALUE} for an empty store. */
+        public long getMinCents() {
+            return minCents;
+        }
+
+        /** Largest amount, or {@link Long#MIN_VALUE} for an empty store. */
+        public long getMaxCents() {
+            return maxCents;
+        }
+    }
+}
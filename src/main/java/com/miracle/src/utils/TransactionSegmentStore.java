@@ -0,0 +1,688 @@
+package com.miracle.src.utils;
+
+import com.miracle.src.models.Transaction;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Append-only transaction log split into numbered segments.
+ * <p>
+ * New transactions are appended to the active file (transactions.txt). When the active
+ * file exceeds the size limit, or a batch belongs to a later day than the file's first
+ * record, the active file is sealed: a manifest with its ID range, time range, record
+ * count and CRC32 is written, the file is moved to {@code segments/segment-NNNNNN.txt}
+ * and optionally gzip-compressed. Range reads consult the manifests and never open a
+ * segment whose ranges exclude the request. A sealed segment is checked against its
+ * manifest's CRC32 on its first read in a process, as that read streams the data; a
+ * mismatch fails the read once the segment's records have been passed on.
+ * </p>
+ * <p>
+ * Reads take the segment list and open the active file under the lock that sealing takes,
+ * then read without it: a seal that runs meanwhile moves the open file, which still reads
+ * as the generation it was when the read started.
+ * </p>
+ * <p>
+ * The active file's generation is the sequence number it will receive when sealed, so
+ * a (generation, offset) pair identifies a log position across rotations.
+ * </p>
+ */
+public class TransactionSegmentStore {
+
+    private static final Log LOG = Log.get(TransactionSegmentStore.class);
+
+    public static final long DEFAULT_MAX_SEGMENT_BYTES = 64L * 1024 * 1024;
+
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String DATA_SUFFIX = ".txt";
+    private static final String GZIP_SUFFIX = ".txt.gz";
+    private static final String MANIFEST_SUFFIX = ".manifest";
+
+    private final Path activeFile;
+    private final Path segmentDir;
+    private final long maxSegmentBytes;
+    private final boolean compressSealed;
+
+    private final Object lock = new Object();
+    private List<SegmentManifest> sealed;
+    private LocalDate activeDay;
+    private boolean tailChecked;
+    // Sequences of sealed segments whose data matched their manifest checksum
+    private final Set<Long> verified = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Creates a segment store.
+     *
+     * @param activeFile      the file receiving appends
+     * @param segmentDir      directory for sealed segments and manifests
+     * @param maxSegmentBytes size at which the active file is sealed
+     * @param compressSealed  whether sealed segments are gzip-compressed
+     */
+    public TransactionSegmentStore(Path activeFile, Path segmentDir, long maxSegmentBytes, boolean compressSealed) {
+        this.activeFile = activeFile;
+        this.segmentDir = segmentDir;
+        this.maxSegmentBytes = maxSegmentBytes;
+        this.compressSealed = compressSealed;
+    }
+
+    /**
+     * Appends serialized transactions, rotating first if the size or day limit is reached.
+     *
+     * @param lines serialized transaction lines
+     * @param day   the business day of the batch
+     * @throws IOException if the append or rotation fails
+     */
+    public void append(List<String> lines, LocalDate day) throws IOException {
+        synchronized (lock) {
+            loadManifests();
+            if (!tailChecked) {
+                repairTornTail();
+                tailChecked = true;
+            }
+            if (Files.exists(activeFile) && Files.size(activeFile) > 0) {
+                if (Files.size(activeFile) >= maxSegmentBytes || (day != null && day.isAfter(activeDay()))) {
+                    sealActive();
+                }
+            }
+            Files.write(activeFile, lines, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            if (activeDay == null) {
+                activeDay = day;
+            }
+        }
+    }
+
+    /**
+     * Seals the active file now, if it holds any records.
+     *
+     * @return the manifest of the sealed segment, or null if there was nothing to seal
+     * @throws IOException if sealing fails
+     */
+    public SegmentManifest rotate() throws IOException {
+        synchronized (lock) {
+            loadManifests();
+            if (Files.notExists(activeFile) || Files.size(activeFile) == 0) {
+                return null;
+            }
+            return sealActive();
+        }
+    }
+
+    /**
+     * Gets the current end of the log as a (generation, offset) pair.
+     *
+     * @return the current log position
+     * @throws IOException if the log cannot be inspected
+     */
+    public LogPosition currentPosition() throws IOException {
+        synchronized (lock) {
+            loadManifests();
+            long size = Files.exists(activeFile) ? Files.size(activeFile) : 0L;
+            return new LogPosition(activeGeneration(), size);
+        }
+    }
+
+    /**
+     * Gets the manifests of all sealed segments, oldest first.
+     *
+     * @return the sealed segment manifests
+     * @throws IOException if the manifests cannot be read
+     */
+    public List<SegmentManifest> getSealedSegments() throws IOException {
+        synchronized (lock) {
+            loadManifests();
+            return List.copyOf(sealed);
+        }
+    }
+
+    /**
+     * Takes the sealed segments, the active generation and the active file's size, and
+     * opens the active file, in one step under the lock that sealing takes. Reading through
+     * the view sees one consistent log: a seal that runs meanwhile neither hides a
+     * generation between the two nor swaps the file behind the channel.
+     *
+     * @return the view; close it to release the active file
+     * @throws IOException if the manifests cannot be read or the active file cannot be opened
+     */
+    public LogView openView() throws IOException {
+        synchronized (lock) {
+            loadManifests();
+            List<SegmentManifest> segments = List.copyOf(sealed);
+            FileChannel active = openActive();
+            try {
+                return new LogView(segments, activeGenerationOf(segments), active);
+            } catch (IOException e) {
+                if (active != null) {
+                    active.close();
+                }
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Reads every record in log order: sealed segments first, then the active file.
+     *
+     * @param sink receives each transaction
+     * @return the number of transactions read
+     * @throws IOException if a segment cannot be read
+     */
+    public long readAll(Consumer<Transaction> sink) throws IOException {
+        return readFrom(new LogPosition(1, 0), sink);
+    }
+
+    /**
+     * Reads every record at or after the given log position.
+     *
+     * @param position where to start; segments older than its generation are skipped
+     * @param sink     receives each transaction
+     * @return the number of transactions read
+     * @throws IOException if a segment cannot be read
+     */
+    public long readFrom(LogPosition position, Consumer<Transaction> sink) throws IOException {
+        try (LogView view = openView()) {
+            long count = 0;
+            for (SegmentManifest manifest : view.getSealedSegments()) {
+                if (manifest.getSequence() < position.getGeneration()) {
+                    continue;
+                }
+                long skip = manifest.getSequence() == position.getGeneration() ? position.getOffset() : 0L;
+                count += readSegment(manifest, skip, sink);
+            }
+            FileChannel channel = view.getActiveChannel();
+            if (channel != null) {
+                long activeSkip = position.getGeneration() == view.getActiveGeneration() ? position.getOffset() : 0L;
+                count += readActive(channel, activeSkip, sink);
+            }
+            return count;
+        }
+    }
+
+    /**
+     * Reads the records whose timestamps fall in [from, to], opening only segments
+     * whose manifest time range overlaps the request.
+     *
+     * @param from inclusive lower bound
+     * @param to   inclusive upper bound
+     * @param sink receives each matching transaction
+     * @return the number of matching transactions
+     * @throws IOException if a segment cannot be read
+     */
+    public long readBetween(LocalDateTime from, LocalDateTime to, Consumer<Transaction> sink) throws IOException {
+        long[] matched = {0};
+        Consumer<Transaction> filter = t -> {
+            if (!t.getTimestamp().isBefore(from) && !t.getTimestamp().isAfter(to)) {
+                sink.accept(t);
+                matched[0]++;
+            }
+        };
+        try (LogView view = openView()) {
+            for (SegmentManifest manifest : overlapping(view.getSealedSegments(), from, to)) {
+                readSegment(manifest, 0L, filter);
+            }
+            if (view.getActiveChannel() != null) {
+                readActive(view.getActiveChannel(), 0L, filter);
+            }
+            return matched[0];
+        }
+    }
+
+    /**
+     * Gets the sealed segments whose time range overlaps [from, to].
+     *
+     * @param from inclusive lower bound
+     * @param to   inclusive upper bound
+     * @return the overlapping segment manifests, oldest first
+     * @throws IOException if the manifests cannot be read
+     */
+    public List<SegmentManifest> segmentsOverlapping(LocalDateTime from, LocalDateTime to) throws IOException {
+        return overlapping(getSealedSegments(), from, to);
+    }
+
+    private static List<SegmentManifest> overlapping(List<SegmentManifest> segments, LocalDateTime from, LocalDateTime to) {
+        return segments.stream()
+                .filter(m -> m.getCount() > 0)
+                .filter(m -> !m.getMaxTimestamp().isBefore(from) && !m.getMinTimestamp().isAfter(to))
+                .toList();
+    }
+
+    /**
+     * Checks a sealed segment's data against the CRC32 in its manifest. Sealed segments
+     * never change, so each is checked once per process; later calls return at once.
+     *
+     * @param manifest the segment manifest
+     * @throws IOException if the segment cannot be read or does not match its checksum
+     */
+    public void verify(SegmentManifest manifest) throws IOException {
+        if (verified.contains(manifest.getSequence())) {
+            return;
+        }
+        CRC32 crc = new CRC32();
+        Path file = dataFileOf(manifest);
+        try (InputStream raw = Files.newInputStream(file);
+             InputStream in = new CheckedInputStream(manifest.isCompressed() ? new GZIPInputStream(raw, 1 << 16) : raw, crc)) {
+            in.transferTo(OutputStream.nullOutputStream());
+        }
+        checkChecksum(manifest, file, crc);
+    }
+
+    private void checkChecksum(SegmentManifest manifest, Path file, CRC32 crc) throws IOException {
+        if (crc.getValue() != manifest.getChecksum()) {
+            throw new IOException("Segment " + file.getFileName() + " does not match its manifest checksum ("
+                    + Long.toHexString(crc.getValue()) + " != " + Long.toHexString(manifest.getChecksum()) + ")");
+        }
+        verified.add(manifest.getSequence());
+    }
+
+    /**
+     * Gets the on-disk data file of a sealed segment.
+     *
+     * @param manifest the segment manifest
+     * @return the data file path
+     */
+    public Path dataFileOf(SegmentManifest manifest) {
+        return segmentDir.resolve(baseName(manifest.getSequence()) + (manifest.isCompressed() ? GZIP_SUFFIX : DATA_SUFFIX));
+    }
+
+    /**
+     * Gets the manifest file of a sealed segment.
+     *
+     * @param manifest the segment manifest
+     * @return the manifest file path
+     */
+    public Path manifestFileOf(SegmentManifest manifest) {
+        return segmentDir.resolve(baseName(manifest.getSequence()) + MANIFEST_SUFFIX);
+    }
+
+    public Path getActiveFile() {
+        return activeFile;
+    }
+
+    public Path getSegmentDir() {
+        return segmentDir;
+    }
+
+    // Callers hold the lock
+    private FileChannel openActive() throws IOException {
+        return Files.exists(activeFile) ? FileChannel.open(activeFile, StandardOpenOption.READ) : null;
+    }
+
+    private long readActive(FileChannel channel, long skip, Consumer<Transaction> sink) throws IOException {
+        if (skip > channel.size()) {
+            throw new IOException("Log position " + skip + " is beyond end of " + activeFile);
+        }
+        channel.position(skip);
+        return FileIOUtils.readTransactions(channel, sink);
+    }
+
+    private long readSegment(SegmentManifest manifest, long skip, Consumer<Transaction> sink) throws IOException {
+        Path file = dataFileOf(manifest);
+        boolean unverified = !verified.contains(manifest.getSequence());
+        if (!manifest.isCompressed() && !unverified) {
+            return FileIOUtils.readTransactionsFrom(file, skip, sink);
+        }
+        // The first read of a segment computes its checksum on the way, skipped bytes included
+        CRC32 crc = new CRC32();
+        long count;
+        try (InputStream raw = Files.newInputStream(file);
+             InputStream data = manifest.isCompressed() ? new GZIPInputStream(raw, 1 << 16) : raw;
+             InputStream in = unverified ? new CheckedInputStream(data, crc) : data) {
+            in.skipNBytes(skip);
+            count = FileIOUtils.readTransactions(Channels.newChannel(in), sink);
+        }
+        if (unverified) {
+            checkChecksum(manifest, file, crc);
+        }
+        return count;
+    }
+
+    /**
+     * Truncates a partial final record left by a crash mid-append. Without this the next
+     * append would be glued onto the partial line and lost along with it.
+     */
+    private void repairTornTail() throws IOException {
+        if (Files.notExists(activeFile)) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(activeFile, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long size = channel.size();
+            ByteBuffer buffer = ByteBuffer.allocate(4096);
+            long end = size;
+            while (end > 0) {
+                int chunk = (int) Math.min(buffer.capacity(), end);
+                buffer.clear().limit(chunk);
+                channel.read(buffer, end - chunk);
+                for (int i = chunk - 1; i >= 0; i--) {
+                    if (buffer.get(i) == '\n') {
+                        long keep = end - chunk + i + 1;
+                        if (keep < size) {
+                            channel.truncate(keep);
+                            LOG.warn("Truncated torn record ({} bytes) at end of {}", size - keep, activeFile.getFileName());
+                        }
+                        return;
+                    }
+                }
+                end -= chunk;
+            }
+            if (size > 0) {
+                channel.truncate(0);
+                LOG.warn("Truncated torn record ({} bytes) at end of {}", size, activeFile.getFileName());
+            }
+        }
+    }
+
+    private SegmentManifest sealActive() throws IOException {
+        Files.createDirectories(segmentDir);
+        long sequence = activeGeneration();
+        SegmentManifest manifest = buildManifest(sequence, activeFile, compressSealed);
+
+        Path plain = segmentDir.resolve(baseName(sequence) + DATA_SUFFIX);
+        Files.move(activeFile, plain, StandardCopyOption.ATOMIC_MOVE);
+        if (compressSealed) {
+            Path gz = segmentDir.resolve(baseName(sequence) + GZIP_SUFFIX);
+            Path tmp = gz.resolveSibling(gz.getFileName() + ".tmp");
+            try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(tmp), 1 << 16)) {
+                Files.copy(plain, out);
+            }
+            Files.move(tmp, gz, StandardCopyOption.ATOMIC_MOVE);
+        }
+
+        // The manifest is written last: a segment file without a manifest is still unsealed
+        writeManifest(manifest);
+        if (compressSealed) {
+            Files.deleteIfExists(plain);
+        }
+
+        sealed.add(manifest);
+        activeDay = null;
+        LOG.info("Sealed transaction segment {} ({} transactions)", baseName(sequence), manifest.getCount());
+        return manifest;
+    }
+
+    private void writeManifest(SegmentManifest manifest) throws IOException {
+        Path manifestFile = segmentDir.resolve(baseName(manifest.getSequence()) + MANIFEST_SUFFIX);
+        Path tmp = manifestFile.resolveSibling(manifestFile.getFileName() + ".tmp");
+        Files.writeString(tmp, manifest.toLine() + System.lineSeparator());
+        Files.move(tmp, manifestFile, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static SegmentManifest buildManifest(long sequence, Path file, boolean compressed) throws IOException {
+        CRC32 crc = new CRC32();
+        try (InputStream in = new CheckedInputStream(Files.newInputStream(file), crc)) {
+            in.transferTo(OutputStream.nullOutputStream());
+        }
+
+        long[] ids = {Long.MAX_VALUE, Long.MIN_VALUE};
+        LocalDateTime[] times = {null, null};
+        long count = FileIOUtils.readTransactionsFrom(file, 0L, t -> {
+            long id = numericId(t.getTransactionId());
+            if (id >= 0) {
+                ids[0] = Math.min(ids[0], id);
+                ids[1] = Math.max(ids[1], id);
+            }
+            LocalDateTime ts = t.getTimestamp();
+            if (times[0] == null || ts.isBefore(times[0])) times[0] = ts;
+            if (times[1] == null || ts.isAfter(times[1])) times[1] = ts;
+        });
+        if (count == 0) {
+            times[0] = times[1] = LocalDateTime.MIN;
+            ids[0] = ids[1] = -1;
+        } else if (ids[0] == Long.MAX_VALUE) {
+            ids[0] = ids[1] = -1;
+        }
+        return new SegmentManifest(sequence, ids[0], ids[1], times[0], times[1], count, crc.getValue(), compressed);
+    }
+
+    private LocalDate activeDay() throws IOException {
+        if (activeDay == null) {
+            try (BufferedReader reader = Files.newBufferedReader(activeFile)) {
+                String first = reader.readLine();
+                Transaction t = first == null ? null : FileIOUtils.deserializeTransaction(first.trim());
+                activeDay = t != null ? t.getTimestamp().toLocalDate() : LocalDate.now();
+            } catch (RuntimeException e) {
+                activeDay = LocalDate.now();
+            }
+        }
+        return activeDay;
+    }
+
+    private void loadManifests() throws IOException {
+        if (sealed != null) {
+            return;
+        }
+        List<SegmentManifest> found = new ArrayList<>();
+        if (Files.exists(segmentDir)) {
+            List<Path> files;
+            try (Stream<Path> listing = Files.list(segmentDir)) {
+                files = listing.toList();
+            }
+            for (Path p : files) {
+                String name = p.getFileName().toString();
+                if (name.endsWith(MANIFEST_SUFFIX)) {
+                    SegmentManifest manifest = SegmentManifest.parse(Files.readString(p).trim());
+                    if (manifest.isCompressed()) {
+                        // A crash after the manifest move leaves the plain copy behind
+                        Files.deleteIfExists(p.resolveSibling(baseName(manifest.getSequence()) + DATA_SUFFIX));
+                    }
+                    found.add(manifest);
+                } else if (name.startsWith(SEGMENT_PREFIX) && name.endsWith(DATA_SUFFIX)
+                        && Files.notExists(p.resolveSibling(name.replace(DATA_SUFFIX, MANIFEST_SUFFIX)))) {
+                    found.add(finishInterruptedSeal(p));
+                }
+            }
+        }
+        found.sort(Comparator.comparingLong(SegmentManifest::getSequence));
+        sealed = found;
+    }
+
+    /**
+     * Completes a seal that crashed after moving the data file but before writing its manifest.
+     * The segment is kept uncompressed; any partial compressed copy is discarded.
+     */
+    private SegmentManifest finishInterruptedSeal(Path plain) throws IOException {
+        String name = plain.getFileName().toString();
+        long sequence = Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - DATA_SUFFIX.length()));
+        Files.deleteIfExists(segmentDir.resolve(baseName(sequence) + GZIP_SUFFIX));
+        SegmentManifest manifest = buildManifest(sequence, plain, false);
+        writeManifest(manifest);
+        LOG.warn("Recovered interrupted seal of {}", name);
+        return manifest;
+    }
+
+    private long activeGeneration() {
+        return activeGenerationOf(sealed);
+    }
+
+    private static long activeGenerationOf(List<SegmentManifest> segments) {
+        return segments.isEmpty() ? 1 : segments.get(segments.size() - 1).getSequence() + 1;
+    }
+
+    private static String baseName(long sequence) {
+        return String.format("%s%06d", SEGMENT_PREFIX, sequence);
+    }
+
+    /**
+     * Extracts the numeric part of a TXN-style ID, or -1 when it has none.
+     */
+    static long numericId(String transactionId) {
+        if (transactionId == null || !transactionId.startsWith("TXN") || transactionId.length() == 3) {
+            return -1;
+        }
+        long value = 0;
+        for (int i = 3; i < transactionId.length(); i++) {
+            char c = transactionId.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    /**
+     * A position in the segmented log: the generation of the file and a byte offset within it.
+     */
+    public static class LogPosition {
+        private final long generation;
+        private final long offset;
+
+        public LogPosition(long generation, long offset) {
+            this.generation = generation;
+            this.offset = offset;
+        }
+
+        public long getGeneration() {
+            return generation;
+        }
+
+        public long getOffset() {
+            return offset;
+        }
+
+        @Override
+        public String toString() {
+            return generation + ":" + offset;
+        }
+    }
+
+    /**
+     * The log as it stood when {@link #openView()} was called. The active channel is null
+     * when there was no active file; it still reads as that generation after a seal moves it.
+     */
+    public static class LogView implements Closeable {
+        private final List<SegmentManifest> sealedSegments;
+        private final long activeGeneration;
+        private final FileChannel activeChannel;
+        private final long activeSize;
+
+        private LogView(List<SegmentManifest> sealedSegments, long activeGeneration, FileChannel activeChannel)
+                throws IOException {
+            this.sealedSegments = sealedSegments;
+            this.activeGeneration = activeGeneration;
+            this.activeChannel = activeChannel;
+            this.activeSize = activeChannel != null ? activeChannel.size() : 0L;
+        }
+
+        public List<SegmentManifest> getSealedSegments() {
+            return sealedSegments;
+        }
+
+        public long getActiveGeneration() {
+            return activeGeneration;
+        }
+
+        public FileChannel getActiveChannel() {
+            return activeChannel;
+        }
+
+        /**
+         * @return the end of the log when the view was taken
+         */
+        public LogPosition getEnd() {
+            return new LogPosition(activeGeneration, activeSize);
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (activeChannel != null) {
+                activeChannel.close();
+            }
+        }
+    }
+
+    /**
+     * Summary of a sealed segment, stored as a single pipe-delimited line.
+     */
+    public static class SegmentManifest {
+        private final long sequence;
+        private final long minId;
+        private final long maxId;
+        private final LocalDateTime minTimestamp;
+        private final LocalDateTime maxTimestamp;
+        private final long count;
+        private final long checksum;
+        private final boolean compressed;
+
+        public SegmentManifest(long sequence, long minId, long maxId, LocalDateTime minTimestamp,
+                               LocalDateTime maxTimestamp, long count, long checksum, boolean compressed) {
+            this.sequence = sequence;
+            this.minId = minId;
+            this.maxId = maxId;
+            this.minTimestamp = minTimestamp;
+            this.maxTimestamp = maxTimestamp;
+            this.count = count;
+            this.checksum = checksum;
+            this.compressed = compressed;
+        }
+
+        String toLine() {
+            return String.join("|", "SEGMENT", String.valueOf(sequence), String.valueOf(minId), String.valueOf(maxId),
+                    minTimestamp.toString(), maxTimestamp.toString(), String.valueOf(count),
+                    Long.toHexString(checksum), compressed ? "gzip" : "plain");
+        }
+
+        static SegmentManifest parse(String line) {
+            String[] p = line.split("\\|");
+            if (p.length < 9 || !"SEGMENT".equals(p[0])) {
+                throw new IllegalArgumentException("Invalid segment manifest: " + line);
+            }
+            return new SegmentManifest(Long.parseLong(p[1]), Long.parseLong(p[2]), Long.parseLong(p[3]),
+                    LocalDateTime.parse(p[4]), LocalDateTime.parse(p[5]), Long.parseLong(p[6]),
+                    Long.parseUnsignedLong(p[7], 16), "gzip".equals(p[8]));
+        }
+
+        public long getSequence() {
+            return sequence;
+        }
+
+        public long getMinId() {
+            return minId;
+        }
+
+        public long getMaxId() {
+            return maxId;
+        }
+
+        public LocalDateTime getMinTimestamp() {
+            return minTimestamp;
+        }
+
+        public LocalDateTime getMaxTimestamp() {
+            return maxTimestamp;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getChecksum() {
+            return checksum;
+        }
+
+        public boolean isCompressed() {
+            return compressed;
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package com.miracle.src.utils;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * SIMD kernels on the incubating Vector API. Only {@link TransactionAnalytics} loads this
+ * class, and only once it has checked that {@code jdk.incubator.vector} is present.
+ * <p>
+ * Type codes are bytes while amounts are longs, so filters compare eight type codes at a
+ * time and slice the resulting bit mask into long-lane masks. Rows past the last whole
+ * block of eight go through the scalar loop.
+ * </p>
+ */
+final class VectorKernels implements AggregationKernels {
+
+    private static final VectorSpecies<Long> LONGS = LongVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Byte> BYTES = ByteVector.SPECIES_64;
+    private static final int LANES = LONGS.length();
+    // Account codes in int lanes, as many as there are long lanes
+    private static final VectorSpecies<Integer> INTS = LANES >= 2
+            ? VectorSpecies.of(int.class, VectorShape.forBitSize(LANES * Integer.SIZE))
+            : null;
+    private static final int BLOCK = BYTES.length();
+
+    static final VectorKernels INSTANCE = new VectorKernels();
+
+    private VectorKernels() {}
+
+    /**
+     * Whether the preferred species fits the blocking scheme (2 to 8 long lanes);
+     * anything else is served by the scalar kernels instead.
+     */
+    static boolean isSupported() {
+        return LANES >= 2 && BLOCK % LANES == 0;
+    }
+
+    @Override
+    public long sum(long[] values, int length) {
+        int upper = LONGS.loopBound(length);
+        LongVector acc = LongVector.zero(LONGS);
+        for (int i = 0; i < upper; i += LANES) {
+            acc = acc.add(LongVector.fromArray(LONGS, values, i));
+        }
+        long sum = acc.reduceLanes(VectorOperators.ADD);
+        for (int i = upper; i < length; i++) {
+            sum += values[i];
+        }
+        return sum;
+    }
+
+    @Override
+    public long min(long[] values, int length) {
+        int upper = LONGS.loopBound(length);
+        LongVector acc = LongVector.broadcast(LONGS, Long.MAX_VALUE);
+        for (int i = 0; i < upper; i += LANES) {
+            acc = acc.min(LongVector.fromArray(LONGS, values, i));
+        }
+        long min = acc.reduceLanes(VectorOperators.MIN);
+        for (int i = upper; i < length; i++) {
+            min = Math.min(min, values[i]);
+        }
+        return min;
+    }
+
+    @Override
+    public long max(long[] values, int length) {
+        int upper = LONGS.loopBound(length);
+        LongVector acc = LongVector.broadcast(LONGS, Long.MIN_VALUE);
+        for (int i = 0; i < upper; i += LANES) {
+            acc = acc.max(LongVector.fromArray(LONGS, values, i));
+        }
+        long max = acc.reduceLanes(VectorOperators.MAX);
+        for (int i = upper; i < length; i++) {
+            max = Math.max(max, values[i]);
+        }
+        return max;
+    }
+
+    @Override
+    public long sumWhereType(byte[] types, byte type, long[] values, int length) {
+        int upper = length - length % BLOCK;
+        LongVector acc = LongVector.zero(LONGS);
+        for (int i = 0; i < upper; i += BLOCK) {
+            long bits = ByteVector.fromArray(BYTES, types, i).eq(type).toLong();
+            if (bits == 0) {
+                continue;
+            }
+            for (int j = 0; j < BLOCK; j += LANES) {
+                VectorMask<Long> mask = VectorMask.fromLong(LONGS, bits >>> j);
+                acc = acc.add(LongVector.fromArray(LONGS, values, i + j), mask);
+            }
+        }
+        long sum = acc.reduceLanes(VectorOperators.ADD);
+        for (int i = upper; i < length; i++) {
+            if (types[i] == type) {
+                sum += values[i];
+            }
+        }
+        return sum;
+    }
+
+    @Override
+    public int countWhereType(byte[] types, byte type, int length) {
+        int upper = length - length % BLOCK;
+        int count = 0;
+        for (int i = 0; i < upper; i += BLOCK) {
+            count += ByteVector.fromArray(BYTES, types, i).eq(type).trueCount();
+        }
+        for (int i = upper; i < length; i++) {
+            if (types[i] == type) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public long sumInRange(long[] times, long from, long to, long[] values, int length) {
+        int upper = LONGS.loopBound(length);
+        LongVector acc = LongVector.zero(LONGS);
+        for (int i = 0; i < upper; i += LANES) {
+            LongVector t = LongVector.fromArray(LONGS, times, i);
+            VectorMask<Long> mask = t.compare(VectorOperators.GE, from).and(t.compare(VectorOperators.LT, to));
+            acc = acc.add(LongVector.fromArray(LONGS, values, i), mask);
+        }
+        long sum = acc.reduceLanes(VectorOperators.ADD);
+        for (int i = upper; i < length; i++) {
+            if (times[i] >= from && times[i] < to) {
+                sum += values[i];
+            }
+        }
+        return sum;
+    }
+
+    @Override
+    public int countInRange(long[] times, long from, long to, int length) {
+        int upper = LONGS.loopBound(length);
+        int count = 0;
+        for (int i = 0; i < upper; i += LANES) {
+            LongVector t = LongVector.fromArray(LONGS, times, i);
+            count += t.compare(VectorOperators.GE, from).and(t.compare(VectorOperators.LT, to)).trueCount();
+        }
+        for (int i = upper; i < length; i++) {
+            if (times[i] >= from && times[i] < to) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public long sumWhereAccountAndType(int[] accounts, int account, byte[] types, byte type, long[] values, int length) {
+        int upper = length - length % BLOCK;
+        LongVector acc = LongVector.zero(LONGS);
+        for (int i = 0; i < upper; i += BLOCK) {
+            long bits = ByteVector.fromArray(BYTES, types, i).eq(type).toLong();
+            if (bits == 0) {
+                continue;
+            }
+            for (int j = 0; j < BLOCK; j += LANES) {
+                VectorMask<Long> mask = IntVector.fromArray(INTS, accounts, i + j).eq(account).cast(LONGS)
+                        .and(VectorMask.fromLong(LONGS, bits >>> j));
+                acc = acc.add(LongVector.fromArray(LONGS, values, i + j), mask);
+            }
+        }
+        long sum = acc.reduceLanes(VectorOperators.ADD);
+        for (int i = upper; i < length; i++) {
+            if (accounts[i] == account && types[i] == type) {
+                sum += values[i];
+            }
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,131 @@
+package com.miracle.benchmarks;
+
+import com.miracle.src.utils.AccountIndex;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Account lookup latency: String-keyed maps against {@link AccountIndex}, over 10M accounts
+ * looked up in random order.
+ * <p>
+ * Run with {@code java -cp <test classpath> org.openjdk.jmh.Main AccountLookupBenchmark}.
+ * Running this class's {@code main} instead prints the heap each structure holds.
+ * </p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class AccountLookupBenchmark {
+
+    private static final int PROBES = 1 << 20;
+
+    @Param({"10000000"})
+    public int accounts;
+
+    private Map<String, Object> hashMap;
+    private Map<String, Object> concurrentMap;
+    private AccountIndex<Object> index;
+    private String[] probeNumbers;
+    private int[] probeIds;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        Object[] values = values(accounts);
+        hashMap = new HashMap<>();
+        concurrentMap = new ConcurrentHashMap<>();
+        index = new AccountIndex<>();
+        for (int id = 1; id <= accounts; id++) {
+            String number = String.format("ACC%03d", id);
+            hashMap.put(number, values[id - 1]);
+            concurrentMap.put(number, values[id - 1]);
+            index.put(AccountIndex.parse(number), values[id - 1]);
+        }
+        // Request numbers arrive as fresh strings, so their hash codes are not cached
+        SplittableRandom random = new SplittableRandom(11);
+        probeNumbers = new String[PROBES];
+        probeIds = new int[PROBES];
+        for (int i = 0; i < PROBES; i++) {
+            probeIds[i] = random.nextInt(1, accounts + 1);
+            probeNumbers[i] = String.format("ACC%03d", probeIds[i]);
+        }
+    }
+
+    private int nextProbe() {
+        return next++ & (PROBES - 1);
+    }
+
+    @Benchmark
+    public Object hashMap() {
+        return hashMap.get(probeNumbers[nextProbe()]);
+    }
+
+    @Benchmark
+    public Object concurrentHashMap() {
+        return concurrentMap.get(probeNumbers[nextProbe()]);
+    }
+
+    /** Parse the account number, then index: what findAccount(String) does. */
+    @Benchmark
+    public Object accountIndex() {
+        return index.get(AccountIndex.parse(probeNumbers[nextProbe()]));
+    }
+
+    /** Callers that already hold the parsed id. */
+    @Benchmark
+    public Object accountIndexById() {
+        return index.get(probeIds[nextProbe()]);
+    }
+
+    private static Object[] values(int count) {
+        Object[] values = new Object[count];
+        for (int i = 0; i < count; i++) {
+            values[i] = new Object();
+        }
+        return values;
+    }
+
+    /**
+     * Prints retained heap per account for each structure, keys included, values excluded.
+     */
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 10_000_000;
+        Object[] values = values(count);
+
+        long before = usedHeap();
+        Map<String, Object> map = new ConcurrentHashMap<>();
+        for (int id = 1; id <= count; id++) {
+            map.put(String.format("ACC%03d", id), values[id - 1]);
+        }
+        long mapBytes = usedHeap() - before;
+        System.out.printf("ConcurrentHashMap<String, V>  %,14d bytes  %6.1f bytes/account%n", mapBytes, (double) mapBytes / count);
+        // Keep the map reachable until measured
+        if (map.size() != count) throw new IllegalStateException();
+        map = null;
+
+        before = usedHeap();
+        AccountIndex<Object> index = new AccountIndex<>();
+        for (int id = 1; id <= count; id++) {
+            index.put(id, values[id - 1]);
+        }
+        long indexBytes = usedHeap() - before;
+        System.out.printf("AccountIndex<V>               %,14d bytes  %6.1f bytes/account%n", indexBytes, (double) indexBytes / count);
+        if (index.size() != count || values.length != count) throw new IllegalStateException();
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,77 @@
+package com.miracle.benchmarks;
+
+import com.miracle.src.models.CheckingAccount;
+import com.miracle.src.models.Customer;
+import com.miracle.src.models.PostingResult;
+import com.miracle.src.models.RegularCustomer;
+import com.miracle.src.services.AdmissionController;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A burst of 16 threads posting to one hot account whose postings each hold its monitor for
+ * a few microseconds of work, with and without admission control in front. Without it every
+ * caller joins the convoy on the monitor; with it at most a handful run, a few more wait
+ * briefly and the rest are turned away at once. Compare the sampled p99 and p99.9 rows; the
+ * controller's counters and queue/service split are printed at tear-down.
+ * <p>
+ * Run with {@code java -cp <test classpath> org.openjdk.jmh.Main AdmissionBenchmark}.
+ * </p>
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(16)
+@State(Scope.Benchmark)
+public class AdmissionBenchmark {
+
+    private static final long WORK_TOKENS = 2_000;
+
+    @Param({"false", "true"})
+    public boolean admission;
+
+    private CheckingAccount hot;
+    private AdmissionController controller;
+
+    @Setup
+    public void setUp() {
+        Customer customer = new RegularCustomer("Flash Sale", 40, "0240000000", "Head Office", "CUS997", true);
+        hot = new CheckingAccount(customer, 1_000.00, "ACC29999", true);
+        controller = new AdmissionController(2, 8, 4, Duration.ofMillis(2), Duration.ofMillis(1));
+    }
+
+    @TearDown
+    public void report() {
+        if (admission) {
+            System.out.println("\n" + controller);
+        }
+    }
+
+    @Benchmark
+    public Object post() {
+        if (!admission) {
+            return serve();
+        }
+        if (!controller.tryAdmit()) {
+            return PostingResult.OVERLOADED;
+        }
+        long admittedAt = System.nanoTime();
+        try {
+            return serve();
+        } finally {
+            controller.release(admittedAt);
+        }
+    }
+
+    private PostingResult serve() {
+        synchronized (hot) {
+            Blackhole.consumeCPU(WORK_TOKENS);
+            return hot.tryProcessTransaction(1.00, "Deposit");
+        }
+    }
+}
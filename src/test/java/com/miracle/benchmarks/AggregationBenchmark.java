@@ -0,0 +1,128 @@
+package com.miracle.benchmarks;
+
+import com.miracle.src.utils.AggregationKernels;
+import com.miracle.src.utils.TransactionAnalytics;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+
+/**
+ * Amount aggregations over primitive columns: plain loops, streams and the Vector API kernels.
+ * <p>
+ * Defaults to 100M rows (about 1.7 GB of columns). Run with
+ * {@code java --add-modules jdk.incubator.vector -cp <test classpath> org.openjdk.jmh.Main AggregationBenchmark};
+ * without the module the "vector" methods measure the scalar fallback.
+ * </p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector", "-Xmx3g"})
+@State(Scope.Benchmark)
+public class AggregationBenchmark {
+
+    @Param({"100000000"})
+    public int rows;
+
+    private long[] amounts;
+    private long[] times;
+    private byte[] types;
+    private long from;
+    private long to;
+
+    private final AggregationKernels scalar = TransactionAnalytics.scalarKernels();
+    private final AggregationKernels vector = TransactionAnalytics.kernels();
+
+    @Setup
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(7);
+        amounts = new long[rows];
+        times = new long[rows];
+        types = new byte[rows];
+        for (int i = 0; i < rows; i++) {
+            amounts[i] = random.nextLong(1, 1_000_000);
+            times[i] = i * 1_000_000_000L;
+            types[i] = (byte) random.nextInt(4);
+        }
+        // The middle half of the time range
+        from = times[rows / 4];
+        to = times[rows / 4 * 3];
+        if (!TransactionAnalytics.isVectorized()) {
+            System.out.println("jdk.incubator.vector not loaded: vector* methods run the scalar kernels");
+        }
+    }
+
+    @Benchmark
+    public long sumScalar() {
+        return scalar.sum(amounts, rows);
+    }
+
+    @Benchmark
+    public long sumStream() {
+        return LongStream.of(amounts).sum();
+    }
+
+    @Benchmark
+    public long sumVector() {
+        return vector.sum(amounts, rows);
+    }
+
+    @Benchmark
+    public long maxScalar() {
+        return scalar.max(amounts, rows);
+    }
+
+    @Benchmark
+    public long maxStream() {
+        return LongStream.of(amounts).max().orElse(Long.MIN_VALUE);
+    }
+
+    @Benchmark
+    public long maxVector() {
+        return vector.max(amounts, rows);
+    }
+
+    @Benchmark
+    public long sumByTypeScalar() {
+        return scalar.sumWhereType(types, (byte) 1, amounts, rows);
+    }
+
+    @Benchmark
+    public long sumByTypeStream() {
+        return IntStream.range(0, rows).filter(i -> types[i] == 1).mapToLong(i -> amounts[i]).sum();
+    }
+
+    @Benchmark
+    public long sumByTypeVector() {
+        return vector.sumWhereType(types, (byte) 1, amounts, rows);
+    }
+
+    @Benchmark
+    public long sumInRangeScalar() {
+        return scalar.sumInRange(times, from, to, amounts, rows);
+    }
+
+    @Benchmark
+    public long sumInRangeStream() {
+        return IntStream.range(0, rows).filter(i -> times[i] >= from && times[i] < to).mapToLong(i -> amounts[i]).sum();
+    }
+
+    @Benchmark
+    public long sumInRangeVector() {
+        return vector.sumInRange(times, from, to, amounts, rows);
+    }
+
+    @Benchmark
+    public int countByTypeScalar() {
+        return scalar.countWhereType(types, (byte) 1, rows);
+    }
+
+    @Benchmark
+    public int countByTypeVector() {
+        return vector.countWhereType(types, (byte) 1, rows);
+    }
+}
@@ -0,0 +1,151 @@
+package com.miracle.benchmarks;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Crash-consistency harness for the persistence layer.
+ * <p>
+ * Each iteration starts {@link CrashWorkload} in a child JVM against one scratch data
+ * directory, kills it with {@code destroyForcibly()} at a random point, then starts a
+ * verifying child that recovers the store and checks recovered balances against an
+ * independent replay of the durable log. The data directory carries over between
+ * iterations, so later runs also recover from torn appends left by earlier kills.
+ * </p>
+ * <p>
+ * Usage: {@code CrashRecoveryHarness [iterations] [maxKillDelayMillis]}.
+ * </p>
+ */
+public class CrashRecoveryHarness {
+
+    public static void main(String[] args) throws Exception {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+        long maxKillDelay = args.length > 1 ? Long.parseLong(args[1]) : 2_000L;
+
+        Report report = run(iterations, maxKillDelay);
+        System.out.println(report);
+        if (!report.getFailures().isEmpty()) {
+            report.getFailures().forEach(System.out::println);
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Runs the kill/recover/verify loop.
+     *
+     * @param iterations   number of crash iterations
+     * @param maxKillDelay upper bound of the random delay before each kill
+     * @return the correctness and recovery latency report
+     */
+    public static Report run(int iterations, long maxKillDelay) throws IOException, InterruptedException {
+        Path dataDir = Files.createTempDirectory("crash-harness");
+        Report report = new Report();
+        try {
+            for (int i = 1; i <= iterations; i++) {
+                Process workload = startChild(dataDir, "post");
+                Thread.sleep(ThreadLocalRandom.current().nextLong(maxKillDelay / 4, maxKillDelay + 1));
+                workload.destroyForcibly();
+                workload.waitFor(30, TimeUnit.SECONDS);
+
+                Process verifier = startChild(dataDir, "verify");
+                String result = null;
+                try (BufferedReader out = new BufferedReader(new InputStreamReader(verifier.getInputStream()))) {
+                    String line;
+                    while ((line = out.readLine()) != null) {
+                        if (line.startsWith("RESULT|")) {
+                            result = line;
+                        }
+                    }
+                }
+                verifier.waitFor(60, TimeUnit.SECONDS);
+                report.record(i, result);
+            }
+        } finally {
+            try (Stream<Path> files = Files.walk(dataDir)) {
+                files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+            }
+        }
+        return report;
+    }
+
+    private static Process startChild(Path dataDir, String mode) throws IOException {
+        String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        List<String> command = new ArrayList<>(List.of(java, "-Dbank.data.dir=" + dataDir.toAbsolutePath()));
+        // Children run in the same modes as this JVM (e.g. -Dbank.balance.lockfree=true)
+        System.getProperties().stringPropertyNames().stream()
+                .filter(name -> name.startsWith("bank.") && !name.equals("bank.data.dir"))
+                .forEach(name -> command.add("-D" + name + "=" + System.getProperty(name)));
+        command.addAll(List.of("-cp", System.getProperty("java.class.path"), CrashWorkload.class.getName(), mode));
+        ProcessBuilder builder = new ProcessBuilder(command);
+        builder.redirectError(ProcessBuilder.Redirect.DISCARD);
+        if (mode.equals("post")) {
+            builder.redirectOutput(ProcessBuilder.Redirect.DISCARD);
+        }
+        builder.directory(new File(System.getProperty("user.dir")));
+        return builder.start();
+    }
+
+    /**
+     * Correctness and recovery-time summary across iterations.
+     */
+    public static class Report {
+        private final List<Long> recoveryMicros = new ArrayList<>();
+        private final List<String> failures = new ArrayList<>();
+        private int iterations;
+        private int consistent;
+        private long lastLogSize;
+
+        void record(int iteration, String result) {
+            iterations++;
+            if (result == null) {
+                failures.add("Iteration " + iteration + ": verifier produced no result");
+                return;
+            }
+            String[] parts = result.split("\\|", 5);
+            recoveryMicros.add(Long.parseLong(parts[2]));
+            lastLogSize = Long.parseLong(parts[3]);
+            if (parts[1].equals("ok")) {
+                consistent++;
+            } else {
+                failures.add("Iteration " + iteration + ": " + parts[4]);
+            }
+        }
+
+        public int getConsistent() {
+            return consistent;
+        }
+
+        public List<String> getFailures() {
+            return failures;
+        }
+
+        public long percentileMicros(double percentile) {
+            if (recoveryMicros.isEmpty()) {
+                return 0;
+            }
+            List<Long> sorted = new ArrayList<>(recoveryMicros);
+            Collections.sort(sorted);
+            int index = (int) Math.ceil(percentile / 100.0 * sorted.size()) - 1;
+            return sorted.get(Math.max(0, index));
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Iterations: %d, consistent: %d, failed: %d, durable transactions: %,d%n"
+                            + "Recovery time p50: %.2f ms, p99: %.2f ms",
+                    iterations, consistent, failures.size(), lastLogSize,
+                    percentileMicros(50) / 1000.0, percentileMicros(99) / 1000.0);
+        }
+    }
+}
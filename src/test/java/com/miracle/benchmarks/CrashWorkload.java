@@ -0,0 +1,105 @@
+package com.miracle.benchmarks;
+
+import com.miracle.src.models.*;
+import com.miracle.src.services.AccountManager;
+import com.miracle.src.services.FilePersistenceService;
+import com.miracle.src.services.TransactionManager;
+import com.miracle.src.utils.FileIOUtils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Child-process side of {@link CrashRecoveryHarness}. Run with -Dbank.data.dir pointing
+ * at a scratch store.
+ * <ul>
+ *   <li>{@code post}: recovers, then posts random deposits and withdrawals forever,
+ *       flushing to the log every few postings and checkpointing periodically.</li>
+ *   <li>{@code verify}: recovers, times it, and checks every account balance against an
+ *       independent replay of the durable log. Prints one {@code RESULT|...} line.</li>
+ * </ul>
+ */
+public class CrashWorkload {
+
+    static final int ACCOUNTS = 10;
+    private static final int FLUSH_EVERY = 25;
+    private static final int CHECKPOINT_EVERY = 400;
+
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0 && args[0].equals("verify")) {
+            verify();
+        } else {
+            post();
+        }
+    }
+
+    private static void post() throws Exception {
+        FilePersistenceService persistence = FilePersistenceService.getInstance();
+        persistence.loadAllDataOnStartup();
+        AccountManager accountManager = AccountManager.getInstance();
+
+        if (accountManager.getAccountCount() == 0) {
+            for (int i = 0; i < ACCOUNTS; i++) {
+                Customer customer = new RegularCustomer("Crash Test " + i, 30, "0240000000", "Harness Road");
+                accountManager.addAccount(new CheckingAccount(customer, 1000.0));
+            }
+            persistence.checkpoint();
+        }
+
+        List<Account> accounts = new ArrayList<>(accountManager.getAllAccounts());
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (long n = 1; ; n++) {
+            Account account = accounts.get(random.nextInt(accounts.size()));
+            double amount = random.nextInt(1, 500);
+            try {
+                if (random.nextBoolean()) {
+                    account.deposit(amount);
+                } else {
+                    account.withdraw(amount);
+                }
+            } catch (Exception ignored) {
+                // Rejected withdrawals are part of the workload
+            }
+            if (n % FLUSH_EVERY == 0) {
+                TransactionManager.getInstance().saveTransactionsOnExit();
+            }
+            if (n % CHECKPOINT_EVERY == 0) {
+                persistence.checkpoint();
+            }
+        }
+    }
+
+    private static void verify() throws Exception {
+        long start = System.nanoTime();
+        FilePersistenceService.getInstance().loadAllDataOnStartup();
+        long recoveryMicros = (System.nanoTime() - start) / 1_000;
+
+        Map<String, Double> replayed = new HashMap<>();
+        List<String> problems = new ArrayList<>();
+        long[] count = {0};
+        FileIOUtils.getTransactionStore().readAll(t -> {
+            count[0]++;
+            double before = replayed.getOrDefault(t.getAccountNumber(), 0.0);
+            double signed = t.getType().equals("Deposit") || t.getType().equals("Transfer In") ? t.getAmount() : -t.getAmount();
+            if (Math.abs(before + signed - t.getBalanceAfter()) > 0.005) {
+                problems.add(t.getTransactionId() + " breaks the balance chain of " + t.getAccountNumber());
+            }
+            replayed.put(t.getAccountNumber(), before + signed);
+        });
+
+        for (Account account : AccountManager.getInstance().getAllAccounts()) {
+            double expected = replayed.getOrDefault(account.getAccountNumber(), 0.0);
+            if (Math.abs(expected - account.getBalance()) > 0.005) {
+                problems.add(String.format("%s recovered %.2f but log replays to %.2f",
+                        account.getAccountNumber(), account.getBalance(), expected));
+            }
+        }
+
+        System.out.println(String.join("|", "RESULT", problems.isEmpty() ? "ok" : "fail",
+                String.valueOf(recoveryMicros), String.valueOf(count[0]),
+                problems.isEmpty() ? "-" : problems.get(0)));
+    }
+}
@@ -0,0 +1,63 @@
+package com.miracle.benchmarks;
+
+import com.miracle.src.models.Account;
+import com.miracle.src.models.CheckingAccount;
+import com.miracle.src.models.Customer;
+import com.miracle.src.models.RegularCustomer;
+import com.miracle.src.models.SavingsAccount;
+import com.miracle.src.services.AccountManager;
+import com.miracle.src.services.EndOfDayService;
+import com.miracle.src.services.SnapshotService;
+import com.miracle.src.utils.TransactionSegmentStore;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * Runs a whole end of day over a large book of accounts, half checking and half savings,
+ * and reports each stage's throughput and whether the run fits the window.
+ * <p>
+ * Usage: {@code EndOfDayBenchmark [accounts] [workers] [windowMinutes]}. Defaults to 10M
+ * accounts on every core in a 60 minute window; 10M accounts need about 8 GB of heap.
+ * </p>
+ */
+public class EndOfDayBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        int accountCount = args.length > 0 ? Integer.parseInt(args[0]) : 10_000_000;
+        int workers = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        long windowMinutes = args.length > 2 ? Long.parseLong(args[2]) : 60;
+
+        Path dir = Files.createTempDirectory("eod-bench");
+        try {
+            System.out.printf("Opening %,d accounts...%n", accountCount);
+            Customer customer = new RegularCustomer("Bench Holder", 40, "0240000000", "1 Bench Street", "CUS999998", true);
+            AccountManager accountManager = AccountManager.getInstance();
+            for (int a = 0; a < accountCount; a++) {
+                String accountNumber = "ACC" + (20_000_000 + a);
+                Account account = a % 2 == 0
+                        ? new CheckingAccount(customer, 250.00, accountNumber, true)
+                        : new SavingsAccount(customer, 2_400.00, accountNumber, true);
+                accountManager.addAccountFromFile(account);
+            }
+
+            TransactionSegmentStore store = new TransactionSegmentStore(dir.resolve("transactions.txt"),
+                    dir.resolve("segments"), TransactionSegmentStore.DEFAULT_MAX_SEGMENT_BYTES, false);
+            EndOfDayService eod = new EndOfDayService(dir.resolve("eod"), store, accountManager::getAllAccounts,
+                    () -> { }, new SnapshotService(dir.resolve("snapshots"), store, () -> { }),
+                    1024, workers, Duration.ofMinutes(windowMinutes));
+            EndOfDayService.RunReport report = eod.run(LocalDate.now());
+            // The run logs its report stage by stage
+            System.out.printf("%,.0f accounts/s over the whole run%n", accountCount * 1e9 / report.getElapsedNanos());
+        } finally {
+            try (Stream<Path> files = Files.walk(dir)) {
+                files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+            }
+        }
+    }
+}
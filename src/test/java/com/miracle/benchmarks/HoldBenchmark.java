@@ -0,0 +1,95 @@
+package com.miracle.benchmarks;
+
+import com.miracle.src.models.CheckingAccount;
+import com.miracle.src.models.Customer;
+import com.miracle.src.models.Hold;
+import com.miracle.src.models.RegularCustomer;
+import com.miracle.src.services.HoldService;
+import com.miracle.src.utils.TimerWheel;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Authorization holds with many outstanding: placing and releasing a hold, reading a
+ * balance, and the timer wheel expiring holds while new ones replace them. Compare the
+ * {@code outstanding} rows; each operation should cost the same with a million holds open
+ * as with none.
+ * <p>
+ * Run with {@code java -cp <test classpath> org.openjdk.jmh.Main HoldBenchmark}.
+ * </p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Thread)
+public class HoldBenchmark {
+
+    private static final int ACCOUNTS = 1024;
+    private static final Duration TTL = Duration.ofDays(7);
+    private static final long TICK_MILLIS = 1_000;
+
+    @Param({"0", "1000000"})
+    public int outstanding;
+
+    private HoldService holds;
+    private CheckingAccount[] accounts;
+    private TimerWheel<Deadline> wheel;
+    private long now;
+    private int next;
+    private final Consumer<Deadline> reschedule = this::reschedule;
+
+    private static final class Deadline extends TimerWheel.Timeout {
+    }
+
+    @Setup
+    public void setUp() throws Exception {
+        holds = new HoldService(Paths.get("target", "bench-holds.txt"), TTL, TICK_MILLIS);
+        Customer customer = new RegularCustomer("Merchant", 40, "0240000000", "Head Office", "CUS997", true);
+        accounts = new CheckingAccount[ACCOUNTS];
+        for (int i = 0; i < ACCOUNTS; i++) {
+            accounts[i] = new CheckingAccount(customer, 10_000.00, "ACC" + (30_000 + i), true);
+        }
+        for (int i = 0; i < outstanding; i++) {
+            holds.placeHold(accounts[i & (ACCOUNTS - 1)], 1.00, TTL);
+        }
+
+        // The same number of deadlines spread over as many ticks: one fires per tick
+        wheel = new TimerWheel<>(TICK_MILLIS, 4, 0);
+        for (int i = 0; i < outstanding; i++) {
+            wheel.schedule(new Deadline(), (long) (i + 1) * TICK_MILLIS);
+        }
+        now = 0;
+    }
+
+    @Benchmark
+    public Object placeAndRelease() throws Exception {
+        Hold hold = holds.placeHold(accounts[next++ & (ACCOUNTS - 1)], 1.00, TTL);
+        holds.release(hold.getHoldId());
+        return hold;
+    }
+
+    @Benchmark
+    public double getBalance() {
+        return accounts[next++ & (ACCOUNTS - 1)].getBalance();
+    }
+
+    /**
+     * One tick of the wheel: whatever is due fires and is scheduled again a full spread
+     * ahead, so the number outstanding stays put.
+     */
+    @Benchmark
+    public int expireAndReschedule() {
+        now += TICK_MILLIS;
+        return wheel.advance(now, reschedule);
+    }
+
+    private void reschedule(Deadline deadline) {
+        wheel.schedule(deadline, now + (long) Math.max(outstanding, 1) * TICK_MILLIS);
+    }
+}
@@ -0,0 +1,65 @@
+package com.miracle.benchmarks;
+
+import com.miracle.src.models.CheckingAccount;
+import com.miracle.src.models.Customer;
+import com.miracle.src.models.RegularCustomer;
+import com.miracle.src.models.Transaction;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 64 threads posting to one account: monitor-based balance updates against the lock-free
+ * CAS mode. The mode is fixed per JVM, so each variant runs in its own fork.
+ * <p>
+ * Run with {@code java -cp <test classpath> org.openjdk.jmh.Main HotAccountBenchmark}.
+ * </p>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(64)
+@State(Scope.Benchmark)
+public class HotAccountBenchmark {
+
+    private CheckingAccount account;
+
+    @Setup
+    public void setUp() {
+        Customer customer = new RegularCustomer("Payroll", 40, "0240000000", "Head Office", "CUS999", true);
+        account = new CheckingAccount(customer, 1_000_000_000.00, "ACC999", true);
+    }
+
+    /** Per-thread toggle so the mixed workload alternates credits and debits. */
+    @State(Scope.Thread)
+    public static class Toggle {
+        boolean debit;
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = "-Dbank.balance.lockfree=false")
+    public Transaction depositMonitor() throws Exception {
+        return account.deposit(10.00);
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = "-Dbank.balance.lockfree=true")
+    public Transaction depositLockFree() throws Exception {
+        return account.deposit(10.00);
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = "-Dbank.balance.lockfree=false")
+    public Transaction mixedMonitor(Toggle toggle) throws Exception {
+        toggle.debit = !toggle.debit;
+        return toggle.debit ? account.withdraw(10.00) : account.deposit(10.00);
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = "-Dbank.balance.lockfree=true")
+    public Transaction mixedLockFree(Toggle toggle) throws Exception {
+        toggle.debit = !toggle.debit;
+        return toggle.debit ? account.withdraw(10.00) : account.deposit(10.00);
+    }
+}
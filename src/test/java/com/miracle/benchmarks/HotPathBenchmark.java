@@ -0,0 +1,50 @@
+package com.miracle.benchmarks;
+
+import com.miracle.src.models.CheckingAccount;
+import com.miracle.src.models.Customer;
+import com.miracle.src.models.RegularCustomer;
+import com.miracle.src.models.Transaction;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Deposits over 1024 accounts through the object path ({@code deposit}) and the hot path
+ * ({@code depositCents}). Run with the GC profiler to compare bytes per posting
+ * ({@code gc.alloc.rate.norm}); the hot path should be close to zero.
+ * <p>
+ * Run with {@code java -cp <test classpath> org.openjdk.jmh.Main HotPathBenchmark -prof gc}.
+ * </p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class HotPathBenchmark {
+
+    private static final int ACCOUNTS = 1024;
+
+    private CheckingAccount[] accounts;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        Customer customer = new RegularCustomer("Payroll", 40, "0240000000", "Head Office", "CUS997", true);
+        accounts = new CheckingAccount[ACCOUNTS];
+        for (int i = 0; i < ACCOUNTS; i++) {
+            accounts[i] = new CheckingAccount(customer, 1_000.00, "ACC" + (20_000 + i), true);
+        }
+    }
+
+    @Benchmark
+    public Transaction objectPath() throws Exception {
+        return accounts[next++ & (ACCOUNTS - 1)].deposit(1.00);
+    }
+
+    @Benchmark
+    public long hotPath() throws Exception {
+        return accounts[next++ & (ACCOUNTS - 1)].depositCents(100);
+    }
+}
@@ -0,0 +1,63 @@
+package com.miracle.benchmarks;
+
+import com.miracle.src.utils.IdempotencyCache;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the idempotency check on the posting path, from 4 threads, against a full
+ * cache of 200,000 keys: a new key (stored, evicting the oldest) and a retried key
+ * (answered from the cache). Both should stay well under a microsecond.
+ * <p>
+ * Run with {@code java -cp <test classpath> org.openjdk.jmh.Main IdempotencyBenchmark}.
+ * </p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class IdempotencyBenchmark {
+
+    private static final int CAPACITY = 200_000;
+    private static final int KEYS = 1 << 16;
+
+    private IdempotencyCache<Object> cache;
+    private String[] retried;
+    private final Object result = new Object();
+
+    @Setup
+    public void setUp() {
+        cache = new IdempotencyCache<>(CAPACITY, Duration.ofHours(24));
+        for (int i = 0; i < CAPACITY; i++) {
+            cache.putIfAbsent("warm-" + i, result);
+        }
+        retried = new String[KEYS];
+        for (int i = 0; i < KEYS; i++) {
+            retried[i] = "retry-" + i;
+            cache.putIfAbsent(retried[i], result);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Keys {
+        final String prefix = "new-" + Thread.currentThread().threadId() + "-";
+        long count;
+        int next;
+    }
+
+    @Benchmark
+    public Object newKey(Keys keys) {
+        // Includes building the key, about as long as a client-supplied one
+        return cache.putIfAbsent(keys.prefix + keys.count++, result);
+    }
+
+    @Benchmark
+    public Object retriedKey(Keys keys) {
+        return cache.putIfAbsent(retried[keys.next++ & (KEYS - 1)], result);
+    }
+}
@@ -0,0 +1,81 @@
+package com.miracle.benchmarks;
+
+import com.miracle.src.services.JournalService;
+import com.miracle.src.utils.TransactionSegmentStore;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static com.miracle.src.models.Transaction.TIMESTAMP_FORMATTER;
+
+/**
+ * Times the journal's three passes over a large log: journaling it from scratch, the
+ * trial balance, and projecting balances on one thread and on every core.
+ * <p>
+ * Usage: {@code JournalBenchmark [transactions] [accounts]}. Defaults to 10M transactions
+ * over 10k accounts, about 1.5 GB of log and journal together.
+ * </p>
+ */
+public class JournalBenchmark {
+
+    private static final String[] TYPES = {"Deposit", "Withdrawal", "Transfer Out", "Transfer In"};
+
+    public static void main(String[] args) throws IOException {
+        long transactions = args.length > 0 ? Long.parseLong(args[0]) : 10_000_000L;
+        int accounts = args.length > 1 ? Integer.parseInt(args[1]) : 10_000;
+        int cores = Runtime.getRuntime().availableProcessors();
+
+        Path dir = Files.createTempDirectory("journal-bench");
+        Path wal = dir.resolve("transactions.txt");
+        try {
+            System.out.printf("Writing %,d transactions over %,d accounts...%n", transactions, accounts);
+            String timestamp = LocalDateTime.now().format(TIMESTAMP_FORMATTER);
+            try (BufferedWriter writer = Files.newBufferedWriter(wal)) {
+                for (long i = 1; i <= transactions; i++) {
+                    // Deposits, withdrawals and matched transfer pairs, so every ledger account moves
+                    String account = "ACC" + (40_000 + i % accounts);
+                    writer.write("JB" + i + "|" + account + "|" + TYPES[(int) (i % TYPES.length)] + "|10.00|100.00|" + timestamp);
+                    writer.newLine();
+                }
+            }
+
+            JournalService journal = new JournalService(dir.resolve("journal"),
+                    new TransactionSegmentStore(wal, dir.resolve("segments"), Long.MAX_VALUE, false));
+            long start = System.nanoTime();
+            long journaled = journal.recover();
+            report("Journal from log", journaled, start);
+            System.out.printf("Journal size: %,d bytes%n", Files.size(dir.resolve("journal").resolve("journal.log")));
+
+            start = System.nanoTime();
+            JournalService.TrialBalance trial = journal.trialBalance();
+            report("Trial balance", trial.getEntryCount(), start);
+            System.out.println("  " + trial);
+
+            start = System.nanoTime();
+            Map<String, Long> single = journal.rebuildBalances(1);
+            report("Rebuild, 1 thread", transactions, start);
+
+            start = System.nanoTime();
+            Map<String, Long> parallel = journal.rebuildBalances(cores);
+            report("Rebuild, all " + cores + " cores", transactions, start);
+            if (!single.equals(parallel)) {
+                throw new IllegalStateException("Parallel rebuild disagrees with the single-threaded one");
+            }
+        } finally {
+            try (Stream<Path> files = Files.walk(dir)) {
+                files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+            }
+        }
+    }
+
+    private static void report(String pass, long entries, long startNanos) {
+        double seconds = (System.nanoTime() - startNanos) / 1e9;
+        System.out.printf("%-20s %,8d ms (%,.0f entries/s)%n", pass, (long) (seconds * 1000), entries / seconds);
+    }
+}
@@ -0,0 +1,54 @@
+package com.miracle.benchmarks;
+
+import com.miracle.src.utils.Log;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of a log call on the posting thread from 4 threads: a disabled level, an enabled
+ * level through the asynchronous logger, and the previous style of concatenating and
+ * printing to a synchronized stream (here discarding its output, so it measures the lock
+ * and formatting rather than the terminal). The disabled call should cost nothing.
+ * <p>
+ * Run with {@code java -cp <test classpath> org.openjdk.jmh.Main LogBenchmark}.
+ * </p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Dbank.log.dir=target/bench-logs", "-Dbank.log.console=OFF"})
+@Threads(4)
+@State(Scope.Benchmark)
+public class LogBenchmark {
+
+    private static final Log LOG = Log.get(LogBenchmark.class);
+
+    private final PrintStream console = new PrintStream(OutputStream.nullOutputStream(), true);
+    private final String accountNumber = "ACC001";
+    private final double amount = 125.50;
+
+    @Benchmark
+    public void disabledDebug() {
+        LOG.debug("Posted {} to {}", amount, accountNumber);
+    }
+
+    @Benchmark
+    public void asyncInfo() {
+        LOG.info("Posted {} to {}", amount, accountNumber);
+    }
+
+    @Benchmark
+    public void printStream() {
+        console.println("Posted " + amount + " to " + accountNumber);
+    }
+
+    @TearDown
+    public void tearDown() {
+        Log.flush();
+        System.out.println("Dropped log entries: " + Log.droppedCount());
+    }
+}
@@ -0,0 +1,79 @@
+package com.miracle.benchmarks;
+
+import com.miracle.src.services.LogReplayService;
+import com.miracle.src.utils.TransactionSegmentStore;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static com.miracle.src.models.Transaction.TIMESTAMP_FORMATTER;
+
+/**
+ * Compares rebuilding balances from the log sequentially, as the startup replay did,
+ * with the parallel replay on one thread and on every core.
+ * <p>
+ * Usage: {@code LogReplayBenchmark [transactions] [accounts]}. Defaults to 100M
+ * transactions over 100k accounts, about 7 GB of log; pass a smaller count on machines
+ * without the disk.
+ * </p>
+ */
+public class LogReplayBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        long transactions = args.length > 0 ? Long.parseLong(args[0]) : 100_000_000L;
+        int accounts = args.length > 1 ? Integer.parseInt(args[1]) : 100_000;
+        int cores = Runtime.getRuntime().availableProcessors();
+
+        Path dir = Files.createTempDirectory("replay-bench");
+        Path wal = dir.resolve("transactions.txt");
+        try {
+            System.out.printf("Writing %,d transactions over %,d accounts...%n", transactions, accounts);
+            String timestamp = LocalDateTime.now().format(TIMESTAMP_FORMATTER);
+            long[] balances = new long[accounts];
+            try (BufferedWriter writer = Files.newBufferedWriter(wal)) {
+                for (long i = 1; i <= transactions; i++) {
+                    int a = (int) (i % accounts);
+                    // Mostly deposits, so no balance goes negative
+                    boolean deposit = i % 3 != 0 || balances[a] < 500;
+                    balances[a] += deposit ? 1_000 : -500;
+                    writer.write("RB" + i + "|ACC" + (50_000 + a) + (deposit ? "|Deposit|10.00|" : "|Withdrawal|5.00|")
+                            + (balances[a] / 100) + "." + String.format("%02d", balances[a] % 100) + "|" + timestamp);
+                    writer.newLine();
+                }
+            }
+            System.out.printf("Log size: %,d bytes%n", Files.size(wal));
+            TransactionSegmentStore store = new TransactionSegmentStore(wal, dir.resolve("segments"), Long.MAX_VALUE, false);
+
+            Map<String, Double> sequential = new HashMap<>();
+            long start = System.nanoTime();
+            long replayed = store.readAll(t -> sequential.put(t.getAccountNumber(), t.getBalanceAfter()));
+            System.out.printf("Sequential replay:    %,8d ms (%,d transactions)%n",
+                    (System.nanoTime() - start) / 1_000_000, replayed);
+
+            System.out.println("Parallel, 1 thread:   " + new LogReplayService(store, 1, 32L << 20).replay());
+            LogReplayService.ReplayReport report = new LogReplayService(store, cores, 32L << 20).replay();
+            System.out.println("Parallel, all cores:  " + report);
+
+            for (int a = 0; a < accounts; a++) {
+                Long rebuilt = report.getBalances().get("ACC" + (50_000 + a));
+                if (rebuilt != null && rebuilt != balances[a]) {
+                    throw new IllegalStateException("ACC" + (50_000 + a) + " rebuilt to " + rebuilt + " cents, expected " + balances[a]);
+                }
+            }
+            if (!report.getDivergences().isEmpty()) {
+                throw new IllegalStateException("Unexpected divergences: " + report.getDivergences().subList(0, 1));
+            }
+        } finally {
+            try (Stream<Path> files = Files.walk(dir)) {
+                files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+            }
+        }
+    }
+}
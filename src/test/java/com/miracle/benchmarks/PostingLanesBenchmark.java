@@ -0,0 +1,100 @@
+package com.miracle.benchmarks;
+
+import com.miracle.src.models.CheckingAccount;
+import com.miracle.src.models.Customer;
+import com.miracle.src.models.RegularCustomer;
+import com.miracle.src.models.Transaction;
+import com.miracle.src.services.PostingLanes;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Uniform deposits over 1024 accounts: single-writer posting lanes at 1, 2 and 4 lanes
+ * against inline monitor postings from 4 threads. Each invocation posts one batch and waits
+ * for it, so the lane figures include the hand-off. Lane throughput should grow with the
+ * lane count up to the number of cores.
+ * <p>
+ * Run with {@code java -cp <test classpath> org.openjdk.jmh.Main PostingLanesBenchmark}.
+ * </p>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class PostingLanesBenchmark {
+
+    private static final int ACCOUNTS = 1024;
+    private static final int BATCH = 1024;
+
+    private static CheckingAccount[] openAccounts() {
+        Customer customer = new RegularCustomer("Payroll", 40, "0240000000", "Head Office", "CUS998", true);
+        CheckingAccount[] accounts = new CheckingAccount[ACCOUNTS];
+        for (int i = 0; i < ACCOUNTS; i++) {
+            accounts[i] = new CheckingAccount(customer, 1_000.00, "ACC" + (10_000 + i), true);
+        }
+        return accounts;
+    }
+
+    @State(Scope.Benchmark)
+    public static class Lanes {
+        @Param({"1", "2", "4"})
+        public int lanes;
+
+        CheckingAccount[] accounts;
+        PostingLanes postingLanes;
+
+        @Setup
+        public void setUp() {
+            accounts = openAccounts();
+            postingLanes = new PostingLanes(lanes);
+            for (CheckingAccount account : accounts) {
+                postingLanes.adopt(account);
+            }
+        }
+
+        @TearDown
+        public void tearDown() {
+            postingLanes.shutdown();
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Inline {
+        CheckingAccount[] accounts;
+
+        @Setup
+        public void setUp() {
+            accounts = openAccounts();
+        }
+    }
+
+    /** Per-thread cursor so threads walk the accounts from different offsets. */
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next = (int) (Thread.currentThread().threadId() * 7919);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public Object lanes(Lanes state, Cursor cursor) {
+        CompletableFuture<?>[] posted = new CompletableFuture<?>[BATCH];
+        for (int i = 0; i < BATCH; i++) {
+            posted[i] = state.postingLanes.post(state.accounts[cursor.next++ & (ACCOUNTS - 1)], "Deposit", 1.00);
+        }
+        return CompletableFuture.allOf(posted).join();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public Transaction inlineMonitor(Inline state, Cursor cursor) throws Exception {
+        Transaction last = null;
+        for (int i = 0; i < BATCH; i++) {
+            last = state.accounts[cursor.next++ & (ACCOUNTS - 1)].deposit(1.00);
+        }
+        return last;
+    }
+}
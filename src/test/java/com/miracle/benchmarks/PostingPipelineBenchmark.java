@@ -0,0 +1,108 @@
+package com.miracle.benchmarks;
+
+import com.miracle.src.dto.TransactionRequest;
+import com.miracle.src.models.CheckingAccount;
+import com.miracle.src.models.Customer;
+import com.miracle.src.models.RegularCustomer;
+import com.miracle.src.models.Transaction;
+import com.miracle.src.services.AccountManager;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * AccountManager.processTransaction inline against the ring-buffer posting pipeline, from
+ * two producer threads over 256 accounts. The throughput pair posts batches of 256 and
+ * waits for all of them; the latency pair is one request and its result, sampled so the
+ * report includes p99 and p99.9.
+ * <p>
+ * Run with {@code java -cp <test classpath> org.openjdk.jmh.Main PostingPipelineBenchmark}.
+ * Each benchmark runs in its own fork, so the pipeline is only on where it is measured.
+ * </p>
+ */
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(2)
+public class PostingPipelineBenchmark {
+
+    private static final int ACCOUNTS = 256;
+    private static final int BATCH = 256;
+
+    @State(Scope.Benchmark)
+    public static class Inline {
+        final AccountManager manager = AccountManager.getInstance();
+        TransactionRequest[] deposits;
+
+        @Setup
+        public void setUp() {
+            Customer customer = new RegularCustomer("Payroll", 40, "0240000000", "Head Office", "CUS997", true);
+            deposits = new TransactionRequest[ACCOUNTS];
+            for (int i = 0; i < ACCOUNTS; i++) {
+                String number = "ACC" + (20_000 + i);
+                manager.addAccountFromFile(new CheckingAccount(customer, 1_000.00, number, true));
+                deposits[i] = new TransactionRequest(number, null, "DEPOSIT", 1.00);
+            }
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Pipeline extends Inline {
+        @Param({"1024"})
+        public int ringSize;
+
+        @Setup
+        public void startPipeline() {
+            manager.enablePostingPipeline(ringSize);
+        }
+
+        @TearDown
+        public void stopPipeline() {
+            manager.disablePostingPipeline();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next = (int) Thread.currentThread().threadId() * 31;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    @OperationsPerInvocation(BATCH)
+    public Object throughputInline(Inline state, Cursor cursor) throws Exception {
+        return postBatch(state, cursor);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    @OperationsPerInvocation(BATCH)
+    public Object throughputPipeline(Pipeline state, Cursor cursor) throws Exception {
+        return postBatch(state, cursor);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public Transaction latencyInline(Inline state, Cursor cursor) throws Exception {
+        return state.manager.processTransaction(state.deposits[cursor.next++ & (ACCOUNTS - 1)]).join();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public Transaction latencyPipeline(Pipeline state, Cursor cursor) throws Exception {
+        return state.manager.processTransaction(state.deposits[cursor.next++ & (ACCOUNTS - 1)]).join();
+    }
+
+    private static Object postBatch(Inline state, Cursor cursor) throws Exception {
+        CompletableFuture<?>[] posted = new CompletableFuture<?>[BATCH];
+        for (int i = 0; i < BATCH; i++) {
+            posted[i] = state.manager.processTransaction(state.deposits[cursor.next++ & (ACCOUNTS - 1)]);
+        }
+        return CompletableFuture.allOf(posted).join();
+    }
+}
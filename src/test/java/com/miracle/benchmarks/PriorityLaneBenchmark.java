@@ -0,0 +1,83 @@
+package com.miracle.benchmarks;
+
+import com.miracle.src.models.CheckingAccount;
+import com.miracle.src.models.Customer;
+import com.miracle.src.models.PostingResult;
+import com.miracle.src.models.RegularCustomer;
+import com.miracle.src.services.AdmissionController;
+import com.miracle.src.services.PriorityLane;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Saturation with a batch job: 12 threads post batch work and 4 post premium interactive
+ * work through one admission controller, every posting holding a shared monitor for a few
+ * microseconds. With weighted lanes (default 8,4,2,1) premium postings jump the batch
+ * backlog; with equal weights every lane is served alike. Compare the {@code premium} rows'
+ * percentiles across the two settings; batch keeps progressing in both.
+ * <p>
+ * Run with {@code java -cp <test classpath> org.openjdk.jmh.Main PriorityLaneBenchmark}.
+ * </p>
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Group)
+public class PriorityLaneBenchmark {
+
+    private static final long WORK_TOKENS = 2_000;
+
+    @Param({"true", "false"})
+    public boolean weighted;
+
+    private CheckingAccount hot;
+    private AdmissionController controller;
+
+    @Setup
+    public void setUp() {
+        Customer customer = new RegularCustomer("Clearing", 40, "0240000000", "Head Office", "CUS997", true);
+        hot = new CheckingAccount(customer, 1_000.00, "ACC29998", true);
+        int[] weights = weighted ? new int[]{8, 4, 2, 1} : new int[]{1, 1, 1, 1};
+        // Long enough waits that batch queues up instead of being turned away
+        controller = new AdmissionController(2, 2, 64, Duration.ofSeconds(1), Duration.ofSeconds(1), weights);
+    }
+
+    @TearDown
+    public void report() {
+        System.out.println("\n" + controller);
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(4)
+    public PostingResult premium() {
+        return post(PriorityLane.PREMIUM_INTERACTIVE);
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(12)
+    public PostingResult batch() {
+        return post(PriorityLane.REGULAR_BATCH);
+    }
+
+    private PostingResult post(PriorityLane lane) {
+        if (!controller.tryAdmit(lane)) {
+            return PostingResult.OVERLOADED;
+        }
+        long admittedAt = System.nanoTime();
+        try {
+            synchronized (hot) {
+                Blackhole.consumeCPU(WORK_TOKENS);
+                return hot.tryProcessTransaction(1.00, "Deposit");
+            }
+        } finally {
+            controller.release(admittedAt, lane);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.miracle.benchmarks;
+
+import com.miracle.src.models.Account;
+import com.miracle.src.models.CheckingAccount;
+import com.miracle.src.models.Customer;
+import com.miracle.src.models.RegularCustomer;
+import com.miracle.src.services.ReconciliationService;
+import com.miracle.src.utils.TransactionSegmentStore;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static com.miracle.src.models.Transaction.TIMESTAMP_FORMATTER;
+
+/**
+ * Times a reconciliation of every account against a large log, on one thread and on
+ * every core.
+ * <p>
+ * Usage: {@code ReconciliationBenchmark [transactions] [accounts]}. Defaults to 20M
+ * transactions over 1M accounts, about 1.4 GB of log.
+ * </p>
+ */
+public class ReconciliationBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        long transactions = args.length > 0 ? Long.parseLong(args[0]) : 20_000_000L;
+        int accountCount = args.length > 1 ? Integer.parseInt(args[1]) : 1_000_000;
+        int cores = Runtime.getRuntime().availableProcessors();
+
+        Path dir = Files.createTempDirectory("reconcile-bench");
+        Path wal = dir.resolve("transactions.txt");
+        try {
+            System.out.printf("Writing %,d transactions over %,d accounts...%n", transactions, accountCount);
+            String timestamp = LocalDateTime.now().format(TIMESTAMP_FORMATTER);
+            long[] balances = new long[accountCount];
+            try (BufferedWriter writer = Files.newBufferedWriter(wal)) {
+                for (long i = 1; i <= transactions; i++) {
+                    int a = (int) (i % accountCount);
+                    boolean deposit = i % 3 != 0 || balances[a] < 500;
+                    balances[a] += deposit ? 1_000 : -500;
+                    writer.write("RC" + i + "|ACC" + (1_000_000 + a) + (deposit ? "|Deposit|10.00|" : "|Withdrawal|5.00|")
+                            + (balances[a] / 100) + "." + String.format("%02d", balances[a] % 100) + "|" + timestamp);
+                    writer.newLine();
+                }
+            }
+            TransactionSegmentStore store = new TransactionSegmentStore(wal, dir.resolve("segments"), Long.MAX_VALUE, false);
+
+            Customer customer = new RegularCustomer("Bench Holder", 40, "0240000000", "1 Bench Street", "CUS999999", true);
+            List<Account> accounts = new ArrayList<>(accountCount);
+            for (int a = 0; a < accountCount; a++) {
+                accounts.add(new CheckingAccount(customer, balances[a] / 100.0, "ACC" + (1_000_000 + a), true));
+            }
+
+            System.out.println("1 thread:        " + new ReconciliationService(store, () -> { }, 1).reconcile(accounts));
+            ReconciliationService.Report report = new ReconciliationService(store, () -> { }, cores).reconcile(accounts);
+            System.out.println("All " + cores + " cores:     " + report);
+            if (!report.isClean()) {
+                throw new IllegalStateException("Unexpected discrepancies: " + report.getDiscrepancies().subList(0, 1));
+            }
+        } finally {
+            try (Stream<Path> files = Files.walk(dir)) {
+                files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+            }
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.miracle.benchmarks;
+
+import com.miracle.src.models.Transaction;
+import com.miracle.src.utils.FileIOUtils;
+import com.miracle.src.utils.RecordParser;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static com.miracle.src.models.Transaction.TIMESTAMP_FORMATTER;
+
+/**
+ * Parse throughput for transaction records: the previous split/trim/parseDouble/
+ * DateTimeFormatter path against {@link RecordParser}.
+ * <p>
+ * Run with {@code java -cp <test classpath> org.openjdk.jmh.Main RecordParserBenchmark}.
+ * </p>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RecordParserBenchmark {
+
+    private static final String[] TYPES = {"Deposit", "Withdrawal", "Transfer Out", "Transfer In"};
+
+    private String[] lines;
+    private int next;
+    private final RecordParser parser = new RecordParser();
+
+    @Setup
+    public void setUp() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        lines = new String[4096];
+        for (int i = 0; i < lines.length; i++) {
+            LocalDateTime ts = LocalDateTime.of(2026, 1 + random.nextInt(12), 1 + random.nextInt(28),
+                    random.nextInt(24), random.nextInt(60), random.nextInt(60));
+            lines[i] = FileIOUtils.serializeTransaction(new Transaction("TXN" + (1000 + i), "ACC" + (100 + random.nextInt(900)),
+                    TYPES[random.nextInt(TYPES.length)], random.nextInt(1, 100_000) / 100.0,
+                    random.nextInt(-100_000, 10_000_000) / 100.0, ts));
+        }
+    }
+
+    private String nextLine() {
+        return lines[next++ & (lines.length - 1)];
+    }
+
+    /** The parsing code FileIOUtils used before RecordParser. */
+    @Benchmark
+    public Transaction legacySplit() {
+        String line = nextLine();
+        String[] parts = line.split("\\|");
+        return new Transaction(parts[0].trim(), parts[1].trim(), parts[2].trim(),
+                Double.parseDouble(parts[3].trim()), Double.parseDouble(parts[4].trim()),
+                LocalDateTime.parse(parts[5].trim(), TIMESTAMP_FORMATTER));
+    }
+
+    /** Full deserialization through the new parser, including the Transaction object. */
+    @Benchmark
+    public Transaction recordParser() {
+        return FileIOUtils.deserializeTransaction(nextLine());
+    }
+
+    /** Field extraction only: what a columnar loader needs, with no per-record objects. */
+    @Benchmark
+    public void recordParserFieldsOnly(Blackhole bh) {
+        parser.parse(nextLine());
+        bh.consume(parser.cents(3));
+        bh.consume(parser.cents(4));
+        bh.consume(parser.fieldEquals(2, "Deposit"));
+        bh.consume(parser.timestamp(5, TIMESTAMP_FORMATTER));
+    }
+}
@@ -0,0 +1,81 @@
+package com.miracle.benchmarks;
+
+import com.miracle.src.models.CheckingAccount;
+import com.miracle.src.models.Customer;
+import com.miracle.src.models.PostingResult;
+import com.miracle.src.models.RegularCustomer;
+import com.miracle.src.models.exceptions.InsufficientFundsException;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A workload where half the postings are rejected, as in a card-testing attack: every
+ * other operation is a withdrawal far beyond the overdraft limit, the rest are small
+ * deposits. Compares the throwing API (a new exception with a stack trace per rejection),
+ * the result-code API, and the result-code API turned back into exceptions through the
+ * shared stackless instances.
+ * <p>
+ * Run with {@code java -cp <test classpath> org.openjdk.jmh.Main RejectionBenchmark -prof gc}.
+ * </p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RejectionBenchmark {
+
+    private static final int ACCOUNTS = 1024;
+    private static final double REJECTED_AMOUNT = 1_000_000.00;
+
+    private CheckingAccount[] accounts;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        Customer customer = new RegularCustomer("Payroll", 40, "0240000000", "Head Office", "CUS997", true);
+        accounts = new CheckingAccount[ACCOUNTS];
+        for (int i = 0; i < ACCOUNTS; i++) {
+            accounts[i] = new CheckingAccount(customer, 1_000.00, "ACC" + (30_000 + i), true);
+        }
+    }
+
+    @Benchmark
+    public Object throwing() throws Exception {
+        int op = next++;
+        CheckingAccount account = accounts[(op >>> 1) & (ACCOUNTS - 1)];
+        if ((op & 1) == 0) {
+            return account.deposit(1.00);
+        }
+        try {
+            return account.withdraw(REJECTED_AMOUNT);
+        } catch (InsufficientFundsException e) {
+            return e;
+        }
+    }
+
+    @Benchmark
+    public PostingResult resultCodes() {
+        int op = next++;
+        CheckingAccount account = accounts[(op >>> 1) & (ACCOUNTS - 1)];
+        return (op & 1) == 0
+                ? account.tryProcessTransaction(1.00, "Deposit")
+                : account.tryProcessTransaction(REJECTED_AMOUNT, "Withdrawal");
+    }
+
+    @Benchmark
+    public Object cachedExceptions() {
+        int op = next++;
+        CheckingAccount account = accounts[(op >>> 1) & (ACCOUNTS - 1)];
+        PostingResult result = (op & 1) == 0
+                ? account.tryProcessTransaction(1.00, "Deposit")
+                : account.tryProcessTransaction(REJECTED_AMOUNT, "Withdrawal");
+        try {
+            return result.getTransactionOrThrow();
+        } catch (Exception e) {
+            return e;
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.miracle.benchmarks;
+
+import com.miracle.src.models.*;
+import com.miracle.src.services.AccountManager;
+import com.miracle.src.services.SnapshotService;
+import com.miracle.src.utils.FileIOUtils;
+import com.miracle.src.utils.TransactionSegmentStore;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import static com.miracle.src.models.Transaction.TIMESTAMP_FORMATTER;
+
+/**
+ * Compares restart time for a full log read against snapshot + log tail.
+ * <p>
+ * Usage: {@code RestartBenchmark [historyTransactions] [tailTransactions] [accounts]}.
+ * Defaults to 50M historical transactions with a 100k tail; pass a smaller history
+ * on machines without several GB of free disk.
+ * </p>
+ */
+public class RestartBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        long history = args.length > 0 ? Long.parseLong(args[0]) : 50_000_000L;
+        long tail = args.length > 1 ? Long.parseLong(args[1]) : 100_000L;
+        int accountCount = args.length > 2 ? Integer.parseInt(args[2]) : 1_000;
+
+        Path dir = Files.createTempDirectory("restart-bench");
+        Path wal = dir.resolve("transactions.txt");
+        try {
+            Account[] accounts = registerAccounts(accountCount);
+            SnapshotService snapshots = new SnapshotService(dir.resolve("snapshots"),
+                    new TransactionSegmentStore(wal, dir.resolve("segments"), Long.MAX_VALUE, false));
+
+            System.out.printf("Writing %,d historical transactions...%n", history);
+            String timestamp = LocalDateTime.now().format(TIMESTAMP_FORMATTER);
+            double[] balances = new double[accountCount];
+            try (BufferedWriter writer = Files.newBufferedWriter(wal)) {
+                for (long i = 1; i <= history; i++) {
+                    if (i == history - tail + 1) {
+                        // Snapshot at the interval boundary; everything after is the tail
+                        writer.flush();
+                        for (int a = 0; a < accountCount; a++) {
+                            accounts[a].updateBalance(balances[a]);
+                        }
+                        snapshots.takeSnapshot();
+                    }
+                    int a = (int) (i % accountCount);
+                    balances[a] += 10.0;
+                    writer.write("TXN" + i + "|" + accounts[a].getAccountNumber() + "|Deposit|10.00|"
+                            + String.format("%.2f", balances[a]) + "|" + timestamp);
+                    writer.newLine();
+                }
+            }
+            System.out.printf("Log size: %,d bytes%n", Files.size(wal));
+
+            resetBalances(accounts);
+            long start = System.nanoTime();
+            long replayed = FileIOUtils.readTransactionsFrom(wal, 0, t -> {
+                try {
+                    AccountManager.getInstance().findAccount(t.getAccountNumber()).updateBalance(t.getBalanceAfter());
+                } catch (Exception ignored) {
+                }
+            });
+            long fullMillis = (System.nanoTime() - start) / 1_000_000;
+            System.out.printf("Full log replay:      %,8d ms (%,d transactions)%n", fullMillis, replayed);
+
+            resetBalances(accounts);
+            SnapshotService.RecoveryResult result = snapshots.restoreLatest().orElseThrow();
+            System.out.printf("Snapshot + log tail:  %,8d ms (%,d transactions)%n",
+                    result.getElapsedMillis(), result.getTransactionsReplayed());
+
+            for (int a = 0; a < accountCount; a++) {
+                if (Math.abs(accounts[a].getBalance() - balances[a]) > 0.001) {
+                    throw new IllegalStateException("Balance mismatch for " + accounts[a].getAccountNumber());
+                }
+            }
+            System.out.println("Recovered balances verified.");
+        } finally {
+            try (Stream<Path> files = Files.walk(dir)) {
+                files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+            }
+        }
+    }
+
+    private static Account[] registerAccounts(int count) {
+        Account[] accounts = new Account[count];
+        for (int a = 0; a < count; a++) {
+            Customer customer = new RegularCustomer("Bench " + a, 30, "0240000000", "Bench Street", "CUS" + (500000 + a), true);
+            accounts[a] = new CheckingAccount(customer, 0.0, "ACC" + (500000 + a), true);
+            AccountManager.getInstance().addAccountFromFile(accounts[a]);
+        }
+        return accounts;
+    }
+
+    private static void resetBalances(Account[] accounts) {
+        for (Account account : accounts) {
+            account.updateBalance(0.0);
+        }
+    }
+}
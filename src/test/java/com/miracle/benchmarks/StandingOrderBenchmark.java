@@ -0,0 +1,93 @@
+package com.miracle.benchmarks;
+
+import com.miracle.src.models.CheckingAccount;
+import com.miracle.src.models.Customer;
+import com.miracle.src.models.RegularCustomer;
+import com.miracle.src.models.StandingOrder;
+import com.miracle.src.services.AccountManager;
+import com.miracle.src.services.StandingOrderService;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One tick with every standing order due at the same instant, as on the first of the
+ * month: the whole batch is taken off the due queue, grouped by source account and posted.
+ * Each invocation is one tick over {@code orders} orders; divide to get the cost per order,
+ * or see the runs per second printed after each tick.
+ * <p>
+ * Run with {@code java -cp <test classpath> org.openjdk.jmh.Main StandingOrderBenchmark}.
+ * </p>
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class StandingOrderBenchmark {
+
+    private static final int ACCOUNTS = 1024;
+    private static final LocalDateTime DUE = LocalDateTime.of(2027, 2, 1, 0, 0);
+    private static final Path ORDERS_FILE = Paths.get("target", "bench-standing-orders.txt");
+
+    @Param({"1000000"})
+    public int orders;
+
+    private StandingOrderService service;
+
+    @Setup(Level.Trial)
+    public void createAccounts() {
+        Customer customer = new RegularCustomer("Payroll", 40, "0240000000", "Head Office", "CUS997", true);
+        AccountManager accountManager = AccountManager.getInstance();
+        for (int i = 0; i < ACCOUNTS; i++) {
+            accountManager.addAccountFromFile(new CheckingAccount(customer, 1_000_000_000.00, "ACC" + (30_000 + i), true));
+        }
+    }
+
+    /**
+     * Writes the book of orders as a save would. Creating them one by one would force the
+     * order log a million times.
+     */
+    @Setup(Level.Trial)
+    public void writeOrders() throws Exception {
+        List<String> lines = new ArrayList<>(orders);
+        for (int i = 0; i < orders; i++) {
+            int source = i & (ACCOUNTS - 1);
+            lines.add(String.join(",", "STO" + (i + 1), "ACC" + (30_000 + source),
+                    "ACC" + (30_000 + ((source + 1 + (i >>> 10)) & (ACCOUNTS - 1))), "1.0",
+                    StandingOrder.Frequency.MONTHLY.name(), DUE.toString(), "", "0", "0"));
+        }
+        Files.createDirectories(ORDERS_FILE.getParent());
+        Files.write(ORDERS_FILE, lines);
+    }
+
+    /**
+     * A fresh book of orders every tick, recovered from the file; each order runs once and
+     * is then due next month.
+     */
+    @Setup(Level.Iteration)
+    public void createOrders() throws Exception {
+        Files.deleteIfExists(ORDERS_FILE.resolveSibling("bench-standing-orders.log"));
+        service = new StandingOrderService(ORDERS_FILE, Runtime.getRuntime().availableProcessors(), 31);
+        service.recoverOrders();
+    }
+
+    @TearDown(Level.Iteration)
+    public void stop() {
+        service.stop();
+    }
+
+    @Benchmark
+    public StandingOrderService.RunReport tick() {
+        StandingOrderService.RunReport report = service.runDue(DUE);
+        System.out.println(report);
+        return report;
+    }
+}
@@ -0,0 +1,67 @@
+package com.miracle.benchmarks;
+
+import com.miracle.src.models.Transaction;
+import com.miracle.src.utils.ColumnarTransactionStore;
+import com.miracle.src.utils.FileIOUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Measures retained heap per transaction for the object list against
+ * {@link ColumnarTransactionStore}.
+ * <p>
+ * Usage: {@code TransactionFootprintBenchmark [transactions] [accounts]}, defaulting to
+ * 2M transactions over 10k accounts. Records go through the same deserialization as a log
+ * load, so the object list shares account and type strings the way a loaded history does.
+ * Give the JVM room for the object list, e.g. {@code -Xmx2g}.
+ * </p>
+ */
+public class TransactionFootprintBenchmark {
+
+    private static final String[] TYPES = {"Deposit", "Withdrawal", "Transfer Out", "Transfer In"};
+
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+        int accounts = args.length > 1 ? Integer.parseInt(args[1]) : 10_000;
+
+        long baseline = usedHeap();
+        List<Transaction> objects = new ArrayList<>(count);
+        fill(objects, count, accounts);
+        long objectBytes = usedHeap() - baseline;
+        report("Transaction objects", objectBytes, count);
+        objects = null;
+
+        baseline = usedHeap();
+        ColumnarTransactionStore columns = new ColumnarTransactionStore();
+        fill(columns, count, accounts);
+        long columnBytes = usedHeap() - baseline;
+        report("Columnar store", columnBytes, count);
+        System.out.printf("Columnar estimate: %.1f bytes/transaction%n", (double) columns.estimatedBytes() / count);
+        System.out.printf("Reduction: %.1fx%n", (double) objectBytes / columnBytes);
+        // Keep the store reachable until measured
+        if (columns.size() != count) throw new IllegalStateException();
+    }
+
+    private static void fill(List<Transaction> target, int count, int accounts) {
+        LocalDateTime start = LocalDateTime.of(2026, 1, 1, 9, 0);
+        for (int i = 0; i < count; i++) {
+            Transaction t = new Transaction("TXN" + (1000 + i), "ACC" + (100 + i % accounts),
+                    TYPES[i & 3], (i % 100_000) / 100.0, i / 100.0, start.plusSeconds(i));
+            target.add(FileIOUtils.deserializeTransaction(FileIOUtils.serializeTransaction(t)));
+        }
+    }
+
+    private static void report(String label, long bytes, int count) {
+        System.out.printf("%-20s %,14d bytes  %6.1f bytes/transaction%n", label, bytes, (double) bytes / count);
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
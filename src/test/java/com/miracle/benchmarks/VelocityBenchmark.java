@@ -0,0 +1,65 @@
+package com.miracle.benchmarks;
+
+import com.miracle.src.models.CheckingAccount;
+import com.miracle.src.models.Customer;
+import com.miracle.src.models.PostingResult;
+import com.miracle.src.models.RegularCustomer;
+import com.miracle.src.models.VelocityLimits;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the daily velocity check on the posting path: alternating one-cent deposits and
+ * withdrawals over many accounts, with limits on and off. One-cent withdrawals keep every
+ * account far below its limit, so both settings post the same work and the difference is
+ * the window update.
+ * <p>
+ * Run with {@code java -cp <test classpath> org.openjdk.jmh.Main VelocityBenchmark}.
+ * </p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class VelocityBenchmark {
+
+    private static final int ACCOUNTS = 1024;
+
+    @Param({"true", "false"})
+    public boolean limits;
+
+    private CheckingAccount[] accounts;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        VelocityLimits.setEnabled(limits);
+        Customer customer = new RegularCustomer("Payroll", 40, "0240000000", "Head Office", "CUS997", true);
+        accounts = new CheckingAccount[ACCOUNTS];
+        for (int i = 0; i < ACCOUNTS; i++) {
+            accounts[i] = new CheckingAccount(customer, 1_000.00, "ACC" + (30_000 + i), true);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        VelocityLimits.setEnabled(false);
+    }
+
+    @Benchmark
+    public PostingResult resultCodes() {
+        int op = next++;
+        CheckingAccount account = accounts[(op >>> 1) & (ACCOUNTS - 1)];
+        return account.tryProcessTransaction(0.01, (op & 1) == 0 ? "Deposit" : "Withdrawal");
+    }
+
+    @Benchmark
+    public long hotPath() throws Exception {
+        int op = next++;
+        CheckingAccount account = accounts[(op >>> 1) & (ACCOUNTS - 1)];
+        return (op & 1) == 0 ? account.depositCents(1) : account.withdrawCents(1);
+    }
+}
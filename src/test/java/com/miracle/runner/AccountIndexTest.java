@@ -0,0 +1,70 @@
+package com.miracle.runner;
+
+import com.miracle.src.models.*;
+import com.miracle.src.models.exceptions.AccountNotFoundException;
+import com.miracle.src.services.AccountManager;
+import com.miracle.src.utils.AccountIndex;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for the numeric account lookup index.
+ */
+public class AccountIndexTest {
+
+    @Test
+    @DisplayName("Should parse only ACC%03d account numbers")
+    public void testParse() {
+        assertEquals(1, AccountIndex.parse("ACC001"));
+        assertEquals(1234, AccountIndex.parse("ACC1234"));
+        assertEquals(0, AccountIndex.parse("ACC000"));
+        assertEquals(-1, AccountIndex.parse("ACC0001"));
+        assertEquals(-1, AccountIndex.parse("ACC01"));
+        assertEquals(-1, AccountIndex.parse("acc001"));
+        assertEquals(-1, AccountIndex.parse("ACC12a"));
+        assertEquals(-1, AccountIndex.parse("ACC99999999999"));
+        assertEquals(-1, AccountIndex.parse(null));
+    }
+
+    @Test
+    @DisplayName("Should find dense and sparse entries across growth")
+    public void testDenseAndSparse() {
+        AccountIndex<String> index = new AccountIndex<>();
+        index.put(5_000_000, "far");
+        index.put(7, "near");
+        for (int i = 1; i <= 3_000; i++) {
+            index.put(1_000 + i, "v" + i);
+        }
+        assertEquals("far", index.get(5_000_000));
+        assertEquals("near", index.get(7));
+        assertEquals("v3000", index.get(4_000));
+        assertNull(index.get(4_001));
+        assertNull(index.get(-1));
+        assertEquals(3_002, index.size());
+
+        // Enough sequential entries to pull the far key into the dense range
+        for (int i = 0; i < 3_000_000; i++) {
+            index.put(10_000 + i, "s");
+        }
+        assertEquals("far", index.get(5_000_000));
+        assertEquals(3_003_002, index.size());
+    }
+
+    @Test
+    @DisplayName("Should find accounts by number and by parsed id")
+    public void testAccountManagerLookup() throws AccountNotFoundException {
+        Customer customer = new RegularCustomer("Index Test", 30, "0241113333", "2 Index Rd", "CUS931", true);
+        Account account = new CheckingAccount(customer, 50.00, "ACC931", true);
+        Account irregular = new CheckingAccount(customer, 50.00, "ACC0932", true);
+        AccountManager manager = AccountManager.getInstance();
+        manager.addAccountFromFile(account);
+        manager.addAccountFromFile(irregular);
+
+        assertSame(account, manager.findAccount("ACC931"));
+        assertSame(account, manager.findAccount(931));
+        assertSame(irregular, manager.findAccount("ACC0932"));
+        assertThrows(AccountNotFoundException.class, () -> manager.findAccount(999_999));
+    }
+}
@@ -0,0 +1,149 @@
+package com.miracle.runner;
+
+import com.miracle.src.dto.TransactionRequest;
+import com.miracle.src.models.*;
+import com.miracle.src.models.exceptions.OverloadedException;
+import com.miracle.src.services.AccountManager;
+import com.miracle.src.services.AdmissionController;
+import com.miracle.src.utils.LatencyHistogram;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for admission control in front of the posting path.
+ */
+@ExtendWith(SharedStateExtension.class)
+public class AdmissionControlTest {
+
+    private static CheckingAccount account;
+    private final AccountManager manager = AccountManager.getInstance();
+
+    @BeforeAll
+    public static void registerAccount() {
+        Customer customer = new RegularCustomer("Burst Sender", 52, "0241119999", "12 Queue Rd", "CUS992", true);
+        account = new CheckingAccount(customer, 300.00, "ACC992", true);
+        AccountManager.getInstance().addAccountFromFile(account);
+    }
+
+    @AfterEach
+    public void cleanUp() {
+        manager.disableAdmissionControl();
+    }
+
+    @Test
+    @DisplayName("Should reject at once past the limit when there is no queue")
+    public void testRejectsWithoutQueue() {
+        AdmissionController controller = new AdmissionController(2, 2, 0, Duration.ofMillis(50), Duration.ofSeconds(1));
+        assertTrue(controller.tryAdmit());
+        assertTrue(controller.tryAdmit());
+        assertFalse(controller.tryAdmit());
+        assertEquals(1, controller.getRejectedCount());
+
+        controller.release(System.nanoTime());
+        assertTrue(controller.tryAdmit());
+        assertEquals(2, controller.getInFlight());
+        assertEquals(3, controller.getAdmittedCount());
+    }
+
+    @Test
+    @DisplayName("Should admit a queued posting on release and time it out otherwise")
+    public void testQueueHandoffAndDeadline() throws Exception {
+        AdmissionController controller = new AdmissionController(1, 1, 1, Duration.ofMillis(200), Duration.ofSeconds(1));
+        assertTrue(controller.tryAdmit());
+        long admittedAt = System.nanoTime();
+
+        CompletableFuture<Boolean> waiter = CompletableFuture.supplyAsync(controller::tryAdmit);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (controller.getQueued() == 0 && System.nanoTime() < deadline) {
+            Thread.onSpinWait();
+        }
+        assertEquals(1, controller.getQueued());
+        // The queue holds one; a third caller is turned away without waiting
+        assertFalse(controller.tryAdmit());
+        assertEquals(1, controller.getRejectedCount());
+
+        Thread.sleep(20);
+        controller.release(admittedAt);
+        assertTrue(waiter.get(5, TimeUnit.SECONDS));
+        assertTrue(controller.getQueueTime().getMaxNanos() >= TimeUnit.MILLISECONDS.toNanos(20));
+
+        // Nobody releases the waiter's permit this time, so the next caller times out
+        long start = System.nanoTime();
+        assertFalse(controller.tryAdmit());
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(200));
+        assertEquals(1, controller.getTimedOutCount());
+        assertEquals(0, controller.getQueued());
+    }
+
+    @Test
+    @DisplayName("Should cut the limit on slow postings and grow it on fast ones")
+    public void testLimitAdapts() {
+        AdmissionController controller = new AdmissionController(10, 12, 0, Duration.ZERO, Duration.ofMillis(5));
+        for (int i = 0; i < 10; i++) {
+            assertTrue(controller.tryAdmit());
+        }
+        long slowStart = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(50);
+        // Still counted as one round: both postings started before the first cut
+        controller.release(System.nanoTime());
+        controller.release(slowStart + 1);
+        controller.release(slowStart + 2);
+        assertEquals(9, controller.getLimit());
+
+        // Fast postings with the limit in use raise it by one per round
+        while (controller.getInFlight() < controller.getLimit()) {
+            assertTrue(controller.tryAdmit());
+        }
+        for (int i = 0; i < 9; i++) {
+            controller.release(System.nanoTime());
+            assertTrue(controller.tryAdmit());
+        }
+        assertEquals(10, controller.getLimit());
+        assertTrue(controller.getServiceTime().percentileNanos(0.99) >= TimeUnit.MILLISECONDS.toNanos(40));
+    }
+
+    @Test
+    @DisplayName("Should turn postings away through the manager with a distinct result")
+    public void testManagerRejectsWhenOverloaded() throws Exception {
+        AdmissionController controller = new AdmissionController(1, 1, 0, Duration.ZERO, Duration.ofSeconds(1));
+        manager.enableAdmissionControl(controller);
+        double before = account.getBalance();
+
+        assertTrue(controller.tryAdmit());
+        long admittedAt = System.nanoTime();
+        TransactionRequest deposit = new TransactionRequest("ACC992", null, "DEPOSIT", 10);
+        assertSame(OverloadedException.cached(), assertThrows(OverloadedException.class,
+                () -> manager.processTransaction(deposit)));
+        assertSame(PostingResult.OVERLOADED, manager.tryProcessTransaction(deposit));
+        assertThrows(OverloadedException.class, PostingResult.OVERLOADED::getTransactionOrThrow);
+        assertEquals(before, account.getBalance(), 1e-9);
+
+        controller.release(admittedAt);
+        manager.processTransaction(deposit).join();
+        assertTrue(manager.tryProcessTransaction(deposit).isPosted());
+        assertEquals(before + 20, account.getBalance(), 1e-9);
+        assertEquals(0, controller.getInFlight());
+        assertEquals(3, controller.getAdmittedCount());
+    }
+
+    @Test
+    @DisplayName("Should report latency percentiles within a bucket")
+    public void testHistogramPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i * 1_000L);
+        }
+        assertEquals(1000, histogram.getCount());
+        assertEquals(1_000_000, histogram.getMaxNanos());
+        long p50 = histogram.percentileNanos(0.50);
+        long p99 = histogram.percentileNanos(0.99);
+        assertTrue(p50 >= 500_000 && p50 <= 500_000 * 1.125, "p50 " + p50);
+        assertTrue(p99 >= 990_000 && p99 <= 1_000_000, "p99 " + p99);
+        assertEquals(500_500, histogram.getMeanNanos(), 1e-6);
+    }
+}
@@ -0,0 +1,152 @@
+package com.miracle.runner;
+
+import com.miracle.src.models.Transaction;
+import com.miracle.src.services.BackupService;
+import com.miracle.src.utils.FileIOUtils;
+import com.miracle.src.utils.TransactionSegmentStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for incremental online backups.
+ */
+public class BackupServiceTest {
+
+    @TempDir
+    Path tempDir;
+
+    private Path dataDir;
+    private TransactionSegmentStore log;
+    private BackupService service;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        dataDir = Files.createDirectories(tempDir.resolve("data"));
+        log = new TransactionSegmentStore(dataDir.resolve("transactions.txt"), dataDir.resolve("segments"),
+                TransactionSegmentStore.DEFAULT_MAX_SEGMENT_BYTES, false);
+        service = new BackupService(dataDir, log, dataDir.resolve("snapshots"));
+
+        Files.write(dataDir.resolve("accounts.txt"),
+                List.of("ACC001|John Mensah|35|0241234567|15 Independence Ave, Accra|CUS001|Regular|Savings|5000.00"));
+        log.append(List.of(line(1)), null);
+        log.rotate();
+        log.append(List.of(line(2)), null);
+        Path snapshots = Files.createDirectories(dataDir.resolve("snapshots"));
+        Files.write(snapshots.resolve("snapshot-00000000000000000001.snap"),
+                List.of("SNAPSHOT|2|2|0|1|1|1", "ACC001|5000.00|Active", "END|1"));
+    }
+
+    private static String line(int id) {
+        return FileIOUtils.serializeTransaction(new Transaction("TXN" + id, "ACC001", "Deposit", 10.00, 5000.00 + 10 * id,
+                LocalDateTime.of(2026, 1, 6, 9, 0)));
+    }
+
+    @Test
+    @DisplayName("Should only transfer changed files on a repeat backup")
+    public void testIncrementalBackup() throws IOException {
+        Path backupDir = tempDir.resolve("backup");
+
+        BackupService.BackupResult first = service.backup(backupDir);
+        assertEquals(0, first.getUnchanged());
+        assertEquals(5, first.getLinked() + first.getCopied());
+        assertTrue(Files.exists(backupDir.resolve(BackupService.RESTORE_MANIFEST)));
+
+        BackupService.BackupResult second = service.backup(backupDir);
+        assertEquals(5, second.getUnchanged());
+        assertEquals(0, second.getBytesCopied());
+
+        log.append(List.of(line(3)), null);
+        BackupService.BackupResult third = service.backup(backupDir);
+        assertEquals(4, third.getUnchanged());
+        assertEquals(1, third.getCopied());
+    }
+
+    @Test
+    @DisplayName("Should restore a data directory from the restore manifest")
+    public void testRestore() throws IOException {
+        Path backupDir = tempDir.resolve("backup");
+        service.backup(backupDir);
+
+        Path restored = tempDir.resolve("restored");
+        assertEquals(5, service.restore(backupDir, restored));
+        assertEquals(Files.readAllLines(dataDir.resolve("transactions.txt")),
+                Files.readAllLines(restored.resolve("transactions.txt")));
+        assertTrue(Files.exists(restored.resolve("segments/segment-000001.txt")));
+        assertTrue(Files.exists(restored.resolve("snapshots/snapshot-00000000000000000001.snap")));
+    }
+
+    @Test
+    @DisplayName("Should copy a new active log generation even when its size matches the last backup")
+    public void testNewGenerationSameSize() throws IOException {
+        Path backupDir = tempDir.resolve("backup");
+        service.backup(backupDir);
+
+        // Seals line 2; the next generation starts with a line of the same length
+        log.rotate();
+        log.append(List.of(line(3)), null);
+        BackupService.BackupResult second = service.backup(backupDir);
+        assertTrue(second.getCopied() + second.getLinked() >= 3, second.toString());
+
+        Path restored = tempDir.resolve("restored");
+        service.restore(backupDir, restored);
+        assertEquals(List.of(line(3)), Files.readAllLines(restored.resolve("transactions.txt")));
+        assertTrue(Files.exists(restored.resolve("segments/segment-000002.txt")));
+    }
+
+    @Test
+    @DisplayName("Should back up the saved holds and their event log, copying them again when they change")
+    public void testHoldFiles() throws IOException {
+        Path holds = dataDir.resolve("holds.txt");
+        Path holdEvents = dataDir.resolve("holds.log");
+        Files.write(holds, List.of("HLD001,ACC001,2500,1767690000000,1767693600000"));
+        Files.write(holdEvents, List.of("PLACED,HLD002,ACC001,1000,1767690000000,1767693600000"));
+        Path backupDir = tempDir.resolve("backup");
+
+        BackupService.BackupResult first = service.backup(backupDir);
+        assertEquals(7, first.getLinked() + first.getCopied());
+
+        // Same size, later version: a save emptied the log and the next placement was logged
+        Files.write(holdEvents, List.of("PLACED,HLD003,ACC001,1000,1767690000000,1767693600000"));
+        Files.setLastModifiedTime(holdEvents, FileTime.fromMillis(Files.getLastModifiedTime(holdEvents).toMillis() + 1_000));
+        BackupService.BackupResult second = service.backup(backupDir);
+        assertEquals(6, second.getUnchanged());
+        assertEquals(1, second.getCopied());
+
+        Path restored = tempDir.resolve("restored");
+        assertEquals(7, service.restore(backupDir, restored));
+        assertEquals(Files.readAllLines(holds), Files.readAllLines(restored.resolve("holds.txt")));
+        assertEquals(Files.readAllLines(holdEvents), Files.readAllLines(restored.resolve("holds.log")));
+    }
+
+    @Test
+    @DisplayName("Should back up and restore the saved standing orders and their log")
+    public void testStandingOrderFiles() throws IOException {
+        Path orders = dataDir.resolve("standing_orders.txt");
+        Path orderLog = dataDir.resolve("standing_orders.log");
+        Files.write(orders, List.of("STO001,ACC001,ACC002,25.0,MONTHLY,2027-01-31T08:00,,3,0"));
+        Files.write(orderLog, List.of("CANCELLED,STO001"));
+        Path backupDir = tempDir.resolve("backup");
+
+        BackupService.BackupResult first = service.backup(backupDir);
+        assertEquals(7, first.getLinked() + first.getCopied());
+        Files.write(orderLog, List.of("CANCELLED,STO001", "CREATED,STO002,ACC001,ACC002,5.0,WEEKLY,2027-02-01T08:00,,0,0"));
+        BackupService.BackupResult changed = service.backup(backupDir);
+        assertEquals(1, changed.getCopied());
+
+        Path restored = tempDir.resolve("restored");
+        assertEquals(7, service.restore(backupDir, restored));
+        assertEquals(Files.readAllLines(orders), Files.readAllLines(restored.resolve("standing_orders.txt")));
+        assertEquals(Files.readAllLines(orderLog), Files.readAllLines(restored.resolve("standing_orders.log")));
+    }
+}
@@ -0,0 +1,164 @@
+package com.miracle.runner;
+
+import com.miracle.src.models.*;
+import com.miracle.src.models.exceptions.InsufficientFundsException;
+import com.miracle.src.models.exceptions.InvalidAmountException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for concurrent postings on one account. Holds in both balance modes; run the
+ * suite with -Dbank.balance.lockfree=true to exercise the CAS path.
+ */
+public class BalanceConcurrencyTest {
+
+    private static final int THREADS = 8;
+
+    private CheckingAccount newAccount(String number, double balance) {
+        Customer customer = new RegularCustomer("Hot Account", 35, "0241114444", "3 Payroll Rd", "CUS94" + number.charAt(5), true);
+        return new CheckingAccount(customer, balance, number, true);
+    }
+
+    @Test
+    @DisplayName("Should apply every concurrent deposit exactly once with unique transaction IDs")
+    public void testConcurrentDeposits() throws Exception {
+        CheckingAccount account = newAccount("ACC941", 0);
+        Set<String> ids = ConcurrentHashMap.newKeySet();
+        runConcurrently(() -> {
+            for (int i = 0; i < 2_000; i++) {
+                ids.add(account.deposit(1.25).getTransactionId());
+            }
+            return null;
+        });
+        assertEquals(THREADS * 2_000 * 1.25, account.getBalance(), 1e-6);
+        assertEquals(THREADS * 2_000, ids.size());
+    }
+
+    @Test
+    @DisplayName("Should never let racing withdrawals pass the overdraft limit")
+    public void testOverdraftFloorUnderContention() throws Exception {
+        CheckingAccount account = newAccount("ACC942", 100);
+        AtomicInteger accepted = new AtomicInteger();
+        runConcurrently(() -> {
+            while (true) {
+                try {
+                    account.withdraw(7.00);
+                    accepted.incrementAndGet();
+                } catch (InsufficientFundsException e) {
+                    return null;
+                }
+            }
+        });
+        double floor = -CheckingAccount.getOverDraftLimit();
+        assertTrue(account.getBalance() >= floor, "balance " + account.getBalance());
+        assertTrue(account.getBalance() - 7.00 < floor);
+        assertEquals(100 - accepted.get() * 7.00, account.getBalance(), 1e-6);
+    }
+
+    @Test
+    @DisplayName("Should record postings in the order their balances were applied")
+    public void testRecordingOrderMatchesBalanceOrder() throws Exception {
+        CheckingAccount account = newAccount("ACC944", 500);
+        Queue<Transaction> posted = new ConcurrentLinkedQueue<>();
+        runConcurrently(() -> {
+            for (int i = 0; i < 5_000; i++) {
+                posted.add(i % 2 == 0 ? account.deposit(3.00) : account.withdraw(2.00));
+            }
+            return null;
+        });
+        // Transactions are numbered as they are recorded; each must start from the last one's balance
+        List<Transaction> ordered = new ArrayList<>(posted);
+        ordered.sort(Comparator.comparingLong(t -> Long.parseLong(t.getTransactionId().substring(3))));
+        double balance = 500;
+        for (Transaction t : ordered) {
+            balance += "Deposit".equals(t.getType()) ? t.getAmount() : -t.getAmount();
+            assertEquals(balance, t.getBalanceAfter(), 1e-6, t.getTransactionId());
+        }
+        assertEquals(account.getBalance(), ordered.get(ordered.size() - 1).getBalanceAfter(), 1e-6);
+    }
+
+    @Test
+    @DisplayName("Should wait for postings registered before the snapshot barrier")
+    public void testInFlightBarrier() throws Exception {
+        int token = InFlightPostings.enter();
+        CompletableFuture<Void> barrier = CompletableFuture.runAsync(InFlightPostings::awaitEarlier);
+        assertThrows(TimeoutException.class, () -> barrier.get(200, TimeUnit.MILLISECONDS));
+        InFlightPostings.exit(token);
+        barrier.get(5, TimeUnit.SECONDS);
+
+        // Postings that start while a barrier waits do not hold it up
+        int earlier = InFlightPostings.enter();
+        CompletableFuture<Void> waiting = CompletableFuture.runAsync(InFlightPostings::awaitEarlier);
+        assertThrows(TimeoutException.class, () -> waiting.get(200, TimeUnit.MILLISECONDS));
+        int later = InFlightPostings.enter();
+        try {
+            InFlightPostings.exit(earlier);
+            waiting.get(5, TimeUnit.SECONDS);
+        } finally {
+            InFlightPostings.exit(later);
+        }
+    }
+
+    @Test
+    @DisplayName("Should read state without blocking postings and never see a balance go backwards")
+    public void testOptimisticStateReads() throws Exception {
+        CheckingAccount account = newAccount("ACC943", 0);
+        int deposits = 20_000;
+        AtomicInteger reads = new AtomicInteger();
+        Future<?> writer = ForkJoinPool.commonPool().submit(() -> {
+            for (int i = 0; i < deposits; i++) {
+                account.deposit(1.00);
+            }
+            return null;
+        });
+        runConcurrently(() -> {
+            double last = 0;
+            while (!writer.isDone()) {
+                Account.State state = account.readState();
+                assertTrue(state.getBalance() >= last, "balance went from " + last + " to " + state.getBalance());
+                assertEquals(0, state.getBalance() % 1.00, 1e-9);
+                assertEquals("Active", state.getStatus());
+                last = state.getBalance();
+                reads.incrementAndGet();
+            }
+            return null;
+        });
+        writer.get(60, TimeUnit.SECONDS);
+
+        Account.State state = account.readState();
+        assertEquals(deposits, state.getBalance(), 1e-6);
+        account.setStatus("Inactive");
+        assertEquals("Inactive", account.readState().getStatus());
+        assertTrue(reads.get() > 0);
+    }
+
+    private void runConcurrently(Callable<Void> task) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            Future<?>[] futures = new Future<?>[THREADS];
+            for (int t = 0; t < THREADS; t++) {
+                futures[t] = pool.submit(() -> {
+                    start.await();
+                    return task.call();
+                });
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
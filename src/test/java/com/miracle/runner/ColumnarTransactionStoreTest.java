@@ -0,0 +1,87 @@
+package com.miracle.runner;
+
+import com.miracle.src.models.Transaction;
+import com.miracle.src.utils.ColumnarTransactionStore;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.Comparator;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for the struct-of-arrays transaction history.
+ */
+public class ColumnarTransactionStoreTest {
+
+    private final ColumnarTransactionStore store = new ColumnarTransactionStore();
+
+    @Test
+    @DisplayName("Should rebuild equal transaction views from the columns")
+    public void testRoundTrip() {
+        LocalDateTime time = LocalDateTime.of(2026, 1, 7, 20, 13, 54, 123_456_789);
+        store.add(new Transaction("TXN007", "ACC001", "Deposit", 5000.00, 5000.00, time));
+        store.add(new Transaction("TXN1234", "ACC002", "Withdrawal", 12.34, -87.66, time.minusDays(400)));
+
+        assertEquals(2, store.size());
+        Transaction first = store.get(0);
+        assertEquals("TXN007", first.getTransactionId());
+        assertEquals("ACC001", first.getAccountNumber());
+        assertEquals("Deposit", first.getType());
+        assertEquals(5000.00, first.getAmount());
+        assertEquals(time, first.getTimestamp());
+
+        Transaction second = store.get(1);
+        assertEquals("TXN1234", second.getTransactionId());
+        assertEquals(-87.66, second.getBalanceAfter());
+        assertEquals(1234L, store.amountCents(1));
+        assertEquals(store.accountCodeOf("ACC002"), store.accountCode(1));
+        assertThrows(IndexOutOfBoundsException.class, () -> store.get(2));
+    }
+
+    @Test
+    @DisplayName("Should keep IDs outside the TXN%03d form verbatim")
+    public void testIrregularIds() {
+        LocalDateTime time = LocalDateTime.now();
+        for (String id : new String[]{"TXN0042", "IMPORT-9", "TXN12a"}) {
+            store.add(new Transaction(id, "ACC001", "Deposit", 1, 1, time));
+        }
+        assertEquals("TXN0042", store.get(0).getTransactionId());
+        assertEquals("IMPORT-9", store.get(1).getTransactionId());
+        assertEquals("TXN12a", store.get(2).getTransactionId());
+    }
+
+    @Test
+    @DisplayName("Should truncate trailing rows and reject removal from the middle")
+    public void testTruncateTail() {
+        LocalDateTime time = LocalDateTime.now();
+        for (String id : new String[]{"TXN001", "IMPORT-1", "TXN003", "IMPORT-2"}) {
+            store.add(new Transaction(id, "ACC001", "Deposit", 1, 1, time));
+        }
+        assertThrows(UnsupportedOperationException.class, () -> store.remove(0));
+        store.subList(1, 4).clear();
+        assertEquals(1, store.size());
+        store.add(new Transaction("TXN005", "ACC001", "Deposit", 2, 3, time));
+        assertEquals("TXN005", store.get(1).getTransactionId());
+        assertEquals(200L, store.amountCents(1));
+    }
+
+    @Test
+    @DisplayName("Should grow across chunks and sort in place")
+    public void testChunksAndSort() {
+        LocalDateTime time = LocalDateTime.of(2026, 1, 1, 0, 0);
+        int count = 40_000;
+        for (int i = 0; i < count; i++) {
+            store.add(new Transaction("TXN" + (1000 + i), "ACC" + (100 + i % 50), "Deposit",
+                    (count - i) / 100.0, i, time.plusSeconds(i)));
+        }
+        assertEquals(count, store.size());
+        assertEquals("TXN" + (1000 + count - 1), store.get(count - 1).getTransactionId());
+
+        store.sort(Comparator.comparing(Transaction::getAmount));
+        assertEquals(1L, store.amountCents(0));
+        assertEquals("TXN" + (1000 + count - 1), store.get(0).getTransactionId());
+        assertEquals((long) count, store.amountCents(count - 1));
+    }
+}
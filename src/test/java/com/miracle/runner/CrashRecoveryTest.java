@@ -0,0 +1,23 @@
+package com.miracle.runner;
+
+import com.miracle.benchmarks.CrashRecoveryHarness;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for crash consistency of the persistence layer.
+ * Runs a few kill/recover iterations; use CrashRecoveryHarness directly for more.
+ */
+public class CrashRecoveryTest {
+
+    @Test
+    @DisplayName("Recovered balances should match the durable log after a forced kill")
+    public void testRecoveryAfterKill() throws Exception {
+        CrashRecoveryHarness.Report report = CrashRecoveryHarness.run(3, 1_500);
+
+        assertTrue(report.getFailures().isEmpty(), () -> String.join("\n", report.getFailures()));
+        assertEquals(3, report.getConsistent());
+    }
+}
@@ -0,0 +1,227 @@
+package com.miracle.runner;
+
+import com.miracle.src.models.*;
+import com.miracle.src.services.EndOfDayService;
+import com.miracle.src.services.SnapshotService;
+import com.miracle.src.utils.FileIOUtils;
+import com.miracle.src.utils.TransactionSegmentStore;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for the end-of-day batch run and its checkpoints.
+ */
+@ExtendWith(SharedStateExtension.class)
+public class EndOfDayServiceTest {
+
+    private static final LocalDate BUSINESS_DATE = LocalDate.of(2027, 6, 30);
+
+    @TempDir
+    Path tempDir;
+
+    private TransactionSegmentStore store;
+    private final List<Account> accounts = new ArrayList<>();
+    private final List<LoggedChecking> checking = new ArrayList<>();
+    private final List<SavingsAccount> savings = new ArrayList<>();
+    private int nextId;
+
+    /**
+     * Logs its fee as the transaction flush would, and can fail once before charging it
+     * or while its statement is written.
+     */
+    private final class LoggedChecking extends CheckingAccount {
+        private boolean failNext;
+        private boolean failStatement;
+
+        LoggedChecking(Customer customer, double balance, String accountNumber) {
+            super(customer, balance, accountNumber, true);
+        }
+
+        @Override
+        public boolean applyMonthlyFee() {
+            if (failNext) {
+                failNext = false;
+                throw new IllegalStateException("Simulated crash");
+            }
+            boolean applied = super.applyMonthlyFee();
+            log(this, "Fee", getMonthlyFee());
+            return applied;
+        }
+
+        @Override
+        public String getAccountType() {
+            if (failStatement) {
+                failStatement = false;
+                throw new IllegalStateException("Simulated crash");
+            }
+            return super.getAccountType();
+        }
+    }
+
+    @BeforeEach
+    public void setUp() {
+        store = new TransactionSegmentStore(tempDir.resolve("transactions.txt"), tempDir.resolve("segments"),
+                TransactionSegmentStore.DEFAULT_MAX_SEGMENT_BYTES, false);
+        Customer customer = new RegularCustomer("Batch Holder", 47, "0246660000", "2 Ledger Row", "CUS976", true);
+        for (int i = 0; i < 20; i++) {
+            LoggedChecking account = new LoggedChecking(customer, 100.00, "ACC76" + (10 + i));
+            checking.add(account);
+            accounts.add(account);
+        }
+        for (int i = 0; i < 10; i++) {
+            SavingsAccount account = new SavingsAccount(customer, 1200.00, "ACC77" + (10 + i), true);
+            savings.add(account);
+            accounts.add(account);
+        }
+    }
+
+    private void log(Account account, String type, double amount) {
+        nextId++;
+        Transaction t = new Transaction("EOD-" + nextId, account.getAccountNumber(), type, amount,
+                account.getBalance(), LocalDateTime.of(BUSINESS_DATE, LocalTime.of(18, 0)));
+        synchronized (store) {
+            try {
+                store.append(List.of(FileIOUtils.serializeTransaction(t)), BUSINESS_DATE);
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    private EndOfDayService service(int workers) {
+        SnapshotService snapshots = new SnapshotService(tempDir.resolve("snapshots"), store, () -> { });
+        return new EndOfDayService(tempDir.resolve("eod"), store, () -> accounts, () -> { }, snapshots,
+                8, workers, Duration.ofMinutes(10));
+    }
+
+    private List<String> statementLines() throws Exception {
+        List<String> lines = new ArrayList<>();
+        for (int p = 0; p < 8; p++) {
+            Path file = service(1).getStatementFile(BUSINESS_DATE, p);
+            if (Files.exists(file)) {
+                lines.addAll(Files.readAllLines(file));
+            }
+        }
+        return lines;
+    }
+
+    @Test
+    @DisplayName("Should charge fees, credit interest, write statements and snapshot once per business date")
+    public void testRun() throws Exception {
+        EndOfDayService.RunReport report = service(3).run(BUSINESS_DATE);
+
+        assertFalse(report.isResumed());
+        assertTrue(report.isWithinWindow());
+        assertEquals(20, report.getStage(EndOfDayService.Stage.FEES).getApplied());
+        assertEquals(10, report.getStage(EndOfDayService.Stage.INTEREST).getApplied());
+        assertEquals(30, report.getStage(EndOfDayService.Stage.STATEMENTS).getApplied());
+        assertEquals(1, report.getStage(EndOfDayService.Stage.SNAPSHOT).getApplied());
+        for (Account account : checking) {
+            assertEquals(90.00, account.getBalance(), 0.001);
+        }
+        for (Account account : savings) {
+            assertEquals(1203.50, account.getBalance(), 0.001);
+        }
+        assertTrue(new SnapshotService(tempDir.resolve("snapshots"), store).getLatestSnapshot().isPresent());
+
+        List<String> lines = statementLines();
+        assertEquals(30, lines.size());
+        String line = lines.stream().filter(l -> l.startsWith("ACC7610|")).findFirst().orElseThrow();
+        assertTrue(line.endsWith("|100.00|0.00|10.00|90.00|1"), line);
+
+        EndOfDayService.RunReport again = service(3).run(BUSINESS_DATE);
+        assertTrue(again.isResumed());
+        assertEquals(8, again.getStage(EndOfDayService.Stage.FEES).getSkippedPartitions());
+        assertEquals(0, again.getStage(EndOfDayService.Stage.FEES).getApplied());
+        assertEquals(90.00, checking.get(0).getBalance(), 0.001);
+        assertEquals(1203.50, savings.get(0).getBalance(), 0.001);
+    }
+
+    @Test
+    @DisplayName("Should resume after a crash without charging any account twice")
+    public void testResume() throws Exception {
+        // Last in its partition, so the partition has charged every other account when it fails
+        checking.get(checking.size() - 1).failNext = true;
+
+        assertThrows(IllegalStateException.class, () -> service(1).run(BUSINESS_DATE));
+        Path checkpoint = tempDir.resolve("eod").resolve(BUSINESS_DATE.toString()).resolve("checkpoint.log");
+        long finished = Files.readAllLines(checkpoint).stream().filter(l -> l.startsWith("DONE|FEES|")).count();
+        assertTrue(finished < 8);
+        // A line torn by the crash
+        Files.write(checkpoint, "DONE|FE".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+
+        EndOfDayService.RunReport report = service(2).run(BUSINESS_DATE);
+        assertTrue(report.isResumed());
+        assertEquals(finished, report.getStage(EndOfDayService.Stage.FEES).getSkippedPartitions());
+        for (Account account : checking) {
+            assertEquals(90.00, account.getBalance(), 0.001, account.getAccountNumber());
+        }
+        for (Account account : savings) {
+            assertEquals(1203.50, account.getBalance(), 0.001, account.getAccountNumber());
+        }
+        assertEquals(30, statementLines().size());
+        assertTrue(Files.readAllLines(checkpoint).contains("COMPLETE"));
+    }
+
+    @Test
+    @DisplayName("Should close statements at the period end, not at postings made after it")
+    public void testStatementsCloseAtPeriodEnd() throws Exception {
+        checking.get(0).failStatement = true;
+        assertThrows(IllegalStateException.class, () -> service(1).run(BUSINESS_DATE));
+
+        // Posted after the period was fixed, before the resumed run writes the statements
+        SavingsAccount quiet = savings.get(0);
+        quiet.updateBalance(quiet.getBalance() + 50.00);
+        log(quiet, "Deposit", 50.00);
+        Account charged = checking.get(1);
+        charged.updateBalance(charged.getBalance() + 25.00);
+        log(charged, "Deposit", 25.00);
+
+        service(1).run(BUSINESS_DATE);
+        List<String> lines = statementLines();
+        String quietLine = lines.stream().filter(l -> l.startsWith(quiet.getAccountNumber() + "|")).findFirst().orElseThrow();
+        assertTrue(quietLine.endsWith("|1203.50|0.00|0.00|1203.50|0"), quietLine);
+        String chargedLine = lines.stream().filter(l -> l.startsWith(charged.getAccountNumber() + "|")).findFirst().orElseThrow();
+        assertTrue(chargedLine.endsWith("|100.00|0.00|10.00|90.00|1"), chargedLine);
+    }
+
+    @Test
+    @DisplayName("Should open the next run's statements at the closing balances the previous run kept")
+    public void testClosingBalancesCarryForward() throws Exception {
+        service(2).run(BUSINESS_DATE);
+        Path kept = tempDir.resolve("eod").resolve(BUSINESS_DATE.toString()).resolve("closing.txt");
+        assertTrue(Files.readAllLines(kept).contains("ACC7610|9000"));
+
+        Account account = checking.get(0);
+        account.updateBalance(account.getBalance() + 25.00);
+        log(account, "Deposit", 25.00);
+        LocalDate nextDate = BUSINESS_DATE.plusDays(1);
+        service(2).run(nextDate);
+
+        List<String> lines = new ArrayList<>();
+        for (int p = 0; p < 8; p++) {
+            Path file = service(1).getStatementFile(nextDate, p);
+            if (Files.exists(file)) {
+                lines.addAll(Files.readAllLines(file));
+            }
+        }
+        String line = lines.stream().filter(l -> l.startsWith("ACC7610|")).findFirst().orElseThrow();
+        assertTrue(line.endsWith("|90.00|25.00|10.00|105.00|2"), line);
+        String other = lines.stream().filter(l -> l.startsWith("ACC7611|")).findFirst().orElseThrow();
+        assertTrue(other.endsWith("|90.00|0.00|10.00|80.00|1"), other);
+    }
+}
@@ -0,0 +1,240 @@
+package com.miracle.runner;
+
+import com.miracle.src.models.*;
+import com.miracle.src.models.exceptions.InsufficientFundsException;
+import com.miracle.src.models.exceptions.InvalidAmountException;
+import com.miracle.src.services.AccountManager;
+import com.miracle.src.services.HoldService;
+import com.miracle.src.utils.TimerWheel;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for authorization holds and the timer wheel that expires them.
+ */
+@ExtendWith(SharedStateExtension.class)
+public class HoldServiceTest {
+
+    private static final Duration DAY = Duration.ofDays(1);
+
+    private static Customer customer;
+
+    @TempDir
+    Path tempDir;
+
+    private static final class Deadline extends TimerWheel.Timeout {
+        final long at;
+
+        Deadline(long at) {
+            this.at = at;
+        }
+    }
+
+    @BeforeAll
+    public static void createCustomer() {
+        customer = new RegularCustomer("Card Holder", 29, "0241114444", "9 Pending Pl", "CUS984", true);
+    }
+
+    @Test
+    @DisplayName("Should fire each timeout on the first tick at or after its deadline, across levels")
+    public void testWheelLevels() {
+        TimerWheel<Deadline> wheel = new TimerWheel<>(10, 3, 0);
+        Deadline[] deadlines = {new Deadline(5), new Deadline(655), new Deadline(70_001), new Deadline(300)};
+        for (Deadline deadline : deadlines) {
+            wheel.schedule(deadline, deadline.at);
+        }
+        assertTrue(wheel.cancel(deadlines[3]));
+        assertFalse(wheel.cancel(deadlines[3]));
+
+        List<Long> firedAt = new ArrayList<>();
+        for (long now = 0; now <= 80_000; now += 5) {
+            long time = now;
+            wheel.advance(time, deadline -> {
+                assertTrue(time >= deadline.at, "fired early");
+                assertTrue(time < deadline.at + 10, "fired late");
+                firedAt.add(deadline.at);
+            });
+        }
+        assertEquals(List.of(5L, 655L, 70_001L), firedAt);
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    @DisplayName("Should hold deadlines past the top level's reach until they are due")
+    public void testWheelBeyondReach() {
+        TimerWheel<Deadline> wheel = new TimerWheel<>(1, 1, 0);
+        Deadline late = new Deadline(1_000);
+        wheel.schedule(late, late.at);
+        assertEquals(0, wheel.advance(999, d -> fail("fired early")));
+        assertEquals(1, wheel.advance(1_000, d -> assertSame(late, d)));
+    }
+
+    @Test
+    @DisplayName("Should keep held funds from withdrawals without changing the balance")
+    public void testHoldReducesAvailable() throws Exception {
+        HoldService holds = new HoldService(tempDir.resolve("holds.txt"), DAY, 1_000);
+        CheckingAccount account = new CheckingAccount(customer, 500.00, "ACC984", true);
+        Hold hold = holds.placeHold(account, 1_200.00, DAY);
+
+        assertEquals(500.00, account.getBalance(), 0.001);
+        assertEquals(1_200.00, account.getHeldAmount(), 0.001);
+        assertEquals(-700.00, account.getAvailableBalance(), 0.001);
+        assertThrows(InsufficientFundsException.class, () -> account.withdraw(400.00));
+        assertEquals(PostingResult.OVERDRAFT_EXCEEDED, account.tryProcessTransaction(300.01, "Withdrawal"));
+        assertEquals(Account.NOT_POSTED, account.withdrawCents(30_001));
+        assertThrows(InsufficientFundsException.class, () -> holds.placeHold(account, 300.01, DAY));
+        account.withdraw(300.00);
+
+        holds.release(hold.getHoldId());
+        assertEquals(Hold.Status.RELEASED, hold.getStatus());
+        assertEquals(200.00, account.getAvailableBalance(), 0.001);
+        assertThrows(IllegalArgumentException.class, () -> holds.release(hold.getHoldId()));
+    }
+
+    @Test
+    @DisplayName("Should post a capture as a withdrawal and give back the uncaptured rest")
+    public void testPartialCapture() throws Exception {
+        HoldService holds = new HoldService(tempDir.resolve("holds.txt"), DAY, 1_000);
+        SavingsAccount account = new SavingsAccount(customer, 2_000.00, "ACC985", true);
+        Hold hold = holds.placeHold(account, 600.00, DAY);
+        assertThrows(InvalidAmountException.class, () -> holds.capture(hold.getHoldId(), 600.01));
+
+        Transaction capture = holds.capture(hold.getHoldId(), 450.00);
+        assertEquals("Withdrawal", capture.getType());
+        assertEquals(450.00, capture.getAmount(), 0.001);
+        assertEquals(1_550.00, account.getBalance(), 0.001);
+        assertEquals(0.00, account.getHeldAmount(), 0.001);
+        assertEquals(Hold.Status.CAPTURED, hold.getStatus());
+        assertEquals(0, holds.getOpenHoldCount());
+    }
+
+    @Test
+    @DisplayName("Should expire open holds when their time runs out")
+    public void testExpiry() throws Exception {
+        HoldService holds = new HoldService(tempDir.resolve("holds.txt"), DAY, 1_000);
+        CheckingAccount account = new CheckingAccount(customer, 100.00, "ACC986", true);
+        Hold shortHold = holds.placeHold(account, 50.00, Duration.ofSeconds(30));
+        Hold longHold = holds.placeHold(account, 25.00, Duration.ofHours(2));
+
+        long now = System.currentTimeMillis();
+        assertEquals(0, holds.expireDue(now + 1_000));
+        assertEquals(1, holds.expireDue(now + 32_000));
+        assertEquals(Hold.Status.EXPIRED, shortHold.getStatus());
+        assertEquals(25.00, account.getHeldAmount(), 0.001);
+
+        assertEquals(1, holds.expireDue(now + Duration.ofHours(3).toMillis()));
+        assertEquals(Hold.Status.EXPIRED, longHold.getStatus());
+        assertEquals(0.00, account.getHeldAmount(), 0.001);
+        assertThrows(IllegalArgumentException.class, () -> holds.capture(longHold.getHoldId()));
+    }
+
+    @Test
+    @DisplayName("Should save open holds and reserve them again on recovery")
+    public void testPersistence() throws Exception {
+        CheckingAccount account = new CheckingAccount(customer, 1_000.00, "ACC987", true);
+        AccountManager.getInstance().addAccountFromFile(account);
+        Path file = tempDir.resolve("holds.txt");
+        HoldService before = new HoldService(file, DAY, 1_000);
+        Hold hold = before.placeHold(account, 400.00, DAY);
+        Hold ended = before.placeHold(account, 100.00, DAY);
+        before.release(ended.getHoldId());
+        assertEquals(1, before.saveHolds());
+        // As after a restart: the account comes back without its reservation
+        account.releaseReservedCents(40_000);
+
+        HoldService after = new HoldService(file, DAY, 1_000);
+        assertEquals(1, after.recoverHolds());
+        assertEquals(400.00, account.getHeldAmount(), 0.001);
+        Hold recovered = after.getHold(hold.getHoldId());
+        assertEquals(hold.getExpiresAtMillis(), recovered.getExpiresAtMillis());
+
+        assertEquals(1, after.expireDue(hold.getExpiresAtMillis() + 1_000));
+        assertEquals(0.00, account.getHeldAmount(), 0.001);
+        Hold next = after.placeHold(account, 1.00, DAY);
+        assertTrue(next.getHoldId().compareTo(hold.getHoldId()) > 0, "ids continue after recovered ones");
+    }
+
+    @Test
+    @DisplayName("Should recover holds from the event log without reopening captured or released ones")
+    public void testEventLogRecovery() throws Exception {
+        CheckingAccount account = new CheckingAccount(customer, 1_000.00, "ACC932", true);
+        AccountManager.getInstance().addAccountFromFile(account);
+        Path file = tempDir.resolve("holds.txt");
+        HoldService before = new HoldService(file, DAY, 1_000);
+        Hold captured = before.placeHold(account, 300.00, DAY);
+        Hold released = before.placeHold(account, 200.00, DAY);
+        assertEquals(2, before.saveHolds());
+        // Crash before the next save: only the event log knows about these
+        before.capture(captured.getHoldId(), 100.00);
+        before.release(released.getHoldId());
+        Hold open = before.placeHold(account, 50.00, DAY);
+        account.releaseReservedCents(5_000);
+
+        HoldService after = new HoldService(file, DAY, 1_000);
+        assertEquals(1, after.recoverHolds());
+        assertNull(after.getHold(captured.getHoldId()));
+        assertNull(after.getHold(released.getHoldId()));
+        assertEquals(open.getExpiresAtMillis(), after.getHold(open.getHoldId()).getExpiresAtMillis());
+        assertEquals(50.00, account.getHeldAmount(), 0.001);
+        assertThrows(IllegalArgumentException.class, () -> after.capture(captured.getHoldId()));
+
+        // A save covers the log, which starts over empty
+        assertEquals(1, after.saveHolds());
+        after.release(open.getHoldId());
+        HoldService again = new HoldService(file, DAY, 1_000);
+        assertEquals(0, again.recoverHolds());
+    }
+
+    @Test
+    @DisplayName("Should not charge the monthly fee against held funds")
+    public void testFeeRespectsHolds() throws Exception {
+        HoldService holds = new HoldService(tempDir.resolve("holds.txt"), DAY, 1_000);
+        CheckingAccount account = new CheckingAccount(customer, 100.00, "ACC933", true);
+        Hold hold = holds.placeHold(account, 1_095.00, DAY);
+
+        assertFalse(account.applyMonthlyFee());
+        assertEquals(100.00, account.getBalance(), 0.001);
+        holds.release(hold.getHoldId());
+        assertTrue(account.applyMonthlyFee());
+        assertEquals(90.00, account.getBalance(), 0.001);
+    }
+
+    @Test
+    @DisplayName("Should never let racing holds and withdrawals overcommit the funds")
+    public void testConcurrentHoldsAndWithdrawals() throws Exception {
+        HoldService holds = new HoldService(tempDir.resolve("holds.txt"), DAY, 1_000);
+        SavingsAccount account = new SavingsAccount(customer, 700.00, "ACC988", true);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            boolean holder = t % 2 == 0;
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < 100; i++) {
+                    if (holder) {
+                        try {
+                            holds.placeHold(account, 7.00, DAY);
+                        } catch (Exception rejected) {
+                            // Out of available funds
+                        }
+                    } else {
+                        account.tryProcessTransaction(5.00, "Withdrawal");
+                    }
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) {
+            thread.join(10_000);
+        }
+        assertTrue(account.getAvailableBalance() >= SavingsAccount.getMinimumBalance() - 0.001,
+                "available " + account.getAvailableBalance());
+        assertEquals(holds.getOpenHoldCount() * 7.00, account.getHeldAmount(), 0.001);
+    }
+}
@@ -0,0 +1,157 @@
+package com.miracle.runner;
+
+import com.miracle.src.models.*;
+import com.miracle.src.models.exceptions.InvalidAmountException;
+import com.miracle.src.services.LogReplayService;
+import com.miracle.src.services.TransactionManager;
+import com.miracle.src.utils.CoarseClock;
+import com.miracle.src.utils.FileIOUtils;
+import com.miracle.src.utils.PostingRing;
+import com.miracle.src.utils.TransactionSegmentStore;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for the allocation-free posting hot path and its transaction ring.
+ */
+@ExtendWith(SharedStateExtension.class)
+public class HotPathPostingTest {
+
+    private final TransactionManager transactionManager = TransactionManager.getInstance();
+
+    @TempDir
+    Path tempDir;
+
+    private static Customer customer() {
+        return new RegularCustomer("Hot Path", 31, "0241116666", "7 Ring Rd", "CUS971", true);
+    }
+
+    @Test
+    @DisplayName("Should post in cents and show the records in the history with formatted IDs")
+    public void testPostingsReachHistory() throws Exception {
+        CheckingAccount account = new CheckingAccount(customer(), 100.00, "ACC970", true);
+        long deposit = account.depositCents(2_550);
+        long withdrawal = account.withdrawCents(1_000);
+        assertTrue(withdrawal > deposit);
+        assertEquals(115.50, account.getBalance(), 1e-9);
+
+        List<Transaction> posted = transactionManager.getTransactionsByAccount("ACC970");
+        assertEquals(2, posted.size());
+        assertEquals(Transaction.formatId(deposit), posted.get(0).getTransactionId());
+        assertEquals("Deposit", posted.get(0).getType());
+        assertEquals(25.50, posted.get(0).getAmount(), 1e-9);
+        assertEquals(125.50, posted.get(0).getBalanceAfter(), 1e-9);
+        assertEquals("Withdrawal", posted.get(1).getType());
+        assertEquals(115.50, posted.get(1).getBalanceAfter(), 1e-9);
+        assertTrue(Duration.between(posted.get(1).getTimestamp(), LocalDateTime.now()).abs().toSeconds() < 5);
+    }
+
+    @Test
+    @DisplayName("Should leave the balance untouched when a withdrawal passes the floor")
+    public void testFloorRejectsWithoutPosting() throws Exception {
+        CheckingAccount checking = new CheckingAccount(customer(), 0.00, "ACC971", true);
+        assertNotEquals(Account.NOT_POSTED, checking.withdrawCents(100_000));
+        assertEquals(Account.NOT_POSTED, checking.withdrawCents(1));
+        assertEquals(-1_000.00, checking.getBalance(), 1e-9);
+
+        SavingsAccount savings = new SavingsAccount(customer(), 600.00, "ACC972", true);
+        assertEquals(Account.NOT_POSTED, savings.withdrawCents(10_001));
+        assertNotEquals(Account.NOT_POSTED, savings.withdrawCents(10_000));
+        assertEquals(500.00, savings.getBalance(), 1e-9);
+        assertEquals(1, transactionManager.getTransactionsByAccount("ACC972").size());
+
+        assertThrows(InvalidAmountException.class, () -> savings.depositCents(0));
+    }
+
+    @Test
+    @DisplayName("Should apply concurrent hot-path deposits exactly once with unique IDs")
+    public void testConcurrentDeposits() throws Exception {
+        CheckingAccount account = new CheckingAccount(customer(), 0.00, "ACC973", true);
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> workers = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                workers.add(pool.submit(() -> {
+                    for (int i = 0; i < 15; i++) {
+                        ids.add(account.depositCents(125));
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> worker : workers) {
+                worker.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        assertEquals(60, ids.size());
+        assertEquals(75.00, account.getBalance(), 1e-9);
+        assertEquals(60, transactionManager.getTransactionsByAccount("ACC973").size());
+    }
+
+    @Test
+    @DisplayName("Should log hot-path and regular postings to one account in balance order")
+    public void testMixedPathsReplayInOrder() throws Exception {
+        CheckingAccount account = new CheckingAccount(customer(), 100.00, "ACC903", true);
+        account.depositCents(5_000);
+        account.withdraw(50.00);
+        account.depositCents(1_250);
+        account.deposit(7.50);
+        assertEquals(120.00, account.getBalance(), 1e-9);
+
+        List<String> lines = new ArrayList<>();
+        for (Transaction t : transactionManager.getTransactionsByAccount("ACC903")) {
+            lines.add(FileIOUtils.serializeTransaction(t));
+        }
+        TransactionSegmentStore store = new TransactionSegmentStore(tempDir.resolve("transactions.txt"),
+                tempDir.resolve("segments"), TransactionSegmentStore.DEFAULT_MAX_SEGMENT_BYTES, false);
+        store.append(lines, LocalDate.now());
+        LogReplayService.ReplayReport report = new LogReplayService(store, 1, 1 << 20).replay();
+        assertEquals(12_000L, report.getBalances().get("ACC903"));
+    }
+
+    @Test
+    @DisplayName("Should hand records over in order when producers wrap a small ring")
+    public void testRingWrapsInOrder() throws Exception {
+        PostingRing ring = new PostingRing(4);
+        int perProducer = 5_000;
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            for (int p = 0; p < 2; p++) {
+                String producer = p == 0 ? "A" : "B";
+                pool.submit(() -> {
+                    for (int i = 0; i < perProducer; i++) {
+                        ring.append(i, producer, "Deposit", i, 0, CoarseClock.localEpochNanos());
+                    }
+                });
+            }
+            long[] next = new long[2];
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (next[0] + next[1] < 2L * perProducer && System.nanoTime() < deadline) {
+                ring.drain((id, account, type, amount, balance, nanos) -> {
+                    int producer = account.equals("A") ? 0 : 1;
+                    assertEquals(next[producer], id);
+                    next[producer]++;
+                });
+            }
+            assertEquals(perProducer, next[0]);
+            assertEquals(perProducer, next[1]);
+            assertEquals(0, ring.pending());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package com.miracle.runner;
+
+import com.miracle.src.dto.TransactionRequest;
+import com.miracle.src.models.*;
+import com.miracle.src.models.exceptions.AccountNotFoundException;
+import com.miracle.src.models.exceptions.InsufficientFundsException;
+import com.miracle.src.services.AccountManager;
+import com.miracle.src.utils.IdempotencyCache;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for idempotency keys on transaction requests and the expiring key cache.
+ */
+@ExtendWith(SharedStateExtension.class)
+public class IdempotencyTest {
+
+    private static CheckingAccount account;
+    private final AccountManager manager = AccountManager.getInstance();
+
+    @BeforeAll
+    public static void registerAccount() {
+        Customer customer = new RegularCustomer("Retrying Client", 41, "0241118888", "11 Retry Ln", "CUS991", true);
+        account = new CheckingAccount(customer, 500.00, "ACC990", true);
+        AccountManager.getInstance().addAccountFromFile(account);
+    }
+
+    @Test
+    @DisplayName("Should post a keyed request once and answer retries with the original transaction")
+    public void testDuplicateIsPostedOnce() throws Exception {
+        double before = account.getBalance();
+        String key = "retry-" + System.nanoTime();
+        Transaction first = manager.processTransaction(new TransactionRequest("ACC990", null, "DEPOSIT", 40, key)).join();
+        Transaction retry = manager.processTransaction(new TransactionRequest("ACC990", null, "DEPOSIT", 40, key)).join();
+        assertSame(first, retry);
+        assertEquals(before + 40, account.getBalance(), 1e-9);
+
+        // Without a key, or with another key, the same request posts again
+        manager.processTransaction(new TransactionRequest("ACC990", null, "DEPOSIT", 40)).join();
+        manager.processTransaction(new TransactionRequest("ACC990", null, "DEPOSIT", 40, key + "-2")).join();
+        assertEquals(before + 120, account.getBalance(), 1e-9);
+    }
+
+    @Test
+    @DisplayName("Should keep a business rejection for retries but release keys of other failures")
+    public void testFailures() {
+        String rejected = "rejected-" + System.nanoTime();
+        TransactionRequest overdraft = new TransactionRequest("ACC990", null, "WITHDRAWAL", 1_000_000, rejected);
+        InsufficientFundsException thrown = assertThrows(InsufficientFundsException.class,
+                () -> manager.processTransaction(overdraft));
+        double before = account.getBalance();
+        // Rejected as the original was: thrown, not through the future
+        InsufficientFundsException retried = assertThrows(InsufficientFundsException.class,
+                () -> manager.processTransaction(new TransactionRequest("ACC990", null, "WITHDRAWAL", 1_000_000, rejected)));
+        assertSame(thrown, retried);
+        assertEquals(PostingResult.INSUFFICIENT_FUNDS, manager.tryProcessTransaction(
+                new TransactionRequest("ACC990", null, "withdrawal", 1_000_000, rejected)));
+        assertEquals(before, account.getBalance(), 1e-9);
+
+        String missing = "missing-" + System.nanoTime();
+        assertThrows(AccountNotFoundException.class,
+                () -> manager.processTransaction(new TransactionRequest("ACC998", null, "DEPOSIT", 10, missing)));
+
+        String invalid = "invalid-" + System.nanoTime();
+        assertThrows(RuntimeException.class,
+                () -> manager.processTransaction(new TransactionRequest("ACC990", null, "REFUND", 10, invalid)));
+        Transaction posted = assertDoesNotThrow(
+                () -> manager.processTransaction(new TransactionRequest("ACC990", null, "DEPOSIT", 10, invalid)).join());
+        assertEquals("Deposit", posted.getType());
+    }
+
+    @Test
+    @DisplayName("Should reject a key reused for a request with a different payload")
+    public void testPayloadMismatch() throws Exception {
+        String key = "reused-" + System.nanoTime();
+        manager.processTransaction(new TransactionRequest("ACC990", null, "DEPOSIT", 40, key)).join();
+        double before = account.getBalance();
+
+        assertThrows(IllegalArgumentException.class,
+                () -> manager.processTransaction(new TransactionRequest("ACC990", null, "DEPOSIT", 41, key)));
+        assertThrows(IllegalArgumentException.class,
+                () -> manager.processTransaction(new TransactionRequest("ACC990", null, "WITHDRAWAL", 40, key)));
+        assertEquals(PostingResult.INVALID_REQUEST,
+                manager.tryProcessTransaction(new TransactionRequest("ACC990", "ACC001", "TRANSFER", 40, key)));
+        assertEquals(before, account.getBalance(), 1e-9);
+    }
+
+    @Test
+    @DisplayName("Should post a keyed request once through the result-code API too")
+    public void testResultCodeDuplicate() throws Exception {
+        double before = account.getBalance();
+        String key = "coded-" + System.nanoTime();
+        PostingResult first = manager.tryProcessTransaction(new TransactionRequest("ACC990", null, "DEPOSIT", 15, key));
+        assertTrue(first.isPosted());
+        PostingResult retry = manager.tryProcessTransaction(new TransactionRequest("ACC990", null, "DEPOSIT", 15, key));
+        assertSame(first.getTransaction(), retry.getTransaction());
+        // Either API answers a retry of the other
+        assertSame(first.getTransaction(),
+                manager.processTransaction(new TransactionRequest("ACC990", null, "DEPOSIT", 15, key)).join());
+        assertEquals(before + 15, account.getBalance(), 1e-9);
+
+        // A key released by a failure that is not a rejection can be posted again
+        String invalid = "coded-invalid-" + System.nanoTime();
+        assertEquals(PostingResult.INVALID_REQUEST,
+                manager.tryProcessTransaction(new TransactionRequest("ACC990", null, "REFUND", 15, invalid)));
+        assertTrue(manager.tryProcessTransaction(new TransactionRequest("ACC990", null, "DEPOSIT", 15, invalid)).isPosted());
+    }
+
+    @Test
+    @DisplayName("Should expire keys after their time-to-live and stay within capacity")
+    public void testExpiryAndBound() {
+        AtomicLong now = new AtomicLong();
+        IdempotencyCache<String> cache = new IdempotencyCache<>(64, Duration.ofSeconds(10), now::get);
+        assertNull(cache.putIfAbsent("a", "first"));
+        assertEquals("first", cache.putIfAbsent("a", "second"));
+
+        now.addAndGet(Duration.ofSeconds(11).toNanos());
+        assertNull(cache.get("a"));
+        assertNull(cache.putIfAbsent("a", "third"));
+        assertEquals("third", cache.get("a"));
+
+        for (int i = 0; i < 10_000; i++) {
+            cache.putIfAbsent("key-" + i, "v");
+        }
+        assertTrue(cache.size() <= 64, "size " + cache.size());
+        assertTrue(cache.evictedCount() > 0);
+        assertEquals("v", cache.get("key-9999"));
+
+        cache.remove("key-9999", "other");
+        assertEquals("v", cache.get("key-9999"));
+    }
+
+    @Test
+    @DisplayName("Should hand concurrent duplicates the same future")
+    public void testConcurrentDuplicates() throws Exception {
+        double before = account.getBalance();
+        String key = "burst-" + System.nanoTime();
+        List<CompletableFuture<CompletableFuture<Transaction>>> calls = new java.util.ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            calls.add(CompletableFuture.supplyAsync(() -> {
+                try {
+                    return manager.processTransaction(new TransactionRequest("ACC990", null, "DEPOSIT", 5, key));
+                } catch (Exception e) {
+                    throw new CompletionException(e);
+                }
+            }));
+        }
+        Transaction first = calls.get(0).join().join();
+        for (CompletableFuture<CompletableFuture<Transaction>> call : calls) {
+            assertSame(first, call.join().join());
+        }
+        assertEquals(before + 5, account.getBalance(), 1e-9);
+    }
+}
@@ -0,0 +1,212 @@
+package com.miracle.runner;
+
+import com.miracle.src.models.*;
+import com.miracle.src.services.JournalService;
+import com.miracle.src.services.TransactionManager;
+import com.miracle.src.utils.FileIOUtils;
+import com.miracle.src.utils.TransactionSegmentStore;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for the double-entry journal and its trial balance.
+ */
+@ExtendWith(SharedStateExtension.class)
+public class JournalServiceTest {
+
+    private static final LocalDateTime DAY = LocalDateTime.of(2027, 3, 1, 9, 0);
+
+    private int nextId;
+
+    @TempDir
+    Path tempDir;
+
+    private TransactionSegmentStore store;
+
+    @BeforeEach
+    public void setUp() {
+        store = new TransactionSegmentStore(tempDir.resolve("transactions.txt"), tempDir.resolve("segments"),
+                TransactionSegmentStore.DEFAULT_MAX_SEGMENT_BYTES, false);
+    }
+
+    private Transaction txn(String account, String type, double amount) {
+        nextId++;
+        return new Transaction("JRN-" + nextId, account, type, amount, 0.0, DAY.plusSeconds(nextId));
+    }
+
+    private JournalService newJournal() {
+        return new JournalService(tempDir.resolve("journal"), store);
+    }
+
+    // Appends to the log without journaling, as if the process died between the two
+    private void appendToLog(List<Transaction> batch) throws Exception {
+        List<String> lines = new ArrayList<>();
+        for (Transaction t : batch) {
+            lines.add(FileIOUtils.serializeTransaction(t));
+        }
+        store.append(lines, DAY.toLocalDate());
+    }
+
+    private void post(JournalService journal, List<Transaction> batch) throws Exception {
+        TransactionSegmentStore.LogPosition before = store.currentPosition();
+        appendToLog(batch);
+        journal.record(batch, before, store.currentPosition());
+    }
+
+    @Test
+    @DisplayName("Should journal every posting type as one balanced debit and credit")
+    public void testEntryMapping() {
+        String[] types = {"Deposit", "Withdrawal", "Transfer Out", "Transfer In", "Fee", "Interest"};
+        for (String type : types) {
+            JournalEntry entry = JournalService.toEntry(1, txn("ACC977", type, 12.34));
+            assertEquals(2, entry.getLegCount(), type);
+            assertTrue(entry.isBalanced(), type);
+            assertEquals(1234, Math.abs(entry.getAmountCents(0)), type);
+        }
+        JournalEntry deposit = JournalService.toEntry(1, txn("ACC977", "Deposit", 5.00));
+        assertEquals(JournalService.CASH, deposit.getAccount(0));
+        assertEquals("ACC977", deposit.getAccount(1));
+        assertEquals(-500, deposit.getAmountCents(1));
+        JournalEntry fee = JournalService.toEntry(1, txn("ACC977", "Fee", 5.00));
+        assertEquals(JournalService.FEE_INCOME, fee.getAccount(1));
+        assertNull(JournalService.toEntry(1, txn("ACC977", "Adjustment", 5.00)));
+    }
+
+    @Test
+    @DisplayName("Should balance the trial balance and clear transfers to zero")
+    public void testTrialBalance() throws Exception {
+        JournalService journal = newJournal();
+        post(journal, List.of(
+                txn("ACC977", "Deposit", 100.00),
+                txn("ACC977", "Transfer Out", 40.00),
+                txn("ACC978", "Transfer In", 40.00)));
+        post(journal, List.of(
+                txn("ACC977", "Fee", 2.50),
+                txn("ACC978", "Interest", 1.25),
+                txn("ACC978", "Withdrawal", 10.00)));
+
+        JournalService.TrialBalance trial = journal.trialBalance();
+        assertTrue(trial.isBalanced(), trial.toString());
+        assertEquals(6, trial.getEntryCount());
+        assertEquals(trial.getTotalDebitCents(), trial.getTotalCreditCents());
+        assertEquals(0, trial.getNetDebitCents(JournalService.TRANSFERS_IN_FLIGHT));
+        assertEquals(250, trial.getCreditCents(JournalService.FEE_INCOME));
+        assertEquals(125, trial.getDebitCents(JournalService.INTEREST_EXPENSE));
+        assertEquals(-5750, trial.getNetDebitCents("ACC977"));
+        assertEquals(-3125, trial.getNetDebitCents("ACC978"));
+        assertEquals(7, journal.getNextSequence());
+
+        // A transfer whose credit has not posted yet sits in the clearing account
+        post(journal, List.of(txn("ACC977", "Transfer Out", 10.00)));
+        trial = journal.trialBalance();
+        assertTrue(trial.isBalanced());
+        assertEquals(-1000, trial.getNetDebitCents(JournalService.TRANSFERS_IN_FLIGHT));
+    }
+
+    @Test
+    @DisplayName("Should catch up from the log after a crash without losing or repeating entries")
+    public void testRecoverAfterCrash() throws Exception {
+        JournalService journal = newJournal();
+        post(journal, List.of(txn("ACC977", "Deposit", 20.00), txn("ACC978", "Deposit", 30.00)));
+        appendToLog(List.of(txn("ACC977", "Withdrawal", 5.00)));
+        // A torn write past the recorded end
+        Files.writeString(tempDir.resolve("journal").resolve("journal.log"), "3,JRN-x,Depo",
+                java.nio.file.StandardOpenOption.APPEND);
+
+        JournalService restarted = newJournal();
+        assertEquals(1, restarted.recover());
+        assertEquals(0, restarted.recover());
+        List<JournalEntry> entries = new ArrayList<>();
+        restarted.readAll(entries::add);
+        assertEquals(3, entries.size());
+        for (int i = 0; i < entries.size(); i++) {
+            assertEquals(i + 1, entries.get(i).getSequence());
+        }
+        assertEquals("Withdrawal", entries.get(2).getType());
+
+        // A batch the journal did not see first is picked up by the next one
+        appendToLog(List.of(txn("ACC978", "Withdrawal", 1.00)));
+        post(restarted, List.of(txn("ACC978", "Deposit", 2.00)));
+        JournalService.TrialBalance trial = restarted.trialBalance();
+        assertEquals(5, trial.getEntryCount());
+        assertEquals(-1500, trial.getNetDebitCents("ACC977"));
+        assertEquals(-3100, trial.getNetDebitCents("ACC978"));
+
+        // Losing the journal entirely rebuilds it from the log
+        Files.delete(tempDir.resolve("journal").resolve("journal.log"));
+        JournalService rebuilt = newJournal();
+        assertEquals(5, rebuilt.recover());
+        assertEquals(5, rebuilt.trialBalance().getEntryCount());
+    }
+
+    @Test
+    @DisplayName("Should rebuild the same balances from the journal on several threads")
+    public void testParallelRebuild() throws Exception {
+        Map<String, Long> expected = new HashMap<>();
+        List<Transaction> batch = new ArrayList<>();
+        for (int i = 0; i < 30_000; i++) {
+            String account = "ACC9" + (1000 + i % 37);
+            boolean credit = i % 3 != 0;
+            long cents = 100 + i % 250;
+            batch.add(txn(account, credit ? "Deposit" : "Withdrawal", cents / 100.0));
+            expected.merge(account, credit ? cents : -cents, Long::sum);
+        }
+        appendToLog(batch);
+        JournalService journal = newJournal();
+        assertEquals(30_000, journal.recover());
+        assertTrue(Files.size(tempDir.resolve("journal").resolve("journal.log")) > 2L << 20,
+                "large enough to be split");
+
+        assertEquals(expected, journal.rebuildBalances(4));
+        assertEquals(expected, journal.rebuildBalances(1));
+        assertTrue(journal.trialBalance().isBalanced());
+    }
+
+    @Test
+    @DisplayName("Should report an entry whose legs do not balance")
+    public void testUnbalancedEntryDetected() throws Exception {
+        JournalService journal = newJournal();
+        post(journal, List.of(txn("ACC977", "Deposit", 10.00), txn("ACC977", "Transfer Out", 40.00)));
+        Path file = tempDir.resolve("journal").resolve("journal.log");
+        Files.writeString(file, Files.readString(file).replace("TRANSFERS-IN-FLIGHT,-4000", "TRANSFERS-IN-FLIGHT,-4900"));
+
+        JournalService.TrialBalance trial = journal.trialBalance();
+        assertFalse(trial.isBalanced());
+        assertEquals(1, trial.getUnbalancedCount());
+        assertEquals(List.of(2L), trial.getFirstUnbalanced());
+    }
+
+    @Test
+    @DisplayName("Should post monthly fees and savings interest as transactions")
+    public void testFeeAndInterestPostings() {
+        Customer customer = new RegularCustomer("Journal Holder", 44, "0247770000", "9 Ledger Ln", "CUS977", true);
+        CheckingAccount checking = new CheckingAccount(customer, 100.00, "ACC977", true);
+        SavingsAccount savings = new SavingsAccount(customer, 1_200.00, "ACC978", true);
+        List<Transaction> history = TransactionManager.getInstance().getAllTransactions();
+
+        assertTrue(checking.applyMonthlyFee());
+        assertEquals(90.00, checking.getBalance(), 0.001);
+        Transaction fee = TransactionManager.getInstance().getAllTransactions().get(history.size() - 1);
+        assertEquals("Fee", fee.getType());
+        assertEquals(10.00, fee.getAmount(), 0.001);
+        assertEquals("ACC977", fee.getAccountNumber());
+
+        assertTrue(savings.applyMonthlyInterest());
+        assertEquals(1_203.50, savings.getBalance(), 0.001);
+        Transaction interest = TransactionManager.getInstance().getAllTransactions().get(history.size() - 1);
+        assertEquals("Interest", interest.getType());
+        assertEquals(3.50, interest.getAmount(), 0.001);
+        assertEquals(1_203.50, interest.getBalanceAfter(), 0.001);
+    }
+}
@@ -0,0 +1,167 @@
+package com.miracle.runner;
+
+import com.miracle.src.models.*;
+import com.miracle.src.services.AccountManager;
+import com.miracle.src.services.LogReplayService;
+import com.miracle.src.utils.FileIOUtils;
+import com.miracle.src.utils.TransactionSegmentStore;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for the parallel replay of the transaction log.
+ */
+@ExtendWith(SharedStateExtension.class)
+public class LogReplayServiceTest {
+
+    private static final LocalDateTime DAY = LocalDateTime.of(2027, 4, 1, 9, 0);
+
+    @TempDir
+    Path tempDir;
+
+    private TransactionSegmentStore store;
+    private final Map<String, Long> balances = new HashMap<>();
+    private int nextId;
+
+    private TransactionSegmentStore newStore(long maxSegmentBytes, boolean compress) {
+        return new TransactionSegmentStore(tempDir.resolve("transactions.txt"), tempDir.resolve("segments"),
+                maxSegmentBytes, compress);
+    }
+
+    // Logs a posting with the balanceAfter it should have
+    private Transaction post(String account, String type, long cents) {
+        boolean credit = type.equals("Deposit") || type.equals("Transfer In") || type.equals("Interest");
+        long after = balances.merge(account, credit ? cents : -cents, Long::sum);
+        return logged(account, type, cents, after);
+    }
+
+    private Transaction logged(String account, String type, long cents, long afterCents) {
+        nextId++;
+        return new Transaction("RPL-" + nextId, account, type, cents / 100.0, afterCents / 100.0, DAY.plusSeconds(nextId));
+    }
+
+    private void append(List<Transaction> batch, LocalDate day) throws Exception {
+        List<String> lines = new ArrayList<>();
+        for (Transaction t : batch) {
+            lines.add(FileIOUtils.serializeTransaction(t));
+        }
+        store.append(lines, day);
+    }
+
+    private List<Transaction> history(int accounts, int postings) {
+        List<Transaction> batch = new ArrayList<>();
+        for (int i = 0; i < postings; i++) {
+            String account = "ACC8" + (100 + i % accounts);
+            if (!balances.containsKey(account)) {
+                batch.add(post(account, "Deposit", 100_000));
+            }
+            String[] types = {"Deposit", "Withdrawal", "Transfer Out", "Transfer In", "Fee", "Interest"};
+            batch.add(post(account, types[i % types.length], 100 + i % 900));
+        }
+        return batch;
+    }
+
+    @Test
+    @DisplayName("Should rebuild the same balances on one thread and on several")
+    public void testRebuild() throws Exception {
+        store = newStore(TransactionSegmentStore.DEFAULT_MAX_SEGMENT_BYTES, false);
+        append(history(25, 5_000), DAY.toLocalDate());
+
+        LogReplayService.ReplayReport single = new LogReplayService(store, 1, 1 << 20).replay();
+        LogReplayService.ReplayReport parallel = new LogReplayService(store, 4, 4096).replay();
+        assertEquals(5_025, parallel.getTransactionCount());
+        assertTrue(parallel.getRangeCount() > 10, "split into many ranges");
+        assertEquals(balances, parallel.getBalances());
+        assertEquals(balances, single.getBalances());
+        assertEquals(balances, parallel.getNetMovements());
+        assertTrue(parallel.getDivergences().isEmpty(), parallel.getDivergences().toString());
+    }
+
+    @Test
+    @DisplayName("Should report only the first divergent posting of each account, across range boundaries")
+    public void testFirstDivergence() throws Exception {
+        store = newStore(TransactionSegmentStore.DEFAULT_MAX_SEGMENT_BYTES, false);
+        List<Transaction> batch = new ArrayList<>();
+        batch.add(post("ACC8201", "Deposit", 50_000));
+        batch.add(post("ACC8202", "Deposit", 10_000));
+        batch.add(post("ACC8201", "Withdrawal", 1_000));
+        // Records 10.00 too much, then carries on from the wrong balance
+        Transaction bad = logged("ACC8201", "Deposit", 2_000, balances.merge("ACC8201", 3_000L, Long::sum));
+        batch.add(bad);
+        batch.add(post("ACC8201", "Withdrawal", 500));
+        batch.add(logged("ACC8201", "Deposit", 100, 1));
+        batch.add(post("ACC8202", "Transfer In", 700));
+        append(batch, DAY.toLocalDate());
+
+        // One line per range, so every check is a range boundary
+        for (long rangeBytes : new long[]{1, 1 << 20}) {
+            LogReplayService.ReplayReport report = new LogReplayService(store, 3, rangeBytes).replay();
+            assertEquals(1, report.getDivergences().size(), report.getDivergences().toString());
+            LogReplayService.Divergence divergence = report.getDivergences().get(0);
+            assertEquals("ACC8201", divergence.getAccountNumber());
+            assertEquals(bad.getTransactionId(), divergence.getTransactionId());
+            assertEquals(51_000, divergence.getExpectedCents());
+            assertEquals(52_000, divergence.getActualCents());
+            assertEquals(1, report.getBalances().get("ACC8201"));
+            assertEquals(10_700, report.getBalances().get("ACC8202"));
+        }
+    }
+
+    @Test
+    @DisplayName("Should replay sealed, compressed segments and the active file in order")
+    public void testSealedSegments() throws Exception {
+        store = newStore(2_048, true);
+        for (int day = 0; day < 5; day++) {
+            append(history(6, 40), DAY.toLocalDate().plusDays(day));
+        }
+        assertFalse(store.getSealedSegments().isEmpty());
+
+        LogReplayService.ReplayReport report = new LogReplayService(store, 2, 512).replay();
+        assertEquals(206, report.getTransactionCount());
+        assertEquals(balances, report.getBalances());
+        assertTrue(report.getDivergences().isEmpty(), report.getDivergences().toString());
+    }
+
+    @Test
+    @DisplayName("Should restore registered balances and report accounts the log disagrees with")
+    public void testRestoreAndCompare() throws Exception {
+        store = newStore(TransactionSegmentStore.DEFAULT_MAX_SEGMENT_BYTES, false);
+        Customer customer = new RegularCustomer("Replay Holder", 51, "0248880000", "3 Ledger Row", "CUS982", true);
+        CheckingAccount restored = new CheckingAccount(customer, 999.00, "ACC982", true);
+        SavingsAccount untouched = new SavingsAccount(customer, 600.00, "ACC983", true);
+        AccountManager.getInstance().addAccountFromFile(restored);
+        AccountManager.getInstance().addAccountFromFile(untouched);
+
+        List<Transaction> batch = new ArrayList<>();
+        batch.add(post("ACC982", "Deposit", 20_000));
+        batch.add(post("ACC982", "Fee", 1_000));
+        batch.add(post("ACC983", "Deposit", 60_000));
+        append(batch, DAY.toLocalDate());
+        LogReplayService replay = new LogReplayService(store, 2, 1 << 20);
+
+        List<LogReplayService.Divergence> mismatched = replay.replay().compareWith(List.of(restored, untouched));
+        assertEquals(1, mismatched.size());
+        assertEquals("ACC982", mismatched.get(0).getAccountNumber());
+        assertEquals(19_000, mismatched.get(0).getExpectedCents());
+        assertEquals(99_900, mismatched.get(0).getActualCents());
+
+        List<Transaction> head = new ArrayList<>();
+        LogReplayService.ReplayReport report = replay.restoreBalances(head::add);
+        assertEquals(190.00, restored.getBalance(), 0.001);
+        assertEquals(600.00, untouched.getBalance(), 0.001);
+        assertEquals(3, head.size());
+        assertEquals(batch.get(0).getTransactionId(), head.get(0).getTransactionId());
+        assertTrue(report.compareWith(List.of(restored, untouched)).isEmpty());
+    }
+}
@@ -0,0 +1,89 @@
+package com.miracle.runner;
+
+import com.miracle.src.utils.Log;
+import com.miracle.src.utils.RollingLogFile;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Test class for the asynchronous logger and its rolling file.
+ */
+public class LogTest {
+
+    private static final Log LOG = Log.get(LogTest.class);
+
+    @Test
+    @DisplayName("Should not format arguments of a disabled level")
+    public void testDisabledLevelIsNotFormatted() {
+        assumeFalse(Log.isEnabled(Log.Level.DEBUG));
+        AtomicInteger formatted = new AtomicInteger();
+        Object argument = new Object() {
+            @Override
+            public String toString() {
+                formatted.incrementAndGet();
+                return "argument";
+            }
+        };
+        LOG.debug("Never written: {}", argument);
+        Log.flush();
+        assertEquals(0, formatted.get());
+    }
+
+    @Test
+    @DisplayName("Should write structured lines to the log file in the background")
+    public void testEntriesReachFile() throws Exception {
+        assumeTrue(Log.isEnabled(Log.Level.WARN));
+        String marker = UUID.randomUUID().toString();
+        LOG.warn("Marker {} posted {} times", marker, 3);
+        Log.flush();
+
+        List<String> lines = Files.readAllLines(Log.logFile());
+        String line = lines.stream().filter(l -> l.contains(marker)).findFirst().orElseThrow();
+        assertTrue(line.contains(" WARN ["), line);
+        assertTrue(line.endsWith("LogTest - Marker " + marker + " posted 3 times"), line);
+    }
+
+    @Test
+    @DisplayName("Should write the stack trace of an exception passed as the cause")
+    public void testCauseStackTrace() throws Exception {
+        assumeTrue(Log.isEnabled(Log.Level.ERROR));
+        String marker = UUID.randomUUID().toString();
+        LOG.error("Save failed: {}", new IllegalStateException(marker));
+        Log.flush();
+
+        List<String> lines = Files.readAllLines(Log.logFile());
+        int at = lines.indexOf(lines.stream().filter(l -> l.endsWith("LogTest - Save failed: java.lang.IllegalStateException: " + marker))
+                .findFirst().orElseThrow());
+        assertEquals("java.lang.IllegalStateException: " + marker, lines.get(at + 1));
+        assertTrue(lines.get(at + 2).contains("at com.miracle.runner.LogTest.testCauseStackTrace"), lines.get(at + 2));
+    }
+
+    @Test
+    @DisplayName("Should roll the file over at its size limit and keep the newest files")
+    public void testRollingFile(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("bank.log");
+        try (RollingLogFile log = new RollingLogFile(file, 100, 2)) {
+            for (int i = 0; i < 20; i++) {
+                log.writeLine(String.format("line %02d %s", i, "x".repeat(20)));
+            }
+        }
+        assertTrue(Files.exists(file));
+        assertTrue(Files.exists(dir.resolve("bank.log.1")));
+        assertTrue(Files.exists(dir.resolve("bank.log.2")));
+        assertFalse(Files.exists(dir.resolve("bank.log.3")));
+        assertTrue(Files.size(file) <= 100);
+        assertTrue(Files.readAllLines(file).get(Files.readAllLines(file).size() - 1).startsWith("line 19"));
+        assertTrue(Files.readString(dir.resolve("bank.log.2")).compareTo(Files.readString(dir.resolve("bank.log.1"))) < 0);
+    }
+}
@@ -0,0 +1,193 @@
+package com.miracle.runner;
+
+import com.miracle.src.dto.TransactionRequest;
+import com.miracle.src.models.*;
+import com.miracle.src.models.exceptions.InsufficientFundsException;
+import com.miracle.src.models.exceptions.OverdraftExceededException;
+import com.miracle.src.services.AccountManager;
+import com.miracle.src.services.PostingLanes;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for the single-writer posting lane execution mode.
+ */
+@ExtendWith(SharedStateExtension.class)
+public class PostingLanesTest {
+
+    private static final int ACCOUNTS = 8;
+    private static final List<CheckingAccount> accounts = new ArrayList<>();
+    private static SavingsAccount savings;
+    private final AccountManager manager = AccountManager.getInstance();
+
+    @BeforeAll
+    public static void registerAccounts() {
+        Customer customer = new RegularCustomer("Lane Owner", 29, "0241115555", "5 Lane Ave", "CUS951", true);
+        for (int i = 0; i < ACCOUNTS; i++) {
+            CheckingAccount account = new CheckingAccount(customer, 1_000.00, "ACC95" + i, true);
+            AccountManager.getInstance().addAccountFromFile(account);
+            accounts.add(account);
+        }
+        savings = new SavingsAccount(customer, 1_000.00, "ACC958", true);
+        AccountManager.getInstance().addAccountFromFile(savings);
+    }
+
+    @BeforeEach
+    public void startLanes() {
+        manager.enablePostingLanes(4);
+    }
+
+    @AfterEach
+    public void stopLanes() {
+        manager.disablePostingLanes();
+    }
+
+    @Test
+    @DisplayName("Should hand every account to a lane and post through futures")
+    public void testDepositsThroughLanes() throws Exception {
+        PostingLanes lanes = manager.getPostingLanes();
+        assertEquals(4, lanes.laneCount());
+        double before = accounts.get(0).getBalance();
+
+        List<CompletableFuture<Transaction>> futures = new ArrayList<>();
+        for (int i = 0; i < 80; i++) {
+            CheckingAccount account = accounts.get(i % ACCOUNTS);
+            assertNotNull(account.getLane());
+            futures.add(manager.processTransaction(
+                    new TransactionRequest(account.getAccountNumber(), null, "DEPOSIT", 2.00)));
+        }
+        for (CompletableFuture<Transaction> future : futures) {
+            Transaction posted = future.get(10, TimeUnit.SECONDS);
+            assertEquals("Deposit", posted.getType());
+        }
+        assertEquals(before + 80 / ACCOUNTS * 2.00, accounts.get(0).getBalance(), 1e-6);
+        // Accounts on different lanes really are spread out
+        assertNotSame(accounts.get(0).getLane(), accounts.get(1).getLane());
+    }
+
+    @Test
+    @DisplayName("Should route direct postings from other threads to the owning lane")
+    public void testDirectPostingsAreRouted() throws Exception {
+        CheckingAccount account = accounts.get(2);
+        double before = account.getBalance();
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                futures.add(pool.submit(() -> {
+                    for (int i = 0; i < 10; i++) {
+                        account.deposit(1.00);
+                        account.withdraw(0.50);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        assertEquals(before + 4 * 10 * 0.50, account.getBalance(), 1e-6);
+        assertThrows(OverdraftExceededException.class, () -> account.withdrawWithType(1_000_000.00, "Transfer Out"));
+    }
+
+    @Test
+    @DisplayName("Should move money between lanes in two phases and conserve the total")
+    public void testTransfersAcrossLanes() throws Exception {
+        double total = accounts.stream().mapToDouble(Account::getBalance).sum();
+        List<CompletableFuture<Transaction>> futures = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            Account from = accounts.get(i % ACCOUNTS);
+            Account to = accounts.get((i * 3 + 1) % ACCOUNTS);
+            futures.add(manager.processTransaction(new TransactionRequest(
+                    from.getAccountNumber(), to.getAccountNumber(), "TRANSFER", 5.00)));
+        }
+        for (CompletableFuture<Transaction> future : futures) {
+            assertEquals("Transfer Out", future.get(10, TimeUnit.SECONDS).getType());
+        }
+        assertEquals(total, accounts.stream().mapToDouble(Account::getBalance).sum(), 1e-6);
+    }
+
+    @Test
+    @DisplayName("Should fail the future as the inline path would, leaving balances unchanged")
+    public void testRejectedTransfer() throws Exception {
+        Account from = accounts.get(3);
+        Account to = accounts.get(4);
+        double fromBefore = from.getBalance();
+        double toBefore = to.getBalance();
+
+        CompletableFuture<Transaction> future = manager.processTransaction(new TransactionRequest(
+                from.getAccountNumber(), to.getAccountNumber(), "TRANSFER", 1_000_000.00));
+        ExecutionException failure = assertThrows(ExecutionException.class, () -> future.get(10, TimeUnit.SECONDS));
+        assertInstanceOf(RuntimeException.class, failure.getCause());
+        assertInstanceOf(OverdraftExceededException.class, failure.getCause().getCause());
+        assertEquals(fromBefore, from.getBalance(), 1e-6);
+        assertEquals(toBefore, to.getBalance(), 1e-6);
+    }
+
+    @Test
+    @DisplayName("Should reject a transfer below the savings minimum without prompting or crediting the target")
+    public void testRejectedSavingsTransfer() throws Exception {
+        Account to = accounts.get(5);
+        double toBefore = to.getBalance();
+        InputStream stdin = System.in;
+        // The interactive path would read this as "go back" and report no debit
+        System.setIn(new ByteArrayInputStream("0\n".getBytes(StandardCharsets.UTF_8)));
+        try {
+            CompletableFuture<Transaction> future = manager.processTransaction(new TransactionRequest(
+                    savings.getAccountNumber(), to.getAccountNumber(), "TRANSFER", 600.00));
+            ExecutionException failure = assertThrows(ExecutionException.class, () -> future.get(10, TimeUnit.SECONDS));
+            assertInstanceOf(InsufficientFundsException.class, failure.getCause());
+        } finally {
+            System.setIn(stdin);
+        }
+        assertEquals(1_000.00, savings.getBalance(), 1e-6);
+        assertEquals(toBefore, to.getBalance(), 1e-6);
+    }
+
+    @Test
+    @DisplayName("Should reject a savings withdrawal below the minimum without prompting on the lane")
+    public void testRejectedSavingsWithdrawal() throws Exception {
+        InputStream stdin = System.in;
+        // The interactive path would read this as "go back" and complete with no transaction
+        System.setIn(new ByteArrayInputStream("0\n".getBytes(StandardCharsets.UTF_8)));
+        try {
+            CompletableFuture<Transaction> future = manager.processTransaction(new TransactionRequest(
+                    savings.getAccountNumber(), null, "WITHDRAWAL", 600.00));
+            ExecutionException failure = assertThrows(ExecutionException.class, () -> future.get(10, TimeUnit.SECONDS));
+            assertInstanceOf(InsufficientFundsException.class, failure.getCause());
+            // Posted straight to the lane, a debit that skips withdraw's own check
+            CompletableFuture<Transaction> debit = manager.getPostingLanes().post(savings, "Transfer", 600.00);
+            failure = assertThrows(ExecutionException.class, () -> debit.get(10, TimeUnit.SECONDS));
+            assertInstanceOf(InsufficientFundsException.class, failure.getCause());
+        } finally {
+            System.setIn(stdin);
+        }
+        assertEquals(1_000.00, savings.getBalance(), 1e-6);
+        // The savings account's lane is still serving postings
+        assertEquals(1.00, manager.getPostingLanes().post(savings, "Withdrawal", 1.00)
+                .get(10, TimeUnit.SECONDS).getAmount(), 1e-6);
+        manager.getPostingLanes().post(savings, "Deposit", 1.00).get(10, TimeUnit.SECONDS);
+    }
+
+    @Test
+    @DisplayName("Should return accounts to lock-based postings when lanes stop")
+    public void testDisableReleasesAccounts() throws Exception {
+        manager.disablePostingLanes();
+        assertNull(manager.getPostingLanes());
+        assertNull(accounts.get(0).getLane());
+        CompletableFuture<Transaction> inline = manager.processTransaction(
+                new TransactionRequest(accounts.get(0).getAccountNumber(), null, "DEPOSIT", 1.00));
+        assertTrue(inline.isDone());
+    }
+}
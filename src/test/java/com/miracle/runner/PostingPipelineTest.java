@@ -0,0 +1,161 @@
+package com.miracle.runner;
+
+import com.miracle.src.dto.TransactionRequest;
+import com.miracle.src.models.*;
+import com.miracle.src.models.exceptions.AccountNotFoundException;
+import com.miracle.src.models.exceptions.InvalidAmountException;
+import com.miracle.src.models.exceptions.InsufficientFundsException;
+import com.miracle.src.models.exceptions.OverdraftExceededException;
+import com.miracle.src.services.AccountManager;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for the ring-buffer posting pipeline.
+ */
+@ExtendWith(SharedStateExtension.class)
+public class PostingPipelineTest {
+
+    private static final int ACCOUNTS = 4;
+    private static final List<CheckingAccount> accounts = new ArrayList<>();
+    private static SavingsAccount savings;
+    private final AccountManager manager = AccountManager.getInstance();
+
+    @BeforeAll
+    public static void registerAccounts() {
+        Customer customer = new RegularCustomer("Ring Buffer", 33, "0241116666", "6 Ring Rd", "CUS961", true);
+        for (int i = 0; i < ACCOUNTS; i++) {
+            CheckingAccount account = new CheckingAccount(customer, 1_000.00, "ACC96" + i, true);
+            AccountManager.getInstance().addAccountFromFile(account);
+            accounts.add(account);
+        }
+        savings = new SavingsAccount(customer, 1_000.00, "ACC964", true);
+        AccountManager.getInstance().addAccountFromFile(savings);
+    }
+
+    @BeforeEach
+    public void startPipeline() {
+        // A small ring so the tests wrap it many times
+        manager.enablePostingPipeline(8);
+    }
+
+    @AfterEach
+    public void stopPipeline() {
+        manager.disablePostingPipeline();
+    }
+
+    @Test
+    @DisplayName("Should post through every stage from several producers across ring wraps")
+    public void testConcurrentProducers() throws Exception {
+        assertEquals(8, manager.getPostingPipeline().ringSize());
+        double total = accounts.stream().mapToDouble(Account::getBalance).sum();
+        ExecutorService producers = Executors.newFixedThreadPool(3);
+        try {
+            List<Future<List<CompletableFuture<Transaction>>>> submitted = new ArrayList<>();
+            for (int p = 0; p < 3; p++) {
+                int offset = p;
+                submitted.add(producers.submit(() -> {
+                    List<CompletableFuture<Transaction>> futures = new ArrayList<>();
+                    for (int i = 0; i < 20; i++) {
+                        Account account = accounts.get((i + offset) % ACCOUNTS);
+                        futures.add(manager.processTransaction(
+                                new TransactionRequest(account.getAccountNumber(), null, "DEPOSIT", 1.00)));
+                    }
+                    return futures;
+                }));
+            }
+            for (Future<List<CompletableFuture<Transaction>>> batch : submitted) {
+                for (CompletableFuture<Transaction> future : batch.get(30, TimeUnit.SECONDS)) {
+                    assertEquals("Deposit", future.get(10, TimeUnit.SECONDS).getType());
+                }
+            }
+        } finally {
+            producers.shutdownNow();
+        }
+        assertEquals(total + 60.00, accounts.stream().mapToDouble(Account::getBalance).sum(), 1e-6);
+    }
+
+    @Test
+    @DisplayName("Should transfer in the apply stage and conserve the total")
+    public void testTransfers() throws Exception {
+        double total = accounts.stream().mapToDouble(Account::getBalance).sum();
+        List<CompletableFuture<Transaction>> futures = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            futures.add(manager.processTransaction(new TransactionRequest(
+                    accounts.get(i % ACCOUNTS).getAccountNumber(),
+                    accounts.get((i + 1) % ACCOUNTS).getAccountNumber(), "TRANSFER", 3.00)));
+        }
+        for (CompletableFuture<Transaction> future : futures) {
+            assertEquals("Transfer Out", future.get(10, TimeUnit.SECONDS).getType());
+        }
+        assertEquals(total, accounts.stream().mapToDouble(Account::getBalance).sum(), 1e-6);
+    }
+
+    @Test
+    @DisplayName("Should fail futures with the exceptions the inline path throws")
+    public void testValidationFailures() throws Exception {
+        String account = accounts.get(0).getAccountNumber();
+        assertInstanceOf(AccountNotFoundException.class,
+                failureOf(new TransactionRequest("ACC969", null, "DEPOSIT", 5.00)));
+        Throwable badType = failureOf(new TransactionRequest(account, null, "REFUND", 5.00));
+        assertInstanceOf(IllegalArgumentException.class, badType.getCause());
+        Throwable badAmount = failureOf(new TransactionRequest(account, null, "DEPOSIT", -5.00));
+        assertInstanceOf(InvalidAmountException.class, badAmount.getCause());
+        Throwable noReceiver = failureOf(new TransactionRequest(account, " ", "TRANSFER", 5.00));
+        assertInstanceOf(IllegalArgumentException.class, noReceiver.getCause());
+        Throwable overdraft = failureOf(new TransactionRequest(account, accounts.get(1).getAccountNumber(), "TRANSFER", 1_000_000.00));
+        assertInstanceOf(OverdraftExceededException.class, overdraft.getCause());
+    }
+
+    @Test
+    @DisplayName("Should reject a transfer below the savings minimum without prompting or crediting the target")
+    public void testRejectedSavingsTransfer() throws Exception {
+        Account to = accounts.get(2);
+        double toBefore = to.getBalance();
+        InputStream stdin = System.in;
+        // The interactive path would read this as "go back" and report no debit
+        System.setIn(new ByteArrayInputStream("0\n".getBytes(StandardCharsets.UTF_8)));
+        try {
+            assertInstanceOf(InsufficientFundsException.class,
+                    failureOf(new TransactionRequest(savings.getAccountNumber(), to.getAccountNumber(), "TRANSFER", 600.00)));
+        } finally {
+            System.setIn(stdin);
+        }
+        assertEquals(1_000.00, savings.getBalance(), 1e-6);
+        assertEquals(toBefore, to.getBalance(), 1e-6);
+    }
+
+    @Test
+    @DisplayName("Should run direct postings from other threads in the apply stage")
+    public void testDirectPostingsAreRouted() throws Exception {
+        CheckingAccount account = accounts.get(3);
+        assertSame(manager.getPostingPipeline(), account.getLane());
+        double before = account.getBalance();
+        Transaction posted = account.deposit(12.50);
+        assertEquals("Deposit", posted.getType());
+        assertEquals(before + 12.50, account.getBalance(), 1e-6);
+        assertThrows(OverdraftExceededException.class, () -> account.withdrawWithType(1_000_000.00, "Transfer Out"));
+    }
+
+    @Test
+    @DisplayName("Should allow only one posting execution mode at a time")
+    public void testModesAreExclusive() {
+        assertThrows(IllegalStateException.class, () -> manager.enablePostingLanes(2));
+        assertThrows(IllegalStateException.class, () -> manager.enablePostingPipeline(8));
+    }
+
+    private Throwable failureOf(TransactionRequest request) throws Exception {
+        CompletableFuture<Transaction> future = manager.processTransaction(request);
+        ExecutionException failure = assertThrows(ExecutionException.class, () -> future.get(10, TimeUnit.SECONDS));
+        return failure.getCause();
+    }
+}
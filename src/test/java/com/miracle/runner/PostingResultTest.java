@@ -0,0 +1,94 @@
+package com.miracle.runner;
+
+import com.miracle.src.dto.TransactionRequest;
+import com.miracle.src.models.*;
+import com.miracle.src.models.exceptions.AccountNotFoundException;
+import com.miracle.src.models.exceptions.InsufficientFundsException;
+import com.miracle.src.models.exceptions.OverdraftExceededException;
+import com.miracle.src.services.AccountManager;
+import com.miracle.src.services.TransactionManager;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for the result-code posting API and the shared stackless exceptions.
+ */
+@ExtendWith(SharedStateExtension.class)
+public class PostingResultTest {
+
+    private static CheckingAccount checking;
+    private static SavingsAccount savings;
+    private final AccountManager manager = AccountManager.getInstance();
+
+    @BeforeAll
+    public static void registerAccounts() {
+        Customer customer = new RegularCustomer("Result Codes", 33, "0241117777", "9 Code St", "CUS981", true);
+        checking = new CheckingAccount(customer, 100.00, "ACC980", true);
+        savings = new SavingsAccount(customer, 600.00, "ACC981", true);
+        AccountManager.getInstance().addAccountFromFile(checking);
+        AccountManager.getInstance().addAccountFromFile(savings);
+    }
+
+    @Test
+    @DisplayName("Should report account-level rejections as shared constants without posting")
+    public void testAccountRejections() {
+        int historyBefore = TransactionManager.getInstance().getTransactionCount();
+        double checkingBefore = checking.getBalance();
+        assertSame(PostingResult.OVERDRAFT_EXCEEDED, checking.tryProcessTransaction(checkingBefore + 1_000.01, "Withdrawal"));
+        assertSame(PostingResult.INVALID_AMOUNT, checking.tryProcessTransaction(-5, "Deposit"));
+        assertSame(PostingResult.INVALID_REQUEST, checking.tryProcessTransaction(5, "Refund"));
+        assertEquals(checkingBefore, checking.getBalance(), 1e-9);
+
+        // Below the savings minimum is rejected, not prompted for
+        double savingsBefore = savings.getBalance();
+        assertSame(PostingResult.INSUFFICIENT_FUNDS, savings.tryProcessTransaction(savingsBefore - 499.99, "Withdrawal"));
+        assertEquals(savingsBefore, savings.getBalance(), 1e-9);
+        assertEquals(historyBefore, TransactionManager.getInstance().getTransactionCount());
+
+        PostingResult posted = savings.tryProcessTransaction(20.00, "Withdrawal");
+        assertTrue(posted.isPosted());
+        assertEquals("Withdrawal", posted.getTransaction().getType());
+        assertEquals(savingsBefore - 20.00, posted.getTransaction().getBalanceAfter(), 1e-9);
+    }
+
+    @Test
+    @DisplayName("Should post and reject through the manager without exceptions")
+    public void testManagerResultCodes() {
+        assertSame(PostingResult.ACCOUNT_NOT_FOUND,
+                manager.tryProcessTransaction(new TransactionRequest("ACC989", null, "DEPOSIT", 10)));
+        assertSame(PostingResult.INVALID_REQUEST,
+                manager.tryProcessTransaction(new TransactionRequest("ACC980", null, "TRANSFER", 10)));
+
+        double checkingBefore = checking.getBalance();
+        double savingsBefore = savings.getBalance();
+        assertSame(PostingResult.OVERDRAFT_EXCEEDED, manager.tryProcessTransaction(
+                new TransactionRequest("ACC980", "ACC981", "TRANSFER", checkingBefore + 2_000)));
+        assertEquals(checkingBefore, checking.getBalance(), 1e-9);
+
+        PostingResult transfer = manager.tryProcessTransaction(new TransactionRequest("ACC980", "ACC981", "TRANSFER", 25));
+        assertTrue(transfer.isPosted());
+        assertEquals("Transfer Out", transfer.getTransaction().getType());
+        assertEquals(checkingBefore - 25, checking.getBalance(), 1e-9);
+        assertEquals(savingsBefore + 25, savings.getBalance(), 1e-9);
+    }
+
+    @Test
+    @DisplayName("Should throw one shared stackless instance per rejection kind")
+    public void testCachedExceptions() {
+        InsufficientFundsException first = assertThrows(InsufficientFundsException.class,
+                PostingResult.INSUFFICIENT_FUNDS::getTransactionOrThrow);
+        InsufficientFundsException second = assertThrows(InsufficientFundsException.class,
+                PostingResult.INSUFFICIENT_FUNDS::getTransactionOrThrow);
+        assertSame(first, second);
+        assertEquals(0, first.getStackTrace().length);
+        first.addSuppressed(new IllegalStateException("ignored"));
+        assertEquals(0, first.getSuppressed().length);
+
+        assertSame(OverdraftExceededException.cached(),
+                assertThrows(OverdraftExceededException.class, PostingResult.OVERDRAFT_EXCEEDED::getTransactionOrThrow));
+        assertEquals(0, AccountNotFoundException.cached().getStackTrace().length);
+        assertTrue(Double.isNaN(OverdraftExceededException.cached().getOverdraftLimit()));
+    }
+}
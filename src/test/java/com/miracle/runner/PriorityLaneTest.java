@@ -0,0 +1,150 @@
+package com.miracle.runner;
+
+import com.miracle.src.dto.TransactionRequest;
+import com.miracle.src.models.*;
+import com.miracle.src.services.AccountManager;
+import com.miracle.src.services.AdmissionController;
+import com.miracle.src.services.PriorityLane;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for the priority lanes of the admission queue.
+ */
+@ExtendWith(SharedStateExtension.class)
+public class PriorityLaneTest {
+
+    private final AccountManager manager = AccountManager.getInstance();
+
+    @BeforeAll
+    public static void registerAccounts() {
+        Customer regular = new RegularCustomer("Bulk Payroll", 45, "0241110001", "1 Batch Ave", "CUS993", true);
+        Customer premium = new PremiumCustomer("First Class", 50, "0241110002", "2 Gold St", "CUS994", true);
+        AccountManager.getInstance().addAccountFromFile(new CheckingAccount(regular, 100.00, "ACC993", true));
+        AccountManager.getInstance().addAccountFromFile(new CheckingAccount(premium, 100.00, "ACC994", true));
+    }
+
+    @AfterEach
+    public void cleanUp() {
+        manager.disableAdmissionControl();
+    }
+
+    @Test
+    @DisplayName("Should key lanes by customer type and request origin")
+    public void testLaneKeys() {
+        assertEquals(PriorityLane.PREMIUM_INTERACTIVE, PriorityLane.of("Premium", TransactionRequest.Origin.INTERACTIVE));
+        assertEquals(PriorityLane.PREMIUM_BATCH, PriorityLane.of("Premium", TransactionRequest.Origin.BATCH));
+        assertEquals(PriorityLane.REGULAR_INTERACTIVE, PriorityLane.of("Regular", TransactionRequest.Origin.INTERACTIVE));
+        assertEquals(PriorityLane.REGULAR_BATCH, PriorityLane.of(null, TransactionRequest.Origin.BATCH));
+    }
+
+    @Test
+    @DisplayName("Should hand freed permits to backlogged lanes in proportion to their weights")
+    public void testWeightedHandoff() throws Exception {
+        AdmissionController controller = new AdmissionController(1, 1, 8, Duration.ofSeconds(10),
+                Duration.ofSeconds(1), new int[]{2, 1, 1, 1});
+        assertTrue(controller.tryAdmit(PriorityLane.REGULAR_INTERACTIVE));
+        long admittedAt = System.nanoTime();
+
+        List<PriorityLane> order = Collections.synchronizedList(new ArrayList<>());
+        List<Thread> threads = new ArrayList<>();
+        for (PriorityLane lane : new PriorityLane[]{PriorityLane.PREMIUM_INTERACTIVE, PriorityLane.REGULAR_BATCH}) {
+            int waiters = lane == PriorityLane.PREMIUM_INTERACTIVE ? 4 : 2;
+            for (int i = 0; i < waiters; i++) {
+                Thread thread = new Thread(() -> {
+                    if (controller.tryAdmit(lane)) {
+                        order.add(lane);
+                        controller.release(System.nanoTime(), lane);
+                    }
+                });
+                thread.start();
+                threads.add(thread);
+            }
+        }
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (controller.getQueued() < 6 && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        assertEquals(4, controller.getLaneStats(PriorityLane.PREMIUM_INTERACTIVE).getQueueDepth());
+        assertEquals(2, controller.getLaneStats(PriorityLane.REGULAR_BATCH).getQueueDepth());
+
+        controller.release(admittedAt, PriorityLane.REGULAR_INTERACTIVE);
+        for (Thread thread : threads) {
+            thread.join(5_000);
+        }
+        // Weights 2:1 while both lanes wait; batch is served before premium runs dry
+        assertEquals(List.of(PriorityLane.PREMIUM_INTERACTIVE, PriorityLane.REGULAR_BATCH,
+                PriorityLane.PREMIUM_INTERACTIVE, PriorityLane.PREMIUM_INTERACTIVE,
+                PriorityLane.REGULAR_BATCH, PriorityLane.PREMIUM_INTERACTIVE), order);
+        assertEquals(4, controller.getLaneStats(PriorityLane.PREMIUM_INTERACTIVE).getQueueTime().getCount());
+        assertEquals(2, controller.getLaneStats(PriorityLane.REGULAR_BATCH).getServiceTime().getCount());
+    }
+
+    @Test
+    @DisplayName("Should keep a full batch lane from taking premium queue places")
+    public void testPerLaneCapacity() throws Exception {
+        AdmissionController controller = new AdmissionController(1, 1, 1, Duration.ofSeconds(10), Duration.ofSeconds(1));
+        assertTrue(controller.tryAdmit(PriorityLane.REGULAR_BATCH));
+        long admittedAt = System.nanoTime();
+
+        Thread batch = new Thread(() -> {
+            if (controller.tryAdmit(PriorityLane.REGULAR_BATCH)) {
+                controller.release(System.nanoTime(), PriorityLane.REGULAR_BATCH);
+            }
+        });
+        batch.start();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (controller.getQueued() < 1 && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        assertFalse(controller.tryAdmit(PriorityLane.REGULAR_BATCH));
+        assertEquals(1, controller.getLaneStats(PriorityLane.REGULAR_BATCH).getRejectedCount());
+
+        Thread premium = new Thread(() -> {
+            if (controller.tryAdmit(PriorityLane.PREMIUM_INTERACTIVE)) {
+                controller.release(System.nanoTime(), PriorityLane.PREMIUM_INTERACTIVE);
+            }
+        });
+        premium.start();
+        while (controller.getQueued() < 2 && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        assertEquals(1, controller.getLaneStats(PriorityLane.PREMIUM_INTERACTIVE).getQueueDepth());
+
+        controller.release(admittedAt, PriorityLane.REGULAR_BATCH);
+        batch.join(5_000);
+        premium.join(5_000);
+        assertEquals(1, controller.getLaneStats(PriorityLane.PREMIUM_INTERACTIVE).getAdmittedCount());
+        assertEquals(2, controller.getLaneStats(PriorityLane.REGULAR_BATCH).getAdmittedCount());
+        assertEquals(0, controller.getInFlight());
+    }
+
+    @Test
+    @DisplayName("Should route manager postings to the lane of their customer and origin")
+    public void testManagerRouting() throws Exception {
+        AdmissionController controller = new AdmissionController(4, 4, 4, Duration.ofMillis(50), Duration.ofSeconds(1));
+        manager.enableAdmissionControl(controller);
+
+        TransactionRequest batch = new TransactionRequest("ACC993", null, "DEPOSIT", 5);
+        batch.setOrigin(TransactionRequest.Origin.BATCH);
+        manager.processTransaction(batch).join();
+        manager.processTransaction(new TransactionRequest("ACC994", null, "DEPOSIT", 5)).join();
+        TransactionRequest premiumBatch = new TransactionRequest("ACC994", "ACC993", "TRANSFER", 5);
+        premiumBatch.setOrigin(TransactionRequest.Origin.BATCH);
+        assertTrue(manager.tryProcessTransaction(premiumBatch).isPosted());
+
+        assertEquals(1, controller.getLaneStats(PriorityLane.REGULAR_BATCH).getAdmittedCount());
+        assertEquals(1, controller.getLaneStats(PriorityLane.PREMIUM_INTERACTIVE).getAdmittedCount());
+        assertEquals(1, controller.getLaneStats(PriorityLane.PREMIUM_BATCH).getAdmittedCount());
+        assertEquals(0, controller.getLaneStats(PriorityLane.REGULAR_INTERACTIVE).getAdmittedCount());
+        assertEquals(0, controller.getInFlight());
+    }
+}
@@ -0,0 +1,184 @@
+package com.miracle.runner;
+
+import com.miracle.src.models.*;
+import com.miracle.src.services.ReconciliationService;
+import com.miracle.src.services.TransactionManager;
+import com.miracle.src.utils.FileIOUtils;
+import com.miracle.src.utils.TransactionSegmentStore;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for reconciling balances against the transaction log.
+ */
+@ExtendWith(SharedStateExtension.class)
+public class ReconciliationServiceTest {
+
+    private static final LocalDateTime DAY = LocalDateTime.of(2027, 5, 3, 9, 0);
+
+    @TempDir
+    Path tempDir;
+
+    private TransactionSegmentStore store;
+    private CheckingAccount checking;
+    private SavingsAccount savings;
+    private final Map<String, Long> balances = new HashMap<>();
+    private int nextId;
+
+    @BeforeEach
+    public void setUp() {
+        store = new TransactionSegmentStore(tempDir.resolve("transactions.txt"), tempDir.resolve("segments"),
+                TransactionSegmentStore.DEFAULT_MAX_SEGMENT_BYTES, false);
+        Customer customer = new RegularCustomer("Audit Holder", 44, "0247770000", "9 Ledger Row", "CUS979", true);
+        checking = new CheckingAccount(customer, 0, "ACC979", true);
+        savings = new SavingsAccount(customer, 0, "ACC991", true);
+    }
+
+    // Logs a posting with the balanceAfter it should have
+    private Transaction post(Account account, String type, long cents) {
+        boolean credit = type.equals("Deposit") || type.equals("Transfer In") || type.equals("Interest");
+        long after = balances.merge(account.getAccountNumber(), credit ? cents : -cents, Long::sum);
+        return logged(account, type, cents, after);
+    }
+
+    private Transaction logged(Account account, String type, long cents, long afterCents) {
+        nextId++;
+        return new Transaction("REC-" + nextId, account.getAccountNumber(), type, cents / 100.0, afterCents / 100.0,
+                DAY.plusSeconds(nextId));
+    }
+
+    private void append(Transaction... batch) throws Exception {
+        List<String> lines = new ArrayList<>();
+        for (Transaction t : batch) {
+            lines.add(FileIOUtils.serializeTransaction(t));
+        }
+        store.append(lines, DAY.toLocalDate());
+    }
+
+    // Sets both accounts to the balances the postings logged so far lead to
+    private void settle() {
+        checking.updateBalance(balances.getOrDefault("ACC979", 0L) / 100.0);
+        savings.updateBalance(balances.getOrDefault("ACC991", 0L) / 100.0);
+    }
+
+    private ReconciliationService service(TransactionManager.PendingFlush flushPending) {
+        return new ReconciliationService(store, flushPending, 4);
+    }
+
+    @Test
+    @DisplayName("Should reconcile balances that match the ledger and transfers that net out")
+    public void testClean() throws Exception {
+        append(post(checking, "Deposit", 50_000), post(savings, "Deposit", 80_000), post(checking, "Fee", 1_500));
+        append(post(savings, "Transfer Out", 20_000), post(checking, "Transfer In", 20_000),
+                post(savings, "Interest", 333), post(checking, "Withdrawal", 7_000));
+        settle();
+
+        ReconciliationService.Report report = service(() -> { }).reconcile(List.of(checking, savings));
+        assertTrue(report.isClean(), report.toString());
+        assertEquals(2, report.getAccountCount());
+        assertEquals(7, report.getPostingCount());
+        assertEquals(61_500 + 60_333, report.getBalanceCents());
+        assertEquals(report.getBalanceCents(), report.getLedgerCents());
+        assertEquals(0, report.getTransfersInFlightCents());
+    }
+
+    @Test
+    @DisplayName("Should report a balance the ledger never reached")
+    public void testMismatch() throws Exception {
+        append(post(checking, "Deposit", 30_000), post(checking, "Withdrawal", 2_500), post(savings, "Deposit", 9_000));
+        settle();
+        checking.updateBalance(285.00);
+
+        ReconciliationService.Report report = service(() -> { }).reconcile(List.of(checking, savings));
+        assertFalse(report.isClean());
+        assertEquals(1, report.getDiscrepancies().size(), report.getDiscrepancies().toString());
+        ReconciliationService.Discrepancy discrepancy = report.getDiscrepancies().get(0);
+        assertEquals("ACC979", discrepancy.getAccountNumber());
+        assertEquals(ReconciliationService.Discrepancy.Kind.BALANCE_MISMATCH, discrepancy.getKind());
+        assertEquals(27_500, discrepancy.getLedgerCents());
+        assertEquals(28_500, discrepancy.getBalanceCents());
+    }
+
+    @Test
+    @DisplayName("Should report a posting that does not add up and a transfer with no incoming side")
+    public void testDivergenceAndTransferInFlight() throws Exception {
+        append(post(checking, "Deposit", 40_000), post(savings, "Deposit", 10_000));
+        // Records 5.00 too much, then carries on from the right balance
+        Transaction bad = logged(savings, "Deposit", 1_000, balances.merge("ACC991", 1_000L, Long::sum) + 500);
+        append(bad, post(checking, "Transfer Out", 12_000), post(savings, "Withdrawal", 200));
+        settle();
+
+        ReconciliationService.Report report = service(() -> { }).reconcile(List.of(checking, savings));
+        assertEquals(12_000, report.getTransfersInFlightCents());
+        assertEquals(1, report.getDiscrepancies().size(), report.getDiscrepancies().toString());
+        ReconciliationService.Discrepancy discrepancy = report.getDiscrepancies().get(0);
+        assertEquals("ACC991", discrepancy.getAccountNumber());
+        assertEquals(ReconciliationService.Discrepancy.Kind.LEDGER_DIVERGENCE, discrepancy.getKind());
+        assertEquals(bad.getTransactionId(), discrepancy.getTransactionId());
+        assertEquals(11_000, discrepancy.getLedgerCents());
+        assertEquals(11_500, discrepancy.getBalanceCents());
+
+        append(post(savings, "Transfer In", 12_000));
+        settle();
+        assertEquals(0, service(() -> { }).reconcile(List.of(checking, savings)).getTransfersInFlightCents());
+    }
+
+    @Test
+    @DisplayName("Should reconcile cleanly while postings continue")
+    public void testOnline() throws Exception {
+        append(post(checking, "Deposit", 10_000), post(savings, "Deposit", 10_000));
+        settle();
+        // A posting updates the balance and then logs it; the flush waits out the one in progress
+        ReentrantLock posting = new ReentrantLock();
+        AtomicBoolean running = new AtomicBoolean(true);
+        Thread poster = new Thread(() -> {
+            int i = 0;
+            while (running.get()) {
+                Account account = i % 2 == 0 ? checking : savings;
+                posting.lock();
+                try {
+                    Transaction t = post(account, i % 3 == 0 ? "Withdrawal" : "Deposit", 100);
+                    account.updateBalance(t.getBalanceAfter());
+                    append(t);
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                } finally {
+                    posting.unlock();
+                }
+                i++;
+                if (i >= 150) {
+                    break;
+                }
+                Thread.yield();
+            }
+        });
+        ReconciliationService service = service(() -> {
+            posting.lock();
+            posting.unlock();
+        });
+
+        poster.start();
+        try {
+            for (int run = 0; run < 20; run++) {
+                ReconciliationService.Report report = service.reconcile(List.of(checking, savings));
+                assertTrue(report.getDiscrepancies().isEmpty(), report.getDiscrepancies().toString());
+            }
+        } finally {
+            running.set(false);
+            poster.join();
+        }
+        assertTrue(service.reconcile(List.of(checking, savings)).isClean());
+    }
+}
@@ -0,0 +1,90 @@
+package com.miracle.runner;
+
+import com.miracle.src.utils.RecordParser;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+
+import static com.miracle.src.models.Transaction.TIMESTAMP_FORMATTER;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for the pipe-delimited record parser.
+ */
+public class RecordParserTest {
+
+    private final RecordParser parser = new RecordParser();
+
+    @Test
+    @DisplayName("Should split and trim fields in a single pass")
+    public void testFields() {
+        assertEquals(6, parser.parse(" TXN001 | ACC001|Deposit |5000.00|5000.00|07-01-2026 08:13:54 AM\r"));
+        assertEquals("TXN001", parser.field(0));
+        assertEquals("ACC001", parser.field(1));
+        assertTrue(parser.fieldEquals(2, "Deposit"));
+        assertEquals(0, parser.parse("   "));
+    }
+
+    @Test
+    @DisplayName("Should parse decimals into cents exactly")
+    public void testCents() {
+        parser.parse("5000.00|-250.5|7|0.07|1.234|abc");
+        assertEquals(500_000, parser.cents(0));
+        assertEquals(-25_050, parser.cents(1));
+        assertEquals(700, parser.cents(2));
+        assertEquals(7, parser.cents(3));
+        assertEquals(Double.parseDouble("0.07"), parser.decimal(3));
+        assertEquals(1.234, parser.decimal(4));
+        assertThrows(NumberFormatException.class, () -> parser.cents(4));
+        assertThrows(NumberFormatException.class, () -> parser.decimal(5));
+
+        // 17 integer digits fit a long but overflow once scaled to cents
+        parser.parse("99999999999999999.99|92233720368547758.07|-92233720368547758.07|123456789012345.67");
+        assertThrows(NumberFormatException.class, () -> parser.cents(0));
+        assertEquals(99999999999999999.99, parser.decimal(0));
+        assertEquals(Long.MAX_VALUE, parser.cents(1));
+        assertEquals(-Long.MAX_VALUE, parser.cents(2));
+        assertEquals(Double.parseDouble("123456789012345.67"), parser.decimal(3));
+    }
+
+    @Test
+    @DisplayName("Should decode fixed-layout timestamps like the formatter")
+    public void testTimestamp() {
+        for (String text : new String[]{"07-01-2026 08:13:54 AM", "31-12-2025 12:00:00 AM", "15-06-2026 12:30:01 PM", "15-06-2026 11:59:59 PM"}) {
+            parser.parse("x|" + text);
+            assertEquals(LocalDateTime.parse(text, TIMESTAMP_FORMATTER), parser.timestamp(1, TIMESTAMP_FORMATTER), text);
+        }
+        // Outside the fast path the formatter decides, as it did before the fast path existed
+        for (String text : new String[]{"31-04-2026 10:00:00 AM", "29-02-2025 10:00:00 AM", "12-01-2026 00:10:00 AM"}) {
+            parser.parse("x|" + text);
+            assertEquals(LocalDateTime.parse(text, TIMESTAMP_FORMATTER), parser.timestamp(1, TIMESTAMP_FORMATTER), text);
+        }
+        parser.parse("x|12-01-2026 10:60:00 AM");
+        assertThrows(DateTimeParseException.class, () -> parser.timestamp(1, TIMESTAMP_FORMATTER));
+    }
+
+    @Test
+    @DisplayName("Should parse records from a byte window without decoding lines")
+    public void testByteWindow() {
+        byte[] bytes = "junk\nACC002|Ama|28\n".getBytes(StandardCharsets.US_ASCII);
+        RecordParser.ByteWindow window = new RecordParser.ByteWindow().wrap(bytes, 5, 13);
+
+        assertEquals(3, parser.parse(window));
+        assertEquals("ACC002", parser.field(0));
+        assertEquals(28, parser.intField(2));
+    }
+
+    @Test
+    @DisplayName("Should reuse cached instances for repeated field values")
+    public void testCachedField() {
+        parser.parse("TXN001|ACC001");
+        String first = parser.cachedField(1);
+        parser.parse("TXN002|ACC001");
+        assertSame(first, parser.cachedField(1));
+        parser.parse("TXN003|ACC002");
+        assertEquals("ACC002", parser.cachedField(1));
+    }
+}
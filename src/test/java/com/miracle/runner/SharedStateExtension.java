@@ -0,0 +1,51 @@
+package com.miracle.runner;
+
+import com.miracle.src.models.Account;
+import com.miracle.src.models.Transaction;
+import com.miracle.src.services.TransactionManager;
+import org.junit.jupiter.api.extension.AfterAllCallback;
+import org.junit.jupiter.api.extension.AfterEachCallback;
+import org.junit.jupiter.api.extension.BeforeAllCallback;
+import org.junit.jupiter.api.extension.BeforeEachCallback;
+import org.junit.jupiter.api.extension.ExtensionContext;
+
+import java.util.List;
+
+/**
+ * Puts back the process-wide state that tests posting to fixed ACC numbers leave behind:
+ * loading those numbers raises the shared account counter, restored after the class so
+ * later tests get the generated numbers they expect, and their postings land in the shared,
+ * capped in-memory history, trimmed after each test to leave its headroom to other classes.
+ * Register it with {@code @ExtendWith(SharedStateExtension.class)}; it runs around the
+ * class's own setup and cleanup methods.
+ */
+public class SharedStateExtension implements BeforeAllCallback, AfterAllCallback, BeforeEachCallback, AfterEachCallback {
+
+    private static final ExtensionContext.Namespace NAMESPACE = ExtensionContext.Namespace.create(SharedStateExtension.class);
+    private static final String COUNTER = "accountCounter";
+    private static final String HISTORY = "historySize";
+
+    @Override
+    public void beforeAll(ExtensionContext context) {
+        context.getStore(NAMESPACE).put(COUNTER, Account.accountCounter);
+    }
+
+    @Override
+    public void afterAll(ExtensionContext context) {
+        Account.accountCounter = context.getStore(NAMESPACE).get(COUNTER, Integer.class);
+    }
+
+    @Override
+    public void beforeEach(ExtensionContext context) {
+        context.getStore(NAMESPACE).put(HISTORY, TransactionManager.getInstance().getAllTransactions().size());
+    }
+
+    @Override
+    public void afterEach(ExtensionContext context) {
+        int historyBefore = context.getStore(NAMESPACE).get(HISTORY, Integer.class);
+        List<Transaction> history = TransactionManager.getInstance().getAllTransactions();
+        synchronized (history) {
+            history.subList(Math.min(historyBefore, history.size()), history.size()).clear();
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package com.miracle.runner;
+
+import com.miracle.src.models.*;
+import com.miracle.src.services.AccountManager;
+import com.miracle.src.services.SnapshotService;
+import com.miracle.src.services.TransactionManager;
+import com.miracle.src.utils.FileIOUtils;
+import com.miracle.src.utils.TransactionSegmentStore;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Test class for snapshot and log-tail recovery.
+ */
+public class SnapshotServiceTest {
+
+    private static Account savings;
+    private static Account checking;
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeAll
+    public static void registerAccounts() {
+        AccountManager manager = AccountManager.getInstance();
+        Customer customer = new RegularCustomer("Snap Shot", 40, "0241112222", "1 Snapshot Rd", "CUS901", true);
+        savings = new SavingsAccount(customer, 1000.00, "ACC901", true);
+        checking = new CheckingAccount(customer, 200.00, "ACC902", true);
+        manager.addAccountFromFile(savings);
+        manager.addAccountFromFile(checking);
+    }
+
+    private TransactionSegmentStore store(Path wal) {
+        return new TransactionSegmentStore(wal, tempDir.resolve("segments"), TransactionSegmentStore.DEFAULT_MAX_SEGMENT_BYTES, false);
+    }
+
+    @Test
+    @DisplayName("Should replay across a segment rotation after the snapshot")
+    public void testRestoreAcrossRotation() throws IOException {
+        Path wal = tempDir.resolve("transactions.txt");
+        TransactionSegmentStore log = store(wal);
+        log.append(List.of(line("TXN9006", "ACC901", "Deposit", 100.00, 800.00)), null);
+        SnapshotService service = new SnapshotService(tempDir.resolve("snapshots"), log);
+        savings.updateBalance(800.00);
+        service.takeSnapshot();
+
+        log.append(List.of(line("TXN9007", "ACC901", "Deposit", 100.00, 900.00)), null);
+        log.rotate();
+        log.append(List.of(line("TXN9008", "ACC901", "Deposit", 100.00, 1000.00)), null);
+
+        savings.updateBalance(0.0);
+        Optional<SnapshotService.RecoveryResult> result = service.restoreLatest();
+
+        assertTrue(result.isPresent());
+        assertEquals(2, result.get().getTransactionsReplayed());
+        assertEquals(1000.00, savings.getBalance(), 0.001);
+    }
+
+    private static String line(String id, String acc, String type, double amount, double balanceAfter) {
+        return FileIOUtils.serializeTransaction(new Transaction(id, acc, type, amount, balanceAfter, LocalDateTime.now()));
+    }
+
+    @Test
+    @DisplayName("Should restore balances from snapshot and replay only the log tail")
+    public void testRestoreReplaysTail() throws IOException {
+        Path wal = tempDir.resolve("transactions.txt");
+        Files.write(wal, List.of(
+                line("TXN9001", "ACC901", "Deposit", 1000.00, 1000.00),
+                line("TXN9002", "ACC902", "Deposit", 200.00, 200.00)
+        ));
+        SnapshotService service = new SnapshotService(tempDir.resolve("snapshots"), store(wal));
+        savings.updateBalance(1000.00);
+        checking.updateBalance(200.00);
+        service.takeSnapshot();
+
+        Files.write(wal, List.of(
+                line("TXN9003", "ACC901", "Deposit", 500.00, 1500.00),
+                line("TXN9004", "ACC902", "Withdrawal", 450.00, -250.00)
+        ), StandardOpenOption.APPEND);
+
+        // Simulate a restart that loaded stale balances from accounts.txt
+        savings.updateBalance(0.0);
+        checking.updateBalance(0.0);
+
+        Optional<SnapshotService.RecoveryResult> result = service.restoreLatest();
+
+        assertTrue(result.isPresent());
+        assertEquals(2, result.get().getTransactionsReplayed());
+        assertEquals(1500.00, savings.getBalance(), 0.001);
+        assertEquals(-250.00, checking.getBalance(), 0.001);
+    }
+
+    @Test
+    @DisplayName("Should fill the history with the postings before the snapshot, not only the tail")
+    public void testRestoreLoadsHistoryBeforeSnapshot() throws IOException {
+        TransactionManager manager = TransactionManager.getInstance();
+        assumeFalse(manager.isFull());
+        List<Transaction> history = manager.getAllTransactions();
+        int historyBefore = history.size();
+        try {
+            Path wal = tempDir.resolve("transactions.txt");
+            Files.write(wal, List.of(line("TXN9011", "ACC901", "Deposit", 100.00, 1100.00)));
+            SnapshotService service = new SnapshotService(tempDir.resolve("snapshots"), store(wal));
+            savings.updateBalance(1100.00);
+            service.takeSnapshot();
+            Files.write(wal, List.of(line("TXN9012", "ACC901", "Deposit", 100.00, 1200.00)), StandardOpenOption.APPEND);
+
+            service.restoreLatest();
+
+            List<String> loaded = new ArrayList<>();
+            synchronized (history) {
+                history.subList(historyBefore, history.size()).forEach(t -> loaded.add(t.getTransactionId()));
+            }
+            assertEquals(List.of("TXN9011", "TXN9012"), loaded);
+        } finally {
+            synchronized (history) {
+                history.subList(Math.min(historyBefore, history.size()), history.size()).clear();
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Should fill the columnar history from the recent segments only")
+    public void testColumnarHistoryFromRecentSegments() throws IOException {
+        assumeTrue(TransactionManager.isColumnarStore());
+        List<Transaction> history = TransactionManager.getInstance().getAllTransactions();
+        int historyBefore = history.size();
+        try {
+            Path wal = tempDir.resolve("transactions.txt");
+            TransactionSegmentStore log = store(wal);
+            log.append(List.of(line("TXN9021", "ACC901", "Deposit", 100.00, 1100.00)), null);
+            log.rotate();
+            log.append(List.of(line("TXN9022", "ACC901", "Deposit", 100.00, 1200.00)), null);
+            log.rotate();
+            log.append(List.of(line("TXN9023", "ACC901", "Deposit", 100.00, 1300.00)), null);
+            SnapshotService service = new SnapshotService(tempDir.resolve("snapshots"), log);
+            savings.updateBalance(1300.00);
+            service.takeSnapshot();
+
+            service.restoreLatest();
+
+            List<String> loaded = new ArrayList<>();
+            synchronized (history) {
+                history.subList(historyBefore, history.size()).forEach(t -> loaded.add(t.getTransactionId()));
+            }
+            assertEquals(List.of("TXN9022", "TXN9023"), loaded);
+        } finally {
+            synchronized (history) {
+                history.subList(Math.min(historyBefore, history.size()), history.size()).clear();
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Should skip a torn snapshot and fall back to the previous one")
+    public void testIncompleteSnapshotIgnored() throws IOException {
+        Path wal = tempDir.resolve("transactions.txt");
+        Files.write(wal, List.of(line("TXN9005", "ACC901", "Deposit", 100.00, 700.00)));
+        SnapshotService service = new SnapshotService(tempDir.resolve("snapshots"), store(wal));
+        savings.updateBalance(700.00);
+        Path good = service.takeSnapshot();
+
+        // A newer snapshot without its trailer, as left behind by a crash mid-write
+        Path torn = good.resolveSibling("snapshot-99999999999999999999.snap");
+        Files.write(torn, List.of("SNAPSHOT|2|1|0|0|0|0", "ACC901|1.00|Active"));
+
+        savings.updateBalance(0.0);
+        Optional<SnapshotService.RecoveryResult> result = service.restoreLatest();
+
+        assertTrue(result.isPresent());
+        assertEquals(good, result.get().getSnapshot());
+        assertEquals(700.00, savings.getBalance(), 0.001);
+    }
+
+    @Test
+    @DisplayName("Should report no recovery when no snapshot exists")
+    public void testNoSnapshot() throws IOException {
+        SnapshotService service = new SnapshotService(tempDir.resolve("none"), store(tempDir.resolve("transactions.txt")));
+        assertTrue(service.restoreLatest().isEmpty());
+    }
+}
@@ -0,0 +1,204 @@
+package com.miracle.runner;
+
+import com.miracle.src.models.*;
+import com.miracle.src.services.AccountManager;
+import com.miracle.src.services.StandingOrderService;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for standing orders and their due-time batches.
+ */
+@ExtendWith(SharedStateExtension.class)
+public class StandingOrderTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2027, 1, 10, 9, 0);
+
+    private static CheckingAccount payer;
+    private static SavingsAccount saver;
+    private static CheckingAccount payee;
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeAll
+    public static void createAccounts() {
+        Customer customer = new RegularCustomer("Regular Payer", 38, "0243335555", "4 Direct Debit Rd", "CUS974", true);
+        payer = new CheckingAccount(customer, 1_000.00, "ACC974", true);
+        saver = new SavingsAccount(customer, 520.00, "ACC975", true);
+        payee = new CheckingAccount(customer, 0.00, "ACC976", true);
+        AccountManager accountManager = AccountManager.getInstance();
+        accountManager.addAccountFromFile(payer);
+        accountManager.addAccountFromFile(saver);
+        accountManager.addAccountFromFile(payee);
+    }
+
+    private StandingOrderService newService(int maxCatchUp) {
+        return new StandingOrderService(tempDir.resolve("standing_orders.txt"), 2, maxCatchUp);
+    }
+
+    @Test
+    @DisplayName("Should keep month-end runs on the first run's day where the month has it")
+    public void testMonthlyOccurrences() {
+        LocalDateTime first = LocalDateTime.of(2027, 1, 31, 8, 0);
+        assertEquals(LocalDateTime.of(2027, 2, 28, 8, 0), StandingOrder.Frequency.MONTHLY.occurrence(first, 1));
+        assertEquals(LocalDateTime.of(2027, 3, 31, 8, 0), StandingOrder.Frequency.MONTHLY.occurrence(first, 2));
+        assertEquals(LocalDateTime.of(2027, 2, 14, 8, 0), StandingOrder.Frequency.WEEKLY.occurrence(first, 2));
+
+        StandingOrder order = new StandingOrder("STO-T", "ACC974", "ACC976", 1.00, StandingOrder.Frequency.MONTHLY,
+                first, LocalDateTime.of(2027, 3, 1, 0, 0));
+        assertEquals(2, order.takeDueRuns(LocalDateTime.of(2027, 6, 1, 0, 0)));
+        assertNull(order.getNextRun());
+        assertTrue(order.isFinished());
+    }
+
+    @Test
+    @DisplayName("Should run only due orders and catch up missed runs in one batch")
+    public void testCatchUp() throws Exception {
+        StandingOrderService service = newService(31);
+        StandingOrder rent = service.createOrder("ACC974", "ACC976", 10.00, StandingOrder.Frequency.DAILY,
+                NOW.minusDays(3), null);
+        StandingOrder later = service.createOrder("ACC974", "ACC976", 5.00, StandingOrder.Frequency.WEEKLY,
+                NOW.plusDays(1), null);
+        double payerBefore = payer.getBalance();
+        double payeeBefore = payee.getBalance();
+
+        StandingOrderService.RunReport report = service.runDue(NOW);
+        assertEquals(1, report.getDueOrders());
+        assertEquals(4, report.getRuns());
+        assertEquals(4, report.getPosted());
+        assertEquals(payerBefore - 40.00, payer.getBalance(), 0.001);
+        assertEquals(payeeBefore + 40.00, payee.getBalance(), 0.001);
+        assertEquals(NOW.plusDays(1), rent.getNextRun());
+        assertEquals(0, later.getRunsScheduled());
+
+        assertEquals(0, service.runDue(NOW.plusHours(1)).getDueOrders());
+        assertEquals(2, service.runDue(NOW.plusDays(1)).getDueOrders());
+        assertEquals(5, rent.getRunsPosted());
+        service.stop();
+    }
+
+    @Test
+    @DisplayName("Should record a run the source cannot cover and keep the order scheduled")
+    public void testInsufficientFunds() throws Exception {
+        StandingOrderService service = newService(31);
+        StandingOrder first = service.createOrder("ACC975", "ACC976", 15.00, StandingOrder.Frequency.MONTHLY,
+                NOW, null);
+        StandingOrder second = service.createOrder("ACC975", "ACC976", 15.00, StandingOrder.Frequency.MONTHLY,
+                NOW, null);
+
+        StandingOrderService.RunReport report = service.runDue(NOW);
+        assertEquals(2, report.getRuns());
+        assertEquals(1, report.getPosted());
+        assertEquals(1, report.getCount(PostingResult.Status.INSUFFICIENT_FUNDS));
+        assertEquals(505.00, saver.getBalance(), 0.001);
+        assertEquals(1, first.getRunsRejected() + second.getRunsRejected());
+        assertEquals(2, service.getOrderCount());
+        assertEquals(NOW.plusMonths(1), second.getNextRun());
+        service.stop();
+    }
+
+    @Test
+    @DisplayName("Should skip missed runs past the catch-up limit")
+    public void testCatchUpLimit() throws Exception {
+        StandingOrderService service = newService(2);
+        StandingOrder order = service.createOrder("ACC974", "ACC976", 1.00, StandingOrder.Frequency.DAILY,
+                NOW.minusDays(5), null);
+
+        StandingOrderService.RunReport report = service.runDue(NOW);
+        assertEquals(2, report.getRuns());
+        assertEquals(4, report.getMissedRuns());
+        assertEquals(6, order.getRunsScheduled());
+        assertEquals(NOW.plusDays(1), order.getNextRun());
+        service.stop();
+    }
+
+    @Test
+    @DisplayName("Should save open orders and pick up their schedule on recovery")
+    public void testCancelAndPersistence() throws Exception {
+        StandingOrderService before = newService(31);
+        StandingOrder kept = before.createOrder("ACC974", "ACC976", 2.50, StandingOrder.Frequency.WEEKLY,
+                NOW.minusDays(7), NOW.plusMonths(6));
+        StandingOrder cancelled = before.createOrder("ACC974", "ACC976", 3.00, StandingOrder.Frequency.DAILY,
+                NOW, null);
+        assertTrue(before.cancel(cancelled.getOrderId()));
+        assertFalse(before.cancel(cancelled.getOrderId()));
+        assertEquals(1, before.runDue(NOW).getDueOrders());
+        assertEquals(1, before.saveOrders());
+
+        StandingOrderService after = newService(31);
+        assertEquals(1, after.recoverOrders());
+        StandingOrder recovered = after.getOrder(kept.getOrderId());
+        assertEquals(kept.getNextRun(), recovered.getNextRun());
+        assertEquals(kept.getEndDate(), recovered.getEndDate());
+        assertEquals(0, after.runDue(NOW).getRuns());
+        StandingOrder next = after.createOrder("ACC974", "ACC976", 1.00, StandingOrder.Frequency.DAILY,
+                NOW.plusDays(1), null);
+        assertTrue(next.getOrderId().compareTo(kept.getOrderId()) > 0, "ids continue after recovered ones");
+        before.stop();
+        after.stop();
+    }
+
+    @Test
+    @DisplayName("Should not repeat runs posted after the last save when recovering")
+    public void testRunsLoggedBeforeSave() throws Exception {
+        StandingOrderService before = newService(31);
+        StandingOrder order = before.createOrder("ACC974", "ACC976", 4.00, StandingOrder.Frequency.DAILY,
+                NOW.minusDays(1), null);
+        assertEquals(1, before.saveOrders());
+        double payerBefore = payer.getBalance();
+        // Posted, then a crash before the next save
+        assertEquals(2, before.runDue(NOW).getPosted());
+        assertEquals(payerBefore - 8.00, payer.getBalance(), 0.001);
+
+        StandingOrderService after = newService(31);
+        assertEquals(1, after.recoverOrders());
+        assertEquals(2, after.getOrder(order.getOrderId()).getRunsScheduled());
+        assertEquals(0, after.runDue(NOW).getRuns());
+        assertEquals(payerBefore - 8.00, payer.getBalance(), 0.001);
+
+        // A save covers the log, which starts over empty
+        assertEquals(1, after.saveOrders());
+        StandingOrderService again = newService(31);
+        assertEquals(1, again.recoverOrders());
+        assertEquals(1, again.runDue(NOW.plusDays(1)).getPosted());
+        before.stop();
+        after.stop();
+        again.stop();
+    }
+
+    @Test
+    @DisplayName("Should recover orders created and cancelled since the last save from the log")
+    public void testCreatedAndCancelledLogged() throws Exception {
+        StandingOrderService before = newService(31);
+        StandingOrder saved = before.createOrder("ACC974", "ACC976", 2.00, StandingOrder.Frequency.MONTHLY,
+                NOW.plusDays(3), null);
+        assertEquals(1, before.saveOrders());
+        // Then a crash before the next save
+        StandingOrder created = before.createOrder("ACC974", "ACC976", 6.00, StandingOrder.Frequency.WEEKLY,
+                NOW.plusDays(1), NOW.plusMonths(2));
+        StandingOrder dropped = before.createOrder("ACC974", "ACC976", 7.00, StandingOrder.Frequency.DAILY,
+                NOW.plusDays(1), null);
+        assertTrue(before.cancel(dropped.getOrderId()));
+        assertTrue(before.cancel(saved.getOrderId()));
+
+        StandingOrderService after = newService(31);
+        assertEquals(1, after.recoverOrders());
+        assertNull(after.getOrder(saved.getOrderId()));
+        assertNull(after.getOrder(dropped.getOrderId()));
+        StandingOrder recovered = after.getOrder(created.getOrderId());
+        assertEquals(6.00, recovered.getAmount(), 0.001);
+        assertEquals(NOW.plusMonths(2), recovered.getEndDate());
+        StandingOrder next = after.createOrder("ACC974", "ACC976", 1.00, StandingOrder.Frequency.DAILY,
+                NOW.plusDays(1), null);
+        assertTrue(next.getOrderId().compareTo(dropped.getOrderId()) > 0, "cancelled ids are not reused");
+        before.stop();
+        after.stop();
+    }
+}
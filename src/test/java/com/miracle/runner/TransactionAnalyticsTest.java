@@ -0,0 +1,84 @@
+package com.miracle.runner;
+
+import com.miracle.src.models.Transaction;
+import com.miracle.src.utils.AggregationKernels;
+import com.miracle.src.utils.ColumnarTransactionStore;
+import com.miracle.src.utils.TransactionAnalytics;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for the columnar aggregations; the active kernels (SIMD when the vector
+ * module is loaded) must agree with plain loops, including on ragged tails.
+ */
+public class TransactionAnalyticsTest {
+
+    private static final String[] TYPES = {"Deposit", "Withdrawal", "Transfer Out", "Transfer In"};
+
+    @Test
+    @DisplayName("Should match the scalar kernels on every length")
+    public void testKernelsAgree() {
+        AggregationKernels active = TransactionAnalytics.kernels();
+        AggregationKernels scalar = TransactionAnalytics.scalarKernels();
+        Random random = new Random(42);
+        for (int length : new int[]{0, 1, 7, 8, 9, 63, 1000, 4099}) {
+            long[] values = random.longs(length, -1_000_000, 1_000_000).toArray();
+            long[] times = random.longs(length, 0, 10_000).toArray();
+            byte[] types = new byte[length];
+            int[] accounts = new int[length];
+            for (int i = 0; i < length; i++) {
+                types[i] = (byte) random.nextInt(4);
+                accounts[i] = random.nextInt(5);
+            }
+            String at = "length " + length;
+            assertEquals(scalar.sum(values, length), active.sum(values, length), at);
+            assertEquals(scalar.min(values, length), active.min(values, length), at);
+            assertEquals(scalar.max(values, length), active.max(values, length), at);
+            assertEquals(scalar.sumWhereType(types, (byte) 2, values, length), active.sumWhereType(types, (byte) 2, values, length), at);
+            assertEquals(scalar.countWhereType(types, (byte) 1, length), active.countWhereType(types, (byte) 1, length), at);
+            assertEquals(scalar.sumInRange(times, 2_500, 7_500, values, length), active.sumInRange(times, 2_500, 7_500, values, length), at);
+            assertEquals(scalar.countInRange(times, 2_500, 7_500, length), active.countInRange(times, 2_500, 7_500, length), at);
+            assertEquals(scalar.sumWhereAccountAndType(accounts, 3, types, (byte) 0, values, length),
+                    active.sumWhereAccountAndType(accounts, 3, types, (byte) 0, values, length), at);
+        }
+    }
+
+    @Test
+    @DisplayName("Should aggregate a store like a stream over its transactions")
+    public void testStoreAggregations() {
+        ColumnarTransactionStore store = new ColumnarTransactionStore();
+        LocalDateTime start = LocalDateTime.of(2026, 1, 1, 0, 0);
+        for (int i = 0; i < 20_000; i++) {
+            store.add(new Transaction("TXN" + (1000 + i), "ACC" + (100 + i % 7), TYPES[i % 4],
+                    (i % 997) + 0.25, i, start.plusMinutes(i)));
+        }
+
+        TransactionAnalytics.Summary summary = TransactionAnalytics.summarize(store);
+        assertEquals(20_000, summary.getCount());
+        assertEquals(store.stream().mapToLong(t -> Math.round(t.getAmount() * 100)).sum(), summary.getTotalCents());
+        assertEquals(25, summary.getMinCents());
+        assertEquals(99_625, summary.getMaxCents());
+
+        assertEquals(5_000, TransactionAnalytics.countByType(store, "Withdrawal"));
+        assertEquals(0, TransactionAnalytics.sumAmountCents(store, "Interest"));
+        assertEquals(store.stream().filter(t -> t.getType().equals("Deposit"))
+                        .mapToLong(t -> Math.round(t.getAmount() * 100)).sum(),
+                TransactionAnalytics.sumAmountCents(store, "Deposit"));
+        assertEquals(store.stream().filter(t -> t.getType().equals("Transfer In") && t.getAccountNumber().equals("ACC103"))
+                        .mapToLong(t -> Math.round(t.getAmount() * 100)).sum(),
+                TransactionAnalytics.sumAmountCents(store, "ACC103", "Transfer In"));
+
+        LocalDateTime from = start.plusMinutes(100);
+        LocalDateTime to = start.plusMinutes(18_000);
+        assertEquals(17_900, TransactionAnalytics.countBetween(store, from, to));
+        assertEquals(store.stream().filter(t -> !t.getTimestamp().isBefore(from) && t.getTimestamp().isBefore(to))
+                        .mapToLong(t -> Math.round(t.getAmount() * 100)).sum(),
+                TransactionAnalytics.sumAmountCentsBetween(store, from, to));
+        assertEquals(4, TransactionAnalytics.totalsByType(store).size());
+    }
+}
@@ -0,0 +1,167 @@
+package com.miracle.runner;
+
+import com.miracle.src.models.Transaction;
+import com.miracle.src.utils.FileIOUtils;
+import com.miracle.src.utils.TransactionSegmentStore;
+import com.miracle.src.utils.TransactionSegmentStore.LogView;
+import com.miracle.src.utils.TransactionSegmentStore.SegmentManifest;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for transaction log segment rotation and manifest-based reads.
+ */
+public class TransactionSegmentStoreTest {
+
+    @TempDir
+    Path tempDir;
+
+    private static String line(int id, LocalDateTime ts) {
+        return FileIOUtils.serializeTransaction(new Transaction("TXN" + id, "ACC001", "Deposit", 10.00, 10.00 * id, ts));
+    }
+
+    private TransactionSegmentStore store(long maxBytes, boolean compress) {
+        return new TransactionSegmentStore(tempDir.resolve("transactions.txt"), tempDir.resolve("segments"), maxBytes, compress);
+    }
+
+    @Test
+    @DisplayName("Should seal the active file into a segment when the size limit is reached")
+    public void testSizeRotation() throws IOException {
+        TransactionSegmentStore store = store(150, false);
+        LocalDateTime ts = LocalDateTime.of(2026, 1, 6, 9, 0);
+        for (int i = 1; i <= 6; i++) {
+            store.append(List.of(line(i, ts), line(i + 100, ts)), ts.toLocalDate());
+        }
+
+        List<SegmentManifest> sealed = store.getSealedSegments();
+        assertFalse(sealed.isEmpty());
+        assertEquals(1, sealed.get(0).getSequence());
+        assertEquals(1, sealed.get(0).getMinId());
+        assertTrue(Files.exists(store.manifestFileOf(sealed.get(0))));
+
+        List<Transaction> all = new ArrayList<>();
+        assertEquals(12, store.readAll(all::add));
+        assertEquals("TXN1", all.get(0).getTransactionId());
+        assertEquals("TXN106", all.get(11).getTransactionId());
+    }
+
+    @Test
+    @DisplayName("Should rotate on day change and skip segments outside a time range")
+    public void testDayRotationAndRangeSkip() throws IOException {
+        TransactionSegmentStore store = store(TransactionSegmentStore.DEFAULT_MAX_SEGMENT_BYTES, true);
+        LocalDate day = LocalDate.of(2026, 1, 1);
+        for (int d = 0; d < 3; d++) {
+            LocalDateTime ts = day.plusDays(d).atTime(12, 0);
+            store.append(List.of(line(d * 10 + 1, ts), line(d * 10 + 2, ts)), ts.toLocalDate());
+        }
+
+        List<SegmentManifest> sealed = store.getSealedSegments();
+        assertEquals(2, sealed.size());
+        assertTrue(sealed.get(0).isCompressed());
+        assertEquals(2, sealed.get(0).getCount());
+
+        LocalDateTime from = day.plusDays(1).atStartOfDay();
+        LocalDateTime to = day.plusDays(1).atTime(23, 59);
+        assertEquals(1, store.segmentsOverlapping(from, to).size());
+
+        List<Transaction> matched = new ArrayList<>();
+        assertEquals(2, store.readBetween(from, to, matched::add));
+        assertEquals("TXN11", matched.get(0).getTransactionId());
+    }
+
+    @Test
+    @DisplayName("Should finish a seal interrupted before its manifest was written")
+    public void testInterruptedSealRecovered() throws IOException {
+        Path segments = Files.createDirectories(tempDir.resolve("segments"));
+        Files.write(segments.resolve("segment-000001.txt"), List.of(line(1, LocalDateTime.of(2026, 1, 6, 9, 0))));
+
+        TransactionSegmentStore store = store(TransactionSegmentStore.DEFAULT_MAX_SEGMENT_BYTES, false);
+        List<SegmentManifest> sealed = store.getSealedSegments();
+
+        assertEquals(1, sealed.size());
+        assertEquals(1, sealed.get(0).getCount());
+        assertEquals(2, store.currentPosition().getGeneration());
+        assertTrue(Files.exists(segments.resolve("segment-000001.manifest")));
+        assertFalse(Files.exists(segments.resolve("segment-000001.manifest.tmp")));
+    }
+
+    @Test
+    @DisplayName("Should remove the plain copy a crash left beside a compressed sealed segment")
+    public void testLeftoverPlainSegmentRemoved() throws IOException {
+        TransactionSegmentStore store = store(TransactionSegmentStore.DEFAULT_MAX_SEGMENT_BYTES, true);
+        LocalDateTime ts = LocalDateTime.of(2026, 1, 6, 9, 0);
+        store.append(List.of(line(1, ts), line(2, ts)), ts.toLocalDate());
+        store.rotate();
+        // As if the process died between the manifest move and deleting the plain file
+        Path plain = tempDir.resolve("segments").resolve("segment-000001.txt");
+        Files.write(plain, List.of(line(1, ts), line(2, ts)));
+
+        TransactionSegmentStore reopened = store(TransactionSegmentStore.DEFAULT_MAX_SEGMENT_BYTES, true);
+        List<SegmentManifest> sealed = reopened.getSealedSegments();
+
+        assertEquals(1, sealed.size());
+        assertTrue(sealed.get(0).isCompressed());
+        assertFalse(Files.exists(plain));
+        assertEquals(2, reopened.readAll(t -> { }));
+    }
+
+    @Test
+    @DisplayName("Should fail a read of a sealed segment that no longer matches its manifest checksum")
+    public void testCorruptSegmentRejected() throws IOException {
+        TransactionSegmentStore store = store(TransactionSegmentStore.DEFAULT_MAX_SEGMENT_BYTES, false);
+        LocalDate day = LocalDate.of(2026, 1, 1);
+        for (int d = 0; d < 2; d++) {
+            LocalDateTime ts = day.plusDays(d).atTime(12, 0);
+            store.append(List.of(line(d * 10 + 1, ts)), ts.toLocalDate());
+        }
+        SegmentManifest segment = store.getSealedSegments().get(0);
+        Path file = store.dataFileOf(segment);
+        byte[] data = Files.readAllBytes(file);
+        String text = new String(data, StandardCharsets.UTF_8);
+        int amount = text.indexOf("10.00");
+        data[amount] = '9';
+        Files.write(file, data);
+
+        TransactionSegmentStore reopened = store(TransactionSegmentStore.DEFAULT_MAX_SEGMENT_BYTES, false);
+        IOException e = assertThrows(IOException.class, () -> reopened.readAll(t -> { }));
+        assertTrue(e.getMessage().contains("checksum"), e.getMessage());
+        assertThrows(IOException.class, () -> reopened.verify(reopened.getSealedSegments().get(0)));
+    }
+
+    @Test
+    @DisplayName("Should keep a view on the generation it was taken at while the log is sealed and grows")
+    public void testViewSurvivesSeal() throws IOException {
+        TransactionSegmentStore store = store(TransactionSegmentStore.DEFAULT_MAX_SEGMENT_BYTES, true);
+        LocalDateTime ts = LocalDateTime.of(2026, 1, 6, 9, 0);
+        store.append(List.of(line(1, ts), line(2, ts)), ts.toLocalDate());
+
+        try (LogView view = store.openView()) {
+            store.rotate();
+            store.append(List.of(line(3, ts)), ts.toLocalDate());
+
+            assertTrue(view.getSealedSegments().isEmpty());
+            assertEquals(1, view.getActiveGeneration());
+            assertEquals(view.getActiveChannel().size(), view.getEnd().getOffset());
+            List<Transaction> read = new ArrayList<>();
+            view.getActiveChannel().position(0);
+            assertEquals(2, FileIOUtils.readTransactions(view.getActiveChannel(), read::add));
+            assertEquals("TXN2", read.get(1).getTransactionId());
+        }
+        try (LogView after = store.openView()) {
+            assertEquals(1, after.getSealedSegments().size());
+            assertEquals(2, after.getActiveGeneration());
+        }
+    }
+}
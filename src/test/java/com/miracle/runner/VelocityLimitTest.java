@@ -0,0 +1,123 @@
+package com.miracle.runner;
+
+import com.miracle.src.dto.TransactionRequest;
+import com.miracle.src.models.*;
+import com.miracle.src.models.exceptions.VelocityLimitExceededException;
+import com.miracle.src.services.AccountManager;
+import com.miracle.src.utils.SlidingWindowCounter;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for the daily withdrawal and transfer velocity limits.
+ */
+@ExtendWith(SharedStateExtension.class)
+public class VelocityLimitTest {
+
+    private static Customer regular;
+    private static Customer premium;
+    private final AccountManager manager = AccountManager.getInstance();
+
+    @BeforeAll
+    public static void createCustomers() {
+        regular = new RegularCustomer("Daily Spender", 33, "0241112222", "4 Limit Ln", "CUS995", true);
+        premium = new PremiumCustomer("Big Mover", 48, "0241113333", "5 Ceiling Ct", "CUS996", true);
+    }
+
+    @BeforeEach
+    public void enableLimits() {
+        VelocityLimits.setEnabled(true);
+    }
+
+    @AfterEach
+    public void cleanUp() {
+        VelocityLimits.setEnabled(false);
+    }
+
+    @Test
+    @DisplayName("Should drop buckets that leave the window and reset lazily after a long gap")
+    public void testWindowExpiry() {
+        SlidingWindowCounter counter = new SlidingWindowCounter(2, 4, 10);
+        assertTrue(counter.tryAdd(0, 60, 100, 0));
+        assertTrue(counter.tryAdd(0, 40, 100, 15));
+        assertFalse(counter.tryAdd(0, 1, 100, 39));
+        assertTrue(counter.tryAdd(1, 100, 100, 39), "series are limited independently");
+
+        // Bucket 0 falls out at t=40; bucket 1 stays until t=50
+        assertEquals(40, counter.total(0, 40));
+        assertTrue(counter.tryAdd(0, 60, 100, 45));
+        assertEquals(0, counter.total(0, 1_000));
+        assertEquals(0, counter.total(1, 1_000));
+
+        counter.add(0, 25, 900);
+        assertEquals(0, counter.total(0, 1_000), "replayed times outside the window are ignored");
+        counter.add(0, 25, 990);
+        counter.subtract(0, 5, 990);
+        assertEquals(20, counter.total(0, 1_000));
+    }
+
+    @Test
+    @DisplayName("Should refuse a savings withdrawal past the regular daily limit")
+    public void testSavingsWithdrawalLimit() throws Exception {
+        SavingsAccount account = new SavingsAccount(regular, 20_000.00, "ACC995", true);
+        account.withdraw(3_000.00);
+
+        VelocityLimitExceededException e = assertThrows(VelocityLimitExceededException.class,
+                () -> account.withdraw(2_500.00));
+        assertEquals(5_000.00, e.getDailyLimit(), 0.001);
+        assertEquals(3_000.00, e.getUsedToday(), 0.001);
+        assertEquals(17_000.00, account.getBalance(), 0.001);
+
+        account.withdraw(2_000.00);
+        account.deposit(1_000.00);
+        assertEquals(500_000, account.getVelocityUsedCents(VelocityLimits.Kind.WITHDRAWAL));
+        assertEquals(Account.NOT_POSTED, account.withdrawCents(1));
+    }
+
+    @Test
+    @DisplayName("Should limit transfers and withdrawals separately by customer type")
+    public void testCheckingTransferLimit() throws Exception {
+        CheckingAccount account = new CheckingAccount(premium, 100_000.00, "ACC996", true);
+        account.withdrawWithType(50_000.00, "Transfer Out");
+        assertThrows(VelocityLimitExceededException.class, () -> account.withdrawWithType(0.01, "Transfer Out"));
+        account.withdraw(100.00);
+        assertEquals(49_900.00, account.getBalance(), 0.001);
+
+        VelocityLimits.setEnabled(false);
+        account.withdrawWithType(10.00, "Transfer Out");
+        assertEquals(49_890.00, account.getBalance(), 0.001);
+    }
+
+    @Test
+    @DisplayName("Should report the limit as a result code and as an exception through the manager")
+    public void testManagerRejection() throws Exception {
+        manager.addAccountFromFile(new CheckingAccount(regular, 12_000.00, "ACC997", true));
+        TransactionRequest withdrawal = new TransactionRequest("ACC997", null, "WITHDRAWAL", 4_000);
+        assertTrue(manager.tryProcessTransaction(withdrawal).isPosted());
+        assertEquals(PostingResult.LIMIT_EXCEEDED, manager.tryProcessTransaction(withdrawal));
+        assertThrows(VelocityLimitExceededException.class, PostingResult.LIMIT_EXCEEDED::getTransactionOrThrow);
+
+        assertThrows(VelocityLimitExceededException.class, () -> manager.processTransaction(withdrawal).join());
+        assertEquals(8_000.00, manager.findAccount("ACC997").getBalance(), 0.001);
+    }
+
+    @Test
+    @DisplayName("Should count replayed history from the last day only")
+    public void testReplay() {
+        CheckingAccount account = new CheckingAccount(regular, 10_000.00, "ACC998", true);
+        LocalDateTime now = LocalDateTime.now();
+        account.replayVelocity(new Transaction("REPLAY-1", "ACC998", "Withdrawal", 1_000.00, 9_000.00, now.minusHours(25)));
+        account.replayVelocity(new Transaction("REPLAY-2", "ACC998", "Withdrawal", 4_000.00, 5_000.00, now.minusHours(2)));
+        account.replayVelocity(new Transaction("REPLAY-3", "ACC998", "Deposit", 500.00, 5_500.00, now.minusHours(1)));
+        account.replayVelocity(new Transaction("REPLAY-4", "ACC998", "Transfer Out", 700.00, 4_800.00, now.minusHours(1)));
+
+        assertEquals(400_000, account.getVelocityUsedCents(VelocityLimits.Kind.WITHDRAWAL));
+        assertEquals(70_000, account.getVelocityUsedCents(VelocityLimits.Kind.TRANSFER));
+        assertEquals(PostingResult.LIMIT_EXCEEDED, account.tryProcessTransaction(1_000.01, "Withdrawal"));
+        assertTrue(account.tryProcessTransaction(1_000.00, "Withdrawal").isPosted());
+    }
+}